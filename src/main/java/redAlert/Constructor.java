@@ -19,6 +19,7 @@ import redAlert.shapeObjects.MovableUnit;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.shapeObjects.Soldier;
 import redAlert.shapeObjects.Vehicle;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utils.PointUtil;
 import redAlert.utils.WavFileReader;
@@ -38,17 +39,21 @@ public class Constructor {
 	 * @param scenePanel  游戏主面板
 	 */
 	public static void putOneShapeUnit(MovableUnit movableUnit ) {
-		RuntimeParameter.addBuildingToQueue(movableUnit);
-		ShapeUnitResourceCenter.addMovableUnit(movableUnit);
+		TickCommit.defer(() -> {
+			RuntimeParameter.addBuildingToQueue(movableUnit);
+			ShapeUnitResourceCenter.addMovableUnit(movableUnit);
+		});
 	}
 	
 	/**
 	 * 添加一个单位
+	 * 在逻辑帧的意图阶段生成的单位(炮弹、核弹等)到提交阶段才按次序加入
 	 */
 	public static void putOneShapeUnit(ShapeUnit shapeUnit) {
-		RuntimeParameter.addBuildingToQueue(shapeUnit);
-		ShapeUnitResourceCenter.addUnit(shapeUnit);
-		
+		TickCommit.defer(() -> {
+			RuntimeParameter.addBuildingToQueue(shapeUnit);
+			ShapeUnitResourceCenter.addUnit(shapeUnit);
+		});
 	}
 	
 	
@@ -83,6 +88,7 @@ public class Constructor {
 						cp.addBuilding(building,BuildingAreaType.WeighBridge);//磅秤占用
 					}
 				}
+				PointUtil.notifyPassabilityChanged(mbuildingAreas);
 				
 				//将建筑阴影中的建筑设置为被遮挡
 				List<CenterPoint> shadowAreas = building.getShadownCpList();
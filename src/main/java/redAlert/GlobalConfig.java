@@ -25,6 +25,10 @@ public class GlobalConfig {
 	 * 地图文件路径
 	 */
 	public static String mapFilePath = "test_map.text";
+	/**
+	 * 二进制地图文件路径  存在且不比文本地图旧时优先使用(见MapFileReader.currentMapFile)
+	 */
+	public static String binaryMapFilePath = "test_map.bin";
 	
 	
 	
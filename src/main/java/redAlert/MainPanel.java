@@ -1,19 +1,9 @@
 package redAlert;
 
 import java.awt.Dimension;
-import java.awt.Graphics2D;
-import java.awt.Point;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
 
 import javax.swing.SwingUtilities;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.StringUtils;
-
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GLCapabilities;
@@ -22,28 +12,18 @@ import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.awt.GLJPanel;
 import com.jogamp.opengl.util.FPSAnimator;
 
-import redAlert.enums.MouseStatus;
-import redAlert.enums.OverlayType;
-import redAlert.enums.TerrainType;
-import redAlert.militaryBuildings.AfWeap;
 import redAlert.other.Mouse;
-import redAlert.other.MouseCursorObject;
-import redAlert.other.MoveLine;
-import redAlert.other.Place;
-import redAlert.shapeObjects.ShapeUnit;
-import redAlert.task.ShapeUnitCalculateTask;
-import redAlert.utilBean.CenterPoint;
-import redAlert.utilBean.Coordinate;
-import redAlert.utilBean.MovePlan;
-import redAlert.utils.CanvasPainter;
-import redAlert.utils.CoordinateUtil;
+import redAlert.task.GameLoop;
 import redAlert.utils.DrawableUtil;
-import redAlert.utils.PointUtil;
-import redAlert.utils.TmpFileReader;
+import redAlert.utils.GlRenderBackend;
+import redAlert.utils.PaletteShader;
+import redAlert.utils.SpriteBatch;
+import redAlert.utils.TextureCache;
 
 /**
  * 游戏场景界面
  * 基于OpenGL渲染的游戏场景画板
+ * 画什么由SceneRenderer决定,这里只负责OpenGL上下文
  *
  */
 public class MainPanel extends GLJPanel{
@@ -55,162 +35,9 @@ public class MainPanel extends GLJPanel{
 	 */
 	public MainPanel myself;
 	/**
-	 * 临时画板   最终将移除此画板,但是现在还没改完
-	 */
-	public BufferedImage canvas = new BufferedImage(SysConfig.viewportWidth,SysConfig.viewportHeight,BufferedImage.TYPE_INT_ARGB);
-
-	// ========== 性能优化：静态颜色常量，避免每帧创建大量 Color 对象 ==========
-	/**
-	 * 地形颜色常量
-	 * 使用静态 final 避免每帧重复创建，减少 GC 压力和内存分配
-	 */
-	private static final class TerrainColors {
-		// 地形类型颜色
-		static final java.awt.Color WATER = new java.awt.Color(0, 100, 255, 102);
-		static final java.awt.Color ROAD = new java.awt.Color(128, 128, 128, 76);
-		static final java.awt.Color ROCK_GROUND = new java.awt.Color(80, 80, 80, 127);
-		static final java.awt.Color BEACH = new java.awt.Color(240, 220, 140, 102);
-		static final java.awt.Color CLEAR = new java.awt.Color(144, 238, 144, 51);
-
-		// 覆盖物颜色
-		static final java.awt.Color TREE = new java.awt.Color(34, 139, 34, 204);
-		static final java.awt.Color TREE_TRUNK = new java.awt.Color(101, 67, 33, 255);
-		static final java.awt.Color TIBERIUM = new java.awt.Color(0, 255, 127, 229);
-		static final java.awt.Color TIBERIUM_HIGHLIGHT = new java.awt.Color(200, 255, 200, 255);
-		static final java.awt.Color ROCK = new java.awt.Color(105, 105, 105, 216);
-		static final java.awt.Color ROCK_DARK = new java.awt.Color(80, 80, 80, 255);
-		static final java.awt.Color CRATE = new java.awt.Color(205, 133, 63, 229);
-		static final java.awt.Color CRATE_BORDER = new java.awt.Color(139, 90, 43, 255);
-	}
-
-	// ========== 性能优化：预计算瓦片坐标 ==========
-	/**
-	 * 预计算的瓦片坐标表
-	 * 避免每帧重复计算 x = 30 + 60*n 和 y = 15 + 30*m
+	 * 场景绘制  地形、单位、菱形块、选择框、鼠标指针
 	 */
-	private static final int[][][] TILE_COORDS = new int[50][50][2]; // [m][n][0=x,1=y]
-
-	static {
-		for(int m = 0; m < 50; m++) {
-			for(int n = 0; n < 50; n++) {
-				TILE_COORDS[m][n][0] = 30 + 60 * n; // 一类中心点 X 坐标
-				TILE_COORDS[m][n][1] = 15 + 30 * m; // 一类中心点 Y 坐标
-			}
-		}
-	}
-	// ========== 性能优化结束 ==========
-
-	// ========== 渲染优化：Graphics2D 复用与双缓冲 ==========
-	/** 缓存的 Graphics2D 对象（避免每帧重复创建） */
-	private Graphics2D cachedGraphics2D = null;
-
-	/** 双缓冲：前缓冲（用于显示） */
-	private BufferedImage frontBuffer = null;
-
-	/** 双缓冲：后缓冲（用于绘制） */
-	private BufferedImage backBuffer = null;
-
-	/** 当前绘制的缓冲区 */
-	private BufferedImage currentBuffer = null;
-
-	/**
-	 * 初始化双缓冲系统
-	 */
-	private void initDoubleBuffering() {
-		if(frontBuffer == null) {
-			frontBuffer = new BufferedImage(SysConfig.viewportWidth, SysConfig.viewportHeight, BufferedImage.TYPE_INT_ARGB);
-			backBuffer = new BufferedImage(SysConfig.viewportWidth, SysConfig.viewportHeight, BufferedImage.TYPE_INT_ARGB);
-			currentBuffer = backBuffer;
-		}
-	}
-
-	/**
-	 * 获取或创建缓存的 Graphics2D 对象
-	 */
-	private Graphics2D getCachedGraphics2D() {
-		if(cachedGraphics2D == null) {
-			// 首次创建
-			initDoubleBuffering();
-			cachedGraphics2D = currentBuffer.createGraphics();
-
-			// 设置渲染优化参数
-			cachedGraphics2D.setRenderingHint(java.awt.RenderingHints.KEY_RENDERING,
-				java.awt.RenderingHints.VALUE_RENDER_SPEED);
-			cachedGraphics2D.setRenderingHint(java.awt.RenderingHints.KEY_ANTIALIASING,
-				java.awt.RenderingHints.VALUE_ANTIALIAS_OFF);
-		}
-
-		return cachedGraphics2D;
-	}
-
-	/**
-	 * 交换缓冲区并重置 Graphics2D（双缓冲机制）
-	 */
-	private void swapCanvasBuffers() {
-		// 交换缓冲区引用
-		BufferedImage temp = frontBuffer;
-		frontBuffer = backBuffer;
-		backBuffer = temp;
-
-		// 更新当前绘制缓冲区
-		currentBuffer = backBuffer;
-
-		// 销毁旧的 Graphics2D
-		if(cachedGraphics2D != null) {
-			cachedGraphics2D.dispose();
-			cachedGraphics2D = null;
-		}
-
-		// 清空新的 backBuffer（关键！避免半透明内容残留导致拖影）
-		Graphics2D cleaner = backBuffer.createGraphics();
-		cleaner.setBackground(new java.awt.Color(0, 0, 0, 0));
-		cleaner.clearRect(0, 0, SysConfig.viewportWidth, SysConfig.viewportHeight);
-		cleaner.dispose();
-
-		// 更新 canvas 引用（指向已完成的前缓冲）
-		canvas = frontBuffer;
-	}
-	// ========== 渲染优化结束 ==========
-
-	// ========== 性能优化：地形颜色缓存 ==========
-	/** 地形类型颜色缓存（避免每帧重复创建Color对象） */
-	private static final java.awt.Color COLOR_WATER = new java.awt.Color(0, 100, 255);
-	private static final java.awt.Color COLOR_ROAD = new java.awt.Color(128, 128, 128);
-	private static final java.awt.Color COLOR_ROCK = new java.awt.Color(80, 80, 80);
-	private static final java.awt.Color COLOR_BEACH = new java.awt.Color(240, 220, 140);
-	private static final java.awt.Color COLOR_CLEAR = new java.awt.Color(144, 238, 144);
-
-	/** 覆盖物颜色缓存 */
-	private static final java.awt.Color COLOR_TREE_GREEN = new java.awt.Color(34, 139, 34);
-	private static final java.awt.Color COLOR_TREE_TRUNK = new java.awt.Color(101, 67, 33);
-	private static final java.awt.Color COLOR_TIBERIUM = new java.awt.Color(0, 255, 127);
-	private static final java.awt.Color COLOR_TIBERIUM_GLOW = new java.awt.Color(200, 255, 200);
-	private static final java.awt.Color COLOR_ROCK_OBSTACLE = new java.awt.Color(105, 105, 105);
-	private static final java.awt.Color COLOR_ROCK_DARK = new java.awt.Color(80, 80, 80);
-	private static final java.awt.Color COLOR_CRATE = new java.awt.Color(205, 133, 63);
-	private static final java.awt.Color COLOR_CRATE_BORDER = new java.awt.Color(139, 90, 43);
-
-	/** AlphaComposite 缓存（避免重复创建） */
-	private static final java.awt.AlphaComposite COMPOSITE_WATER =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.4f);
-	private static final java.awt.AlphaComposite COMPOSITE_ROAD =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.3f);
-	private static final java.awt.AlphaComposite COMPOSITE_ROCK =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.5f);
-	private static final java.awt.AlphaComposite COMPOSITE_BEACH =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.4f);
-	private static final java.awt.AlphaComposite COMPOSITE_CLEAR =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.2f);
-	private static final java.awt.AlphaComposite COMPOSITE_TREE =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.8f);
-	private static final java.awt.AlphaComposite COMPOSITE_TIBERIUM =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.9f);
-	private static final java.awt.AlphaComposite COMPOSITE_ROCK_OBSTACLE =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.85f);
-	private static final java.awt.AlphaComposite COMPOSITE_CRATE =
-		java.awt.AlphaComposite.getInstance(java.awt.AlphaComposite.SRC_OVER, 0.9f);
-	// ========== 性能优化结束 ==========
-	
+	public SceneRenderer sceneRenderer = new SceneRenderer();
 	
 	/**
 	 * 执行画板初始化
@@ -233,14 +60,14 @@ public class MainPanel extends GLJPanel{
 		this.myself = this;
 		
 		//游戏场景物品计算任务
-		ShapeUnitCalculateTask calculateTask = new ShapeUnitCalculateTask(RuntimeParameter.shapeUnitBlockingQueue);
-		calculateTask.startCalculateTask();
+		GameLoop gameLoop = new GameLoop(SysConfig.simulationTickRate);
+		gameLoop.startGameLoop();
 		
 		this.setCursor(Mouse.getNoneCursor());//隐藏鼠标
 		
 		int theSightOffX = RuntimeParameter.viewportOffX;
 		int theSightOffY = RuntimeParameter.viewportOffY;
-		initGuidelinesCanvas(theSightOffX,theSightOffY);//初始化辅助线格
+		sceneRenderer.loadTerrain(theSightOffX,theSightOffY);//初始化辅助线格并加载地形
 		
 		FPSAnimator animator = new FPSAnimator(this, RuntimeParameter.fps, true);
 	    SwingUtilities.invokeLater(new Runnable() {
@@ -251,932 +78,31 @@ public class MainPanel extends GLJPanel{
 		
 	}
 	
-	/**
-	 * 地形菱形块列表
-	 */
-	public List<BufferedImage> terrainImageList = new ArrayList<>();
-	/**
-	 * 地形菱形块名称列表
-	 */
-	public List<String> terrainNameList = new ArrayList<>();
-	/**
-	 * 初始化辅助线格
-	 */
-	public void initGuidelinesCanvas(int theSightOffX,int theSightOffY) {
-		CanvasPainter.drawGuidelines(canvas,theSightOffX,theSightOffY);//辅助线网格
-		
-		//读取地形文件
-		try {
-			File mapFile = new File(GlobalConfig.mapFilePath);
-			if(mapFile.exists()) {
-				//加载tmp文件
-				terrainImageList.add(TmpFileReader.test("clat01.sno"));
-				terrainImageList.add(TmpFileReader.test("clat02.sno"));
-				terrainImageList.add(TmpFileReader.test("clat03.sno"));
-				terrainImageList.add(TmpFileReader.test("clat04.sno"));
-				terrainImageList.add(TmpFileReader.test("clat05.sno"));
-				terrainImageList.add(TmpFileReader.test("clat06.sno"));
-				terrainImageList.add(TmpFileReader.test("clat07.sno"));
-				terrainImageList.add(TmpFileReader.test("clat08.sno"));
-				terrainImageList.add(TmpFileReader.test("clat09.sno"));
-				terrainImageList.add(TmpFileReader.test("clat10.sno"));
-				terrainImageList.add(TmpFileReader.test("clat11.sno"));
-				terrainImageList.add(TmpFileReader.test("clat12.sno"));
-				terrainImageList.add(TmpFileReader.test("clat13.sno"));
-				terrainImageList.add(TmpFileReader.test("clat14.sno"));
-				terrainImageList.add(TmpFileReader.test("clat15.sno"));
-				terrainImageList.add(TmpFileReader.test("clat16.sno"));
-				
-				terrainImageList.add(TmpFileReader.test("clat01a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat02a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat03a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat04a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat05a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat06a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat07a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat08a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat09a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat10a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat11a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat12a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat13a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat14a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat15a.sno"));
-				terrainImageList.add(TmpFileReader.test("clat16a.sno"));
-
-				// 加载草地/地形瓦片
-				terrainImageList.add(TmpFileReader.test("clat01.tem"));
-				terrainImageList.add(TmpFileReader.test("clat02.tem"));
-				terrainImageList.add(TmpFileReader.test("clat03.tem"));
-				terrainImageList.add(TmpFileReader.test("clat04.tem"));
-				terrainImageList.add(TmpFileReader.test("clat05.tem"));
-				terrainImageList.add(TmpFileReader.test("clat06.tem"));
-				terrainImageList.add(TmpFileReader.test("clat07.tem"));
-				terrainImageList.add(TmpFileReader.test("clat08.tem"));
-				terrainImageList.add(TmpFileReader.test("clat09.tem"));
-				terrainImageList.add(TmpFileReader.test("clat10.tem"));
-				terrainImageList.add(TmpFileReader.test("clat11.tem"));
-				terrainImageList.add(TmpFileReader.test("clat12.tem"));
-				terrainImageList.add(TmpFileReader.test("clat13.tem"));
-				terrainImageList.add(TmpFileReader.test("clat14.tem"));
-				terrainImageList.add(TmpFileReader.test("clat15.tem"));
-				terrainImageList.add(TmpFileReader.test("clat16.tem"));
-
-				terrainNameList.add(("clat01.sno"));
-				terrainNameList.add(("clat02.sno"));
-				terrainNameList.add(("clat03.sno"));
-				terrainNameList.add(("clat04.sno"));
-				terrainNameList.add(("clat05.sno"));
-				terrainNameList.add(("clat06.sno"));
-				terrainNameList.add(("clat07.sno"));
-				terrainNameList.add(("clat08.sno"));
-				terrainNameList.add(("clat09.sno"));
-				terrainNameList.add(("clat10.sno"));
-				terrainNameList.add(("clat11.sno"));
-				terrainNameList.add(("clat12.sno"));
-				terrainNameList.add(("clat13.sno"));
-				terrainNameList.add(("clat14.sno"));
-				terrainNameList.add(("clat15.sno"));
-				terrainNameList.add(("clat16.sno"));
-				
-				terrainNameList.add(("clat01a.sno"));
-				terrainNameList.add(("clat02a.sno"));
-				terrainNameList.add(("clat03a.sno"));
-				terrainNameList.add(("clat04a.sno"));
-				terrainNameList.add(("clat05a.sno"));
-				terrainNameList.add(("clat06a.sno"));
-				terrainNameList.add(("clat07a.sno"));
-				terrainNameList.add(("clat08a.sno"));
-				terrainNameList.add(("clat09a.sno"));
-				terrainNameList.add(("clat10a.sno"));
-				terrainNameList.add(("clat11a.sno"));
-				terrainNameList.add(("clat12a.sno"));
-				terrainNameList.add(("clat13a.sno"));
-				terrainNameList.add(("clat14a.sno"));
-				terrainNameList.add(("clat15a.sno"));
-				terrainNameList.add(("clat16a.sno"));
-
-				// 添加草地瓦片名称
-				terrainNameList.add(("clat01.tem"));
-				terrainNameList.add(("clat02.tem"));
-				terrainNameList.add(("clat03.tem"));
-				terrainNameList.add(("clat04.tem"));
-				terrainNameList.add(("clat05.tem"));
-				terrainNameList.add(("clat06.tem"));
-				terrainNameList.add(("clat07.tem"));
-				terrainNameList.add(("clat08.tem"));
-				terrainNameList.add(("clat09.tem"));
-				terrainNameList.add(("clat10.tem"));
-				terrainNameList.add(("clat11.tem"));
-				terrainNameList.add(("clat12.tem"));
-				terrainNameList.add(("clat13.tem"));
-				terrainNameList.add(("clat14.tem"));
-				terrainNameList.add(("clat15.tem"));
-				terrainNameList.add(("clat16.tem"));
-
-
-
-				//读取地图文件
-				String mapText = FileUtils.readFileToString(new File(GlobalConfig.mapFilePath), "UTF-8");
-				String [] strs = StringUtils.split(mapText,"$");
-
-				Graphics2D g2d = canvas.createGraphics();
-
-				for(int i=0;i<strs.length;i++) {
-					String info = strs[i];
-					// 跳过空字符串(可能由文件末尾换行符导致)
-					if(StringUtils.isBlank(info)) {
-						continue;
-					}
-
-					String [] infos = StringUtils.split(info,",");
-					if(infos.length < 3) {
-						continue; // 跳过格式不正确的行
-					}
-
-					try {
-						int x = Integer.valueOf(infos[0].trim());
-						int y = Integer.valueOf(infos[1].trim());
-						String name = infos[2].trim();
-
-						int index = terrainNameList.indexOf(name);
-						if(index >= 0) { // 检查地形是否存在
-							CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
-							cp.setTileIndex(index);
-
-							// 解析地形类型和覆盖物（新格式支持）
-							if(infos.length >= 5) {
-								try {
-									String terrainTypeName = infos[3].trim();
-									String overlayTypeName = infos[4].trim();
-
-									// 设置地形类型
-									TerrainType terrainType = TerrainType.valueOf(terrainTypeName);
-									cp.terrainType = terrainType;
-
-									// 设置覆盖物类型
-									OverlayType overlayType = OverlayType.valueOf(overlayTypeName);
-									cp.overlayType = overlayType;
-								} catch (IllegalArgumentException e) {
-									// 如果地形类型解析失败，使用默认值
-									System.err.println("解析地形类型失败: " + infos[3] + ", " + infos[4]);
-								}
-							}
-
-							BufferedImage image = terrainImageList.get(index);
-							g2d.drawImage(image, cp.getX()-30, cp.getY()-15, null);
-						}
-					} catch (NumberFormatException e) {
-						System.err.println("解析地图数据失败: " + info);
-						e.printStackTrace();
-					}
-				}
-				g2d.dispose();
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}
-		
-	}
-	
-	/**
-	 *  绘制地形terrain
-	 *
-	 *  有地形画地形
-	 *  没地形画网格
-	 */
-	public void drawTerrain(GLAutoDrawable drawable,int viewportOffX,int viewportOffY) {
-
-		if(!terrainImageList.isEmpty()) {
-			// 性能监控：开始地形渲染计时
-			long terrainStart = redAlert.utils.PerformanceMonitor.startOperation("地形渲染");
-
-			// 优化：使用缓存的 Graphics2D 对象,避免每帧重复创建
-			Graphics2D g2d = getCachedGraphics2D();
-
-			// 优化：计算可见的瓦片范围，避免遍历所有2500个点
-			int viewportWidth = SysConfig.viewportWidth;
-			int viewportHeight = SysConfig.viewportHeight;
-			int tileSize = 60;  // 地形瓦片大小
-
-			// 计算可见范围（瓦片坐标）
-			// 注意：需要除以实际的瓦片间距，而不是简单的 tileSize
-			// 一类中心点：x 间距 60，y 间距 30
-			// 二类中心点：x 间距 60，y 间距 30
-			int startTileX = Math.max(0, (viewportOffX - 100) / 60);
-			int startTileY = Math.max(0, (viewportOffY - 100) / 30);
-			int endTileX = Math.min(50, (viewportOffX + viewportWidth + 200) / 60 + 1);
-			int endTileY = Math.min(50, (viewportOffY + viewportHeight + 200) / 30 + 1);
-
-			// ========== 性能优化 Phase 2：批量渲染地形效果 ==========
-			// 优化策略：先收集所有瓦片，按地形类型分组，然后批量绘制
-			// 这样可以减少 setColor 调用次数，从每瓦片 1-2 次减少到每种地形 1 次
-
-			// 创建临时列表存储不同类型的瓦片（按地形类型分组）
-			java.util.List<int[]> waterTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> roadTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> rockGroundTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> beachTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> clearTiles = new java.util.ArrayList<>();
-
-			// 创建临时列表存储覆盖物（按类型分组）
-			java.util.List<int[]> treeTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> tiberiumTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> rockTiles = new java.util.ArrayList<>();
-			java.util.List<int[]> crateTiles = new java.util.ArrayList<>();
-
-			// 第一遍循环：绘制基础瓦片并收集需要绘制效果的地形
-			for(int m = startTileY; m < endTileY; m++) {
-				int y = TILE_COORDS[m][0][1];
-				if (y < viewportOffY - 100 || y > viewportOffY + viewportHeight + 100) {
-					continue;
-				}
-
-				for(int n = startTileX; n < endTileX; n++) {
-					int x = TILE_COORDS[m][n][0];
-					CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
-					if(cp != null) {
-						int drawX = x - 30 - viewportOffX;
-						int drawY = y - 15 - viewportOffY;
-						g2d.drawImage(terrainImageList.get(cp.getTileIndex()), drawX, drawY, null);
-
-						// 收集需要绘制地形效果的瓦片（按类型分组）
-						if(cp.terrainType != null && cp.terrainType != redAlert.enums.TerrainType.Rough) {
-							int[] tileData = {drawX, drawY};
-							switch(cp.terrainType) {
-								case Water:
-									waterTiles.add(tileData);
-									break;
-								case Road:
-									roadTiles.add(tileData);
-									break;
-								case Rock:
-									rockGroundTiles.add(tileData);
-									break;
-								case Beach:
-									beachTiles.add(tileData);
-									break;
-								case Clear:
-									clearTiles.add(tileData);
-									break;
-							}
-						}
-
-						// 收集需要绘制覆盖物的瓦片（按类型分组）
-						if(cp.overlayType != null && cp.overlayType != redAlert.enums.OverlayType.None) {
-							int[] tileData = {drawX, drawY};
-							switch(cp.overlayType) {
-								case Tree:
-									treeTiles.add(tileData);
-									break;
-								case Tiberium:
-									tiberiumTiles.add(tileData);
-									break;
-								case Rock:
-									rockTiles.add(tileData);
-									break;
-								case Crate:
-									crateTiles.add(tileData);
-									break;
-							}
-						}
-					}
-				}
-			}
-
-			// 第二遍循环：绘制二类中心点
-			for(int m = startTileY; m < endTileY; m++) {
-				int y = 30 * m;
-				if (y < viewportOffY - 100 || y > viewportOffY + viewportHeight + 100) {
-					continue;
-				}
-
-				for(int n = startTileX; n < endTileX; n++) {
-					int x = 60 * n;
-					CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
-					if(cp != null) {
-						int drawX = x - 30 - viewportOffX;
-						int drawY = y - 15 - viewportOffY;
-						g2d.drawImage(terrainImageList.get(cp.getTileIndex()), drawX, drawY, null);
-
-						// 同样收集需要绘制地形效果的瓦片
-						if(cp.terrainType != null && cp.terrainType != redAlert.enums.TerrainType.Rough) {
-							int[] tileData = {drawX, drawY};
-							switch(cp.terrainType) {
-								case Water:
-									waterTiles.add(tileData);
-									break;
-								case Road:
-									roadTiles.add(tileData);
-									break;
-								case Rock:
-									rockGroundTiles.add(tileData);
-									break;
-								case Beach:
-									beachTiles.add(tileData);
-									break;
-								case Clear:
-									clearTiles.add(tileData);
-									break;
-							}
-						}
-
-						// 收集需要绘制覆盖物的瓦片（按类型分组）
-						if(cp.overlayType != null && cp.overlayType != redAlert.enums.OverlayType.None) {
-							int[] tileData = {drawX, drawY};
-							switch(cp.overlayType) {
-								case Tree:
-									treeTiles.add(tileData);
-									break;
-								case Tiberium:
-									tiberiumTiles.add(tileData);
-									break;
-								case Rock:
-									rockTiles.add(tileData);
-									break;
-								case Crate:
-									crateTiles.add(tileData);
-									break;
-							}
-						}
-					}
-				}
-			}
-
-			// 第三遍循环：批量绘制地形效果（每种颜色只设置一次）
-			g2d.setComposite(java.awt.AlphaComposite.SrcOver);
-
-			// 批量绘制水面
-			if(!waterTiles.isEmpty()) {
-				g2d.setColor(TerrainColors.WATER);
-				for(int[] tile : waterTiles) {
-					g2d.fillRect(tile[0], tile[1], 60, 30);
-				}
-			}
-
-			// 批量绘制道路
-			if(!roadTiles.isEmpty()) {
-				g2d.setColor(TerrainColors.ROAD);
-				for(int[] tile : roadTiles) {
-					g2d.fillRect(tile[0], tile[1], 60, 30);
-				}
-			}
-
-			// 批量绘制岩石地面
-			if(!rockGroundTiles.isEmpty()) {
-				g2d.setColor(TerrainColors.ROCK_GROUND);
-				for(int[] tile : rockGroundTiles) {
-					g2d.fillRect(tile[0], tile[1], 60, 30);
-				}
-			}
-
-			// 批量绘制沙滩
-			if(!beachTiles.isEmpty()) {
-				g2d.setColor(TerrainColors.BEACH);
-				for(int[] tile : beachTiles) {
-					g2d.fillRect(tile[0], tile[1], 60, 30);
-				}
-			}
-
-			// 批量绘制干净地面
-			if(!clearTiles.isEmpty()) {
-				g2d.setColor(TerrainColors.CLEAR);
-				for(int[] tile : clearTiles) {
-					g2d.fillRect(tile[0], tile[1], 60, 30);
-				}
-			}
-
-			// ========== 批量渲染覆盖物（树木、矿石、岩石、箱子）==========
-			g2d.setComposite(java.awt.AlphaComposite.SrcOver);
-
-			// 批量绘制树木
-			if(!treeTiles.isEmpty()) {
-				for(int[] tile : treeTiles) {
-					int x = tile[0];
-					int y = tile[1];
-
-					// 树冠
-					g2d.setColor(TerrainColors.TREE);
-					int[] xPoints = {x + 30, x + 15, x + 45};
-					int[] yPoints = {y + 5, y + 28, y + 28};
-					g2d.fillPolygon(xPoints, yPoints, 3);
-
-					// 树干
-					g2d.setColor(TerrainColors.TREE_TRUNK);
-					g2d.fillRect(x + 28, y + 25, 4, 5);
-				}
-			}
-
-			// 批量绘制矿石
-			if(!tiberiumTiles.isEmpty()) {
-				for(int[] tile : tiberiumTiles) {
-					int x = tile[0];
-					int y = tile[1];
-
-					// 矿石本体
-					g2d.setColor(TerrainColors.TIBERIUM);
-					int[] txPoints = {x + 30, x + 20, x + 30, x + 40};
-					int[] tyPoints = {y + 8, y + 15, y + 22, y + 15};
-					g2d.fillPolygon(txPoints, tyPoints, 4);
-
-					// 闪烁效果
-					g2d.setColor(TerrainColors.TIBERIUM_HIGHLIGHT);
-					g2d.fillRect(x + 28, y + 13, 4, 4);
-				}
-			}
-
-			// 批量绘制岩石障碍
-			if(!rockTiles.isEmpty()) {
-				for(int[] tile : rockTiles) {
-					int x = tile[0];
-					int y = tile[1];
-
-					// 岩石本体
-					g2d.setColor(TerrainColors.ROCK);
-					g2d.fillOval(x + 15, y + 8, 30, 18);
-
-					// 岩石纹理
-					g2d.setColor(TerrainColors.ROCK_DARK);
-					g2d.fillOval(x + 20, y + 10, 8, 6);
-					g2d.fillOval(x + 32, y + 14, 6, 5);
-				}
-			}
-
-			// 批量绘制箱子
-			if(!crateTiles.isEmpty()) {
-				for(int[] tile : crateTiles) {
-					int x = tile[0];
-					int y = tile[1];
-
-					// 箱子本体
-					g2d.setColor(TerrainColors.CRATE);
-					g2d.fillRect(x + 22, y + 10, 16, 12);
-
-					// 箱子边框
-					g2d.setColor(TerrainColors.CRATE_BORDER);
-					g2d.drawRect(x + 22, y + 10, 16, 12);
-					g2d.drawLine(x + 22, y + 10, x + 38, y + 22);
-					g2d.drawLine(x + 38, y + 10, x + 22, y + 22);
-				}
-			}
-			// ========== Phase 2 批量渲染优化结束（包含覆盖物）==========
-
-			// 优化：不再 dispose Graphics2D,而是复用
-			// g2d.dispose();  // 移除 dispose 调用
-
-			// 性能监控：结束地形渲染计时
-			redAlert.utils.PerformanceMonitor.endOperation("地形渲染", terrainStart);
-
-			// 双缓冲：交换缓冲区,显示完成的后缓冲
-			swapCanvasBuffers();
-
-			// 绘制到 OpenGL 纹理
-			DrawableUtil.drawOneImgAtPosition(drawable, canvas, 0, 0, 0, 0);
-
-		}else {
-			CanvasPainter.drawGuidelines(canvas, viewportOffX, viewportOffY);//辅助线网格
+}
 
-			DrawableUtil.drawOneImgAtPosition(drawable, canvas, 0, 0, 0, 0);
-		}
-	}
+/**
+ * JOGL负责渲染画面
+ */
+class PanelGlListener implements GLEventListener{
 
+	public MainPanel panel = null;
 	/**
-	 * 绘制地形类型的视觉效果（性能优化版）
-	 *
-	 * 优化说明：
-	 * 1. 移除了不必要的 Composite 保存/恢复操作
-	 * 2. 添加快速路径跳过空地形
-	 * 3. 减少方法调用开销
+	 * 显存纹理缓存
 	 */
-	private void drawTerrainEffect(Graphics2D g2d, CenterPoint cp, int x, int y) {
-		// 快速路径：跳过野地且无覆盖物的情况（最常见）
-		if((cp.terrainType == null || cp.terrainType == TerrainType.Rough)
-				&& cp.overlayType == OverlayType.None) {
-			return;
-		}
-
-		// 处理覆盖物（先绘制覆盖物，因为它们在地形之上）
-		if(cp.overlayType != OverlayType.None) {
-			drawOverlay(g2d, cp, x, y);
-		}
-
-		// 处理地形类型的视觉效果（半透明覆盖层）
-		drawTerrainTypeEffect(g2d, cp, x, y);
-	}
-
+	public TextureCache textureCache = null;
 	/**
-	 * 绘制地形类型的颜色效果（修复版）
-	 *
-	 * 修复说明：
-	 * 1. 每次绘制前重置 Composite,避免透明度叠加
-	 * 2. 使用带 Alpha 的 Color 对象替代 AlphaComposite
-	 * 3. 确保每个瓦片的颜色独立绘制,不相互影响
+	 * 精灵批量绘制器
 	 */
-	private void drawTerrainTypeEffect(Graphics2D g2d, CenterPoint cp, int x, int y) {
-		if(cp.terrainType == null) {
-			return;
-		}
-
-		// 关键修复:每次绘制前重置 Composite 为默认值
-		g2d.setComposite(java.awt.AlphaComposite.SrcOver);
-
-		switch(cp.terrainType) {
-			case Water:
-				// 水面 - 蓝色半透明层 (40% 透明度)
-				g2d.setColor(TerrainColors.WATER);
-				g2d.fillRect(x, y, 60, 30);
-				break;
-
-			case Road:
-				// 道路 - 灰色半透明层 (30% 透明度)
-				g2d.setColor(TerrainColors.ROAD);
-				g2d.fillRect(x, y, 60, 30);
-				break;
-
-			case Rock:
-				// 岩石 - 深灰色半透明层 (50% 透明度)
-				g2d.setColor(TerrainColors.ROCK_GROUND);
-				g2d.fillRect(x, y, 60, 30);
-				break;
-
-			case Beach:
-				// 沙滩 - 黄色半透明层 (40% 透明度)
-				g2d.setColor(TerrainColors.BEACH);
-				g2d.fillRect(x, y, 60, 30);
-				break;
-
-			case Clear:
-				// 干净地面 - 略微亮一点的绿色调 (20% 透明度)
-				g2d.setColor(TerrainColors.CLEAR);
-				g2d.fillRect(x, y, 60, 30);
-				break;
-
-			case Rough:
-			default:
-				// 野地 - 不添加额外效果，使用原始瓦片
-				break;
-		}
-	}
-
+	public SpriteBatch spriteBatch = null;
 	/**
-	 * 绘制覆盖物（修复版）
-	 *
-	 * 修复说明：
-	 * 1. 每次绘制前重置 Composite,避免透明度叠加
-	 * 2. 使用带 Alpha 的 Color 对象替代 AlphaComposite
-	 * 3. 确保每个覆盖物的颜色独立绘制,不相互影响
+	 * 调色盘着色器
 	 */
-	private void drawOverlay(Graphics2D g2d, CenterPoint cp, int x, int y) {
-		if(cp.overlayType == null) {
-			return;
-		}
-
-		// 关键修复:每次绘制前重置 Composite 为默认值
-		g2d.setComposite(java.awt.AlphaComposite.SrcOver);
-
-		switch(cp.overlayType) {
-			case Tree:
-				// 树木 - 绘制绿色三角形 (80% 不透明度)
-				g2d.setColor(TerrainColors.TREE);
-
-				// 绘制简单的树形（三角形）
-				int[] xPoints = {x + 30, x + 15, x + 45};
-				int[] yPoints = {y + 5, y + 28, y + 28};
-				g2d.fillPolygon(xPoints, yPoints, 3);
-
-				// 树干 (完全不透明)
-				g2d.setColor(TerrainColors.TREE_TRUNK);
-				g2d.fillRect(x + 28, y + 25, 4, 5);
-				break;
-
-			case Tiberium:
-				// 矿石 - 绘制绿色菱形 (90% 不透明度)
-				g2d.setColor(TerrainColors.TIBERIUM);
+	public PaletteShader paletteShader = null;
 
-				// 绘制菱形矿石
-				int[] txPoints = {x + 30, x + 20, x + 30, x + 40};
-				int[] tyPoints = {y + 8, y + 15, y + 22, y + 15};
-				g2d.fillPolygon(txPoints, tyPoints, 4);
-
-				// 闪烁效果 (完全亮色,不透明)
-				g2d.setColor(TerrainColors.TIBERIUM_HIGHLIGHT);
-				g2d.fillRect(x + 28, y + 13, 4, 4);
-				break;
-
-			case Rock:
-				// 岩石障碍 - 绘制灰色圆形 (85% 不透明度)
-				g2d.setColor(TerrainColors.ROCK);
-				g2d.fillOval(x + 15, y + 8, 30, 18);
-
-				// 岩石纹理 (完全不透明)
-				g2d.setColor(TerrainColors.ROCK_DARK);
-				g2d.fillOval(x + 20, y + 10, 8, 6);
-				g2d.fillOval(x + 32, y + 14, 6, 5);
-				break;
-
-			case Crate:
-				// 箱子 - 绘制棕色矩形 (90% 不透明度)
-				g2d.setColor(TerrainColors.CRATE);
-				g2d.fillRect(x + 22, y + 10, 16, 12);
-
-				// 箱子边框 (完全不透明)
-				g2d.setColor(TerrainColors.CRATE_BORDER);
-				g2d.drawRect(x + 22, y + 10, 16, 12);
-				g2d.drawLine(x + 22, y + 10, x + 38, y + 22);
-				g2d.drawLine(x + 38, y + 10, x + 22, y + 22);
-				break;
-
-			case None:
-			default:
-				// 无覆盖物
-				break;
-		}
-	}
-	
-	
-	
 	/**
-	 * 画板绘制线程会不停调用此方法,从绘制队列中拿取方块(ShapeUnit),绘制到主画板上
-	 * 绘制完毕后,会把方块再放入SHP方块阻塞队列,由方块帧计算线程计算下一帧,从而实现游戏画面循环
-	 * 
-	 * 其中调用repaint方法后,系统SWT线程会稍后更新JPanel中显示的内容
+	 * OpenGL渲染后端
 	 */
-	public void drawMainInterface(GLAutoDrawable drawable,int viewportOffX,int viewportOffY) {
-		// 性能监控：开始单位渲染计时
-		long unitsStart = redAlert.utils.PerformanceMonitor.startOperation("单位渲染");
-
-		PriorityQueue<ShapeUnit> drawShapeUnitList  = null;
-
-
-		/**
-		 * 这样保证获取缓存队列与获取绘制队列间不冲突
-		 * 保证在绘制时,其他线程可以向缓存队列中放置内容
-		 * 保证其他线程向缓存队列放置方块过程中,缓存队列不会突然变成绘制队列,导致线程向绘制队列中放置方块
-		 */
-		while(true) {
-			if(RuntimeParameter.casLock.compareAndSet(0, 1)) {
-				RuntimeParameter.queueFlag.addAndGet(1);//先把缓存队列切换成绘制队列(队列身份互换)
-				drawShapeUnitList = RuntimeParameter.getDrawShapeUnitList();
-				RuntimeParameter.casLock.compareAndSet(1, 0);
-				break;
-			}
-		}
-
-		// 视口边界缓存（避免重复计算）
-		int viewMinX = viewportOffX - 200;
-		int viewMinY = viewportOffY - 200;
-		int viewMaxX = viewportOffX + SysConfig.viewportWidth + 200;
-		int viewMaxY = viewportOffY + SysConfig.viewportHeight + 200;
-
-		if(!drawShapeUnitList.isEmpty()) {
-
-			// 优化：使用缓存的 Graphics2D 对象,避免每帧重复创建
-			Graphics2D g2d = getCachedGraphics2D();
-
-			// ========== 性能优化 Phase 2：缓存单位位置，减少方法调用 ==========
-			while(!drawShapeUnitList.isEmpty()) {
-				ShapeUnit shp = drawShapeUnitList.poll();
-
-				// 性能优化：一次性获取单位位置，避免重复调用 getPositionX/Y
-				int unitX = shp.positionX; // 直接访问字段而非方法
-				int unitY = shp.positionY;
-
-				// 粗略剔除（基于单位位置）
-				if (unitX < viewMinX || unitX > viewMaxX || unitY < viewMinY || unitY > viewMaxY) {
-					RuntimeParameter.addUnitToQueue(shp);
-					continue;
-				}
-				// ========== Phase 2 优化结束 ==========
-
-				if(shp instanceof AfWeap) {
-					AfWeap afweap = (AfWeap)shp;
-					/**
-					 * 解决正在建造车辆的问题
-					 * 战车工厂的主建筑标记为正在造车辆  则不绘制这个建筑
-					 */
-					if(!afweap.isPartOfWeap()) {//主建筑
-						if(afweap.isMakingVehicle() && afweap.isPutChildIn()) {
-							RuntimeParameter.addUnitToQueue(shp);//放回规划队列,不进行绘制
-							continue;
-						}else if(afweap.isMakingFly() && afweap.isPutChildIn()) {
-							RuntimeParameter.addUnitToQueue(shp);//放回规划队列,不进行绘制
-							continue;
-						}else {
-							DrawableUtil.drawOneShpAtPosition(drawable, shp, viewportOffX, viewportOffY);
-							RuntimeParameter.addUnitToQueue(shp);//放回规划队列
-						}
-					}else{//子建筑
-
-						DrawableUtil.drawOneShpAtPosition(drawable, shp, viewportOffX, viewportOffY);
-						RuntimeParameter.addUnitToQueue(shp);//放回规划队列
-					}
-				}else {
-
-					if(shp.isVisible()) {
-
-						DrawableUtil.drawOneShpAtPosition(drawable, shp, viewportOffX, viewportOffY);
-
-						//画移动线
-						if(shp instanceof MoveLine) {
-							MoveLine ml = (MoveLine)shp;
-							List<MovePlan> movePlanLs = ml.getMovePlans();
-							for(MovePlan plan:movePlanLs) {
-								int startx = plan.getUnit().getPositionX()+ plan.getUnit().getCenterOffX();
-								int starty = plan.getUnit().getPositionY()+ plan.getUnit().getCenterOffY();
-								int endx = plan.getTargetCp().getX();
-								int endy = plan.getTargetCp().getY();
-
-								int startViewX = CoordinateUtil.getViewportX(startx, viewportOffX);
-								int startViewY = CoordinateUtil.getViewportY(starty, viewportOffY);
-								int endxViewX = CoordinateUtil.getViewportX(endx, viewportOffX);
-								int endxViewY = CoordinateUtil.getViewportY(endy, viewportOffY);
-
-								DrawableUtil.drawMoveLine(drawable, startViewX, startViewY, endxViewX, endxViewY);
-							}
-						}
-					}
-					RuntimeParameter.addUnitToQueue(shp);//放回规划队列
-				}
-
-			}
-
-			// 优化：不再 dispose Graphics2D,而是复用
-			// g2d.dispose();  // 移除 dispose 调用
-		}
-
-		// 性能监控：结束单位渲染计时
-		redAlert.utils.PerformanceMonitor.endOperation("单位渲染", unitsStart);
-
-	}
-	
-	/**
-	 * 绘制鼠标指针
-	 */
-	public void drawMouseCursor(GLAutoDrawable drawable) {
-		
-		Point mousePoint = myself.getMousePosition();
-		if(mousePoint!=null) {
-			MouseCursorObject cursor = Mouse.getMouseCursor(RuntimeParameter.mouseStatus);
-			int positionX = mousePoint.x-cursor.getOffX();
-			int positionY = mousePoint.y-cursor.getOffY();
-			DrawableUtil.drawOneSufAtPosition(drawable, cursor.getMouse(), positionX, positionY,0,0);
-		}
-	}
-	
-	/**
-	 * 画建造菱形块的方法
-	 */
-	public void drawRhombus(GLAutoDrawable drawable,int viewportOffX,int viewportOffY) {
-		
-		if(RuntimeParameter.mouseStatus == MouseStatus.Construct) {
-			Point mousePoint = myself.getMousePosition();
-			if(mousePoint!=null) {
-				Coordinate coord = CoordinateUtil.getCoordinate(mousePoint.x, mousePoint.y);
-				CenterPoint centerPoint = coord.getCenterPoint();
-				
-				int fxNum = MouseEventDeal.constName.fxNum;
-				int fyNum = MouseEventDeal.constName.fyNum;
-				
-				drawRhombus(drawable, centerPoint, fxNum, fyNum, viewportOffX, viewportOffY);
-			}
-		}
-		
-	}
-	
-	/**
-	 * 画建筑建造预占地方块
-	 * centerPoint 菱形中心点
-	 * int fxNum 从西南向东北数占几个菱形（此方向即纺射X轴）
-	 * int fyNum 从东南向西北数占几个菱形（此方向即仿射Y轴）
-	 */
-	private void drawRhombus(GLAutoDrawable drawable,CenterPoint centerPoint,int fxNum,int fyNum,int viewportOffX,int viewportOffY) {
-		if(fxNum==1 && fyNum==1) {
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-		}
-		if(fxNum==2 && fyNum==2) {//发电厂 间谍卫星
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn(),viewportOffX,viewportOffY);
-		}
-		if(fxNum==3 && fyNum==3) {//核弹井 维修厂 天气控制 矿石精炼
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeft(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRight(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
-		}
-		if(fxNum==2 && fyNum==3) {//兵营 空指部 实验室
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeft(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn(),viewportOffX,viewportOffY);
-		}
-		if(fxNum==3 && fyNum==4) {//矿场 超时空
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeft(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRight(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
-			
-			drawRhombus(drawable,centerPoint.getRight().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn().getRightDn(),viewportOffX,viewportOffY);
-		}
-		if(fxNum==4 && fyNum==4) {//基地  船坞
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeft(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRight(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
-			
-			drawRhombus(drawable,centerPoint.getLeft().getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn().getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn().getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRight().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn().getDn(),viewportOffX,viewportOffY);
-		}
-		if(fxNum==3 && fyNum==5) {//建设工厂
-			drawRhombus(drawable,centerPoint,viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeft(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRight(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
-			
-			drawRhombus(drawable,centerPoint.getLeft().getLeftUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getLeftUp().getLeftUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getUp().getLeftUp(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRight().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getRightDn().getRightDn(),viewportOffX,viewportOffY);
-			drawRhombus(drawable,centerPoint.getDn().getRightDn(),viewportOffX,viewportOffY);
-		}
-	}
-	
-	/**
-	 * 画最小单位菱形块
-	 */
-	private void drawRhombus(GLAutoDrawable drawable,CenterPoint centerPoint,int viewportOffX,int viewportOffY) {
-		ShapeUnitFrame suf = null;
-		if(!centerPoint.isBuildingCanPutOn()) {
-			suf = Place.getRedRect();
-		}else {
-			suf = Place.getGreenRect();
-		}
-		
-		int positionX = centerPoint.getX()-30;
-		int positionY = centerPoint.getY()-14;
-		
-		DrawableUtil.drawOneSufAtPosition(drawable, suf, positionX, positionY, viewportOffX, viewportOffY);
-	}
-	
-	/**
-	 * 画选择框(按下鼠标后拖动呈现的白色选择框)
-	 */
-	public void drawSelectRect(GLAutoDrawable drawable) {
-		
-		if(RuntimeParameter.mouseStatus == MouseStatus.Select) {
-			int pressX = RuntimeParameter.pressX;
-			int pressY = RuntimeParameter.pressY;
-			Point mousePoint = myself.getMousePosition();
-			if(mousePoint!=null) {
-				int endMouseX = mousePoint.x;
-				int endMouseY = mousePoint.y;
-				DrawableUtil.drawLine(drawable, pressX, pressY, endMouseX, pressY);
-				DrawableUtil.drawLine(drawable, endMouseX, pressY, endMouseX, endMouseY);
-				DrawableUtil.drawLine(drawable, endMouseX, endMouseY, pressX, endMouseY);
-				DrawableUtil.drawLine(drawable, pressX, endMouseY, pressX, pressY);
-			}
-		}
-	}
-	
-}
-
-/**
- * JOGL负责渲染画面
- */
-class PanelGlListener implements GLEventListener{
-
-	public MainPanel panel = null;
+	public GlRenderBackend renderBackend = null;
 
 	public PanelGlListener(MainPanel panel) {
 		this.panel = panel;
@@ -1195,6 +121,16 @@ class PanelGlListener implements GLEventListener{
 		gl.glLoadIdentity();//重置当前指定的矩阵为单位矩阵,与glMatrixMode函数一起调用
 		gl.glOrtho(0, SysConfig.viewportWidth, SysConfig.viewportHeight, 0, 1, -1);//坐标系统的设置 X方向从左到右  Y方向从上到下
 		gl.glMatrixMode(GL2.GL_MODELVIEW);//对模型视景矩阵堆栈应用随后的矩阵操作
+		
+		//纹理缓存属于当前OpenGL上下文
+		textureCache = new TextureCache(SysConfig.textureCacheBudget, SysConfig.textureCacheMaxIdleFrames, SysConfig.textureAtlasPageSize);
+		DrawableUtil.setTextureCache(textureCache);
+		spriteBatch = new SpriteBatch(textureCache, 4096);
+		paletteShader = new PaletteShader();
+		paletteShader.init(gl);
+		spriteBatch.setPaletteShader(paletteShader);
+		DrawableUtil.setSpriteBatch(spriteBatch);
+		renderBackend = new GlRenderBackend(textureCache, spriteBatch);
 	}
 
 	
@@ -1211,23 +147,17 @@ class PanelGlListener implements GLEventListener{
 		long renderStart = redAlert.utils.PerformanceMonitor.startOperation("渲染");
 
 		GL2 gl = drawable.getGL().getGL2();
-		gl.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);//设置glClear函数调用时覆盖颜色缓冲区的颜色值
-        gl.glClear(GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT);//清除颜色缓冲区和深度缓冲区
+		renderBackend.setDrawable(drawable);
+		renderBackend.beginFrame();
 
         //获取视口偏移,由于这两个变量变化频繁,所以需要获取一个快照,否则移动视口内容会抖动
 		int theSightOffX = RuntimeParameter.viewportOffX;
 		int theSightOffY = RuntimeParameter.viewportOffY;
 
-		//绘制地形（地形的代码块覆盖全图,所以就不用重新清空画板了）
-		panel.drawTerrain(drawable,theSightOffX,theSightOffY);
-		//绘制游戏内的ShapeUnit
-		panel.drawMainInterface(drawable,theSightOffX,theSightOffY);
-		//绘制预建造菱形红绿块
-		panel.drawRhombus(drawable,theSightOffX,theSightOffY);
-		//绘制选择框
-		panel.drawSelectRect(drawable);
-		//绘制鼠标指针
-		panel.drawMouseCursor(drawable);
+		//依次绘制地形、游戏内的ShapeUnit、预建造菱形红绿块、选择框、鼠标指针
+		panel.sceneRenderer.render(renderBackend, theSightOffX, theSightOffY, panel.getMousePosition());
+		//提交剩余的精灵并报告绘制调用次数
+		renderBackend.endFrame();
 
 		// 性能监控：结束渲染计时
 		redAlert.utils.PerformanceMonitor.endOperation("渲染", renderStart);
@@ -1247,6 +177,8 @@ class PanelGlListener implements GLEventListener{
 
 		// 绘制FPS显示
 		drawFPS(gl, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+		
+		gl.glFlush();//整帧只在这里提交一次
 	}
 
 	@Override
@@ -1255,7 +187,15 @@ class PanelGlListener implements GLEventListener{
 	}
 	@Override
 	public void dispose(GLAutoDrawable drawable) {
-
+		if(textureCache!=null) {
+			textureCache.releaseAll(drawable.getGL().getGL2());
+			paletteShader.release(drawable.getGL().getGL2());
+			if(panel.sceneRenderer.terrainLayer!=null) {
+				panel.sceneRenderer.terrainLayer.release(drawable.getGL().getGL2());
+			}
+			DrawableUtil.setTextureCache(null);
+			DrawableUtil.setSpriteBatch(null);
+		}
 	}
 
 	/**
@@ -8,27 +8,24 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import javax.swing.JPanel;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.StringUtils;
 
 import redAlert.enums.MouseStatus;
-import redAlert.militaryBuildings.AfWeap;
 import redAlert.other.Mouse;
 import redAlert.other.MouseCursorObject;
 import redAlert.other.MoveLine;
-import redAlert.shapeObjects.ShapeUnit;
-import redAlert.task.ShapeUnitCalculateTask;
+import redAlert.task.GameLoop;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.Coordinate;
-import redAlert.utilBean.MovePlan;
+import redAlert.utilBean.FrameLayer;
+import redAlert.utilBean.FrameSnapshot;
 import redAlert.utils.CanvasPainter;
 import redAlert.utils.CoordinateUtil;
+import redAlert.utils.MapFileReader;
 import redAlert.utils.PointUtil;
 import redAlert.utils.TmpFileReader;
 
@@ -62,8 +59,8 @@ public class MainPanelJava extends JPanel{
 		this.myself = this;
 		
 		//游戏场景物品计算任务
-		ShapeUnitCalculateTask calculateTask = new ShapeUnitCalculateTask(RuntimeParameter.shapeUnitBlockingQueue);
-		calculateTask.startCalculateTask();
+		GameLoop gameLoop = new GameLoop(SysConfig.simulationTickRate);
+		gameLoop.startGameLoop();
 		
 		this.setCursor(Mouse.getNoneCursor());//隐藏鼠标
 		
@@ -90,7 +87,7 @@ public class MainPanelJava extends JPanel{
 		
 		//读取地形文件
 		try {
-			File mapFile = new File(GlobalConfig.mapFilePath);
+			File mapFile = MapFileReader.currentMapFile();
 			if(mapFile.exists()) {
 				//加载tmp文件
 				terrainImageList.add(TmpFileReader.test("clat01.sno"));
@@ -199,27 +196,8 @@ public class MainPanelJava extends JPanel{
 
 
 
-				//读取地图文件
-				String mapText = FileUtils.readFileToString(new File(GlobalConfig.mapFilePath), "UTF-8");
-				String [] strs = StringUtils.split(mapText,"$");
-				
-				Graphics2D g2d = canvas.createGraphics();
-				
-				for(int i=0;i<strs.length;i++) {
-					String info = strs[i];
-					String [] infos = StringUtils.split(info,",");
-					int x = Integer.valueOf(infos[0]);
-					int y = Integer.valueOf(infos[1]);
-					String name = infos[2];
-					
-					int index = terrainNameList.indexOf(name);
-					CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
-					cp.setTileIndex(index);
-					BufferedImage image = terrainImageList.get(index);
-					g2d.drawImage(image, cp.getX()-30, cp.getY()-15, null);
-					
-				}
-				g2d.dispose();
+				//读取地图文件  二进制地图直接映射读取,文本地图按瓦片名查表
+				MapFileReader.loadMap(mapFile, terrainNameList);
 			}
 		}catch (Exception e) {
 			e.printStackTrace();
@@ -287,10 +265,15 @@ public class MainPanelJava extends JPanel{
 		
 		if(!terrainImageList.isEmpty()) {
 			Graphics2D g2d = canvas.createGraphics();
+			//只遍历视口附近的行列  大地图上不用每帧检查所有中心点
+			int mStart = Math.max(0, (viewportOffY-100)/30-1);
+			int mEnd = Math.min(SysConfig.getMapRows(), (viewportOffY+SysConfig.viewportHeight+100)/30+1);
+			int nStart = Math.max(0, (viewportOffX-100)/60-1);
+			int nEnd = Math.min(SysConfig.getMapColumns(), (viewportOffX+SysConfig.viewportWidth+100)/60+1);
 			//一类中心点
-			for(int m=0;m<50;m++) {
+			for(int m=mStart;m<mEnd;m++) {
 				int y = 15+30*m;
-				for(int n=0;n<50;n++) {
+				for(int n=nStart;n<nEnd;n++) {
 					int x = 30+60*n;
 					CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
 					int cpx = cp.getX();
@@ -302,9 +285,9 @@ public class MainPanelJava extends JPanel{
 			}
 			
 			//二类中心点
-			for(int m=0;m<50;m++) {
+			for(int m=mStart;m<mEnd;m++) {
 				int y = 30*m;
-				for(int n=0;n<50;n++) {
+				for(int n=nStart;n<nEnd;n++) {
 					int x = 60*n;
 					CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
 					int cpx = cp.getX();
@@ -321,111 +304,34 @@ public class MainPanelJava extends JPanel{
 	}
 	
 	/**
-	 * 画板绘制线程会不停调用此方法,从绘制队列中拿取方块(ShapeUnit),绘制到主画板上
-	 * 绘制完毕后,会把方块再放入SHP方块阻塞队列,由方块帧计算线程计算下一帧,从而实现游戏画面循环
+	 * 画板绘制线程会不停调用此方法,取最新发布的绘制快照,按快照中的次序绘制到主画板上
 	 * 
 	 * 其中调用repaint方法后,系统SWT线程会稍后更新JPanel中显示的内容
 	 */
 	public void drawMainInterface(int viewportOffX,int viewportOffY) {
-		PriorityQueue<ShapeUnit> drawShapeUnitList  = null;
-		
-		
-		/**
-		 * 这样保证获取缓存队列与获取绘制队列间不冲突
-		 * 保证在绘制时,其他线程可以向缓存队列中放置内容
-		 * 保证其他线程向缓存队列放置方块过程中,缓存队列不会突然变成绘制队列,导致线程向绘制队列中放置方块
-		 */
-		while(true) {
-			if(RuntimeParameter.casLock.compareAndSet(0, 1)) {
-				RuntimeParameter.queueFlag.addAndGet(1);//先把缓存队列切换成绘制队列(队列身份互换)
-				drawShapeUnitList = RuntimeParameter.getDrawShapeUnitList();
-				RuntimeParameter.casLock.compareAndSet(1, 0);
-				break;
-			}
-		}
+		FrameSnapshot snapshot = RuntimeParameter.frameSnapshots.acquireLatest();
 			
-		if(!drawShapeUnitList.isEmpty()) {
+		if(snapshot.size()>0) {
 			
 			Graphics2D g2d = canvas.createGraphics();
 			
-			while(!drawShapeUnitList.isEmpty()) {
-				ShapeUnit shp = drawShapeUnitList.poll();
-				if(shp instanceof AfWeap) {
-					AfWeap afweap = (AfWeap)shp;
-					/**
-					 * 解决正在建造车辆的问题
-					 * 战车工厂的主建筑标记为正在造车辆  则不绘制这个建筑
-					 */
-					if(!afweap.isPartOfWeap()) {//主建筑
-						if(afweap.isMakingVehicle() && afweap.isPutChildIn()) {
-							RuntimeParameter.addUnitToQueue(shp);//放回规划队列,不进行绘制
-							continue;
-						}else if(afweap.isMakingFly() && afweap.isPutChildIn()) {
-							RuntimeParameter.addUnitToQueue(shp);//放回规划队列,不进行绘制
-							continue;
-						}else {//正常
-							ShapeUnitFrame bf = shp.getCurFrame();
-							BufferedImage img = bf.getImg();
-							int positionX = shp.getPositionX();
-							int positionY = shp.getPositionY();
-							int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
-							int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
-							g2d.drawImage(img, viewX, viewY, this);
-							
-							RuntimeParameter.addUnitToQueue(shp);//放回规划队列
-						}
-					}else{//子建筑
-						ShapeUnitFrame bf = shp.getCurFrame();
-						BufferedImage img = bf.getImg();
-						int positionX = shp.getPositionX();
-						int positionY = shp.getPositionY();
-						int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
-						int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
-						g2d.drawImage(img, viewX, viewY, this);
-						
-						RuntimeParameter.addUnitToQueue(shp);//放回规划队列
-					}
-					
-					
-				}else {
+			int unitCount = snapshot.size();
+			for(int i=0;i<unitCount;i++) {
+				drawShapeUnit(g2d, snapshot, i, viewportOffX, viewportOffY);
+				
+				//画移动线
+				for(int line=snapshot.getLineFrom(i);line<snapshot.getLineTo(i);line++) {
+					int startViewX = CoordinateUtil.getViewportX(snapshot.getLineCoord(line, 0), viewportOffX);
+					int startViewY = CoordinateUtil.getViewportY(snapshot.getLineCoord(line, 1), viewportOffY);
+					int endxViewX = CoordinateUtil.getViewportX(snapshot.getLineCoord(line, 2), viewportOffX);
+					int endxViewY = CoordinateUtil.getViewportY(snapshot.getLineCoord(line, 3), viewportOffY);
 					
-					if(shp.isVisible()) {
-						ShapeUnitFrame bf = shp.getCurFrame();
-						BufferedImage img = bf.getImg();
-						int positionX = shp.getPositionX();
-						int positionY = shp.getPositionY();
-						int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
-						int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
-						g2d.drawImage(img, viewX, viewY, this);
-						
-						//画移动线
-						if(shp instanceof MoveLine) {
-							MoveLine ml = (MoveLine)shp;
-							List<MovePlan> movePlanLs = ml.getMovePlans();
-							for(MovePlan plan:movePlanLs) {
-								int startx = plan.getUnit().getPositionX()+ plan.getUnit().getCenterOffX();
-								int starty = plan.getUnit().getPositionY()+ plan.getUnit().getCenterOffY();
-								int endx = plan.getTargetCp().getX();
-								int endy = plan.getTargetCp().getY();
-								
-								int startViewX = CoordinateUtil.getViewportX(startx, viewportOffX);
-								int startViewY = CoordinateUtil.getViewportY(starty, viewportOffY);
-								int endxViewX = CoordinateUtil.getViewportX(endx, viewportOffX);
-								int endxViewY = CoordinateUtil.getViewportY(endy, viewportOffY);
-								
-								g2d.setColor(MoveLine.lineColor);
-								g2d.setStroke(MoveLine.stroke);
-								g2d.drawLine(startViewX, startViewY, endxViewX, endxViewY);//画连接线
-								g2d.fillRect(startViewX-1, startViewY-1, MoveLine.radius, MoveLine.radius);//画端点
-								g2d.fillRect(endxViewX-1, endxViewY-1, MoveLine.radius, MoveLine.radius);//画端点
-								
-								
-							}
-						}
-					}
-					RuntimeParameter.addUnitToQueue(shp);//放回规划队列
+					g2d.setColor(MoveLine.lineColor);
+					g2d.setStroke(MoveLine.stroke);
+					g2d.drawLine(startViewX, startViewY, endxViewX, endxViewY);//画连接线
+					g2d.fillRect(startViewX-1, startViewY-1, MoveLine.radius, MoveLine.radius);//画端点
+					g2d.fillRect(endxViewX-1, endxViewY-1, MoveLine.radius, MoveLine.radius);//画端点
 				}
-				
 			}
 			g2d.dispose();
 		}
@@ -499,4 +405,25 @@ public class MainPanelJava extends JPanel{
 			e.printStackTrace();
 		}
 	}
+	
+	/**
+	 * 画一个单位  有分层画面的单位逐层绘制
+	 */
+	private void drawShapeUnit(Graphics2D g2d,FrameSnapshot snapshot,int index,int viewportOffX,int viewportOffY) {
+		int positionX = snapshot.getPositionX(index);
+		int positionY = snapshot.getPositionY(index);
+		List<FrameLayer> frameLayers = snapshot.getFrameLayers(index);
+		if(frameLayers!=null) {
+			for(FrameLayer layer:frameLayers) {
+				int viewX = CoordinateUtil.getViewportX(positionX+layer.getOffsetX(), viewportOffX);
+				int viewY = CoordinateUtil.getViewportY(positionY+layer.getOffsetY(), viewportOffY);
+				g2d.drawImage(layer.getFrame().getImg(), viewX, viewY, this);
+			}
+			return;
+		}
+		BufferedImage img = snapshot.getFrame(index).getImg();
+		int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
+		int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
+		g2d.drawImage(img, viewX, viewY, this);
+	}
 }
@@ -25,6 +25,7 @@ import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.LittleCenterPoint;
 import redAlert.utils.GameLogger;
 import redAlert.utils.LittleCenterPointUtil;
+import redAlert.utils.MapFileReader;
 import redAlert.utils.PerformanceMonitor;
 import redAlert.utils.PointUtil;
 
@@ -59,11 +60,11 @@ public class MainTest {
 			java.util.Random random = new java.util.Random(42); // 固定种子保证可重现
 
 			// 创建地形图（模拟区域分布）
-			String[][] tileMap = new String[50][50];
+			String[][] tileMap = new String[SysConfig.getMapRows()][SysConfig.getMapColumns()];
 
 			// 第一阶段：创建大的区域（模拟红警的区域化地形）
-			for(int m = 0; m < 50; m++) {
-				for(int n = 0; n < 50; n++) {
+			for(int m = 0; m < SysConfig.getMapRows(); m++) {
+				for(int n = 0; n < SysConfig.getMapColumns(); n++) {
 					// 使用简单的噪声函数创建区域
 					double noise = calculateNoise(m, n, 0.1); // 低频率 = 大区域
 
@@ -84,9 +85,9 @@ public class MainTest {
 
 			// 第二阶段：平滑过渡（模拟红警的智能边匹配）
 			for(int pass = 0; pass < 2; pass++) { // 做2次平滑
-				String[][] newTileMap = new String[50][50];
-				for(int m = 0; m < 50; m++) {
-					for(int n = 0; n < 50; n++) {
+				String[][] newTileMap = new String[SysConfig.getMapRows()][SysConfig.getMapColumns()];
+				for(int m = 0; m < SysConfig.getMapRows(); m++) {
+					for(int n = 0; n < SysConfig.getMapColumns(); n++) {
 						// 统计周围瓦片
 						java.util.Map<String, Integer> neighborCount = new java.util.HashMap<>();
 
@@ -96,7 +97,7 @@ public class MainTest {
 								if(dm == 0 && dn == 0) continue;
 								int nm = m + dm;
 								int nn = n + dn;
-								if(nm >= 0 && nm < 50 && nn >= 0 && nn < 50) {
+								if(nm >= 0 && nm < SysConfig.getMapRows() && nn >= 0 && nn < SysConfig.getMapColumns()) {
 									String tile = tileMap[nm][nn];
 									neighborCount.put(tile, neighborCount.getOrDefault(tile, 0) + 1);
 								}
@@ -125,19 +126,20 @@ public class MainTest {
 			}
 
 			// 写入地图文件
+			writer.write(MapFileReader.sizeHeader() + "\n");
 			// 一类中心点
-			for(int m = 0; m < 50; m++) {
+			for(int m = 0; m < SysConfig.getMapRows(); m++) {
 				int y = 15 + 30 * m;
-				for(int n = 0; n < 50; n++) {
+				for(int n = 0; n < SysConfig.getMapColumns(); n++) {
 					int x = 30 + 60 * n;
 					writer.write(x + "," + y + "," + tileMap[m][n] + "$\n");
 				}
 			}
 
 			// 二类中心点
-			for(int m = 0; m < 50; m++) {
+			for(int m = 0; m < SysConfig.getMapRows(); m++) {
 				int y = 30 * m;
-				for(int n = 0; n < 50; n++) {
+				for(int n = 0; n < SysConfig.getMapColumns(); n++) {
 					int x = 60 * n;
 					writer.write(x + "," + y + "," + tileMap[m][n] + "$\n");
 				}
@@ -202,6 +204,9 @@ public class MainTest {
 		// 生成纯平草地地图
 		// generateGrassMap(); // 已禁用，使用完整地形地图代替
 
+		// 按地图文件确定地图大小（必须在使用中心点之前）
+		MapFileReader.applyMapSize(MapFileReader.currentMapFile().getPath());
+
 		SysConfig.initSysConfig();//初始化系统参数
 
 		//初始化鼠标指针形状图片
@@ -243,10 +248,6 @@ public class MainTest {
 		 * 键盘事件的处理
 		 */
 		KeyBoardEventDeal.init(scenePanel);
-		/**
-		 * 伤害计算器
-		 */
-		ShapeUnitResourceCenter.startDamageCalculate();
 		
 		
 		
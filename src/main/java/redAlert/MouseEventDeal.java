@@ -95,7 +95,7 @@ public class MouseEventDeal {
 									
 									//如果中心点只有一个步兵,则直接选上,否则先确认小中心点,再选中
 									if(movable instanceof Soldier) {
-										if(centerPoint.getSoldiers().size()==1) {
+										if(centerPoint.getSoldierCount()==1) {
 											ShapeUnitResourceCenter.selectOneUnit(movable);
 										}else {
 											//需要确认小中心点
@@ -1,12 +1,15 @@
 package redAlert;
 
-import java.util.PriorityQueue;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import redAlert.enums.MouseStatus;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.utilBean.CenterPoint;
+import redAlert.utils.FrameSnapshotBuffer;
 
 /**
  * 运行时参数
@@ -26,83 +29,41 @@ public class RuntimeParameter {
 	 */
 	public static int fps = 60;
 	/**
-	 * SHP方块阻塞队列
-	 * 新增的ShapeUnit都需要先放入此队列,再由规划线程计算渲染次序
+	 * 下一轮要计算的方块
+	 * 新增的ShapeUnit和帧计算线程算完的ShapeUnit都放入此队列,每轮计算开始时由帧计算调度线程一次取空
 	 * 注意:此队列只用于渲染画面,不参与游戏的逻辑运算,逻辑运算由资源中心负责处理
-	 * 为什么用阻塞队列:
-	 *   当队列中的元素处理完毕放入规划队列时，此时会阻塞，避免建筑规划线程不停的轮询，减少CPU占用
 	 */
-	public static ArrayBlockingQueue<ShapeUnit> shapeUnitBlockingQueue = new ArrayBlockingQueue<ShapeUnit>(150);
-	
-	/**
-	 * 缓存队列中添加方块
-	 */
-	public static void addUnitToQueue(ShapeUnit shapeUnit) {
-		shapeUnitBlockingQueue.add(shapeUnit);
-	}
-	
+	private static ConcurrentLinkedQueue<ShapeUnit> pendingUnits = new ConcurrentLinkedQueue<ShapeUnit>();
 	/**
-	 * SHP方块规划队列1
-	 * 当buildingFlag=偶数  此队列为绘制队列
-	 * 当buildingFlag=奇数  此队列为缓存队列
+	 * 取出待计算方块时去重用  只有帧计算调度线程访问
 	 */
-	private static PriorityQueue<ShapeUnit> unitList = new PriorityQueue<ShapeUnit>(150);
+	private static Set<ShapeUnit> drainedUnits = Collections.newSetFromMap(new IdentityHashMap<ShapeUnit, Boolean>());
 	/**
-	 * SHP方块规划队列2
-	 * 两个建筑队列,一个用于绘制画面时，另一个用于缓存下一帧画面
-	 * 当buildingFlag=奇数  此队列为缓存队列
-	 * 当buildingFlag=偶数  此队列为绘制队列
+	 * 绘制快照
+	 * 帧计算调度线程每轮计算结束后发布,渲染线程绘制最新发布的一份
 	 */
-	private static PriorityQueue<ShapeUnit> unitList2 = new PriorityQueue<ShapeUnit>(150);
+	public static FrameSnapshotBuffer frameSnapshots = new FrameSnapshotBuffer();
 	
 	/**
-	 * SHP方块队列标识
-	 * 用于决定使用1.2哪个队列
-	 */
-	public static AtomicInteger queueFlag = new AtomicInteger(0);
-	/**
-	 * 0表示空闲  1表示正在使用缓存队列
-	 * 为使用缓存队列而设计的CAS锁
-	 * 拿到锁才能向缓存队列中添加单位或切换队列身份
-	 */
-	public static AtomicInteger casLock = new AtomicInteger(0);
-	/**
-	 * 获取绘制队列
-	 */
-	public static PriorityQueue<ShapeUnit> getDrawShapeUnitList() {
-		if(queueFlag.get()%2==0) {
-			return unitList;
-		}else {
-			return unitList2;
-		}
-	}
-	/**
-	 * 获取缓存队列
+	 * 添加方块  下一轮计算并绘制
+	 * 不加锁,任何线程都可以调用
 	 */
-	public static PriorityQueue<ShapeUnit> getCacheShapeUnitList() {
-		if(queueFlag.get()%2==0) {
-			return unitList2;
-		}else {
-			return unitList;
-		}
+	public static void addBuildingToQueue(ShapeUnit unit) {
+		pendingUnits.offer(unit);
 	}
 	
 	/**
-	 * 向缓存队列中添加建筑
+	 * 取出全部待计算方块放入units  同一个方块加入多次时只取一次
+	 * 只能由帧计算调度线程调用
 	 */
-	public static void addBuildingToQueue(ShapeUnit unit) {
-		while(true) {
-			if(casLock.compareAndSet(0, 1)) {
-				 PriorityQueue<ShapeUnit> cacheShapeUnitList = getCacheShapeUnitList();
-				if(cacheShapeUnitList.contains(unit)) {
-					System.out.println("有重复移除");
-					cacheShapeUnitList.remove(unit);
-				}
-				cacheShapeUnitList.offer(unit);
-				casLock.compareAndSet(1, 0);
-				break;
+	public static void drainPendingUnits(List<ShapeUnit> units) {
+		ShapeUnit unit;
+		while((unit = pendingUnits.poll())!=null) {
+			if(drainedUnits.add(unit)) {
+				units.add(unit);
 			}
 		}
+		drainedUnits.clear();
 	}
 	
 	/**
@@ -0,0 +1,460 @@
+package redAlert;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+
+import redAlert.enums.MouseStatus;
+import redAlert.other.Mouse;
+import redAlert.other.MouseCursorObject;
+import redAlert.other.MoveLine;
+import redAlert.other.Place;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.Coordinate;
+import redAlert.utilBean.FrameLayer;
+import redAlert.utilBean.FrameSnapshot;
+import redAlert.utils.CanvasPainter;
+import redAlert.utils.CoordinateUtil;
+import redAlert.utils.MapFileReader;
+import redAlert.utils.RenderBackend;
+import redAlert.utils.TerrainLayer;
+import redAlert.utils.TmpFileReader;
+
+/**
+ * 游戏场景绘制
+ *
+ * 地形、单位、建造菱形块、选择框、鼠标指针这几遍绘制的逻辑都在这里,
+ * 具体怎么画交给RenderBackend：游戏中用OpenGL实现(GlRenderBackend),
+ * 没有显卡和显示器的机器上用软件光栅化实现(SoftwareRenderBackend)做性能测试和画面比对
+ *
+ * 鼠标位置由调用方传入,为null表示鼠标不在画面中
+ */
+public class SceneRenderer {
+	
+	/** 每遍绘制的名称  用于耗时统计 */
+	public static final String PASS_TERRAIN = "地形渲染";
+	public static final String PASS_UNITS = "单位渲染";
+	public static final String PASS_RHOMBUS = "建造菱形块";
+	public static final String PASS_SELECT_RECT = "选择框";
+	public static final String PASS_MOUSE = "鼠标指针";
+	
+	/**
+	 * 选择框颜色
+	 */
+	private static final Color SELECT_RECT_COLOR = Color.WHITE;
+	
+	/**
+	 * 临时画板   没有地形时在上面画辅助线网格
+	 */
+	public BufferedImage canvas = new BufferedImage(SysConfig.viewportWidth,SysConfig.viewportHeight,BufferedImage.TYPE_INT_ARGB);
+	
+	/**
+	 * 静态地形层  地图加载后构建
+	 */
+	public TerrainLayer terrainLayer = null;
+	
+	/**
+	 * 地形菱形块列表
+	 */
+	public List<BufferedImage> terrainImageList = new ArrayList<>();
+	/**
+	 * 地形菱形块名称列表
+	 */
+	public List<String> terrainNameList = new ArrayList<>();
+	/**
+	 * 初始化辅助线格并加载地形
+	 * 地图文件存在时读取地形瓦片和地图,构建静态地形层
+	 */
+	public void loadTerrain(int theSightOffX,int theSightOffY) {
+		CanvasPainter.drawGuidelines(canvas,theSightOffX,theSightOffY);//辅助线网格
+		
+		//读取地形文件
+		try {
+			File mapFile = MapFileReader.currentMapFile();
+			if(mapFile.exists()) {
+				//加载tmp文件
+				terrainImageList.add(TmpFileReader.test("clat01.sno"));
+				terrainImageList.add(TmpFileReader.test("clat02.sno"));
+				terrainImageList.add(TmpFileReader.test("clat03.sno"));
+				terrainImageList.add(TmpFileReader.test("clat04.sno"));
+				terrainImageList.add(TmpFileReader.test("clat05.sno"));
+				terrainImageList.add(TmpFileReader.test("clat06.sno"));
+				terrainImageList.add(TmpFileReader.test("clat07.sno"));
+				terrainImageList.add(TmpFileReader.test("clat08.sno"));
+				terrainImageList.add(TmpFileReader.test("clat09.sno"));
+				terrainImageList.add(TmpFileReader.test("clat10.sno"));
+				terrainImageList.add(TmpFileReader.test("clat11.sno"));
+				terrainImageList.add(TmpFileReader.test("clat12.sno"));
+				terrainImageList.add(TmpFileReader.test("clat13.sno"));
+				terrainImageList.add(TmpFileReader.test("clat14.sno"));
+				terrainImageList.add(TmpFileReader.test("clat15.sno"));
+				terrainImageList.add(TmpFileReader.test("clat16.sno"));
+				
+				terrainImageList.add(TmpFileReader.test("clat01a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat02a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat03a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat04a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat05a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat06a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat07a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat08a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat09a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat10a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat11a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat12a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat13a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat14a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat15a.sno"));
+				terrainImageList.add(TmpFileReader.test("clat16a.sno"));
+
+				// 加载草地/地形瓦片
+				terrainImageList.add(TmpFileReader.test("clat01.tem"));
+				terrainImageList.add(TmpFileReader.test("clat02.tem"));
+				terrainImageList.add(TmpFileReader.test("clat03.tem"));
+				terrainImageList.add(TmpFileReader.test("clat04.tem"));
+				terrainImageList.add(TmpFileReader.test("clat05.tem"));
+				terrainImageList.add(TmpFileReader.test("clat06.tem"));
+				terrainImageList.add(TmpFileReader.test("clat07.tem"));
+				terrainImageList.add(TmpFileReader.test("clat08.tem"));
+				terrainImageList.add(TmpFileReader.test("clat09.tem"));
+				terrainImageList.add(TmpFileReader.test("clat10.tem"));
+				terrainImageList.add(TmpFileReader.test("clat11.tem"));
+				terrainImageList.add(TmpFileReader.test("clat12.tem"));
+				terrainImageList.add(TmpFileReader.test("clat13.tem"));
+				terrainImageList.add(TmpFileReader.test("clat14.tem"));
+				terrainImageList.add(TmpFileReader.test("clat15.tem"));
+				terrainImageList.add(TmpFileReader.test("clat16.tem"));
+
+				terrainNameList.add(("clat01.sno"));
+				terrainNameList.add(("clat02.sno"));
+				terrainNameList.add(("clat03.sno"));
+				terrainNameList.add(("clat04.sno"));
+				terrainNameList.add(("clat05.sno"));
+				terrainNameList.add(("clat06.sno"));
+				terrainNameList.add(("clat07.sno"));
+				terrainNameList.add(("clat08.sno"));
+				terrainNameList.add(("clat09.sno"));
+				terrainNameList.add(("clat10.sno"));
+				terrainNameList.add(("clat11.sno"));
+				terrainNameList.add(("clat12.sno"));
+				terrainNameList.add(("clat13.sno"));
+				terrainNameList.add(("clat14.sno"));
+				terrainNameList.add(("clat15.sno"));
+				terrainNameList.add(("clat16.sno"));
+				
+				terrainNameList.add(("clat01a.sno"));
+				terrainNameList.add(("clat02a.sno"));
+				terrainNameList.add(("clat03a.sno"));
+				terrainNameList.add(("clat04a.sno"));
+				terrainNameList.add(("clat05a.sno"));
+				terrainNameList.add(("clat06a.sno"));
+				terrainNameList.add(("clat07a.sno"));
+				terrainNameList.add(("clat08a.sno"));
+				terrainNameList.add(("clat09a.sno"));
+				terrainNameList.add(("clat10a.sno"));
+				terrainNameList.add(("clat11a.sno"));
+				terrainNameList.add(("clat12a.sno"));
+				terrainNameList.add(("clat13a.sno"));
+				terrainNameList.add(("clat14a.sno"));
+				terrainNameList.add(("clat15a.sno"));
+				terrainNameList.add(("clat16a.sno"));
+
+				// 添加草地瓦片名称
+				terrainNameList.add(("clat01.tem"));
+				terrainNameList.add(("clat02.tem"));
+				terrainNameList.add(("clat03.tem"));
+				terrainNameList.add(("clat04.tem"));
+				terrainNameList.add(("clat05.tem"));
+				terrainNameList.add(("clat06.tem"));
+				terrainNameList.add(("clat07.tem"));
+				terrainNameList.add(("clat08.tem"));
+				terrainNameList.add(("clat09.tem"));
+				terrainNameList.add(("clat10.tem"));
+				terrainNameList.add(("clat11.tem"));
+				terrainNameList.add(("clat12.tem"));
+				terrainNameList.add(("clat13.tem"));
+				terrainNameList.add(("clat14.tem"));
+				terrainNameList.add(("clat15.tem"));
+				terrainNameList.add(("clat16.tem"));
+
+
+
+				//读取地图文件  二进制地图直接映射读取,文本地图按瓦片名查表
+				MapFileReader.loadMap(mapFile, terrainNameList);
+				
+				terrainLayer = new TerrainLayer(terrainImageList,SysConfig.getMapRows(),SysConfig.getMapColumns(),SysConfig.terrainChunkTiles);
+			}
+		}catch (Exception e) {
+			e.printStackTrace();
+		}
+		
+	}
+	
+	
+	/**
+	 * 按顺序执行所有绘制
+	 * 调用方负责backend.beginFrame()和backend.endFrame()
+	 */
+	public void render(RenderBackend backend,int viewportOffX,int viewportOffY,Point mousePoint) {
+		long start = backend.beginPass(PASS_TERRAIN);
+		drawTerrain(backend,viewportOffX,viewportOffY);
+		backend.endPass(PASS_TERRAIN, start);
+		
+		start = backend.beginPass(PASS_UNITS);
+		drawMainInterface(backend,viewportOffX,viewportOffY);
+		backend.endPass(PASS_UNITS, start);
+		
+		start = backend.beginPass(PASS_RHOMBUS);
+		drawRhombus(backend,mousePoint,viewportOffX,viewportOffY);
+		backend.endPass(PASS_RHOMBUS, start);
+		
+		start = backend.beginPass(PASS_SELECT_RECT);
+		drawSelectRect(backend,mousePoint);
+		backend.endPass(PASS_SELECT_RECT, start);
+		
+		start = backend.beginPass(PASS_MOUSE);
+		drawMouseCursor(backend,mousePoint);
+		backend.endPass(PASS_MOUSE, start);
+	}
+	
+	/**
+	 *  绘制地形terrain
+	 *
+	 *  有地形画地形
+	 *  没地形画网格
+	 */
+	public void drawTerrain(RenderBackend backend,int viewportOffX,int viewportOffY) {
+		if(terrainLayer!=null) {
+			backend.drawTerrain(terrainLayer, viewportOffX, viewportOffY);
+		}else {
+			CanvasPainter.drawGuidelines(canvas, viewportOffX, viewportOffY);//辅助线网格
+			backend.drawImage(canvas, 0, 0);
+		}
+	}
+	
+	/**
+	 * 画板绘制线程会不停调用此方法,取最新发布的绘制快照,按快照中的次序绘制到主画板上
+	 * 快照由帧计算调度线程每轮发布一次,没有新快照时重画上一份
+	 */
+	public void drawMainInterface(RenderBackend backend,int viewportOffX,int viewportOffY) {
+		FrameSnapshot snapshot = RuntimeParameter.frameSnapshots.acquireLatest();
+		
+		// 视口边界缓存（避免重复计算）
+		int viewMinX = viewportOffX - 200;
+		int viewMinY = viewportOffY - 200;
+		int viewMaxX = viewportOffX + SysConfig.viewportWidth + 200;
+		int viewMaxY = viewportOffY + SysConfig.viewportHeight + 200;
+		
+		int unitCount = snapshot.size();
+		for(int i=0;i<unitCount;i++) {
+			int unitX = snapshot.getPositionX(i);
+			int unitY = snapshot.getPositionY(i);
+			
+			// 粗略剔除（基于单位位置）
+			if (unitX < viewMinX || unitX > viewMaxX || unitY < viewMinY || unitY > viewMaxY) {
+				continue;
+			}
+			
+			drawShapeUnit(backend, snapshot, i, viewportOffX, viewportOffY);
+			
+			//画移动线
+			for(int line=snapshot.getLineFrom(i);line<snapshot.getLineTo(i);line++) {
+				int startViewX = CoordinateUtil.getViewportX(snapshot.getLineCoord(line, 0), viewportOffX);
+				int startViewY = CoordinateUtil.getViewportY(snapshot.getLineCoord(line, 1), viewportOffY);
+				int endxViewX = CoordinateUtil.getViewportX(snapshot.getLineCoord(line, 2), viewportOffX);
+				int endxViewY = CoordinateUtil.getViewportY(snapshot.getLineCoord(line, 3), viewportOffY);
+				
+				backend.drawLine(startViewX, startViewY, endxViewX, endxViewY, MoveLine.lineColor);//画连接线
+				backend.fillRect(startViewX-1, startViewY-1, 2, 2, MoveLine.lineColor);//画端点
+				backend.fillRect(endxViewX-1, endxViewY-1, 2, 2, MoveLine.lineColor);//画端点
+			}
+		}
+	}
+	
+	/**
+	 * 画快照中的第index个单位
+	 * 有分层画面的单位逐层绘制
+	 */
+	private void drawShapeUnit(RenderBackend backend,FrameSnapshot snapshot,int index,int viewportOffX,int viewportOffY) {
+		int positionX = snapshot.getPositionX(index);
+		int positionY = snapshot.getPositionY(index);
+		
+		List<FrameLayer> frameLayers = snapshot.getFrameLayers(index);
+		if(frameLayers!=null) {
+			for(FrameLayer layer:frameLayers) {
+				int viewX = CoordinateUtil.getViewportX(positionX+layer.getOffsetX(), viewportOffX);
+				int viewY = CoordinateUtil.getViewportY(positionY+layer.getOffsetY(), viewportOffY);
+				backend.drawFrame(layer.getFrame(), viewX, viewY);
+			}
+			return;
+		}
+		
+		ShapeUnitFrame frame = snapshot.getFrame(index);
+		if(!frame.hasPixels()) {
+			System.out.println("观察到空图片,类型:"+snapshot.getUnit(index).getClass());
+		}
+		int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
+		int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
+		backend.drawFrame(frame, viewX, viewY);
+	}
+	
+	/**
+	 * 绘制鼠标指针
+	 */
+	public void drawMouseCursor(RenderBackend backend,Point mousePoint) {
+		if(mousePoint!=null) {
+			MouseCursorObject cursor = Mouse.getMouseCursor(RuntimeParameter.mouseStatus);
+			int positionX = mousePoint.x-cursor.getOffX();
+			int positionY = mousePoint.y-cursor.getOffY();
+			backend.drawFrame(cursor.getMouse(), positionX, positionY);
+		}
+	}
+	
+	/**
+	 * 画建造菱形块的方法
+	 */
+	public void drawRhombus(RenderBackend backend,Point mousePoint,int viewportOffX,int viewportOffY) {
+		if(RuntimeParameter.mouseStatus == MouseStatus.Construct) {
+			if(mousePoint!=null) {
+				Coordinate coord = CoordinateUtil.getCoordinate(mousePoint.x, mousePoint.y);
+				CenterPoint centerPoint = coord.getCenterPoint();
+				
+				int fxNum = MouseEventDeal.constName.fxNum;
+				int fyNum = MouseEventDeal.constName.fyNum;
+				
+				drawRhombus(backend, centerPoint, fxNum, fyNum, viewportOffX, viewportOffY);
+			}
+		}
+	}
+	
+	/**
+	 * 画建筑建造预占地方块
+	 * centerPoint 菱形中心点
+	 * int fxNum 从西南向东北数占几个菱形（此方向即纺射X轴）
+	 * int fyNum 从东南向西北数占几个菱形（此方向即仿射Y轴）
+	 */
+	private void drawRhombus(RenderBackend backend,CenterPoint centerPoint,int fxNum,int fyNum,int viewportOffX,int viewportOffY) {
+		if(fxNum==1 && fyNum==1) {
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+		}
+		if(fxNum==2 && fyNum==2) {//发电厂 间谍卫星
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn(),viewportOffX,viewportOffY);
+		}
+		if(fxNum==3 && fyNum==3) {//核弹井 维修厂 天气控制 矿石精炼
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeft(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRight(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
+		}
+		if(fxNum==2 && fyNum==3) {//兵营 空指部 实验室
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeft(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn(),viewportOffX,viewportOffY);
+		}
+		if(fxNum==3 && fyNum==4) {//矿场 超时空
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeft(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRight(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
+			
+			drawRhombus(backend,centerPoint.getRight().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn().getRightDn(),viewportOffX,viewportOffY);
+		}
+		if(fxNum==4 && fyNum==4) {//基地  船坞
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeft(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRight(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
+			
+			drawRhombus(backend,centerPoint.getLeft().getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn().getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn().getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRight().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn().getDn(),viewportOffX,viewportOffY);
+		}
+		if(fxNum==3 && fyNum==5) {//建设工厂
+			drawRhombus(backend,centerPoint,viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeft(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRight(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftUp(),viewportOffX,viewportOffY);
+			
+			drawRhombus(backend,centerPoint.getLeft().getLeftUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getLeftUp().getLeftUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getUp().getLeftUp(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRight().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getRightDn().getRightDn(),viewportOffX,viewportOffY);
+			drawRhombus(backend,centerPoint.getDn().getRightDn(),viewportOffX,viewportOffY);
+		}
+	}
+	
+	/**
+	 * 画最小单位菱形块
+	 */
+	private void drawRhombus(RenderBackend backend,CenterPoint centerPoint,int viewportOffX,int viewportOffY) {
+		ShapeUnitFrame suf = null;
+		if(!centerPoint.isBuildingCanPutOn()) {
+			suf = Place.getRedRect();
+		}else {
+			suf = Place.getGreenRect();
+		}
+		
+		int positionX = centerPoint.getX()-30;
+		int positionY = centerPoint.getY()-14;
+		
+		int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
+		int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
+		backend.drawFrame(suf, viewX, viewY);
+	}
+	
+	/**
+	 * 画选择框(按下鼠标后拖动呈现的白色选择框)
+	 */
+	public void drawSelectRect(RenderBackend backend,Point mousePoint) {
+		if(RuntimeParameter.mouseStatus == MouseStatus.Select) {
+			int pressX = RuntimeParameter.pressX;
+			int pressY = RuntimeParameter.pressY;
+			if(mousePoint!=null) {
+				int endMouseX = mousePoint.x;
+				int endMouseY = mousePoint.y;
+				backend.drawLine(pressX, pressY, endMouseX, pressY, SELECT_RECT_COLOR);
+				backend.drawLine(endMouseX, pressY, endMouseX, endMouseY, SELECT_RECT_COLOR);
+				backend.drawLine(endMouseX, endMouseY, pressX, endMouseY, SELECT_RECT_COLOR);
+				backend.drawLine(pressX, endMouseY, pressX, pressY, SELECT_RECT_COLOR);
+			}
+		}
+	}
+	
+}
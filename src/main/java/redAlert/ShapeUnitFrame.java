@@ -2,10 +2,18 @@ package redAlert;
 
 import java.awt.Point;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+import redAlert.enums.UnitColor;
+import redAlert.shapeObjects.Building.SceneType;
 import redAlert.utilBean.ColorPoint;
 import redAlert.utils.CanvasPainter;
+import redAlert.utils.PalFileReader;
 
 /**
  * 表示一帧shp画面
@@ -28,19 +36,46 @@ public class ShapeUnitFrame {
 	private List<ColorPoint> colorPointList;//含有队伍颜色信息的像素坐标
 	
 	
+	//=======================调色盘索引帧才会用到的变量===============================
+	/**
+	 * 调色盘下标  每个像素1个字节,按行存放
+	 * 为null表示这是普通的ARGB帧
+	 * 调色盘索引帧加载时不展开ARGB图片,占用内存只有原来的1/4
+	 * 渲染时由片元着色器查调色盘纹理得到颜色,阵营色也在调色盘纹理里换好,不再逐像素上色
+	 * 下标数组加载后不再修改,多个帧对象(不同阵营色的视图)可以共用
+	 */
+	private byte[] paletteIndices;
+	private int indexedWidth;
+	private int indexedHeight;
+	/**
+	 * 调色盘文件前缀  见SceneType
+	 */
+	private String palPrefix;
+	/**
+	 * 渲染时使用的阵营色  null表示不换阵营色
+	 */
+	private UnitColor unitColor;
+	/**
+	 * 同一组下标在各阵营色下的视图  避免每帧新建对象,也让纹理缓存的键保持稳定
+	 */
+	private Map<UnitColor,ShapeUnitFrame> unitColorViews;
+	//=======================调色盘索引帧才会用到的变量===============================
+	
+	
 	//=======================使用OpenGL才会用到的变量===============================
 	/**
-	 * 纹理id
+	 * 图片版本号
+	 * 图片被替换或被原地重绘后递增,纹理缓存据此判断显存中的纹理是否过期
 	 */
-	private int textureId;
+	private volatile int imgVersion = 0;
 	/**
-	 * 是否已初始化纹理id
-	 * 初始化后即认为已经被加载到显存中
+	 * 图片是否被原地重绘过(调用过markImgChanged)
+	 * 坦克车身+炮塔合成图、步兵上色图、血条这类帧每个逻辑帧都可能被重画,绘制快照为它们另存一份拷贝,见FrameSnapshot
 	 */
-	private boolean alreadyInitTexId = false;
+	private volatile boolean recomposed = false;
 	/**
-	 * 是否应该被载入显存
-	 * 一般常用的静态资源应该被载入显存  而不常用的资源应该用一次就丢弃
+	 * 是否常驻显存
+	 * 鼠标指针、建造方块这类每帧都要画的静态资源常驻显存,不参与纹理缓存的LRU淘汰
 	 */
 	private boolean shouldBeLoadedToGpu = false;
 	
@@ -60,7 +95,7 @@ public class ShapeUnitFrame {
 	 * 获取中心坐标
 	 */
 	public Point getCenterCoord() {
-		return new Point(img.getWidth()/2,img.getHeight()/2);
+		return new Point(getWidth()/2,getHeight()/2);
 	}
 	
 	
@@ -70,14 +105,16 @@ public class ShapeUnitFrame {
 	 */
 	public ShapeUnitFrame copy() {
 		ShapeUnitFrame frame = new ShapeUnitFrame();
-		frame.setImg(CanvasPainter.copyImage(this.img));//图片需要深拷贝
+		BufferedImage image = img;
+		//图片需要深拷贝  调色盘索引帧直接展开一份新图,原帧保持不展开
+		frame.setImg(image!=null ? CanvasPainter.copyImage(image) : newExpandedImg());
 		frame.setMinX(minX);
 		frame.setMinY(minY);
 		frame.setMaxX(maxX);
 		frame.setMaxY(maxY);
 		frame.setRealPartHeight(realPartHeight);
 		frame.setRealPartHeight(realPartHeight);
-		frame.setColorPointList(colorPointList);//这个对象不会变,所以浅拷贝也可以
+		frame.setColorPointList(getColorPointList());//这个对象不会变,所以浅拷贝也可以
 		return frame;
 	}
 	
@@ -86,12 +123,164 @@ public class ShapeUnitFrame {
 		this.minY = minY;
 	}
 
+	/**
+	 * 获取图片
+	 * 调色盘索引帧第一次被要求提供图片时(CPU上合成、上色、取像素)才按调色盘展开成ARGB图片
+	 * 展开后此帧改走普通ARGB渲染路径
+	 */
 	public BufferedImage getImg() {
+		BufferedImage image = img;
+		if(image==null && paletteIndices!=null) {
+			image = expandIndexedImg();
+		}
+		return image;
+	}
+	
+	private synchronized BufferedImage expandIndexedImg() {
+		if(img==null) {
+			setImg(newExpandedImg());
+		}
 		return img;
 	}
+	
+	/**
+	 * 按调色盘把下标数据展开成一张新的ARGB图片
+	 */
+	private BufferedImage newExpandedImg() {
+		if(paletteIndices==null) {
+			return null;
+		}
+		int [] colorArray = PalFileReader.getTeamColorArray(palPrefix, unitColor);
+		BufferedImage image = new BufferedImage(indexedWidth,indexedHeight,BufferedImage.TYPE_INT_ARGB);
+		int [] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		for(int i=0;i<pixels.length;i++) {
+			pixels[i] = colorArray[paletteIndices[i] & 0xFF];
+		}
+		return image;
+	}
+	
+	/**
+	 * 是否有像素数据  不会触发调色盘索引帧的展开
+	 */
+	public boolean hasPixels() {
+		return img!=null || paletteIndices!=null;
+	}
+	/**
+	 * 图片宽度  不会触发调色盘索引帧的展开
+	 */
+	public int getWidth() {
+		BufferedImage image = img;
+		return image!=null ? image.getWidth() : indexedWidth;
+	}
+	/**
+	 * 图片高度  不会触发调色盘索引帧的展开
+	 */
+	public int getHeight() {
+		BufferedImage image = img;
+		return image!=null ? image.getHeight() : indexedHeight;
+	}
+	
+	/**
+	 * 设置调色盘下标数据
+	 */
+	public void setPaletteIndices(byte[] paletteIndices,int width,int height,String palPrefix) {
+		this.paletteIndices = paletteIndices;
+		this.indexedWidth = width;
+		this.indexedHeight = height;
+		this.palPrefix = palPrefix;
+	}
+	public byte[] getPaletteIndices() {
+		return paletteIndices;
+	}
+	public String getPalPrefix() {
+		return palPrefix;
+	}
+	public UnitColor getUnitColor() {
+		return unitColor;
+	}
+	/**
+	 * 是否是调色盘索引帧
+	 */
+	public boolean isPaletteIndexed() {
+		return paletteIndices!=null;
+	}
+	/**
+	 * 是否走调色盘着色器渲染
+	 * 图片已被展开(说明CPU上可能改过像素)的帧改走ARGB路径
+	 */
+	public boolean isDrawnIndexed() {
+		return paletteIndices!=null && img==null;
+	}
+	
+	/**
+	 * 获取此帧在指定阵营色下的视图  视图按阵营色缓存,同一帧同一阵营色只生成一次
+	 * 调色盘索引帧：视图与原帧共用下标数组,渲染时由调色盘纹理完成阵营色替换
+	 * ARGB帧：视图是上好阵营色的拷贝
+	 * 两种情况都代替了每帧 copy()+giveFrameUnitColor() 的逐像素上色
+	 * 只应对加载后不再修改的资源帧调用
+	 */
+	public ShapeUnitFrame withUnitColor(UnitColor color) {
+		if(color==unitColor) {
+			return this;
+		}
+		if(paletteIndices==null) {
+			List<ColorPoint> points = colorPointList;
+			if(color==null || points==null || points.isEmpty()) {
+				return this;//没有阵营色像素
+			}
+		}
+		synchronized(this) {
+			if(unitColorViews==null) {
+				unitColorViews = new EnumMap<>(UnitColor.class);
+			}
+			ShapeUnitFrame view = unitColorViews.get(color);
+			if(view==null && paletteIndices==null) {
+				view = copy();
+				BufferedImage image = view.getImg();
+				for(ColorPoint cp:colorPointList) {
+					image.setRGB(cp.getX(), cp.getY(), CanvasPainter.transColor(image.getRGB(cp.getX(), cp.getY()),color));
+				}
+				view.colorPointList = Collections.emptyList();//已经上好阵营色,不能再被逐像素上色一次
+				view.unitColor = color;
+				unitColorViews.put(color, view);
+			}
+			if(view==null) {
+				view = new ShapeUnitFrame();
+				view.setMinX(minX);
+				view.setMinY(minY);
+				view.setMaxX(maxX);
+				view.setMaxY(maxY);
+				view.setRealPartWidth(realPartWidth);
+				view.setRealPartHeight(realPartHeight);
+				view.colorPointList = Collections.emptyList();//视图展开时已经换好阵营色,不能再被逐像素上色一次
+				view.setPaletteIndices(paletteIndices, indexedWidth, indexedHeight, palPrefix);
+				view.unitColor = color;
+				unitColorViews.put(color, view);
+			}
+			return view;
+		}
+	}
 
 	public void setImg(BufferedImage img) {
 		this.img = img;
+		this.imgVersion++;
+	}
+	
+	/**
+	 * 标记图片已被原地重绘
+	 * 直接在getImg()返回的图片上作画后必须调用,否则显存中的纹理不会更新
+	 */
+	public void markImgChanged() {
+		this.recomposed = true;
+		this.imgVersion++;
+	}
+	
+	public boolean isRecomposed() {
+		return recomposed;
+	}
+	
+	public int getImgVersion() {
+		return imgVersion;
 	}
 
 	public int getMinY() {
@@ -143,20 +332,40 @@ public class ShapeUnitFrame {
 		this.realPartHeight = realPartHeight;
 	}
 	public List<ColorPoint> getColorPointList() {
+		List<ColorPoint> list = colorPointList;
+		if(list==null && paletteIndices!=null && isUnitPalette(palPrefix)) {
+			list = buildColorPointList();
+		}
+		return list;
+	}
+	
+	/**
+	 * 调色盘索引帧加载时不记录阵营色像素,CPU上色时才从下标数据中找出来
+	 */
+	private synchronized List<ColorPoint> buildColorPointList() {
+		if(colorPointList==null) {
+			List<ColorPoint> list = new ArrayList<>();
+			for(int i=0;i<paletteIndices.length;i++) {
+				int colorIndex = paletteIndices[i] & 0xFF;
+				if(colorIndex>15 && colorIndex<32) {
+					list.add(new ColorPoint(i%indexedWidth,i/indexedWidth));
+				}
+			}
+			colorPointList = list;
+		}
 		return colorPointList;
 	}
+	
+	/**
+	 * 使用单位调色盘(含阵营色)的场景
+	 */
+	public static boolean isUnitPalette(String palPrefix) {
+		return SceneType.SNOW.getPalPrefix().equals(palPrefix) || SceneType.TEM.getPalPrefix().equals(palPrefix) || SceneType.URBAN.getPalPrefix().equals(palPrefix);
+	}
 	public void setColorPointList(List<ColorPoint> colorPointList) {
 		this.colorPointList = colorPointList;
 	}
 
-	public int getTextureId() {
-		return textureId;
-	}
-
-	public void setTextureId(int textureId) {
-		this.textureId = textureId;
-	}
-
 	public boolean isShouldBeLoadedToGpu() {
 		return shouldBeLoadedToGpu;
 	}
@@ -164,13 +373,5 @@ public class ShapeUnitFrame {
 	public void setShouldBeLoadedToGpu(boolean shouldBeLoadedToGpu) {
 		this.shouldBeLoadedToGpu = shouldBeLoadedToGpu;
 	}
-
-	public boolean isAlreadyInitTexId() {
-		return alreadyInitTexId;
-	}
-
-	public void setAlreadyInitTexId(boolean alreadyInitTexId) {
-		this.alreadyInitTexId = alreadyInitTexId;
-	}
 	
 }
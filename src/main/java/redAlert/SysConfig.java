@@ -150,6 +150,50 @@ public class SysConfig {
 		windowSizeMode = mode;
 	}
 
+	/**
+	 * 地图大小是否已被锁定  DiamondGrid初始化时锁定
+	 */
+	private static volatile boolean mapSizeLocked = false;
+
+	/**
+	 * 设置地图大小
+	 * 必须在使用中心点(DiamondGrid)之前调用,网格建立后地图大小不能再改变
+	 * @param columns 每行的一类(二类)中心点个数
+	 * @param rows 一类(二类)中心点的行数
+	 * @throws IllegalStateException 网格已经按另一个大小建立
+	 */
+	public static synchronized void setMapSize(int columns, int rows) {
+		if (columns <= 0 || rows <= 0) {
+			throw new IllegalArgumentException("地图大小不正确: " + columns + "x" + rows);
+		}
+		if (mapSizeLocked && (columns * 60 != gameMapWidth || rows * 30 != gameMapHeight)) {
+			throw new IllegalStateException("中心点网格已按" + getMapColumns() + "x" + getMapRows() + "建立,不能改为" + columns + "x" + rows);
+		}
+		gameMapWidth = columns * 60;
+		gameMapHeight = rows * 30;
+	}
+
+	/**
+	 * 锁定地图大小  由DiamondGrid在建立网格前调用
+	 */
+	public static synchronized void lockMapSize() {
+		mapSizeLocked = true;
+	}
+
+	/**
+	 * 地图每行的一类(二类)中心点个数
+	 */
+	public static int getMapColumns() {
+		return gameMapWidth / 60;
+	}
+
+	/**
+	 * 地图一类(二类)中心点的行数
+	 */
+	public static int getMapRows() {
+		return gameMapHeight / 30;
+	}
+
 	/**
 	 * 设置自定义窗口尺寸
 	 * 必须在 initSysConfig() 之前调用，且模式设置为 CUSTOM
@@ -208,14 +252,93 @@ public class SysConfig {
 	/**
 	 * 战场地图的宽高
 	 *
-	 * 实际有效区域由中心点网格决定:
+	 * 实际有效区域由中心点网格决定(以默认的50列50行为例):
 	 * - 一类中心点: x从30开始,间隔60,共50个,最大2970
 	 * - 二类中心点: x从0开始,间隔60,共50个,最大2940
 	 * - Y轴最大值: 1485 (一类中心点)
 	 *
 	 * 配置值略大于实际最大中心点坐标,留出边缘余量
+	 * 地图大小由地图文件决定(见MapFileReader),用setMapSize设置
+	 */
+	public static int gameMapWidth = 3000;
+	public static int gameMapHeight = 1500;
+	/**
+	 * 纹理缓存的显存预算(字节)
+	 * 超出后按最近最少使用的顺序淘汰纹理
+	 */
+	public static long textureCacheBudget = 256L*1024*1024;
+	/**
+	 * 纹理超过多少渲染帧没有使用就释放
+	 * 60帧/秒时600帧约为10秒
+	 */
+	public static int textureCacheMaxIdleFrames = 600;
+	/**
+	 * 纹理图集页边长(像素)
+	 * 帧排进图集页后,连续绘制的精灵共用一张纹理,可以合并成一次绘制调用
+	 * 宽或高超过边长一半的帧仍然单独一张纹理  为0时不用图集
+	 */
+	public static int textureAtlasPageSize = 2048;
+	/**
+	 * 地形区块边长(中心点行列数)
+	 * 地形按区块上传显存,每帧只绘制与视口相交的区块
+	 */
+	public static int terrainChunkTiles = 16;
+	/**
+	 * SHP帧是否以调色盘下标(每像素1字节)保存
+	 * 开启后帧图片按需展开,渲染时由着色器查调色盘纹理并替换阵营色
+	 * 显卡不支持着色器时自动退回ARGB纹理
+	 */
+	public static boolean paletteIndexedSprites = false;
+	/**
+	 * 建筑是否分层渲染
+	 * 开启后建筑动画的各层作为独立的常驻纹理逐层绘制,不再每帧把各层合成到curFrame的图片里
+	 */
+	public static boolean layeredBuildingRendering = true;
+	/**
+	 * 逻辑帧率(次/秒)
+	 * 游戏逻辑按这个频率固定计算,与画面帧率无关,可设为15、30、60等
+	 * 游戏速度不受此值影响,调低后计算量减少,但单位移动和动画的画面更新也变少
+	 */
+	public static int simulationTickRate = 60;
+	/**
+	 * 逻辑帧的计算线程数
+	 * 载具、步兵、建筑、炮弹按地图区域分组后在ForkJoin线程池中并行计算,设为1时在逻辑线程上顺序计算
+	 * 无论线程数是多少,格子占用和伤害都在提交阶段按固定次序结算,结果相同
+	 */
+	public static int simulationThreads = Runtime.getRuntime().availableProcessors();
+	/**
+	 * 寻路线程数
+	 * 移动命令和重新寻路提交给寻路服务,由这些线程计算,算完后在逻辑帧开始时交给单位
+	 */
+	public static int pathfindingThreads = Math.max(1, Runtime.getRuntime().availableProcessors()/2);
+	/**
+	 * 群体移动命令中载具达到这个数量时改用流场寻路
+	 * 整组只算一次积分场,每个单位顺着流场走,不再各自做一次A*
+	 * 积分场要算整张地图,单位少时不如各自A*快,见redAlert.test.FlowFieldBenchmark
+	 */
+	public static int flowFieldMinUnits = 32;
+	/**
+	 * 群体移动命令中步兵达到这个数量时改用流场寻路
+	 * 步兵的积分场按小中心点算,比载具的大得多,几十个步兵时还不如各自A*快,所以比载具的高
+	 */
+	public static int flowFieldMinSoldiers = 80;
+	/**
+	 * 流场缓存的有效时间(毫秒)  反复对同一个地方下命令时复用
+	 */
+	public static long flowFieldCacheMillis = 2000;
+	/**
+	 * 分层寻路的区块大小(行列数)
+	 * 地图切成这么大的区块,寻路先在区块交界处的入口点之间找路,再在区块内细化
+	 */
+	public static int hierarchicalPathClusterSize = 16;
+	/**
+	 * 起点终点相距(行或列)达到这个数时载具改用分层寻路  设为0时不使用
+	 */
+	public static int hierarchicalPathMinDistance = 40;
+	/**
+	 * 路径缓存的容量(条)  设为0时不缓存
+	 * 起点终点相同的寻路请求直接使用缓存的路径,命中率和淘汰次数见PathCache.getStatistics()和redAlert.test.PathCacheBenchmark
 	 */
-	public static final int gameMapWidth = 3000;
-	public static final int gameMapHeight = 1500;
+	public static int pathCacheSize = 512;
 	
 }
@@ -1,10 +1,21 @@
 package redAlert.enums;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 建筑类的配置信息大全
  */
 public class ConstConfig {
 
+	/**
+	 * 已创建的配置个数  要在下面的static块之前初始化
+	 */
+	private static final AtomicInteger configCount = new AtomicInteger();
+	
+	public static int getConfigCount() {
+		return configCount.get();
+	}
+
 	
 	/*
 	 * 盟军主建筑
@@ -118,9 +129,13 @@ public class ConstConfig {
 	 * 哪些建筑不可以：雷达，光棱塔，间谍卫星，磁暴线圈，心灵探测器，超武
 	 */
 	public boolean lowPowerWorkable = true;
-	
+	/**
+	 * 配置的序号  按创建顺序从0开始  PowerGrid用它作为按建筑种类计数的数组下标
+	 */
+	public final int index;
 	
 	public ConstConfig(String constName,int fxNum,int fyNum,int price,String shpIconPrefix,int maxHp,int powerLoad,boolean lowPowerWorkable){
+		this.index = configCount.getAndIncrement();
 		this.constName = constName;
 		this.fxNum = fxNum;
 		this.fyNum = fyNum;
@@ -25,7 +25,7 @@ import redAlert.militaryBuildings.AfWeap;
 import redAlert.militaryBuildings.AfWeth;
 import redAlert.militaryBuildings.AfYard;
 import redAlert.militaryBuildings.SfMisl;
-import redAlert.resourceCenter.ShapeUnitResourceCenter;
+import redAlert.resourceCenter.PowerGrid;
 import redAlert.tabIcon.Tab00Manager;
 import redAlert.tabIcon.Tab01Manager;
 import redAlert.utilBean.CenterPoint;
@@ -116,7 +116,7 @@ public class ConstructEventHandler extends Thread{
 				RuntimeParameter.mouseStatus = MouseStatus.Idle;
 				constName = null;
 				Tab00Manager.freeAll();
-				if(ShapeUnitResourceCenter.isPowerOn) {
+				if(PowerGrid.getInstance().isPowerOn()) {
 					OptionsPanel.radarLabel.triggleRadarShow();
 				}
 			}
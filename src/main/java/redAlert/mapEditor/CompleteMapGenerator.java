@@ -6,8 +6,11 @@ import java.io.File;
 import java.util.*;
 
 import redAlert.GlobalConfig;
+import redAlert.SysConfig;
 import redAlert.enums.OverlayType;
 import redAlert.enums.TerrainType;
+import redAlert.utils.MapFileReader;
+import redAlert.utils.MapFileWriter;
 import redAlert.utils.RandomUtil;
 
 /**
@@ -53,8 +56,12 @@ public class CompleteMapGenerator {
     }
 
     public static void main(String[] args) {
+        // 可选参数: 列数 行数  默认50x50
+        if (args.length >= 2) {
+            SysConfig.setMapSize(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        }
         System.out.println("=== 开始生成完整地形地图 ===");
-        System.out.println("地图大小: 3000x1500");
+        System.out.println("地图大小: " + SysConfig.gameMapWidth + "x" + SysConfig.gameMapHeight);
         System.out.println("支持地形: 草地、雪地、道路、水面、岩石、沙滩");
         System.out.println("支持覆盖物: 树木、矿石、岩石、箱子\n");
 
@@ -316,9 +323,9 @@ public class CompleteMapGenerator {
         List<MapCenterPoint> points = new ArrayList<>();
 
         // 一类中心点 (y从15开始,间隔30)
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 15 + 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 30 + 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -328,9 +335,9 @@ public class CompleteMapGenerator {
         }
 
         // 二类中心点 (y从0开始,间隔30)
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -354,6 +361,7 @@ public class CompleteMapGenerator {
             // 构建地图数据
             // 格式: x,y,tileName,terrainType,overlayType$
             StringBuilder text = new StringBuilder();
+            text.append(MapFileReader.sizeHeader());
             for (int i = 0; i < points.size(); i++) {
                 MapCenterPoint point = points.get(i);
                 TerrainType terrainType = (TerrainType) point.getTerrainType();
@@ -375,6 +383,16 @@ public class CompleteMapGenerator {
             FileUtils.writeStringToFile(mapFile, text.toString(), "UTF-8");
             System.out.println("  地图已保存: " + mapFile.getAbsolutePath());
             System.out.println("  文件大小: " + mapFile.length() / 1024 + " KB");
+
+            // 同时保存二进制地图  启动时直接映射读取
+            MapFileWriter binary = new MapFileWriter(SysConfig.getMapColumns(), SysConfig.getMapRows());
+            for (MapCenterPoint point : points) {
+                binary.set(point.getX(), point.getY(), point.getTile().getName(),
+                        (TerrainType) point.getTerrainType(), point.getOverlayType(), null);
+            }
+            File binaryFile = new File(GlobalConfig.binaryMapFilePath);
+            binary.write(binaryFile);
+            System.out.println("  二进制地图已保存: " + binaryFile.getAbsolutePath() + " (" + binaryFile.length() / 1024 + " KB)");
         } catch (Exception e) {
             System.err.println("  保存地图文件失败: " + e.getMessage());
             e.printStackTrace();
@@ -13,6 +13,8 @@ import javax.swing.border.TitledBorder;
 import org.apache.commons.io.FileUtils;
 
 import redAlert.GlobalConfig;
+import redAlert.SysConfig;
+import redAlert.utils.MapFileReader;
 import redAlert.utils.TmpFileReader;
 
 /**
@@ -48,8 +50,8 @@ public class EnhancedMapEditor extends JFrame {
     private final int viewportHeight = 800;
 
     // 地图尺寸
-    private final int mapWidth = 3000;
-    private final int mapHeight = 1500;
+    private final int mapWidth = SysConfig.gameMapWidth;
+    private final int mapHeight = SysConfig.gameMapHeight;
 
     // 瓦片列表
     private List<redAlert.mapEditor.Tile> availableTiles = new ArrayList<>();
@@ -622,7 +624,7 @@ public class EnhancedMapEditor extends JFrame {
                 if (str == null || str.trim().isEmpty()) continue;
 
                 String[] infos = str.split(",");
-                if (infos.length < 3) continue;
+                if (infos.length < 3 || MapFileReader.isSizeHeader(infos)) continue;
 
                 int x = Integer.valueOf(infos[0].trim());
                 int y = Integer.valueOf(infos[1].trim());
@@ -657,6 +659,7 @@ public class EnhancedMapEditor extends JFrame {
     private void saveMapToFile(File file) {
         try {
             StringBuilder text = new StringBuilder();
+            text.append(MapFileReader.sizeHeader());
 
             for (int i = 0; i < mapPoints.size(); i++) {
                 MapCenterPoint point = mapPoints.get(i);
@@ -704,9 +707,9 @@ public class EnhancedMapEditor extends JFrame {
      */
     private void initializeEmptyMap() {
         // 创建所有中心点
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 15 + 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 30 + 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -716,9 +719,9 @@ public class EnhancedMapEditor extends JFrame {
             }
         }
 
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -796,6 +799,8 @@ public class EnhancedMapEditor extends JFrame {
     }
 
     public static void main(String[] args) {
+        // 编辑已有地图时沿用地图文件中的大小
+        MapFileReader.applyMapSize(GlobalConfig.mapFilePath);
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import redAlert.SysConfig;
+
 public class MapCenterPointUtil {
 	/**
 	 * 中心点坐标缓存
@@ -21,9 +23,9 @@ public class MapCenterPointUtil {
 	 */
 	public static void initCenterPointCache() {
 		//一类中心点
-		for(int m=0;m<50;m++) {
+		for(int m=0;m<SysConfig.getMapRows();m++) {
 			int y = 15+30*m;
-			for(int n=0;n<50;n++) {
+			for(int n=0;n<SysConfig.getMapColumns();n++) {
 				int x = 30+60*n;
 				centerPointMap.put(x+","+y, new MapCenterPoint(x,y));
 				
@@ -31,9 +33,9 @@ public class MapCenterPointUtil {
 		}
 		
 		//二类中心点
-		for(int m=0;m<50;m++) {
+		for(int m=0;m<SysConfig.getMapRows();m++) {
 			int y = 30*m;
-			for(int n=0;n<50;n++) {
+			for(int n=0;n<SysConfig.getMapColumns();n++) {
 				int x = 60*n;
 				centerPointMap.put(x+","+y, new MapCenterPoint(x,y));
 			}
@@ -5,6 +5,8 @@ import java.io.File;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import redAlert.utils.MapFileReader;
+
 /**
  * 地图文件诊断工具
  */
@@ -31,7 +33,7 @@ public class MapDiagnostic {
                 }
 
                 String[] infos = StringUtils.split(info, ",");
-                if (infos.length < 3) {
+                if (infos.length < 3 || MapFileReader.isSizeHeader(infos)) {
                     continue;
                 }
 
@@ -55,7 +57,7 @@ public class MapDiagnostic {
                     continue;
                 }
                 String[] infos = StringUtils.split(info, ",");
-                if (infos.length < 3) {
+                if (infos.length < 3 || MapFileReader.isSizeHeader(infos)) {
                     continue;
                 }
                 int x = Integer.valueOf(infos[0].trim());
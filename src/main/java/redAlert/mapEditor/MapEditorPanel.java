@@ -10,6 +10,7 @@ import java.util.TimerTask;
 
 import javax.swing.JPanel;
 
+import redAlert.SysConfig;
 import redAlert.utils.CanvasPainter;
 
 /**
@@ -36,10 +37,10 @@ public class MapEditorPanel extends JPanel{
 	public static int viewportOffX = 0;
 	public static int viewportOffY = 0;
 	/**
-	 * 战场地图的宽高
+	 * 战场地图的宽高  与游戏使用同样的地图大小(SysConfig.setMapSize)
 	 */
-	public static final int gameMapWidth = 6000;
-	public static final int gameMapHeight = 4000;
+	public static final int gameMapWidth = SysConfig.gameMapWidth;
+	public static final int gameMapHeight = SysConfig.gameMapHeight;
 	/**
 	 * 主画板绘画间隔66毫秒
 	 * 红警的默认帧率是15帧/秒,这样设置更接近红警2
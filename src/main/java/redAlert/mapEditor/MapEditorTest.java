@@ -5,6 +5,7 @@ import java.awt.Dimension;
 
 import javax.swing.JFrame;
 
+import redAlert.SysConfig;
 import redAlert.mapEditor.MapEditorPanel;
 import redAlert.mapEditor.MapMouseEventDeal;
 import redAlert.mapEditor.RandomMapGenerate;
@@ -26,6 +27,11 @@ public class MapEditorTest {
 	public static boolean isMapComplete = false;
 	
 	public static void main(String[] args) throws Exception{
+		//可选参数: 列数 行数  默认50x50  必须在使用中心点之前设置
+		if(args.length>=2) {
+			SysConfig.setMapSize(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+		}
+		
 		//程序窗口
 		JFrame jf = new JFrame("红色警戒地图编辑器");
 		
@@ -0,0 +1,29 @@
+package redAlert.mapEditor;
+
+import java.io.File;
+
+import redAlert.GlobalConfig;
+import redAlert.utils.MapFileReader;
+
+/**
+ * 文本地图转换成二进制地图
+ *
+ * 参数(都可省略)：文本地图路径 二进制地图路径  默认为GlobalConfig中的路径
+ */
+public class MapFileConverter {
+
+    public static void main(String[] args) {
+        File textFile = new File(args.length > 0 ? args[0] : GlobalConfig.mapFilePath);
+        File binaryFile = new File(args.length > 1 ? args[1] : GlobalConfig.binaryMapFilePath);
+        try {
+            long start = System.currentTimeMillis();
+            MapFileReader.convertToBinary(textFile, binaryFile);
+            System.out.println("转换完成: " + textFile.getAbsolutePath() + " -> " + binaryFile.getAbsolutePath());
+            System.out.println("文件大小: " + textFile.length() / 1024 + " KB -> " + binaryFile.length() / 1024 + " KB, 耗时 "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("转换地图文件失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
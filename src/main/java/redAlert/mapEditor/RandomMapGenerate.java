@@ -11,6 +11,7 @@ import java.util.Set;
 import org.apache.commons.io.FileUtils;
 
 import redAlert.GlobalConfig;
+import redAlert.utils.MapFileReader;
 
 /**
  * 随机地图生成的方法放在这里
@@ -44,6 +45,7 @@ public class RandomMapGenerate {
 		
 		//将生成的信息保存进文件  供游戏进程读取
 		StringBuilder text = new StringBuilder(50000);
+		text.append(MapFileReader.sizeHeader());
 		for(int i=0;i<allMcps.size();i++  ) {
 			MapCenterPoint point = allMcps.get(i);
 			if(i<allMcps.size()-1) {
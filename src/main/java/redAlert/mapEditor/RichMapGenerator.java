@@ -13,6 +13,9 @@ import java.util.Set;
 import org.apache.commons.io.FileUtils;
 
 import redAlert.GlobalConfig;
+import redAlert.SysConfig;
+import redAlert.utils.MapFileReader;
+import redAlert.utils.MapFileWriter;
 import redAlert.utils.RandomUtil;
 
 /**
@@ -22,8 +25,6 @@ import redAlert.utils.RandomUtil;
 public class RichMapGenerator {
 
     // 地图配置
-    private static final int MAP_WIDTH = 3000;
-    private static final int MAP_HEIGHT = 1500;
 
     // 地形类型
     private enum TerrainType {
@@ -127,9 +128,9 @@ public class RichMapGenerator {
         List<MapCenterPoint> points = new ArrayList<>();
 
         // 一类中心点 (y从15开始，间隔30)
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 15 + 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 30 + 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -139,9 +140,9 @@ public class RichMapGenerator {
         }
 
         // 二类中心点 (y从0开始，间隔30)
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -223,14 +224,14 @@ public class RichMapGenerator {
         System.out.println("生成道路网络...");
 
         // 主干道：从西到东
-        createRoad(points, 0, 750, 3000, 750, 60);
-        createRoad(points, 0, 450, 3000, 450, 50);
-        createRoad(points, 0, 1100, 3000, 1100, 50);
+        createRoad(points, 0, 750, SysConfig.gameMapWidth, 750, 60);
+        createRoad(points, 0, 450, SysConfig.gameMapWidth, 450, 50);
+        createRoad(points, 0, 1100, SysConfig.gameMapWidth, 1100, 50);
 
         // 南北向道路
-        createRoad(points, 600, 0, 600, 1500, 50);
-        createRoad(points, 1500, 0, 1500, 1500, 60);
-        createRoad(points, 2400, 0, 2400, 1500, 50);
+        createRoad(points, 600, 0, 600, SysConfig.gameMapHeight, 50);
+        createRoad(points, 1500, 0, 1500, SysConfig.gameMapHeight, 60);
+        createRoad(points, 2400, 0, 2400, SysConfig.gameMapHeight, 50);
 
         // 对角线道路
         createDiagonalRoad(points, 300, 300, 2700, 1200, 40);
@@ -513,6 +514,7 @@ public class RichMapGenerator {
         System.out.println("保存地图到文件...");
 
         StringBuilder text = new StringBuilder();
+        text.append(MapFileReader.sizeHeader());
         for (int i = 0; i < points.size(); i++) {
             MapCenterPoint point = points.get(i);
             if (i < points.size() - 1) {
@@ -536,6 +538,15 @@ public class RichMapGenerator {
             FileUtils.writeStringToFile(mapFile, text.toString(), "UTF-8");
             System.out.println("地图已保存到: " + mapFile.getAbsolutePath());
             System.out.println("文件大小: " + mapFile.length() / 1024 + " KB");
+
+            // 同时保存二进制地图  启动时直接映射读取
+            MapFileWriter binary = new MapFileWriter(SysConfig.getMapColumns(), SysConfig.getMapRows());
+            for (MapCenterPoint point : points) {
+                binary.set(point.getX(), point.getY(), point.getTile().getName(), null, null, null);
+            }
+            File binaryFile = new File(GlobalConfig.binaryMapFilePath);
+            binary.write(binaryFile);
+            System.out.println("二进制地图已保存到: " + binaryFile.getAbsolutePath() + " (" + binaryFile.length() / 1024 + " KB)");
         } catch (Exception e) {
             System.err.println("保存地图文件失败: " + e.getMessage());
             e.printStackTrace();
@@ -616,6 +627,10 @@ public class RichMapGenerator {
      * 主函数 - 直接运行生成地图
      */
     public static void main(String[] args) {
+        // 可选参数: 列数 行数  默认50x50
+        if (args.length >= 2) {
+            SysConfig.setMapSize(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        }
         // 确保资源已加载
         TilesSourceCenter.loadResource();
 
@@ -6,6 +6,8 @@ import java.util.*;
 import org.apache.commons.io.FileUtils;
 
 import redAlert.GlobalConfig;
+import redAlert.SysConfig;
+import redAlert.utils.MapFileReader;
 import redAlert.utils.RandomUtil;
 
 /**
@@ -141,9 +143,9 @@ public class SimpleMapGenerator {
         List<MapCenterPoint> points = new ArrayList<>();
 
         // 一类中心点 (y从15开始，间隔30)
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 15 + 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 30 + 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -153,9 +155,9 @@ public class SimpleMapGenerator {
         }
 
         // 二类中心点 (y从0开始，间隔30)
-        for (int m = 0; m < 50; m++) {
+        for (int m = 0; m < SysConfig.getMapRows(); m++) {
             int y = 30 * m;
-            for (int n = 0; n < 50; n++) {
+            for (int n = 0; n < SysConfig.getMapColumns(); n++) {
                 int x = 60 * n;
                 MapCenterPoint mcp = MapCenterPointUtil.fetchCenterPoint(x, y);
                 if (mcp != null) {
@@ -174,6 +176,7 @@ public class SimpleMapGenerator {
         System.out.println("保存地图到文件...");
 
         StringBuilder text = new StringBuilder();
+        text.append(MapFileReader.sizeHeader());
         for (int i = 0; i < points.size(); i++) {
             MapCenterPoint point = points.get(i);
             if (i < points.size() - 1) {
@@ -221,6 +224,10 @@ public class SimpleMapGenerator {
     }
 
     public static void main(String[] args) {
+        // 可选参数: 列数 行数  默认50x50
+        if (args.length >= 2) {
+            SysConfig.setMapSize(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        }
         generateMap();
     }
 }
@@ -1,14 +1,12 @@
 package redAlert.militaryBuildings;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.enums.ConstConfig;
 import redAlert.enums.UnitColor;
-import redAlert.resourceCenter.ShapeUnitResourceCenter;
+import redAlert.resourceCenter.PowerGrid;
 import redAlert.resourceCenter.ShpResourceCenter;
 import redAlert.shapeObjects.Building;
 import redAlert.utilBean.CenterPoint;
@@ -154,14 +152,8 @@ public class AfCnst extends Building{
 		
 		//夹箱子动画
 		if(toFetchCrate) {
-			if(ShapeUnitResourceCenter.isPowerOn) {
-				ShapeUnitFrame suf = fetchCrateFrames.get(fetchIndex);
-				BufferedImage img = suf.getImg();
-				BufferedImage curImg = curFrame.getImg();
-				Graphics2D g2d = curImg.createGraphics();
-				g2d.drawImage(img, 0, 0, null);
-				g2d.dispose();
-				giveFrameUnitColor(curImg,suf);//上阵营色
+			if(PowerGrid.getInstance().isPowerOn()) {
+				addFrameOnTop(fetchCrateFrames.get(fetchIndex));
 				
 				fetchIndex++;
 				
@@ -2,7 +2,6 @@ package redAlert.militaryBuildings;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.enums.UnitColor;
@@ -57,9 +56,6 @@ public class AfComm extends Building{
 		curFrame = super.calculateFirstFrame();
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "comm";
 	}
 	
@@ -92,9 +88,6 @@ public class AfComm extends Building{
 		curFrame = super.calculateFirstFrame();
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "comm";
 	}
 	
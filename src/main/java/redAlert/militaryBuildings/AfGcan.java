@@ -2,7 +2,6 @@ package redAlert.militaryBuildings;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.enums.ConstConfig;
@@ -55,9 +54,6 @@ public class AfGcan extends Building{
 		curFrame = constructFrames.get(0);
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "cnst";
 	}
 	
@@ -108,7 +108,7 @@ public class AfPowr extends Building implements PowerPlant{
 	@Override
 	public int getPowerGeneration() {
 		float curHp = bloodBar.getCurHp();
-		int maxHp = bloodBar.getCurHp();
+		int maxHp = bloodBar.getMaxHp();
 		return (int)(powerGeneration/2+powerGeneration/2*(curHp/maxHp));
 	}
 	
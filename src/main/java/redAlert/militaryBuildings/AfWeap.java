@@ -3,9 +3,9 @@ package redAlert.militaryBuildings;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
+import redAlert.SysConfig;
 import redAlert.enums.ConstConfig;
 import redAlert.enums.UnitColor;
 import redAlert.resourceCenter.ShpResourceCenter;
@@ -60,237 +60,28 @@ public class AfWeap extends Building{
 	public List<Building> tankChaifen() {
 		List<Building> chaifenLs = new ArrayList<>();
 		
-		AfWeap afweap1 = new AfWeap();//工厂身体部分
-		afweap1.setScene(this.scene);
-		afweap1.setPositionX(this.positionX);
-		afweap1.setPositionY(this.positionY);
-		afweap1.setStatus(this.status);
-		afweap1.setStage(this.stage);
-		afweap1.setPriority(40);//设置优先级  这行代码很重要  afweap2的优先级应低于战车
-		afweap1.setPartOfWeap(true);
-		afweap1.setMakingVehicle(true);
-		afweap1.setUnitNo(new Random().nextInt());
-		afweap1.setUnitName("weapPart1");
-		
+		//工厂身体部分  设置优先级  这行代码很重要  afweap2的优先级应低于战车
+		AfWeap afweap1;
 		if(status==BuildingStatus.UNDEMAGED){
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<tankFramesWorkingFrames.size();i++) {
-				List<ShapeUnitFrame> workingFrameLs = tankFramesWorkingFrames.get(i);
-				ShapeUnitFrame frame = workingFrameLs.get(tankFrameWorkingIndex%workingFrameLs.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap1.setPositionMinX(afweap1.getPositionX()+minX);
-			afweap1.setPositionMinY(afweap1.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap1.setCurFrame(bf);
+			afweap1 = newPart(40, "weapPart1", tankFramesWorkingFrames, tankFrameWorkingIndex);
 			tankFrameWorkingIndex++;
 		}else {
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<tankFramesDamagedFrames.size();i++) {
-				List<ShapeUnitFrame> damagedFrameLs = tankFramesDamagedFrames.get(i);
-				ShapeUnitFrame frame = damagedFrameLs.get(tankFrameDamagedIndex%damagedFrameLs.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap1.setPositionMinX(afweap1.getPositionX()+minX);
-			afweap1.setPositionMinY(afweap1.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap1.setCurFrame(bf);
+			afweap1 = newPart(40, "weapPart1", tankFramesDamagedFrames, tankFrameDamagedIndex);
 			tankFrameDamagedIndex++;
 		}
 		chaifenLs.add(afweap1);
 		
-		
-		
-		AfWeap afweap2 = new AfWeap();//工厂的顶棚部分
-		afweap2.setScene(this.scene);
-		afweap2.setPositionX(this.positionX);
-		afweap2.setPositionY(this.positionY);
-		afweap2.setStatus(this.status);
-		afweap2.setStage(this.stage);
-		afweap2.setPriority(60);//设置优先级  这行代码很重要  afweap2的优先级应低于战车
-		afweap2.setPartOfWeap(true);
-		afweap2.setMakingVehicle(true);
-		afweap2.setUnitNo(new Random().nextInt());
-		afweap2.setUnitName("weapPart2");
-		
+		//工厂的顶棚部分  设置优先级  这行代码很重要  afweap2的优先级应低于战车
+		AfWeap afweap2;
 		if(status==BuildingStatus.UNDEMAGED){
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<tankFramesWorkingFrames2.size();i++) {
-				List<ShapeUnitFrame> workingFrameLs2 = tankFramesWorkingFrames2.get(i);
-				ShapeUnitFrame frame = workingFrameLs2.get(tankFrameWorkingIndex2%workingFrameLs2.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap2.setPositionMinX(afweap2.getPositionX()+minX);
-			afweap2.setPositionMinY(afweap2.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap2.setCurFrame(bf);
+			afweap2 = newPart(60, "weapPart2", tankFramesWorkingFrames2, tankFrameWorkingIndex2);
 			tankFrameWorkingIndex2++;
 		}else {
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<tankFramesDamagedFrames2.size();i++) {
-				List<ShapeUnitFrame> damagedFrameLs2 = tankFramesDamagedFrames2.get(i);
-				ShapeUnitFrame frame = damagedFrameLs2.get(tankFrameDamagedIndex2%damagedFrameLs2.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap2.setPositionMinX(afweap2.getPositionX()+minX);
-			afweap2.setPositionMinY(afweap2.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap2.setCurFrame(bf);
+			afweap2 = newPart(60, "weapPart2", tankFramesDamagedFrames2, tankFrameDamagedIndex2);
 			tankFrameDamagedIndex2++;
 		}
 		chaifenLs.add(afweap2);
 		
-		
 		return chaifenLs;
 	}
 	
@@ -303,239 +94,58 @@ public class AfWeap extends Building{
 	public List<Building> flyChaifen() {
 		List<Building> chaifenLs = new ArrayList<>();
 		
-		AfWeap afweap1 = new AfWeap();//工厂的一部分
-		afweap1.setScene(this.scene);
-		afweap1.setPositionX(this.positionX);
-		afweap1.setPositionY(this.positionY);
-		afweap1.setStatus(this.status);
-		afweap1.setStage(this.stage);
-		afweap1.setPriority(40);//设置优先级  这行代码很重要  afweap2的优先级应低于飞行物
-		afweap1.setPartOfWeap(true);
-		afweap1.setMakingVehicle(true);
-		afweap1.setUnitNo(new Random().nextInt());
-		afweap1.setUnitName("weapPart1");
-		
+		//工厂的一部分  设置优先级  这行代码很重要  afweap2的优先级应低于飞行物
+		AfWeap afweap1;
 		if(status==BuildingStatus.UNDEMAGED){
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<flyFramesWorkingFrames.size();i++) {
-				List<ShapeUnitFrame> workingFrameLs = flyFramesWorkingFrames.get(i);
-				ShapeUnitFrame frame = workingFrameLs.get(flyFrameWorkingIndex%workingFrameLs.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap1.setPositionMinX(afweap1.getPositionX()+minX);
-			afweap1.setPositionMinY(afweap1.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap1.setCurFrame(bf);
+			afweap1 = newPart(40, "weapPart1", flyFramesWorkingFrames, flyFrameWorkingIndex);
 			flyFrameWorkingIndex++;
 		}else {
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<flyFramesDamagedFrames.size();i++) {
-				List<ShapeUnitFrame> damagedFrameLs = flyFramesDamagedFrames.get(i);
-				ShapeUnitFrame frame = damagedFrameLs.get(flyFrameDamagedIndex%damagedFrameLs.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap1.setPositionMinX(afweap1.getPositionX()+minX);
-			afweap1.setPositionMinY(afweap1.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap1.setCurFrame(bf);
+			afweap1 = newPart(40, "weapPart1", flyFramesDamagedFrames, flyFrameDamagedIndex);
 			flyFrameDamagedIndex++;
 		}
 		chaifenLs.add(afweap1);
 		
-		
-		
-		AfWeap afweap2 = new AfWeap();//工厂的一部分
-		afweap2.setScene(this.scene);
-		afweap2.setPositionX(this.positionX);
-		afweap2.setPositionY(this.positionY);
-		afweap2.setStatus(this.status);
-		afweap2.setStage(this.stage);
-		afweap2.setPriority(60);//设置优先级  这行代码很重要  afweap2的优先级应低于战车
-		afweap2.setPartOfWeap(true);
-		afweap2.setMakingVehicle(true);
-		afweap2.setUnitNo(new Random().nextInt());
-		afweap2.setUnitName("weapPart2");
-		
+		//工厂的一部分
+		AfWeap afweap2;
 		if(status==BuildingStatus.UNDEMAGED){
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<flyFramesWorkingFrames2.size();i++) {
-				List<ShapeUnitFrame> workingFrameLs2 = flyFramesWorkingFrames2.get(i);
-				ShapeUnitFrame frame = workingFrameLs2.get(flyFrameWorkingIndex2%workingFrameLs2.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap2.setPositionMinX(afweap2.getPositionX()+minX);
-			afweap2.setPositionMinY(afweap2.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap2.setCurFrame(bf);
+			afweap2 = newPart(60, "weapPart2", flyFramesWorkingFrames2, flyFrameWorkingIndex2);
 			flyFrameWorkingIndex2++;
 		}else {
-			int width = curFrame.getImg().getWidth();
-			int height = curFrame.getImg().getHeight();
-			BufferedImage newImg = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
-			int minX = 0;
-			int minY = 0;
-			int maxX = 0;
-			int maxY = 0;
-			for(int i=0;i<flyFramesDamagedFrames2.size();i++) {
-				List<ShapeUnitFrame> damagedFrameLs2 = flyFramesDamagedFrames2.get(i);
-				ShapeUnitFrame frame = damagedFrameLs2.get(flyFrameDamagedIndex2%damagedFrameLs2.size());
-				BufferedImage oriImg = frame.getImg();
-				for(int w=0;w<width;w++) {
-					for(int h=0;h<height;h++) {
-						int rgb1 = oriImg.getRGB(w, h);
-						if(rgb1!=0)newImg.setRGB(w, h, rgb1);
-					}
-				}
-				giveFrameUnitColor(newImg,frame);//上阵营色
-				if(i==0) {
-					minX = frame.getMinX();
-					minY = frame.getMinY();
-					maxX = frame.getMaxX();
-					maxY = frame.getMaxY();
-				}else {
-					if(frame.getMinX()<minX) {
-						minX = frame.getMinX();
-					}
-					if(frame.getMinY()<minY) {
-						minY = frame.getMinY();
-					}
-					if(frame.getMaxX()>maxX) {
-						maxX = frame.getMaxX();
-					}
-					if(frame.getMaxY()>maxY) {
-						maxY = frame.getMaxY();
-					}
-				}
-			}
-			afweap2.setPositionMinX(afweap2.getPositionX()+minX);
-			afweap2.setPositionMinY(afweap2.getPositionY()+minY);
-			ShapeUnitFrame bf = new ShapeUnitFrame();
-			bf.setImg(newImg);
-			bf.setMinX(minX);
-			bf.setMaxX(maxX);
-			bf.setMinY(minY);
-			bf.setMaxY(maxY);
-			afweap2.setCurFrame(bf);
+			afweap2 = newPart(60, "weapPart2", flyFramesDamagedFrames2, flyFrameDamagedIndex2);
 			flyFrameDamagedIndex2++;
 		}
 		chaifenLs.add(afweap2);
 		
-		
 		return chaifenLs;
 	}
 	
+	/**
+	 * 造一个工厂组件  画面取各组动画帧在index处的帧
+	 * 分层渲染时组件的curFrame只记录有效区域,画面由各层常驻纹理组成
+	 */
+	private AfWeap newPart(int priority,String unitName,List<List<ShapeUnitFrame>> frameGroups,int index) {
+		AfWeap part = new AfWeap();
+		part.setScene(this.scene);
+		part.setPositionX(this.positionX);
+		part.setPositionY(this.positionY);
+		part.setStatus(this.status);
+		part.setStage(this.stage);
+		part.setPriority(priority);
+		part.setPartOfWeap(true);
+		part.setMakingVehicle(true);
+		part.setUnitName(unitName);
+		
+		ShapeUnitFrame bf = new ShapeUnitFrame();
+		if(!SysConfig.layeredBuildingRendering) {
+			int width = curFrame.getWidth();
+			int height = curFrame.getHeight();
+			bf.setImg(new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB));
+		}
+		part.setCurFrame(bf);
+		showFrames(part, currentFrames(frameGroups,index));//阵营色取主建筑的
+		return part;
+	}
+	
 	
 	public AfWeap() {
 		
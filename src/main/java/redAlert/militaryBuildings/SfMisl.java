@@ -409,7 +409,7 @@ public class SfMisl extends Building{
 				if(!isNuclearLaunched) {
 					NuclearBombUp nuclearBomb = new NuclearBombUp(this);
 					Constructor.putOneShapeUnit(nuclearBomb);
-					Nuketo nuketo = new Nuketo(this.positionX+38,this.positionY+100);
+					Nuketo nuketo = Nuketo.obtain(this.positionX+38,this.positionY+100);
 					Constructor.putOneShapeUnit(nuketo);
 					isNuclearLaunched = true;
 					isNuclearLaunching = true;
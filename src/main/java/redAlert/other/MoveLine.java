@@ -8,12 +8,19 @@ import java.util.List;
 import redAlert.ShapeUnitFrame;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.utilBean.MovePlan;
+import redAlert.utilBean.ObjectPool;
 
 /**
  * 控制单位移动时短暂显示的位移连线
+ * 用obtain从对象池取出,显示完放回池中
  */
 public class MoveLine extends ShapeUnit{
 
+	/**
+	 * 移动线对象池  放回时去掉对移动计划的引用
+	 */
+	public static final ObjectPool<MoveLine> POOL = new ObjectPool<MoveLine>("移动线", 16, MoveLine::new, moveLine -> moveLine.movePlans = null);
+
 	/**
 	 * 线颜色
 	 */
@@ -40,13 +47,48 @@ public class MoveLine extends ShapeUnit{
 	 * 
 	 */
 	public MoveLine(List<MovePlan> movePlans) {
-		this.movePlans = movePlans;
+		this();
+		init(movePlans);
+	}
+	
+	/**
+	 * 从对象池取出一条移动线
+	 */
+	public static MoveLine obtain(List<MovePlan> movePlans) {
+		MoveLine moveLine = POOL.acquire();
+		moveLine.init(movePlans);
+		return moveLine;
+	}
+	
+	/**
+	 * 对象池新建用  空图片只创建一次
+	 */
+	private MoveLine() {
 		super.curFrame = new ShapeUnitFrame();
 		curFrame.setImg(new BufferedImage(1,1,BufferedImage.TYPE_INT_ARGB));//放置一个空图片
 		super.frameSpeed = 2;
 		super.priority = 70;//连接线的优先级很低   比三星标志都低  但比鼠标要高
 	}
 	
+	/**
+	 * 初始化  新建和从对象池取出时都调用
+	 */
+	private void init(List<MovePlan> movePlans) {
+		this.movePlans = movePlans;
+		this.remainLife = 20;
+		super.end = false;
+		super.isVisible = true;
+		super.frameNum = 1;
+	}
+	
+	/**
+	 * 显示完移出游戏后放回对象池
+	 */
+	@Override
+	public void recycle() {
+		POOL.release(this);
+	}
+	
 	@Override
 	public void calculateNextFrame() {
 		
@@ -1,7 +1,6 @@
 package redAlert.other;
 
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.enums.UnitColor;
@@ -51,9 +50,7 @@ public class NuclearBombDown extends ShapeUnit {
 		this.targetY = targetY;
 		this.unitColor = color;
 		giveFrameUnitColor(curFrame.getImg(),curFrame);//上阵营色
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
+		curFrame.markImgChanged();
 		super.unitName = "nkmsldn";
 		
 		super.frameSpeed = 4;
@@ -1,7 +1,6 @@
 package redAlert.other;
 
 import java.util.List;
-import java.util.Random;
 
 import redAlert.Constructor;
 import redAlert.ShapeUnitFrame;
@@ -27,7 +26,7 @@ public class NuclearBombUp extends ShapeUnit{
 		
 		//需要在屁股后边用火
 		if(positionY>-800 && flag%5==0) {
-			Nukepuff nuclearBomb = new Nukepuff(positionX+1,positionY+130);
+			Nukepuff nuclearBomb = Nukepuff.obtain(positionX+1,positionY+130);
 			Constructor.putOneShapeUnit(nuclearBomb);
 		}
 		if(positionY<-800) {
@@ -54,9 +53,7 @@ public class NuclearBombUp extends ShapeUnit{
 		this.unitColor = sfMisl.getUnitColor();
 		
 		giveFrameUnitColor(curFrame.getImg(),curFrame);//上阵营色
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
+		curFrame.markImgChanged();
 		super.unitName = "nkmslup";
 		
 		super.frameSpeed = 4;
@@ -1,7 +1,6 @@
 package redAlert.other;
 
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.resourceCenter.ShpResourceCenter;
@@ -64,9 +63,6 @@ public class NuclearDie extends ShapeUnit{
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
 		
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "nukedie";
 		
 		super.frameSpeed = 4;
@@ -1,18 +1,23 @@
 package redAlert.other;
 
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.resourceCenter.ShpResourceCenter;
 import redAlert.shapeObjects.Building.SceneType;
 import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utilBean.ObjectPool;
 
 /**
  * 核弹上天时屁股后边的火
  */
 public class Nukepuff extends ShapeUnit{
 
+	/**
+	 * 核弹尾焰对象池
+	 */
+	public static final ObjectPool<Nukepuff> POOL = new ObjectPool<Nukepuff>("核弹尾焰", 64, Nukepuff::new, null);
+
 	/**
 	 * 建筑建造动画帧集合
 	 *   因为建造是一个单向连续的过程，不包括多个组成部分，所以是一个简单数组
@@ -41,22 +46,50 @@ public class Nukepuff extends ShapeUnit{
 	 * 偏移核弹井左上角向右86个像素
 	 */
 	public Nukepuff(int positionX,int positionY) {
+		this();
+		init(positionX, positionY);
+	}
+	
+	/**
+	 * 从对象池取出并放在指定位置
+	 */
+	public static Nukepuff obtain(int positionX,int positionY) {
+		Nukepuff nukepuff = POOL.acquire();
+		nukepuff.init(positionX, positionY);
+		return nukepuff;
+	}
+	
+	/**
+	 * 对象池新建用  图片只加载一次
+	 */
+	private Nukepuff() {
 		super.priority = 51;//要比普通的建筑优先级低
 		this.aniFrames = initResource();
+		super.unitName = "nukepuff";
+		super.frameSpeed = 4;
+	}
+	
+	/**
+	 * 初始化  新建和从对象池取出时都调用
+	 */
+	private void init(int positionX,int positionY) {
+		index = 0;
+		super.end = false;
+		super.isVisible = true;
+		super.frameNum = 1;
 		super.positionX = positionX;
 		super.positionY = positionY;
-		super.positionMinX = positionX+5;
-		super.positionMinY = positionY+5;
 		curFrame = aniFrames.get(index);
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
-		super.unitName = "nukepuff";
-		
-		super.frameSpeed = 4;
+	}
+	
+	/**
+	 * 动画播完移出游戏后放回对象池
+	 */
+	@Override
+	public void recycle() {
+		POOL.release(this);
 	}
 	
 	/**
@@ -1,11 +1,11 @@
 package redAlert.other;
 
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.resourceCenter.ShpResourceCenter;
 import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utilBean.ObjectPool;
 import redAlert.shapeObjects.Building.SceneType;
 import redAlert.utils.ShpFileReader;
 
@@ -14,6 +14,11 @@ import redAlert.utils.ShpFileReader;
  */
 public class Nuketo extends ShapeUnit{
 
+	/**
+	 * 发射火焰对象池
+	 */
+	public static final ObjectPool<Nuketo> POOL = new ObjectPool<Nuketo>("发射火焰", 64, Nuketo::new, null);
+
 	/**
 	 * 建筑建造动画帧集合
 	 *   因为建造是一个单向连续的过程，不包括多个组成部分，所以是一个简单数组
@@ -42,22 +47,50 @@ public class Nuketo extends ShapeUnit{
 	 * 偏移核弹井左上角向右86个像素
 	 */
 	public Nuketo(int positionX,int positionY) {
+		this();
+		init(positionX, positionY);
+	}
+	
+	/**
+	 * 从对象池取出并放在指定位置
+	 */
+	public static Nuketo obtain(int positionX,int positionY) {
+		Nuketo nuketo = POOL.acquire();
+		nuketo.init(positionX, positionY);
+		return nuketo;
+	}
+	
+	/**
+	 * 对象池新建用  图片只加载一次
+	 */
+	private Nuketo() {
 		super.priority = 51;//要比普通的建筑优先级低
 		this.aniFrames = initResource();
+		super.unitName = "nuketo";
+		super.frameSpeed = 4;
+	}
+	
+	/**
+	 * 初始化  新建和从对象池取出时都调用
+	 */
+	private void init(int positionX,int positionY) {
+		index = 0;
+		super.end = false;
+		super.isVisible = true;
+		super.frameNum = 1;
 		super.positionX = positionX;
 		super.positionY = positionY;
-		super.positionMinX = positionX+5;
-		super.positionMinY = positionY+5;
 		curFrame = aniFrames.get(index);
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
-		super.unitName = "nuketo";
-		
-		super.frameSpeed = 4;
+	}
+	
+	/**
+	 * 动画播完移出游戏后放回对象池
+	 */
+	@Override
+	public void recycle() {
+		POOL.release(this);
 	}
 	
 	/**
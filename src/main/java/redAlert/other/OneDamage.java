@@ -1,93 +1,127 @@
 package redAlert.other;
 
-import redAlert.Constructor;
-import redAlert.enums.BuildingAreaType;
-import redAlert.resourceCenter.ShapeUnitResourceCenter;
 import redAlert.shapeObjects.Attackable;
-import redAlert.shapeObjects.Building;
 import redAlert.shapeObjects.ShapeUnit;
-import redAlert.shapeObjects.TankTurret;
-import redAlert.shapeObjects.Vehicle;
 import redAlert.shapeObjects.animation.TankShell;
+import redAlert.utilBean.ObjectPool;
 
 /**
  * 一次伤害
+ *
+ * 只记录谁、用什么、对谁(或对哪片区域)造成多少伤害,不再自己结算
+ * 由TickCommit.damage交给DamageSystem,在逻辑帧的提交阶段统一结算
+ * 用obtainSingle/obtainArea从对象池取出,DamageSystem结算完放回池中,交出去之后调用者不要再使用
  */
 public class OneDamage {
 
 	/**
-	 * 攻击者   比如某某坦克
+	 * 伤害对象池  放回时去掉对单位的引用
+	 */
+	public static final ObjectPool<OneDamage> POOL = new ObjectPool<OneDamage>("伤害", 1024, OneDamage::new, damage -> {
+		damage.attacker = null;
+		damage.shell = null;
+		damage.victim = null;
+	});
+
+	/**
+	 * 打击类型
+	 */
+	public enum DamageType {
+		/**
+		 * 单次攻击单体伤害  比如炮弹打中目标建筑
+		 */
+		Single,
+		/**
+		 * 范围伤害  比如核弹、巨炮  范围内的单位都受到伤害,离中心越远伤害越小
+		 */
+		Area
+	}
+
+	/**
+	 * 攻击者   比如某某坦克  核弹等没有攻击者时为null
 	 */
 	public Attackable attacker;
-	
+
 	/**
-	 * 攻击实体   比如炮弹
+	 * 攻击实体   比如炮弹  没有时为null
 	 */
 	public TankShell shell;
 	/**
-	 * 被攻击者
+	 * 被攻击者  范围伤害时为null
 	 */
 	public ShapeUnit victim;
 	/**
 	 * 打击类型
-	 * 比如 炮弹攻击  枪击  核弹  AOE伤害等等
-	 * type0  单次攻击单体伤害
-	 * 
-	 * 
 	 */
-	public String type;
+	public DamageType type;
 	/**
-	 * 伤害值
+	 * 伤害值  范围伤害时是中心的伤害值
 	 */
 	public int damageValue;
-	
-	//伤害结算
-	public void settle() {
-		if(type.equals("type0")) {//单次单体伤害
-			if(victim instanceof Building) {
-				Building building = (Building)victim;
-				int curHp = building.getBloodBar().curHp;
-				curHp-=damageValue;
-				building.getBloodBar().setCurHp(curHp);
-				Constructor.randomPlayOneMusic("gdamag1a","gdamag1b","gdamag1c","gdamag1d","gdamag1e");
-				
-				if(curHp<=0) {
-					building.setVisible(false);
-					building.setEnd(true);
-					building.getCurCenterPoint().setBuilding(null);//上边的物品
-					ShapeUnitResourceCenter.removeOneBuilding(building);
-					building.getCurCenterPoint().setBuilding(null);
-					building.getCurCenterPoint().buildingAreaType = BuildingAreaType.None;
-					
-					Constructor.randomPlayOneMusic("bgendiea","bgendieb","bgendiec","bgendied","bgendiee","bgendief");
-					//坦克炮塔的状态标记为非进攻
-					
-					if(attacker instanceof Vehicle){
-						Vehicle v= (Vehicle)attacker;
-						TankTurret turret = v.getTurret();
-						
-						turret.setAttackBuilding(null);
-						
-					}
-					
-				}
-				
-				shell.setDamageSettled(true);//伤害结算完毕
-				
-			}
-		}
-	}
-	
-	
-	public OneDamage(Attackable attacker,TankShell shell,ShapeUnit victim,String type,int damageValue) {
+	/**
+	 * 范围伤害的中心坐标和半径
+	 */
+	public int centerX,centerY,radius;
+
+	private OneDamage() {
 		
+	}
+
+	/**
+	 * 单体伤害
+	 */
+	public OneDamage(Attackable attacker,TankShell shell,ShapeUnit victim,int damageValue) {
+		initSingle(attacker, shell, victim, damageValue);
+	}
+
+	/**
+	 * 范围伤害
+	 * @param centerX 中心X坐标
+	 * @param centerY 中心Y坐标
+	 * @param radius 半径  中心点到单位中心的距离不超过半径的单位受到伤害
+	 */
+	public OneDamage(Attackable attacker,TankShell shell,int centerX,int centerY,int radius,int damageValue) {
+		initArea(attacker, shell, centerX, centerY, radius, damageValue);
+	}
+
+	/**
+	 * 从对象池取出一个单体伤害  参数同构造方法
+	 */
+	public static OneDamage obtainSingle(Attackable attacker,TankShell shell,ShapeUnit victim,int damageValue) {
+		OneDamage damage = POOL.acquire();
+		damage.initSingle(attacker, shell, victim, damageValue);
+		return damage;
+	}
+
+	/**
+	 * 从对象池取出一个范围伤害  参数同构造方法
+	 */
+	public static OneDamage obtainArea(Attackable attacker,TankShell shell,int centerX,int centerY,int radius,int damageValue) {
+		OneDamage damage = POOL.acquire();
+		damage.initArea(attacker, shell, centerX, centerY, radius, damageValue);
+		return damage;
+	}
+
+	private void initSingle(Attackable attacker,TankShell shell,ShapeUnit victim,int damageValue) {
 		this.attacker = attacker;
 		this.shell = shell;
 		this.victim = victim;
-		this.type = type;
+		this.type = DamageType.Single;
 		this.damageValue = damageValue;
-		
-		
+		this.centerX = 0;
+		this.centerY = 0;
+		this.radius = 0;
 	}
-	
+
+	private void initArea(Attackable attacker,TankShell shell,int centerX,int centerY,int radius,int damageValue) {
+		this.attacker = attacker;
+		this.shell = shell;
+		this.victim = null;
+		this.type = DamageType.Area;
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.radius = radius;
+		this.damageValue = damageValue;
+	}
+
 }
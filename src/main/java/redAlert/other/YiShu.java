@@ -12,12 +12,18 @@ import redAlert.resourceCenter.ShapeUnitResourceCenter;
 import redAlert.shapeObjects.MovableUnit;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.shapeObjects.Soldier;
+import redAlert.task.TickCommit;
 
 /**
  * 核弹爆炸任务
  */
 public class YiShu extends TimerTask{
 
+	/**
+	 * 核爆的伤害半径和中心伤害  范围内的建筑、载具受到伤害,离中心越远伤害越小
+	 */
+	public static final int NUKE_RADIUS = 300;
+	public static final int NUKE_DAMAGE = 2000;
 	
 	public YiShu(NuclearBombDown bomb) {
 		this.bomb = bomb;
@@ -72,6 +78,9 @@ public class YiShu extends TimerTask{
 					Constructor.playOneMusic("snukexpl");
 					System.out.println("蘑菇云加入");
 					
+					//核爆的范围伤害  交给逻辑帧结算
+					TickCommit.damage(OneDamage.obtainArea(null,null,bomb.getTargetX(),bomb.getTargetY(),NUKE_RADIUS,NUKE_DAMAGE));
+					
 					//辐射附近的士兵
 					List<MovableUnit> list = ShapeUnitResourceCenter.movableUnitQueryList;
 					
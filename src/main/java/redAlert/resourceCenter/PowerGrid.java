@@ -0,0 +1,244 @@
+package redAlert.resourceCenter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import redAlert.enums.ConstConfig;
+import redAlert.shapeObjects.Building;
+import redAlert.shapeObjects.PowerPlant;
+
+/**
+ * 电网
+ *
+ * 发电量、负载按增量维护,不再在每次添加、移除建筑时遍历全部建筑重新计算:
+ *   建筑加入、移除(被摧毁、卖掉)时加上、减去它的发电量和负载
+ *   发电厂受损后调用refresh,按新的发电量修正
+ * 每个建筑计入电网的数值记在Building.suppliedPower/drawnLoad上,移除时按原值减去
+ * 同时按建筑配置(ConstConfig.index)计数,判断是否有某种建筑不用遍历
+ *
+ * 修改由PowerGrid加锁串行执行(建筑增减很少);查询只读volatile/原子变量,逻辑帧中判断是否有电不加锁
+ * 电力由不足变为充足、由充足变为不足时通知PowerListener(播放声音、开关雷达)
+ */
+public class PowerGrid {
+
+	/**
+	 * 电力状态变化的监听者
+	 */
+	public interface PowerListener {
+		/**
+		 * @param enough 变化后发电量是否大于负载
+		 */
+		void powerChanged(boolean enough);
+	}
+
+	private static volatile PowerGrid instance;
+
+	public static PowerGrid getInstance() {
+		if(instance==null) {
+			synchronized (PowerGrid.class) {
+				if(instance==null) {
+					instance = new PowerGrid();
+				}
+			}
+		}
+		return instance;
+	}
+
+	private final AtomicInteger generation = new AtomicInteger();
+	private final AtomicInteger load = new AtomicInteger();
+	/**
+	 * 是否有电  负载不超过发电量
+	 */
+	private volatile boolean powerOn = true;
+	/**
+	 * 电力是否充足  发电量大于负载  状态变化时通知监听者
+	 */
+	private volatile boolean enough = false;
+	/**
+	 * 每种建筑的个数  下标是ConstConfig.index  出现新的配置时扩容
+	 */
+	private volatile AtomicIntegerArray counts = new AtomicIntegerArray(Math.max(16, ConstConfig.getConfigCount()));
+	private final List<PowerListener> listeners = new CopyOnWriteArrayList<>();
+
+	public void addListener(PowerListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(PowerListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 建筑加入电网  已在电网中的不重复加入
+	 */
+	public void add(Building building) {
+		Boolean changed;
+		synchronized (this) {
+			if(building.onPowerGrid) {
+				return;
+			}
+			building.onPowerGrid = true;
+			building.suppliedPower = generationOf(building);
+			building.drawnLoad = loadOf(building);
+			generation.addAndGet(building.suppliedPower);
+			load.addAndGet(building.drawnLoad);
+			ConstConfig config = building.getConstConfig();
+			if(config!=null) {
+				countsFor(config.index).incrementAndGet(config.index);
+			}
+			changed = updateState();
+		}
+		notifyListeners(changed);
+	}
+
+	/**
+	 * 建筑移出电网  被摧毁、卖掉时调用
+	 */
+	public void remove(Building building) {
+		Boolean changed;
+		synchronized (this) {
+			if(!building.onPowerGrid) {
+				return;
+			}
+			building.onPowerGrid = false;
+			generation.addAndGet(-building.suppliedPower);
+			load.addAndGet(-building.drawnLoad);
+			building.suppliedPower = 0;
+			building.drawnLoad = 0;
+			ConstConfig config = building.getConstConfig();
+			if(config!=null) {
+				countsFor(config.index).decrementAndGet(config.index);
+			}
+			changed = updateState();
+		}
+		notifyListeners(changed);
+	}
+
+	/**
+	 * 建筑血量变化后修正它的发电量  不在电网中的建筑直接返回
+	 */
+	public void refresh(Building building) {
+		if(!(building instanceof PowerPlant) || !building.onPowerGrid) {
+			return;
+		}
+		Boolean changed;
+		synchronized (this) {
+			if(!building.onPowerGrid) {
+				return;
+			}
+			int supplied = generationOf(building);
+			if(supplied==building.suppliedPower) {
+				return;
+			}
+			generation.addAndGet(supplied-building.suppliedPower);
+			building.suppliedPower = supplied;
+			changed = updateState();
+		}
+		notifyListeners(changed);
+	}
+
+	/**
+	 * 清空  测试时从空地图重新开始用
+	 */
+	public synchronized void clear() {
+		generation.set(0);
+		load.set(0);
+		counts = new AtomicIntegerArray(counts.length());
+		powerOn = true;
+		enough = false;
+	}
+
+	private static int generationOf(Building building) {
+		return building instanceof PowerPlant ? ((PowerPlant)building).getPowerGeneration() : 0;
+	}
+
+	private static int loadOf(Building building) {
+		if(building instanceof PowerPlant || building.getConstConfig()==null) {
+			return 0;
+		}
+		return building.getConstConfig().powerLoad;
+	}
+
+	private AtomicIntegerArray countsFor(int index) {
+		AtomicIntegerArray cur = counts;
+		if(index<cur.length()) {
+			return cur;
+		}
+		AtomicIntegerArray grown = new AtomicIntegerArray(Math.max(index+1, cur.length()*2));
+		for(int i=0;i<cur.length();i++) {
+			grown.set(i, cur.get(i));
+		}
+		counts = grown;
+		return grown;
+	}
+
+	/**
+	 * 更新是否有电、电力是否充足
+	 * @return 电力是否充足变化后的值  没有变化时返回null
+	 */
+	private Boolean updateState() {
+		int gen = generation.get();
+		int ld = load.get();
+		powerOn = ld<=gen;
+		boolean now = gen>ld;
+		if(now==enough) {
+			return null;
+		}
+		enough = now;
+		return now;
+	}
+
+	/**
+	 * 在锁外通知  监听者可能会查询电网或播放声音
+	 */
+	private void notifyListeners(Boolean changed) {
+		if(changed==null) {
+			return;
+		}
+		for(PowerListener listener:listeners) {
+			try {
+				listener.powerChanged(changed);
+			}catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * 发电量
+	 */
+	public int getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * 电力负载
+	 */
+	public int getLoad() {
+		return load.get();
+	}
+
+	/**
+	 * 是否有电  负载不超过发电量
+	 */
+	public boolean isPowerOn() {
+		return powerOn;
+	}
+
+	/**
+	 * 某种建筑的个数
+	 */
+	public int getCount(ConstConfig config) {
+		AtomicIntegerArray cur = counts;
+		return config.index<cur.length() ? cur.get(config.index) : 0;
+	}
+
+	/**
+	 * 是否已建设某种建筑
+	 */
+	public boolean hasBuilding(ConstConfig config) {
+		return getCount(config)>0;
+	}
+}
@@ -3,24 +3,22 @@ package redAlert.resourceCenter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.locks.ReentrantLock;
 
 import redAlert.Constructor;
 import redAlert.GlobalConfig;
 import redAlert.OptionsPanel;
 import redAlert.enums.BuildingAreaType;
+import redAlert.enums.ConstConfig;
 import redAlert.enums.SoldierEnum;
 import redAlert.enums.VehicleEnum;
-import redAlert.militaryBuildings.AfAirc;
 import redAlert.militaryBuildings.AfCnst;
 import redAlert.militaryBuildings.AfPile;
 import redAlert.militaryBuildings.AfWeap;
 import redAlert.other.MoveLine;
-import redAlert.other.OneDamage;
+import redAlert.shapeObjects.Attackable;
 import redAlert.shapeObjects.Building;
 import redAlert.shapeObjects.MovableUnit;
-import redAlert.shapeObjects.PowerPlant;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.shapeObjects.Vehicle.EngineStatus;
 import redAlert.shapeObjects.soldier.Adog;
@@ -31,8 +29,12 @@ import redAlert.shapeObjects.soldier.Tany2;
 import redAlert.shapeObjects.vehicle.GrizTank;
 import redAlert.shapeObjects.vehicle.Ifv;
 import redAlert.shapeObjects.vehicle.Sref;
+import redAlert.task.DamageSystem;
+import redAlert.task.DamageSystem.DamageListener;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.SpatialHash;
+import redAlert.utilBean.UnitRegistry;
 import redAlert.utils.LittleCenterPointUtil;
 import redAlert.utils.PointUtil;
 import redAlert.utils.RandomUtil;
@@ -56,7 +58,7 @@ public class ShapeUnitResourceCenter {
 	/**
 	 * 存放所有军事建筑的资源列表
 	 */
-	public static List<Building> buildingList = new ArrayList<>();
+	public static UnitRegistry<Building> buildingList = new UnitRegistry<>(true);
 	/**
 	 * 建筑操作锁
 	 */
@@ -66,11 +68,11 @@ public class ShapeUnitResourceCenter {
 	 * 这个列表是专门用于游戏逻辑运算的,不参与渲染画面
 	 * 游戏中新增单位、移除单位、单位血量变化等，都通过该列表处理
 	 */
-	public static List<MovableUnit> movableUnitQueryList = new ArrayList<>();
+	public static UnitRegistry<MovableUnit> movableUnitQueryList = new UnitRegistry<>();
 	/**
 	 * 临时被选中的单位
 	 */
-	public static List<MovableUnit> selectedMovableUnits = new ArrayList<>();
+	public static UnitRegistry<MovableUnit> selectedMovableUnits = new UnitRegistry<>();
 	/**
 	 * 移动线
 	 * 移动线不是终点单位,不考虑线程同步
@@ -79,7 +81,7 @@ public class ShapeUnitResourceCenter {
 	/**
 	 * 存放一些杂七杂八东西的
 	 */
-	public static List<ShapeUnit> shapeUnitList = new ArrayList<ShapeUnit>();
+	public static UnitRegistry<ShapeUnit> shapeUnitList = new UnitRegistry<ShapeUnit>();
 	/**
 	 * 移动线锁
 	 */
@@ -91,49 +93,10 @@ public class ShapeUnitResourceCenter {
 	public static void addBuilding(Building building) {
 		try {
 			buildingLock.lock();
-			if(!buildingList.contains(building)) {
-				buildingList.add(building);
-			}
-			
-			
-			
-			//=============处理电力相关逻辑================
-			boolean beforePowerStatus = true;//true表示电力够  false表示电力不足
-			if(powerGeneration>powerLoad) {
-				beforePowerStatus = true;
-			}else {
-				beforePowerStatus = false;
-			}
-			calculatePowerInfo();
-			boolean afterPowerStatus = true;
-			if(powerGeneration>powerLoad) {
-				afterPowerStatus = true;
-			}else {
-				afterPowerStatus = false;
-			}
-			
-			if(!beforePowerStatus && afterPowerStatus) {
-				//播放电力增强的声音
-				Constructor.playOneMusic("gpowon");
-				
-				if(containsBuildingClass(AfAirc.class)) {
-					OptionsPanel.radarLabel.triggleRadarShow();//雷达的显示屏监控放在这里肯定是不合适的  要放在雷达的监控器中  现在先放这里
-				}
-				
-			}
-			if(beforePowerStatus && !afterPowerStatus) {
-				//播放电力不足的声音
-				//low power
-				Constructor.playOneMusic("gpowof");
-				Constructor.playOneMusic("ceva053");//lowpower
-				
-				if(containsBuildingClass(AfAirc.class) && OptionsPanel.radarLabel.isPlayed) {
-					OptionsPanel.radarLabel.turnOffRadarShow();
-				}
-			}
-			//=============处理电力相关逻辑================
-			
-			
+			buildingList.add(building);
+			SpatialHash.getInstance().add(building);
+			//电力  状态变化时由监听者播放声音、开关雷达
+			PowerGrid.getInstance().add(building);
 		}catch (Exception e) {
 			e.printStackTrace();
 		}finally {
@@ -146,9 +109,8 @@ public class ShapeUnitResourceCenter {
 	public static void removeOneBuilding(Building building) {
 		try {
 			buildingLock.lock();
-			if(buildingList.contains(building)) {
-				buildingList.remove(building);
-			}
+			buildingList.remove(building);
+			SpatialHash.getInstance().remove(building);
 			
 			//移除建筑的占地引用
 			List<CenterPoint> areas = building.getNoConstCpList();
@@ -156,33 +118,9 @@ public class ShapeUnitResourceCenter {
 				cp.setBuilding(null);
 				cp.setBuildingAreaType(BuildingAreaType.None);
 			}
+			PointUtil.notifyPassabilityChanged(areas);
 			
-			//=============处理电力相关逻辑================
-			boolean beforePowerStatus = true;//true表示电力够  false表示电力不足
-			if(powerGeneration>powerLoad) {
-				beforePowerStatus = true;
-			}else {
-				beforePowerStatus = false;
-			}
-			calculatePowerInfo();
-			boolean afterPowerStatus = true;
-			if(powerGeneration>powerLoad) {
-				afterPowerStatus = true;
-			}else {
-				afterPowerStatus = false;
-			}
-			
-			if(!beforePowerStatus && afterPowerStatus) {
-				//播放电力增强的声音
-				Constructor.playOneMusic("gpowon");
-			}
-			if(beforePowerStatus && !afterPowerStatus) {
-				//播放电力不足的声音
-				//low power
-				Constructor.playOneMusic("gpowof");
-				Constructor.playOneMusic("ceva053");//lowpower
-			}
-			//=============处理电力相关逻辑================
+			PowerGrid.getInstance().remove(building);
 		}catch (Exception e) {
 			e.printStackTrace();
 		}finally {
@@ -197,11 +135,7 @@ public class ShapeUnitResourceCenter {
 	public static boolean containsBuildingClass(Class clazz) {
 		try {
 			buildingLock.lock();
-			for(Building building: buildingList) {
-				if(clazz.equals(building.getClass())) {
-					return true;
-				}
-			}
+			return buildingList.containsType(clazz);
 		}catch (Exception e) {
 			e.printStackTrace();
 		}finally {
@@ -216,11 +150,8 @@ public class ShapeUnitResourceCenter {
 	public static void exeCnstFetchAni() {
 		try {
 			buildingLock.lock();
-			for(Building building: buildingList) {
-				if(building.getClass().equals(AfCnst.class)) {
-					AfCnst afCnst = (AfCnst)building;
-					afCnst.setToFetchCrate(true);
-				}
+			for(AfCnst afCnst: buildingList.ofType(AfCnst.class)) {
+				afCnst.setToFetchCrate(true);
 			}
 		}catch (Exception e) {
 			e.printStackTrace();
@@ -280,27 +211,8 @@ public class ShapeUnitResourceCenter {
 			y1 = endy;y2 = starty;
 		}
 		
-		List<MovableUnit> units = new ArrayList<>();
-		try {
-			readLock.lock();
-			Iterator<MovableUnit> iterator = movableUnitQueryList.iterator();
-			while(iterator.hasNext()) {
-				MovableUnit shapeUnit = iterator.next();
-				if(shapeUnit!=null) {
-					int centerX = shapeUnit.getCenterOffX()+shapeUnit.getPositionX();
-					int centerY = shapeUnit.getCenterOffY()+shapeUnit.getPositionY();
-					
-					if(ifIn(x1,y1,x2,y2,centerX,centerY)) {
-						units.add((MovableUnit)shapeUnit);
-					}
-				}
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			readLock.unlock();
-		}
-		return units;
+		//只检查矩形覆盖的空间哈希格子  不再遍历所有单位
+		return SpatialHash.getInstance().queryRect(x1, y1, x2, y2, MovableUnit.class, new ArrayList<MovableUnit>());
 	}
 	/**
 	 * 向选中单位列表中添加单位
@@ -309,8 +221,7 @@ public class ShapeUnitResourceCenter {
 		try {
 			readLock.lock();
 			for(MovableUnit newUnit:newSelect) {
-				if(!selectedMovableUnits.contains(newUnit)) {
-					selectedMovableUnits.add(newUnit);
+				if(selectedMovableUnits.add(newUnit)) {
 					newUnit.getBloodBar().setVisible(true);
 				}
 			}
@@ -330,9 +241,8 @@ public class ShapeUnitResourceCenter {
 	public static void addMovableUnit(MovableUnit unit) {
 		try {
 			readLock.lock();
-			if(!movableUnitQueryList.contains(unit)) {
-				movableUnitQueryList.add(unit);
-			}
+			movableUnitQueryList.add(unit);
+			SpatialHash.getInstance().add(unit);
 		}catch (Exception e) {
 			e.printStackTrace();
 		}finally {
@@ -514,9 +424,8 @@ public class ShapeUnitResourceCenter {
 	public static void removeOneMovableUnit(MovableUnit unit) {
 		try {
 			readLock.lock();
-			if(movableUnitQueryList.contains(unit)) {
-				movableUnitQueryList.remove(unit);
-			}
+			movableUnitQueryList.remove(unit);
+			SpatialHash.getInstance().remove(unit);
 		}catch (Exception e) {
 			e.printStackTrace();
 		}finally {
@@ -538,9 +447,7 @@ public class ShapeUnitResourceCenter {
 		else {
 			try {
 				readLock.lock();
-				if(!shapeUnitList.contains(unit)) {
-					shapeUnitList.add(unit);
-				}
+				shapeUnitList.add(unit);
 			}catch (Exception e) {
 				e.printStackTrace();
 			}finally {
@@ -565,9 +472,7 @@ public class ShapeUnitResourceCenter {
 		else {
 			try {
 				readLock.lock();
-				if(shapeUnitList.contains(unit)) {
-					shapeUnitList.remove(unit);
-				}
+				shapeUnitList.remove(unit);
 			}catch (Exception e) {
 				e.printStackTrace();
 			}finally {
@@ -662,80 +567,55 @@ public class ShapeUnitResourceCenter {
 	}
 	
 	/**
-	 * 造成的伤害的阻塞队列  
-	 * 造成的伤害将放入此队列中   由特定的线程处理伤害
-	 * 
+	 * 电力由不足变为充足时播放声音、打开雷达  由充足变为不足时播放声音、关闭雷达
+	 * 雷达的显示屏监控放在这里肯定是不合适的  要放在雷达的监控器中  现在先放这里
 	 */
-	public static ArrayBlockingQueue<OneDamage> damageBlockingQueue = new ArrayBlockingQueue<OneDamage>(50);
-	/**
-	 * TODO 负责计算掉血情况的的线程
-	 */
-	public static void startDamageCalculate() {
-		
-		/**
-		 * 建筑规划线程
-		 * 只有一个线程在负责计算下一帧的内容，如果后续有多个线程，性能将大大提升
-		 * 
-		 * 必须明确  建筑规划线程主要职责是计算下一帧和移除   不应该处理其他业务逻辑
-		 * 重工的逻辑  必须改成由重工自己确定状态  计算下一帧
-		 */
-		Thread thread = new Thread() {
-			public void run() {
-				while(true) {
-					try {
-						OneDamage damage = damageBlockingQueue.take();
-						damage.settle();
-					}catch(Exception e) {
-						e.printStackTrace();
-						continue;
-					}
+	static {
+		PowerGrid.getInstance().addListener(enough -> {
+			boolean hasRadar = PowerGrid.getInstance().hasBuilding(ConstConfig.AfAirc);
+			if(enough) {
+				//播放电力增强的声音
+				Constructor.playOneMusic("gpowon");
+				if(hasRadar) {
+					OptionsPanel.radarLabel.triggleRadarShow();
+				}
+			}else {
+				//播放电力不足的声音
+				Constructor.playOneMusic("gpowof");
+				Constructor.playOneMusic("ceva053");//lowpower
+				if(hasRadar && OptionsPanel.radarLabel.isPlayed) {
+					OptionsPanel.radarLabel.turnOffRadarShow();
 				}
 			}
-		};
-		thread.start();
+		});
 	}
 	
 	/**
-	 * 发电量
-	 */
-	public static int powerGeneration = 0;
-	/**
-	 * 电力负载
-	 */
-	public static int powerLoad = 0;
-	/**
-	 * 是否有电
-	 */
-	public static boolean isPowerOn = true;
-	
-	/**
-	 * 计算发电量与负载
+	 * 伤害结算后  建筑受损时修正发电量、播放受损的声音,被摧毁时移除并播放爆炸的声音
+	 * 载具、步兵被摧毁的处理还没有
 	 */
-	public static void calculatePowerInfo() {
-		try {
-			buildingLock.lock();
-			int powerGenerationCopy = 0;
-			int powerLoadCopy = 0;
-			for(Building building: buildingList) {
-				if(building instanceof PowerPlant) {
-					PowerPlant pp =	(PowerPlant)building;
-					powerGenerationCopy+=pp.getPowerGeneration();
-				}else {
-					powerLoadCopy+=building.getConstConfig().powerLoad;
+	static {
+		DamageSystem.getInstance().addListener(new DamageListener() {
+			@Override
+			public void damaged(ShapeUnit victim, int amount) {
+				if(victim instanceof Building) {
+					PowerGrid.getInstance().refresh((Building)victim);//受损的发电厂发电量下降
+					Constructor.randomPlayOneMusic("gdamag1a","gdamag1b","gdamag1c","gdamag1d","gdamag1e");
 				}
 			}
-			powerLoad = powerLoadCopy;
-			powerGeneration = powerGenerationCopy;
-			if(powerLoad>powerGeneration) {
-				isPowerOn = false;
-			}else {
-				isPowerOn = true;
+			@Override
+			public void destroyed(ShapeUnit victim, Attackable killer) {
+				if(victim instanceof Building) {
+					Building building = (Building)victim;
+					building.setVisible(false);
+					building.setEnd(true);
+					removeOneBuilding(building);
+					building.getCurCenterPoint().setBuilding(null);
+					building.getCurCenterPoint().setBuildingAreaType(BuildingAreaType.None);
+					Constructor.randomPlayOneMusic("bgendiea","bgendieb","bgendiec","bgendied","bgendiee","bgendief");
+				}
 			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			buildingLock.unlock();
-		}
+		});
 	}
 	
 }
@@ -5,10 +5,12 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import redAlert.Constructor;
 import redAlert.ShapeUnitFrame;
+import redAlert.SysConfig;
 import redAlert.enums.BuildingAreaType;
 import redAlert.enums.ConstConfig;
 import redAlert.enums.UnitColor;
@@ -16,9 +18,12 @@ import redAlert.militaryBuildings.AfCnst;
 import redAlert.other.BloodBar;
 import redAlert.other.BuildingBloodBar;
 import redAlert.other.BuildingBone;
+import redAlert.resourceCenter.PowerGrid;
 import redAlert.resourceCenter.ShapeUnitResourceCenter;
 import redAlert.resourceCenter.ShpResourceCenter;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.FrameLayer;
 import redAlert.utils.CanvasPainter;
 import redAlert.utils.PointUtil;
 
@@ -111,6 +116,13 @@ public abstract class Building extends ShapeUnit implements Bloodable{
 	 * 建筑阶段  正在建设中或建设完成(动态展示中)
 	 */
 	public BuildingStage stage = BuildingStage.UnderConstruct;
+	/**
+	 * 计入电网的发电量和负载  不在电网中时都为0
+	 * 只由PowerGrid修改
+	 */
+	public int suppliedPower = 0;
+	public int drawnLoad = 0;
+	public boolean onPowerGrid = false;
 	/**
 	 * 用于决定加载三种动画帧时使用哪套皮肤
 	 */
@@ -252,27 +264,13 @@ public abstract class Building extends ShapeUnit implements Bloodable{
 		if(this.stage==BuildingStage.UnderConstruct) {//建造动画
 			
 			if(constIndex<constructFrames.size()) {
-				ShapeUnitFrame constFrame = constructFrames.get(constIndex);
-				BufferedImage curImg = curFrame.getImg();
-				CanvasPainter.clearImage(curImg);
-				curFrame.setMinX(constFrame.getMinX());
-				curFrame.setMaxX(constFrame.getMaxX());
-				curFrame.setMinY(constFrame.getMinY());
-				curFrame.setMaxY(constFrame.getMaxY());
-				curFrame.setRealPartHeight(constFrame.getRealPartHeight());
-				curFrame.setRealPartWidth(constFrame.getRealPartWidth());
-				Graphics2D curG2d = curImg.createGraphics();
-				curG2d.drawImage(constFrame.getImg(), 0, 0, null);
-				curG2d.dispose();
-				giveFrameUnitColor(curImg,constFrame);//上阵营色
-				super.positionMinX = curFrame.getMinX()+positionX;
-				super.positionMinY = curFrame.getMinY()+positionY;
+				showConstFrame(constructFrames.get(constIndex));
 				constIndex++;
 			}else {
 				this.stage = BuildingStage.ConstructComplete;
 				//找到基地并展示夹箱子动画
 				if(!this.getClass().equals(AfCnst.class)) {
-					ShapeUnitResourceCenter.exeCnstFetchAni();
+					TickCommit.defer(ShapeUnitResourceCenter::exeCnstFetchAni);
 				}
 				//展示第一幅工作画面
 				calculateNextFrame();
@@ -281,100 +279,16 @@ public abstract class Building extends ShapeUnit implements Bloodable{
 		}else if(stage==BuildingStage.ConstructComplete) {//建设完成
 			
 			if(status==BuildingStatus.UNDEMAGED){
-				BufferedImage curImg = curFrame.getImg();
-				CanvasPainter.clearImage(curImg);
-				Graphics curG2d = curImg.createGraphics();
-				
-				int minX = 0;
-				int minY = 0;
-				int maxX = 0;
-				int maxY = 0;
-				for(int i=0;i<workingFrames.size();i++) {
-					List<ShapeUnitFrame> workingFrameLs = workingFrames.get(i);
-					ShapeUnitFrame frame = workingFrameLs.get(workingIndex%workingFrameLs.size());
-					BufferedImage oriImage = frame.getImg();
-					curG2d.drawImage(oriImage, 0, 0, null);
-					
-					giveFrameUnitColor(curImg,frame);//上阵营色
-					
-					if(i==0) {
-						minX = frame.getMinX();
-						minY = frame.getMinY();
-						maxX = frame.getMaxX();
-						maxY = frame.getMaxY();
-					}else {
-						if(frame.getMinX()<minX) {
-							minX = frame.getMinX();
-						}
-						if(frame.getMinY()<minY) {
-							minY = frame.getMinY();
-						}
-						if(frame.getMaxX()>maxX) {
-							maxX = frame.getMaxX();
-						}
-						if(frame.getMaxY()>maxY) {
-							maxY = frame.getMaxY();
-						}
-					}
-				}
-				curG2d.dispose();
-				super.positionMinX = positionX+minX;
-				super.positionMinY = positionY+minY;
-				curFrame.setMinX(minX);
-				curFrame.setMaxX(maxX);
-				curFrame.setMinY(minY);
-				curFrame.setMaxY(maxY);
-				if(ShapeUnitResourceCenter.isPowerOn || this.constConfig.lowPowerWorkable) {
+				showFrames(this, currentFrames(workingFrames,workingIndex));
+				if(PowerGrid.getInstance().isPowerOn() || this.constConfig.lowPowerWorkable) {
 					workingIndex++;
 					if(workingIndex>=Integer.MAX_VALUE) {
 						workingIndex = 0;
 					}
 				}
 			}else if(status==BuildingStatus.DEMAGED){
-				BufferedImage curImg = curFrame.getImg();
-				CanvasPainter.clearImage(curImg);
-				Graphics curG2d = curImg.createGraphics();
-				
-				int minX = 0;
-				int minY = 0;
-				int maxX = 0;
-				int maxY = 0;
-				for(int i=0;i<damagedFrames.size();i++) {
-					List<ShapeUnitFrame> damagedFrameLs = damagedFrames.get(i);
-					ShapeUnitFrame frame = damagedFrameLs.get(workingIndex%damagedFrameLs.size());
-					BufferedImage oriImage = frame.getImg();
-					curG2d.drawImage(oriImage, 0, 0, null);
-					
-					giveFrameUnitColor(curImg,frame);//上阵营色
-					
-					if(i==0) {
-						minX = frame.getMinX();
-						minY = frame.getMinY();
-						maxX = frame.getMaxX();
-						maxY = frame.getMaxY();
-					}else {
-						if(frame.getMinX()<minX) {
-							minX = frame.getMinX();
-						}
-						if(frame.getMinY()<minY) {
-							minY = frame.getMinY();
-						}
-						if(frame.getMaxX()>maxX) {
-							maxX = frame.getMaxX();
-						}
-						if(frame.getMaxY()>maxY) {
-							maxY = frame.getMaxY();
-						}
-					}
-				}
-				curG2d.dispose();
-				super.positionMinX = positionX+minX;
-				super.positionMinY = positionY+minY;
-				curFrame.setMinX(minX);
-				curFrame.setMaxX(maxX);
-				curFrame.setMinY(minY);
-				curFrame.setMaxY(maxY);
-				if(ShapeUnitResourceCenter.isPowerOn || this.constConfig.lowPowerWorkable) {
+				showFrames(this, currentFrames(damagedFrames,workingIndex));
+				if(PowerGrid.getInstance().isPowerOn() || this.constConfig.lowPowerWorkable) {
 					workingIndex++;
 					if(workingIndex>=Integer.MAX_VALUE) {
 						workingIndex = 0;
@@ -384,60 +298,140 @@ public abstract class Building extends ShapeUnit implements Bloodable{
 		}else if(stage==BuildingStage.Selling){//卖掉
 			if(constIndex>=constructFrames.size()) {
 				constIndex = constructFrames.size()-1;
-				
-				ShapeUnitFrame constFrame = constructFrames.get(constIndex);
-				BufferedImage curImg = curFrame.getImg();
-				CanvasPainter.clearImage(curImg);
-				curFrame.setMinX(constFrame.getMinX());
-				curFrame.setMaxX(constFrame.getMaxX());
-				curFrame.setMinY(constFrame.getMinY());
-				curFrame.setMaxY(constFrame.getMaxY());
-				curFrame.setRealPartHeight(constFrame.getRealPartHeight());
-				curFrame.setRealPartWidth(constFrame.getRealPartWidth());
-				Graphics2D curG2d = curImg.createGraphics();
-				curG2d.drawImage(constFrame.getImg(), 0, 0, null);
-				curG2d.dispose();
-				giveFrameUnitColor(curImg,constFrame);//上阵营色
-				super.positionMinX = curFrame.getMinX()+positionX;
-				super.positionMinY = curFrame.getMinY()+positionY;
+				showConstFrame(constructFrames.get(constIndex));
 				constIndex--;
 			}else if(constIndex>=0 && constIndex<constructFrames.size()) {
-				ShapeUnitFrame constFrame = constructFrames.get(constIndex);
-				BufferedImage curImg = curFrame.getImg();
-				CanvasPainter.clearImage(curImg);
-				curFrame.setMinX(constFrame.getMinX());
-				curFrame.setMaxX(constFrame.getMaxX());
-				curFrame.setMinY(constFrame.getMinY());
-				curFrame.setMaxY(constFrame.getMaxY());
-				curFrame.setRealPartHeight(constFrame.getRealPartHeight());
-				curFrame.setRealPartWidth(constFrame.getRealPartWidth());
-				Graphics2D curG2d = curImg.createGraphics();
-				curG2d.drawImage(constFrame.getImg(), 0, 0, null);
-				curG2d.dispose();
-				giveFrameUnitColor(curImg,constFrame);//上阵营色
-				super.positionMinX = curFrame.getMinX()+positionX;
-				super.positionMinY = curFrame.getMinY()+positionY;
+				showConstFrame(constructFrames.get(constIndex));
 				constIndex--;
 			}else if(constIndex<0){
 				Constructor.playOneMusic("ceva058");
 				this.end = true;
 				setVisible(false);
 				setEnd(true);
-				getCurCenterPoint().setBuilding(null);//上边的物品
-				ShapeUnitResourceCenter.removeOneBuilding(this);
-				this.getBloodBar().setVisible(false);
-				this.getBloodBar().setEnd(true);
-				ShapeUnitResourceCenter.removeOneUnit(bloodBar);
-				this.getBone().setVisible(false);
-				this.getBone().setEnd(true);
-				ShapeUnitResourceCenter.removeOneUnit(bone);
-				
-				getCurCenterPoint().buildingAreaType = BuildingAreaType.None;
+				//格子和资源中心是共享的  在提交阶段修改
+				TickCommit.defer(() -> {
+					getCurCenterPoint().setBuilding(null);//上边的物品
+					ShapeUnitResourceCenter.removeOneBuilding(this);
+					this.getBloodBar().setVisible(false);
+					this.getBloodBar().setEnd(true);
+					ShapeUnitResourceCenter.removeOneUnit(bloodBar);
+					this.getBone().setVisible(false);
+					this.getBone().setEnd(true);
+					ShapeUnitResourceCenter.removeOneUnit(bone);
+					
+					getCurCenterPoint().setBuildingAreaType(BuildingAreaType.None);
+				});
 				
 			}
 		}
 	}
 	
+	/**
+	 * 展示一帧建造(贱卖)动画
+	 */
+	private void showConstFrame(ShapeUnitFrame constFrame) {
+		curFrame.setRealPartHeight(constFrame.getRealPartHeight());
+		curFrame.setRealPartWidth(constFrame.getRealPartWidth());
+		showFrames(this, Collections.singletonList(constFrame));
+	}
+	
+	/**
+	 * 取多组动画帧序列在index处的帧  按绘制顺序排列
+	 */
+	protected List<ShapeUnitFrame> currentFrames(List<List<ShapeUnitFrame>> frameGroups,int index) {
+		List<ShapeUnitFrame> frames = new ArrayList<>(frameGroups.size());
+		for(List<ShapeUnitFrame> frameLs:frameGroups) {
+			frames.add(frameLs.get(index%frameLs.size()));
+		}
+		return frames;
+	}
+	
+	/**
+	 * 把按绘制顺序排列的多层帧作为unit的当前画面
+	 * 
+	 * 分层渲染时：每层换成按阵营色缓存好的帧,记录到unit的frameLayers中,由画板逐层绘制,不处理任何像素
+	 * 否则：把各层画进unit的curFrame图片中,逐层上阵营色
+	 * 
+	 * 两种方式都会把各层有效区域的并集写入unit的curFrame,并更新unit的positionMinX/positionMinY
+	 * 阵营色取自this,战车工厂拆分出的子建筑使用主建筑的阵营色
+	 */
+	protected void showFrames(Building unit,List<ShapeUnitFrame> frames) {
+		boolean layered = SysConfig.layeredBuildingRendering;
+		List<FrameLayer> layers = null;
+		BufferedImage curImg = null;
+		Graphics2D curG2d = null;
+		if(layered) {
+			layers = new ArrayList<>(frames.size());
+		}else {
+			curImg = unit.curFrame.getImg();
+			CanvasPainter.clearImage(curImg);
+			curG2d = curImg.createGraphics();
+		}
+		
+		int minX = 0;
+		int minY = 0;
+		int maxX = 0;
+		int maxY = 0;
+		for(int i=0;i<frames.size();i++) {
+			ShapeUnitFrame frame = frames.get(i);
+			if(layered) {
+				layers.add(new FrameLayer(frame.withUnitColor(unitColor)));
+			}else {
+				curG2d.drawImage(frame.getImg(), 0, 0, null);
+				giveFrameUnitColor(curImg,frame);//上阵营色
+			}
+			
+			if(i==0) {
+				minX = frame.getMinX();
+				minY = frame.getMinY();
+				maxX = frame.getMaxX();
+				maxY = frame.getMaxY();
+			}else {
+				if(frame.getMinX()<minX) {
+					minX = frame.getMinX();
+				}
+				if(frame.getMinY()<minY) {
+					minY = frame.getMinY();
+				}
+				if(frame.getMaxX()>maxX) {
+					maxX = frame.getMaxX();
+				}
+				if(frame.getMaxY()>maxY) {
+					maxY = frame.getMaxY();
+				}
+			}
+		}
+		if(!layered) {
+			curG2d.dispose();
+			unit.curFrame.markImgChanged();
+		}
+		unit.curFrame.setMinX(minX);
+		unit.curFrame.setMaxX(maxX);
+		unit.curFrame.setMinY(minY);
+		unit.curFrame.setMaxY(maxY);
+		unit.positionMinX = unit.positionX+minX;
+		unit.positionMinY = unit.positionY+minY;
+		unit.frameLayers = layers;
+	}
+	
+	/**
+	 * 在当前画面的最上面再叠加一层
+	 */
+	protected void addFrameOnTop(ShapeUnitFrame frame) {
+		if(SysConfig.layeredBuildingRendering && frameLayers!=null) {
+			List<FrameLayer> layers = new ArrayList<>(frameLayers);
+			layers.add(new FrameLayer(frame.withUnitColor(unitColor)));
+			frameLayers = layers;//换一个新列表,不修改画板可能正在读的旧列表
+		}else {
+			BufferedImage curImg = curFrame.getImg();
+			Graphics2D g2d = curImg.createGraphics();
+			g2d.drawImage(frame.getImg(), 0, 0, null);
+			g2d.dispose();
+			giveFrameUnitColor(curImg,frame);//上阵营色
+			curFrame.markImgChanged();
+		}
+	}
+	
 	//获取最左边的中心块
 	public CenterPoint getLeftFirst() {
 		List<CenterPoint> ls = getNoConstCpList();
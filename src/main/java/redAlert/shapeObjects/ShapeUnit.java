@@ -2,7 +2,6 @@ package redAlert.shapeObjects;
 
 import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.Objects;
 
 import org.apache.commons.lang3.builder.CompareToBuilder;
 
@@ -10,6 +9,7 @@ import redAlert.ShapeUnitFrame;
 import redAlert.enums.UnitColor;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.ColorPoint;
+import redAlert.utilBean.FrameLayer;
 import redAlert.utils.CanvasPainter;
 import redAlert.utils.RandomUtil;
 
@@ -51,6 +51,12 @@ public abstract class ShapeUnit implements Comparable<ShapeUnit>{
 	 *    变量中含有一个图片，界面渲染时绘制的就是这个图片
 	 */
 	public ShapeUnitFrame curFrame;//当前帧   画板拿这个来绘制内容
+	/**
+	 * 分层画面
+	 * 不为null时画板按顺序逐层绘制,不再绘制curFrame的图片(curFrame只提供有效区域等信息)
+	 * 计算线程每次换一个新的列表,不修改已发布的列表
+	 */
+	public volatile List<FrameLayer> frameLayers;
 	/**
 	 * 移除标志,当移除标志为true,规划线程将不处理这个单位,这个单位会退出规划-绘制循环，从而丢失被GC处理
 	 */
@@ -64,6 +70,7 @@ public abstract class ShapeUnit implements Comparable<ShapeUnit>{
 	 * 单位唯一编号
 	 * 将此编号唯一,可以提高判断的速度
 	 * 应该在构造函数中初始化
+	 * 加入UnitRegistry后不要再修改
 	 */
 	public int unitNo;
 	/**
@@ -102,6 +109,11 @@ public abstract class ShapeUnit implements Comparable<ShapeUnit>{
 	 * 实时坐标应该使用 positionX+centerOffX  positionY+centerOffY 计算
 	 */
 	public CenterPoint curCenterPoint;
+	/**
+	 * 在空间哈希(SpatialHash)中所在的格子  不在空间哈希中时为-1
+	 * 只由SpatialHash修改
+	 */
+	public int spatialCell = -1;
 	
 	
 	/**
@@ -110,6 +122,14 @@ public abstract class ShapeUnit implements Comparable<ShapeUnit>{
 	 */
 	public abstract void calculateNextFrame();
 	
+	/**
+	 * 单位结束并移出游戏后由逻辑线程调用
+	 * 用对象池的单位(炮弹、移动线等)在这里放回池中,之后不能再使用
+	 */
+	public void recycle() {
+		
+	}
+	
 	/**
 	 * 上阵营色
 	 * 注意,此处的image可能是frame的成员变量，也可能不是
@@ -164,6 +184,12 @@ public abstract class ShapeUnit implements Comparable<ShapeUnit>{
 	public void setCurFrame(ShapeUnitFrame curFrame) {
 		this.curFrame = curFrame;
 	}
+	public List<FrameLayer> getFrameLayers() {
+		return frameLayers;
+	}
+	public void setFrameLayers(List<FrameLayer> frameLayers) {
+		this.frameLayers = frameLayers;
+	}
 	public boolean isEnd() {
 		return end;
 	}
@@ -294,25 +320,6 @@ public abstract class ShapeUnit implements Comparable<ShapeUnit>{
 
 
 
-	@Override
-	public int hashCode() {
-		return Objects.hash(curFrame, positionMinX, positionMinY, positionX, positionY, priority);
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		ShapeUnit other = (ShapeUnit) obj;
-		return Objects.equals(curFrame, other.curFrame) && positionMinX == other.positionMinX
-				&& positionMinY == other.positionMinY && positionX == other.positionX && positionY == other.positionY
-				&& priority == other.priority;
-	}
-
 	@Override
 	public String toString() {
 		return "ShapeUnit [unitName=" + unitName + ", unitNo=" + unitNo + "]";
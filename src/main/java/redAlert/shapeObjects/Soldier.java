@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import redAlert.Constructor;
 import redAlert.ShapeUnitFrame;
@@ -16,10 +17,10 @@ import redAlert.enums.UnitColor;
 import redAlert.other.SoldierBloodBar;
 import redAlert.resourceCenter.ShpResourceCenter;
 import redAlert.shapeObjects.Building.SceneType;
+import redAlert.task.PathService;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.LittleCenterPoint;
-import redAlert.utilBean.SoldierXunLuAdapter;
-import redAlert.utilBean.SoldierXunLuBean;
 import redAlert.utils.CanvasPainter;
 import redAlert.utils.PointUtil;
 
@@ -138,6 +139,10 @@ public abstract class Soldier extends MovableUnit{
 	 * 寻路锁,避免AWT线程和规划线程同时进行寻路
 	 */
 	public ReentrantLock xunluLock = new ReentrantLock(true);
+	/**
+	 * 寻路请求的编号  只采用最后一次请求的寻路结果
+	 */
+	private volatile int pathRequestNo = 0;
 	/**
 	 * 方向和帧的对应关系
 	 */
@@ -203,6 +208,9 @@ public abstract class Soldier extends MovableUnit{
 	 */
 	public ShapeUnitFrame calculateFirstFrame() {
 		ShapeUnitFrame curFrame = allFrames.get(0);
+		if(curFrame.isPaletteIndexed()) {
+			return curFrame.withUnitColor(unitColor);//阵营色由调色盘纹理完成
+		}
 		
 		ShapeUnitFrame newFrame = curFrame.copy();
 		BufferedImage image = newFrame.getImg();
@@ -244,57 +252,84 @@ public abstract class Soldier extends MovableUnit{
 		
 		//从静止状态开始移动的
 		if(!isMoving()) {
-			SoldierXunLuAdapter xlb = SoldierXunLuAdapter.getInstance();
-			List<LittleCenterPoint> planMovePath = xlb.xunlu(curLittleCenterPoint, moveTarget);
-			
-			if(planMovePath!=null && planMovePath.size()>1) {
-				this.nextTarget = planMovePath.get(0);
-				this.endTarget = planMovePath.get(planMovePath.size()-1);
-				this.movePath = planMovePath;
-				status=SoldierStatus.UMove;
-				
-			}else {
-				
-				System.out.println("指定位置不可达");
-			}
-			
-			
+			requestPath(curLittleCenterPoint, moveTarget, PathService.Priority.High, false);
 		}
 		//目标正在移动,然后指定新的目标位置
 		else {
+			//走到下一个点后停下等待寻路完成,直接从那个点寻路就可以了
 			stopFlag = true;
-			while(true) {
-				if(curLittleCenterPoint.equals(nextTarget)) {
-					break;
-				}else {
-					try {
-						Thread.sleep(0);
-					}catch (Exception e) {
-						e.printStackTrace();
-					}
-					
-				}
+			requestPath(nextTarget, moveTarget, PathService.Priority.High, false);
+		}
+	}
+	
+	/**
+	 * 群体移动命令  路径由寻路线程按流场算出(见PathService.requestSoldierFlowPaths),算完后的逻辑帧拿到后出发或改走这条路径
+	 * 流场走不到目标区域时改为单独寻路
+	 * @return 拿到路径时的回调  路径的第一个点是现在的getPathStart()
+	 */
+	public Consumer<List<LittleCenterPoint>> flowPathCallback(LittleCenterPoint moveTarget) {
+		if(isMoving()) {
+			stopFlag = true;
+		}
+		final LittleCenterPoint from = getPathStart();
+		final int requestNo = ++pathRequestNo;
+		return path -> {
+			if(requestNo!=pathRequestNo) {
+				return;
 			}
-			
-			//直接从当前位置寻路就可以了
-			SoldierXunLuAdapter xlb = SoldierXunLuAdapter.getInstance();
-			List<LittleCenterPoint> path = xlb.xunlu(curLittleCenterPoint, moveTarget);
-			if(path!=null) {
-				this.nextTarget = path.get(0);
-				this.movePath = path;
-				this.endTarget = path.get(path.size()-1);
-				resetTarget = true;
-				
-				
+			if(path==null) {
+				stopFlag = false;
+				moveToTarget(moveTarget);
+			}else if(path.size()>1) {
+				onPath(from, path, false);
 			}else {
-				System.out.println("重指定位置不可达");
+				stopFlag = false;//已经在分到的目标点上
 			}
-			
-			stopFlag = false;
-			
-		}
+		};
+	}
 	
-		
+	/**
+	 * 新路径的起点  静止时是所在的小中心点,移动中是正走向的小中心点(走到后再改走新路径)
+	 */
+	public LittleCenterPoint getPathStart() {
+		LittleCenterPoint next = nextTarget;
+		return next!=null ? next : curLittleCenterPoint;
+	}
+	
+	/**
+	 * 向寻路服务请求路径  算完后的逻辑帧拿到路径后出发或改走新路径
+	 * @param from 路径起点  步兵所在或正走向的小中心点
+	 * @param stopIfUnreachable 找不到路时是否原地停下  否则继续走原来的路线
+	 */
+	private void requestPath(LittleCenterPoint from,LittleCenterPoint moveTarget,PathService.Priority priority,boolean stopIfUnreachable) {
+		final int requestNo = ++pathRequestNo;
+		PathService.getInstance().requestSoldierPath(from, moveTarget, priority, path -> {
+			if(requestNo==pathRequestNo) {
+				onPath(from, path, stopIfUnreachable);
+			}
+		});
+	}
+	
+	/**
+	 * 拿到路径  在逻辑线程上调用
+	 */
+	private void onPath(LittleCenterPoint from,List<LittleCenterPoint> path,boolean stopIfUnreachable) {
+		stopFlag = false;
+		//寻路期间步兵的位置变了(例如已经走到终点停下),路径作废
+		LittleCenterPoint now = isMoving() ? nextTarget : curLittleCenterPoint;
+		if(path!=null && path.size()>1 && from.equals(now)) {
+			this.nextTarget = path.get(0);
+			this.endTarget = path.get(path.size()-1);
+			this.movePath = path;
+			resetTarget = true;
+			status = SoldierStatus.UMove;
+		}else if(stopIfUnreachable) {
+			nextTarget = null;
+			endTarget = null;
+			movePath = null;
+		}else {
+			System.out.println("指定位置不可达");
+		}
 	}
 	
 	/**
@@ -435,11 +470,10 @@ public abstract class Soldier extends MovableUnit{
 			}if(!movePath.contains(newLCP)) {
 				
 			}else {
-				curCenterPoint.removeUnit(this);
+				TickCommit.removeUnit(curCenterPoint, this);
 				curCenterPoint = newCenterPoint;
 				curLittleCenterPoint = newLCP;
-				curCenterPoint.addSoldier(this);
-				curLittleCenterPoint.soldier = this;//待优化
+				TickCommit.addSoldier(curCenterPoint, curLittleCenterPoint, this);//待优化
 				if(curCenterPoint.isInShadow()) {
 					this.setHided(true);
 				}else {
@@ -481,32 +515,16 @@ public abstract class Soldier extends MovableUnit{
 						moveOneStep();
 					}else {//根据当前位置  确认下一个位置
 						int curIndex = movePath.indexOf(nextTarget);
-						nextTarget = movePath.get(curIndex+1);
+						LittleCenterPoint next = movePath.get(curIndex+1);
 						
 						//确认这个位置是否可达
-						if(nextTarget.isSoldierCanOn()) {
+						if(next.isSoldierCanOn()) {
+							nextTarget = next;
 							moveOneStep();
 						}else {
-							//实现重新规划线路
-							xunluLock.lock();
-							try {
-								SoldierXunLuBean xlb = new SoldierXunLuBean();
-								List<LittleCenterPoint> path = xlb.xunlu(curLittleCenterPoint, endTarget);
-								if(path!=null) {
-									this.movePath = path;
-									nextTarget = movePath.get(1);
-									moveOneStep();
-								}else {
-									nextTarget = null;
-									endTarget = null;
-									movePath = null;
-								}
-							}catch (Exception e) {
-								System.out.println("程序自动寻路异常");
-								e.printStackTrace();
-							}finally {
-								xunluLock.unlock();
-							}
+							//重新规划线路  原地等待寻路完成,找不到路就停下
+							stopFlag = true;
+							requestPath(nextTarget, endTarget, PathService.Priority.Normal, true);
 						}
 						
 					}
@@ -655,11 +673,17 @@ public abstract class Soldier extends MovableUnit{
 	 * 原始帧图换成有颜色的帧图
 	 */
 	public void transToColorful(ShapeUnitFrame frame) {
+		if(frame.isPaletteIndexed()) {
+			//调色盘索引帧直接换成对应阵营色的视图,不在CPU上重画和上色
+			curFrame = frame.withUnitColor(unitColor);
+			return;
+		}
 		BufferedImage newImg = curFrame.getImg();
 		CanvasPainter.clearImage(newImg);
 		Graphics g2d = newImg.createGraphics();
 		BufferedImage oriImage = frame.getImg();
 		g2d.drawImage(oriImage, 0, 0, null);
 		giveFrameUnitColor(newImg,frame);//上阵营色
+		curFrame.markImgChanged();
 	}
 }
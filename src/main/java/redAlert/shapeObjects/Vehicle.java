@@ -2,12 +2,15 @@ package redAlert.shapeObjects;
 
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import redAlert.Constructor;
 import redAlert.ShapeUnitFrame;
 import redAlert.enums.BuildingAreaType;
 import redAlert.enums.UnitColor;
 import redAlert.other.VehicleBloodBar;
+import redAlert.task.PathService;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.XunLuBeanAdapter;
 import redAlert.utils.PointUtil;
@@ -52,6 +55,10 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 	 * 寻路锁,避免AWT线程和规划线程同时进行寻路
 	 */
 	public ReentrantLock xunluLock = new ReentrantLock(true);
+	/**
+	 * 移动命令的编号  只采用最后一次移动命令的寻路结果
+	 */
+	private volatile int pathRequestNo = 0;
 	/**
 	 * 坦克的炮塔  拥有炮塔的坦克才会初始化这个东西
 	 */
@@ -168,37 +175,13 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 		
 		//从静止状态开始移动的
 		if(!haveNextTarget()) {
-			
-			
-			xunluLock.lock();
-			try {
-				XunLuBeanAdapter xlb = XunLuBeanAdapter.getInstance();
-				List<CenterPoint> planMovePath = xlb.xunlu(curCenterPoint, moveTarget);
-				if(planMovePath!=null && planMovePath.size()>1) {
-					this.nextTarget = planMovePath.get(0);
-					this.endTarget = planMovePath.get(planMovePath.size()-1);
-					this.movePath = planMovePath;
-					setEngineStatus(EngineStatus.Started);
-//					nextTarget.addBook(this);
-					
-					//确定炮塔的旋转方向
-					if(turret!=null) {
-						turret.calAndSetTargetTurn(this, moveTarget);
-					}
-				}else {
-					/*
-					 * 红警2的奇怪的逻辑：
-					 * 当位置不可达时,会寻找一个与目标单位X坐标相同或Y坐标相同的位置进行移动
-					 * 
-					 */
-					System.out.println("指定位置不可达");
+			//寻路交给寻路服务,算完后的逻辑帧拿到路径后再出发
+			final int requestNo = ++pathRequestNo;
+			PathService.getInstance().requestVehiclePath(curCenterPoint, moveTarget, PathService.Priority.High, planMovePath -> {
+				if(requestNo==pathRequestNo) {
+					startMove(moveTarget, planMovePath);
 				}
-			}catch (Exception e) {
-				e.printStackTrace();
-			}finally {
-				xunluLock.unlock();
-			}
-			
+			});
 		}
 		//目标正在移动,然后指定新的目标位置
 		else {
@@ -250,6 +233,53 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 		}
 	}
 	
+	/**
+	 * 群体移动命令  路径由寻路线程按流场算出(见PathService.requestVehicleFlowPaths),算完后的逻辑帧拿到后出发
+	 * 流场走不到目标区域时改为单独寻路
+	 * @return 拿到路径时的回调  路径的第一个点是载具所在的中心点
+	 */
+	public Consumer<List<CenterPoint>> flowPathCallback(CenterPoint moveTarget) {
+		final int requestNo = ++pathRequestNo;
+		return planMovePath -> {
+			if(requestNo!=pathRequestNo) {
+				return;
+			}
+			if(planMovePath==null) {
+				moveToTarget(moveTarget);
+			}else if(planMovePath.size()>1) {
+				startMove(planMovePath.get(planMovePath.size()-1), planMovePath);
+			}
+		};
+	}
+	
+	/**
+	 * 拿到移动命令的路径后出发
+	 * 在逻辑线程上调用,这时载具可能已经在移动(例如让路),不再按这条路径走
+	 */
+	private void startMove(CenterPoint moveTarget,List<CenterPoint> planMovePath) {
+		if(haveNextTarget()) {
+			return;
+		}
+		if(planMovePath!=null && planMovePath.size()>1 && planMovePath.get(0).equals(curCenterPoint)) {
+			this.nextTarget = planMovePath.get(0);
+			this.endTarget = planMovePath.get(planMovePath.size()-1);
+			this.movePath = planMovePath;
+			setEngineStatus(EngineStatus.Started);
+			
+			//确定炮塔的旋转方向
+			if(turret!=null) {
+				turret.calAndSetTargetTurn(this, moveTarget);
+			}
+		}else {
+			/*
+			 * 红警2的奇怪的逻辑：
+			 * 当位置不可达时,会寻找一个与目标单位X坐标相同或Y坐标相同的位置进行移动
+			 * 
+			 */
+			System.out.println("指定位置不可达");
+		}
+	}
+	
 	/**
 	 * 是否有下一个移动目标
 	 * 这个方法计划为以后移动遮挡和移动避让做准备
@@ -337,10 +367,10 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 		 * 若是到达终点,还要熄火
 		 */
 		if(nextTargetX==positionX+centerOffX && nextTargetY==positionY+centerOffY && movePath.contains(newCenterPoint)) {
-			newCenterPoint.addVehicle(this);
-			newCenterPoint.exitBook(this);
+			TickCommit.addVehicle(newCenterPoint, this);
+			TickCommit.exitBook(newCenterPoint, this);
 			if(newCenterPoint.equals(endTarget)) {
-				setEngineStatus(EngineStatus.Stopped);
+				TickCommit.setEngineStatus(this, EngineStatus.Stopped);
 			}
 		}
 		
@@ -351,8 +381,8 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 		 */
 		if(!newCenterPoint.equals(curCenterPoint) && movePath.contains(newCenterPoint)) {
 			
-			curCenterPoint.removeUnit(this);
-			newCenterPoint.addVehicle(this);//这一行代码的合理性存疑
+			TickCommit.removeUnit(curCenterPoint, this);
+			TickCommit.addVehicle(newCenterPoint, this);//这一行代码的合理性存疑
 			speed = 1;
 
 			
@@ -392,8 +422,8 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 				movePath = null;
 				nextTarget=null;
 				endTarget=null;
-				setEngineStatus(EngineStatus.Stopped);
-				curCenterPoint.exitBook(this);
+				TickCommit.setEngineStatus(this, EngineStatus.Stopped);
+				TickCommit.exitBook(curCenterPoint, this);
 			}else {
 				
 				//临时停止标志,此时停止移动,等待寻路完成,重新设置目的地
@@ -424,12 +454,12 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 					}
 					
 					//退出预占领
-					curCenterPoint.exitBook(this);//实际上在此以前已经释放了占用预约
+					TickCommit.exitBook(curCenterPoint, this);//实际上在此以前已经释放了占用预约
 					
 					//先收集一下nextTarget的信息  并放入栈中  后续不再查询nextTarget的信息  避免逻辑错误
 					boolean isVehicleCanOn = nextTarget.isVehicleCanOn();
 					boolean isExistBuilding = nextTarget.buildingAreaType==BuildingAreaType.Normal;
-					boolean isExistSolider = !nextTarget.getSoldiers().isEmpty();
+					boolean isExistSolider = nextTarget.getSoldierCount()>0;
 					boolean isBookedByOther = nextTarget.isBooked();
 					Vehicle nVehicle = nextTarget.getVehicle();
 					boolean isExistVehicle = nVehicle!=null;
@@ -456,16 +486,16 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 										nextTarget = null;
 										endTarget = null;
 										movePath = null;
-										setEngineStatus(EngineStatus.Stopped);
-										curCenterPoint.exitBook(this);
+										TickCommit.setEngineStatus(this, EngineStatus.Stopped);
+										TickCommit.exitBook(curCenterPoint, this);
 										speed = 0;
 									}
 								}else {
 									nextTarget = null;
 									endTarget = null;
 									movePath = null;
-									setEngineStatus(EngineStatus.Stopped);
-									curCenterPoint.exitBook(this);
+									TickCommit.setEngineStatus(this, EngineStatus.Stopped);
+									TickCommit.exitBook(curCenterPoint, this);
 									speed = 0;
 									System.out.println("下个点就是终点,而终点不可达2");
 								}
@@ -498,16 +528,16 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 										nextTarget = null;
 										endTarget = null;
 										movePath = null;
-										setEngineStatus(EngineStatus.Stopped);
-										curCenterPoint.exitBook(this);
+										TickCommit.setEngineStatus(this, EngineStatus.Stopped);
+										TickCommit.exitBook(curCenterPoint, this);
 										speed = 0;
 									}
 								}else {
 									nextTarget = null;
 									endTarget = null;
 									movePath = null;
-									setEngineStatus(EngineStatus.Stopped);
-									curCenterPoint.exitBook(this);
+									TickCommit.setEngineStatus(this, EngineStatus.Stopped);
+									TickCommit.exitBook(curCenterPoint, this);
 									speed = 0;
 									System.out.println("下个点就是终点,而终点不可达2");
 								}
@@ -525,7 +555,7 @@ public abstract class Vehicle extends MovableUnit implements Turnable,Attackable
 								// 不再打印调试日志，减少控制台噪音
 								// System.out.println("??2");
 							}else {
-								boolean bookedFlag = nextTarget.addBook(this);
+								boolean bookedFlag = TickCommit.addBook(nextTarget, this);
 								if(bookedFlag) {
 									//移动
 									speed = 1;
@@ -1,18 +1,19 @@
 package redAlert.shapeObjects.animation;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.other.OneDamage;
-import redAlert.resourceCenter.ShapeUnitResourceCenter;
 import redAlert.resourceCenter.ShpResourceCenter;
 import redAlert.shapeObjects.Attackable;
 import redAlert.shapeObjects.Building;
 import redAlert.shapeObjects.Building.SceneType;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.shapeObjects.Vehicle;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.ObjectPool;
 
 /**
  * 灰熊坦克和犀牛坦克的炮弹
@@ -21,17 +22,31 @@ import redAlert.utilBean.CenterPoint;
  * 第1部分：炮弹的飞行动画
  * 第2部分：炮弹的爆炸动画  爆炸后的第一帧进行伤害结算
  * 
+ * 炮弹用完放回对象池,开火时用obtain取出并重新初始化;飞行路径存在炮弹自己的int数组里,随炮弹一起复用
  */
 public class TankShell extends ShapeUnit{
 
+	/**
+	 * 炮弹对象池  放回时去掉对载具和目标建筑的引用
+	 */
+	public static final ObjectPool<TankShell> POOL = new ObjectPool<TankShell>("炮弹", 256, TankShell::new, shell -> {
+		shell.vehicle = null;
+		shell.targetBuilding = null;
+		shell.generation++;
+	});
+
 	/**
 	 * 炮弹的目的地
 	 */
 	public int targetPositionX,targetPositionY;
 	/**
-	 * 线性插值获取的移动坐标集合
+	 * 线性插值获取的移动坐标  依次存放每个点的x、y
 	 */
-	public List<int []> flyPath = null;
+	public int[] flyPath = new int[64];
+	/**
+	 * 移动坐标的个数
+	 */
+	public int flyPathLength = 0;
 	/**
 	 * 炮弹飞行下标
 	 */
@@ -74,6 +89,10 @@ public class TankShell extends ShapeUnit{
 	 * 炮弹的伤害
 	 */
 	public int damageValue = 100;
+	/**
+	 * 溅射半径  大于0时炮弹造成以爆炸中心为圆心的范围伤害,否则只伤害目标建筑
+	 */
+	public int splashRadius = 0;
 	/**
 	 * 目标建筑
 	 */
@@ -102,13 +121,55 @@ public class TankShell extends ShapeUnit{
 	 * 伤害是否已结算
 	 */
 	public boolean isDamageSettled = false;//伤害是否已结算
+	/**
+	 * 放回对象池的次数  炮弹被复用后,以前拿着它的炮塔据此知道那一发早已结算完
+	 */
+	private int generation = 0;
+	
+	/**
+	 * 从对象池取出一发炮弹并初始化  参数同构造方法
+	 */
+	public static TankShell obtain(int shellCenterX,int shellCenterY,Vehicle vehicle,Building targetBuilding) {
+		TankShell tankShell = POOL.acquire();
+		tankShell.init(shellCenterX, shellCenterY, vehicle, targetBuilding);
+		return tankShell;
+	}
+	
+	/**
+	 * 对象池新建炮弹用  图片只加载一次
+	 */
+	private TankShell() {
+		super.setPriority(70);
+		super.setFrameSpeed(4);
+		
+		this.shell = ShpResourceCenter.loadShpResource("120mm", SceneType.TEM.getPalPrefix(), false).get(0);
+		expShps = ShpResourceCenter.loadShpResource("brrlexp1", SceneType.ANIM.getPalPrefix(), false);
+	}
+	
 	/**
 	 * 初始化炮弹时应该使用炮弹的中心坐标，这样炮弹最后的中心坐标就是爆炸坐标
 	 * 炮弹的飞行目的地也是炮弹的中心坐标的着点
 	 */
 	public TankShell(int shellCenterX,int shellCenterY,Vehicle vehicle,Building targetBuilding) {
+		this();
+		init(shellCenterX, shellCenterY, vehicle, targetBuilding);
+	}
+	
+	/**
+	 * 初始化  新建和从对象池取出时都调用
+	 */
+	private void init(int shellCenterX,int shellCenterY,Vehicle vehicle,Building targetBuilding) {
 		this.vehicle = vehicle;
 		this.targetBuilding = targetBuilding;
+		this.status = ShellStatus.Flying;
+		this.flyIndex = 0;
+		this.expIndex = 0;
+		this.isDamageSettled = false;
+		this.damageValue = 100;
+		this.splashRadius = 0;
+		super.end = false;
+		super.isVisible = true;
+		super.frameNum = 1;
 		
 		CenterPoint targetCp = targetBuilding.getCurCenterPoint();
 		int targetCenterX = targetCp.getX();
@@ -121,19 +182,12 @@ public class TankShell extends ShapeUnit{
 		this.expCenterX = targetCenterX;
 		this.expCenterY = targetCenterY;
 		
-		super.setPriority(70);
-		super.setFrameSpeed(4);
-		
-		this.shell = ShpResourceCenter.loadShpResource("120mm", SceneType.TEM.getPalPrefix(), false).get(0);
-		expShps = ShpResourceCenter.loadShpResource("brrlexp1", SceneType.ANIM.getPalPrefix(), false);
-		
 		super.curFrame = shell;
 		
+		flyPathLength = calculateFlyPath(positionX,positionY,targetPositionX,targetPositionY);
 		
-		flyPath = test1(positionX,positionY,targetPositionX,targetPositionY);
-		
-		super.positionX = flyPath.get(flyIndex)[0];
-		super.positionY = flyPath.get(flyIndex)[1];
+		super.positionX = flyPath[0];
+		super.positionY = flyPath[1];
 	}
 	
 	/**
@@ -149,7 +203,7 @@ public class TankShell extends ShapeUnit{
 		
 		if(status==ShellStatus.Flying) {
 			flyIndex++;
-			if(flyIndex>flyPath.size()-1) {
+			if(flyIndex>flyPathLength-1) {
 				status = ShellStatus.Exploding;
 				super.positionX = expCenterX-expCenterOffX;
 				super.positionY = expCenterY-expCenterOffY;
@@ -158,13 +212,18 @@ public class TankShell extends ShapeUnit{
 				/*
 				 * 可以考虑在这个位置进行伤害结算
 				 */
-				OneDamage damage = new OneDamage(vehicle,this,targetBuilding,"type0",damageValue);
+				OneDamage damage;
+				if(splashRadius>0) {
+					damage = OneDamage.obtainArea(vehicle,this,expCenterX,expCenterY,splashRadius,damageValue);
+				}else {
+					damage = OneDamage.obtainSingle(vehicle,this,targetBuilding,damageValue);
+				}
 				
-				ShapeUnitResourceCenter.damageBlockingQueue.offer(damage);
+				TickCommit.damage(damage);
 				
 			}else {
-				super.positionX = flyPath.get(flyIndex)[0];
-				super.positionY = flyPath.get(flyIndex)[1];	
+				super.positionX = flyPath[flyIndex*2];
+				super.positionY = flyPath[flyIndex*2+1];
 			}
 			
 			return;
@@ -201,9 +260,10 @@ public class TankShell extends ShapeUnit{
 	
 	
 	/**
-	 * 将出发地和目的地之间做做一个线性插值
+	 * 将出发地和目的地之间做做一个线性插值  结果放在flyPath中
+	 * @return 坐标个数
 	 */
-	public List<int []> test1(int positionX,int positionY,int targetX,int targetY) {
+	public int calculateFlyPath(int positionX,int positionY,int targetX,int targetY) {
 		
 //		kx*kx+ky*ky = 20*20;
 //		
@@ -226,9 +286,8 @@ public class TankShell extends ShapeUnit{
 		int ky = 0;//Y方向的速度
 		
 		//获取一组插值
-		List<int []> list = new ArrayList<>();
-		int [] a0 = new int [] {positionX,positionY};
-		list.add(a0);
+		int count = 0;
+		count = addFlyPoint(count, positionX, positionY);
 		
 		if(deltaX==0) {
 			kx = 0;
@@ -246,13 +305,11 @@ public class TankShell extends ShapeUnit{
 				double s = Math.abs(targetY-nextY);
 				
 				if(s<=speed) {
-					int [] a = new int [] {targetX,targetY};
-					list.add(a);
+					count = addFlyPoint(count, targetX, targetY);
 					break;
 				}else {
 					nextY = nextY+dky;
-					int [] a = new int [] {positionX,(int)nextY};
-					list.add(a);
+					count = addFlyPoint(count, positionX, (int)nextY);
 				}
 			}
 			
@@ -272,13 +329,11 @@ public class TankShell extends ShapeUnit{
 				double s = Math.abs(targetX-nextX);
 				
 				if(s<=speed) {
-					int [] a = new int [] {targetX,targetY};
-					list.add(a);
+					count = addFlyPoint(count, targetX, targetY);
 					break;
 				}else {
 					nextX = nextX+dkx;
-					int [] a = new int [] {(int)nextX ,positionY};
-					list.add(a);
+					count = addFlyPoint(count, (int)nextX, positionY);
 				}
 			}
 			
@@ -305,19 +360,30 @@ public class TankShell extends ShapeUnit{
 				double s = Math.sqrt(  (targetX-nextX)*(targetX-nextX) + (targetY-nextY)*(targetY-nextY) );
 				
 				if(s<=speed) {
-					int [] a = new int [] {targetX,targetY};
-					list.add(a);
+					count = addFlyPoint(count, targetX, targetY);
 					break;
 				}else {
 					nextX = nextX+dkx;
 					nextY = nextY+dky;
-					int [] a = new int [] {(int)nextX,(int)nextY};
-					list.add(a);
+					count = addFlyPoint(count, (int)nextX, (int)nextY);
 				}
 			}
 		}
 		
-		return list;
+		return count;
+	}
+	
+	/**
+	 * 在flyPath的第count个位置放一个坐标  不够时扩容
+	 * @return 放入后的坐标个数
+	 */
+	private int addFlyPoint(int count,int x,int y) {
+		if(count*2+1>=flyPath.length) {
+			flyPath = Arrays.copyOf(flyPath, flyPath.length*2);
+		}
+		flyPath[count*2] = x;
+		flyPath[count*2+1] = y;
+		return count+1;
 	}
 
 	public boolean isDamageSettled() {
@@ -328,14 +394,18 @@ public class TankShell extends ShapeUnit{
 		this.isDamageSettled = isDamageSettled;
 	}
 	
-//	public static void main(String[] args) {
-//		List<int []> list = test1(200,200,500,500);
-//		
-//		for(int [] a:list) {
-//			System.out.println(a[0]+","+a[1]);
-//		}
-//		
-//	}
+	public int getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * 炸完移出游戏后放回对象池
+	 */
+	@Override
+	public void recycle() {
+		POOL.release(this);
+	}
+	
 	
 
 }
@@ -1,7 +1,6 @@
 package redAlert.shapeObjects.soldier;
 
 import java.util.LinkedList;
-import java.util.Random;
 
 import redAlert.enums.UnitColor;
 import redAlert.shapeObjects.Soldier;
@@ -19,9 +18,6 @@ public class Adog extends Soldier{
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
 		
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "警犬";
 		
 		//移动时说的话
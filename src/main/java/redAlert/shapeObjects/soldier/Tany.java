@@ -10,6 +10,7 @@ import redAlert.ShapeUnitFrame;
 import redAlert.enums.Direction;
 import redAlert.enums.UnitColor;
 import redAlert.shapeObjects.Soldier;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utilBean.LittleCenterPoint;
 import redAlert.utils.LittleCenterPointUtil;
@@ -38,9 +39,6 @@ public class Tany extends Soldier{
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
 		
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "tany";
 		
 	}
@@ -428,14 +426,13 @@ public class Tany extends Soldier{
 		if(newLCP.equals(curLittleCenterPoint)) {
 			
 		}else if(isArrivedNextTarget()){
-			curCenterPoint.removeUnit(this);
+			TickCommit.removeUnit(curCenterPoint, this);
 			curLittleCenterPoint.preBooked.compareAndSet(true, false);
 			lastLittleCenterPoint = curLittleCenterPoint;
 			
 			curCenterPoint = newCenterPoint;
 			curLittleCenterPoint = newLCP;
-			curCenterPoint.addSoldier(this);
-			curLittleCenterPoint.soldier = this;//待优化
+			TickCommit.addSoldier(curCenterPoint, curLittleCenterPoint, this);//待优化
 			if(curCenterPoint.isInShadow()) {
 				this.setHided(true);
 			}else {
@@ -45,6 +45,7 @@ public class GrizTank extends Vehicle {
 		g2d.drawImage(bodyFrames.get(curTurn).getImg(), 0, 0, null);
 		g2d.drawImage(turret.getFrames().get(turret.getCurTurn()).getImg(),0,0,null);
 		g2d.dispose();
+		curFrame.markImgChanged();
 	}
 
 	/**
@@ -83,6 +84,7 @@ public class GrizTank extends Vehicle {
 		g2d.drawImage(bodyFrames.get(curTurn).getImg(), 0, 0, null);
 		g2d.drawImage(turret.getFrames().get(turret.getCurTurn()).getImg(),0,0,null);
 		g2d.dispose();
+		curFrame.markImgChanged();
 		super.positionMinX = bodyFrames.get(curTurn).getMinX()+positionX;
 		super.positionMinY = bodyFrames.get(curTurn).getMinY()+positionY;
 	}
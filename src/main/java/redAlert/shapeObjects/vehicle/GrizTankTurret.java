@@ -25,6 +25,10 @@ public class GrizTankTurret extends TankTurret{
 	 * 上一发炮弹
 	 */
 	public TankShell lastShell = null;
+	/**
+	 * 上一发炮弹开火时的复用次数  炮弹放回对象池后次数会变
+	 */
+	int lastShellGeneration = 0;
 	/**
 	 * 开火帧间隔  
 	 * 用于控制开火的速度
@@ -46,7 +50,8 @@ public class GrizTankTurret extends TankTurret{
 		
 		
 		if(checkFireCondition(targetBuilding)) {
-			lastShell = new TankShell(curCenterPoint.getX(),curCenterPoint.getY(),vehicle,targetBuilding);
+			lastShell = TankShell.obtain(curCenterPoint.getX(),curCenterPoint.getY(),vehicle,targetBuilding);
+			lastShellGeneration = lastShell.getGeneration();
 			Constructor.putOneShapeUnit(lastShell);//炮弹
 			long curFrameIndex = RuntimeParameter.frameCount;
 			lastFireFrameIndex = curFrameIndex;
@@ -66,7 +71,8 @@ public class GrizTankTurret extends TankTurret{
 	 */
 	public boolean checkFireCondition(Building targetBuilding) {
 		
-		if(lastShell!=null) {
+		//上一发炮弹已放回对象池时,它的伤害早已结算
+		if(lastShell!=null && lastShell.getGeneration()==lastShellGeneration) {
 			if(!lastShell.isDamageSettled()) {//上一发炮弹的伤害未结算
 				return false;
 			}
@@ -11,6 +11,7 @@ import redAlert.militaryBuildings.AfCnst;
 import redAlert.resourceCenter.ShapeUnitResourceCenter;
 import redAlert.shapeObjects.Expandable;
 import redAlert.shapeObjects.Vehicle;
+import redAlert.task.TickCommit;
 import redAlert.utilBean.CenterPoint;
 import redAlert.utils.PointUtil;
 
@@ -69,21 +70,20 @@ public class Mcv extends Vehicle implements Expandable{
 				return;
 			}else {
 				CenterPoint cp = PointUtil.getCenterPoint(positionX+centerOffX,positionY+centerOffY);
-				cp.removeUnit(this);
-				ShapeUnitResourceCenter.removeOneMovableUnit(this);
-				ShapeUnitResourceCenter.removeOneUnit(this.getBloodBar());
-				this.getBloodBar().setVisible(false);
-				this.getBloodBar().setEnd(true);
 				this.setVisible(false);
 				this.setEnd(true);
-				AfCnst afCnst = new AfCnst(cp,GlobalConfig.sceneType, this.unitColor);
-				Constructor.putOneBuilding(afCnst);//盟军基地
-				try {
-					Thread.sleep(50);
-					Constructor.playOneMusic("ceva049");//New construction options
-				}catch (Exception e) {
-					e.printStackTrace();
-				}
+				//展开时要改格子、资源中心和血条  在提交阶段执行
+				TickCommit.defer(() -> {
+					cp.removeUnit(this);
+					ShapeUnitResourceCenter.removeOneMovableUnit(this);
+					ShapeUnitResourceCenter.removeOneUnit(this.getBloodBar());
+					this.getBloodBar().setVisible(false);
+					this.getBloodBar().setEnd(true);
+					AfCnst afCnst = new AfCnst(cp,GlobalConfig.sceneType, this.unitColor);
+					Constructor.putOneBuilding(afCnst);//盟军基地
+				});
+				//语音在自己的线程里播放  不放进提交阶段
+				Constructor.playOneMusic("ceva049");//New construction options
 				
 				
 			}
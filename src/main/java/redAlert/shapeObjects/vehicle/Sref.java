@@ -42,6 +42,7 @@ public class Sref extends Vehicle{
 		CanvasPainter.clearImage(image);
 		g2d.drawImage(bodyFrames.get(curTurn).getImg(), 0, 0, null);
 		g2d.drawImage(turret.getFrames().get(turret.getCurTurn()).getImg(),0,0,null);
+		curFrame.markImgChanged();
 	}
 
 	@Override
@@ -76,6 +77,7 @@ public class Sref extends Vehicle{
 		g2d.drawImage(bodyFrames.get(curTurn).getImg(), 0, 0, null);
 		g2d.drawImage(turret.getFrames().get(turret.getCurTurn()).getImg(),0,0,null);
 		g2d.dispose();
+		curFrame.markImgChanged();
 		super.positionMinX = bodyFrames.get(curTurn).getMinX()+positionX;
 		super.positionMinY = bodyFrames.get(curTurn).getMinY()+positionY;
 	}
@@ -1,7 +1,6 @@
 package redAlert.shapeObjects.vehicle;
 
 import java.util.List;
-import java.util.Random;
 
 import javax.sound.sampled.Clip;
 
@@ -48,9 +47,6 @@ public class Zep extends Vehicle{
 		super.positionY = positionY;
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "基洛夫空艇";
 		
 		clip = MusicPlayer.getClip("vkirlo2a",-1);
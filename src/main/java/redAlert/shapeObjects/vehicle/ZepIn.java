@@ -1,7 +1,6 @@
 package redAlert.shapeObjects.vehicle;
 
 import java.util.List;
-import java.util.Random;
 
 import redAlert.ShapeUnitFrame;
 import redAlert.enums.UnitColor;
@@ -41,9 +40,6 @@ public class ZepIn extends Vehicle{
 		super.positionY = positionY;
 		super.positionMinX = curFrame.getMinX()+positionX;
 		super.positionMinY = curFrame.getMinY()+positionY;
-		//定义唯一编号
-		Random random = new Random();
-		super.unitNo = random.nextInt();
 		super.unitName = "基洛夫空艇影子";
 		
 	}
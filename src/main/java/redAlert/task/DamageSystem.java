@@ -0,0 +1,350 @@
+package redAlert.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import redAlert.other.OneDamage;
+import redAlert.other.OneDamage.DamageType;
+import redAlert.shapeObjects.Attackable;
+import redAlert.shapeObjects.Bloodable;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.TankTurret;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.utilBean.SpatialHash;
+import redAlert.utilBean.UnitRegistry;
+
+/**
+ * 伤害结算
+ *
+ * 以前每次伤害放入ShapeUnitResourceCenter.damageBlockingQueue(容量50),由一个专门的线程逐条结算,
+ * 队列满时offer直接丢掉伤害,结算和逻辑帧并行,建筑可能在逻辑帧计算到一半时被移除
+ * 现在每个逻辑帧的伤害在提交阶段末尾一次结算：
+ *   1 提交阶段按意图次序记下本帧的伤害(record),其他线程(核弹计时器等)造成的伤害放入无界的并发队列(submit),不会阻塞
+ *   2 展开成命中：单体伤害一次命中;范围伤害用空间哈希查出半径内的单位,每个单位一次命中,离中心越远伤害越小(边缘减半)
+ *   3 命中记在int数组里,按(被攻击者,命中的先后)排序,同一单位的伤害合并后扣一次血
+ *   4 全部扣完血之后,再按次序通知被摧毁的单位,攻击被摧毁建筑的坦克炮塔改为非进攻
+ * 同样的伤害每次结算的结果和通知次序相同
+ *
+ * 扣血以外的效果(发电厂发电量下降、声音、移除建筑)由DamageListener处理
+ * 结算完的OneDamage放回对象池
+ * 只能由逻辑线程调用resolve
+ */
+public class DamageSystem {
+
+	/**
+	 * 伤害结算的监听者
+	 */
+	public interface DamageListener {
+		/**
+		 * 单位本逻辑帧受到伤害  每帧每个单位只通知一次
+		 * @param amount 本帧受到的伤害合计
+		 */
+		void damaged(ShapeUnit victim,int amount);
+		/**
+		 * 单位被摧毁  所有单位扣完血之后通知
+		 * @param killer 最后一次命中的攻击者  可能为null
+		 */
+		void destroyed(ShapeUnit victim,Attackable killer);
+	}
+
+	private static volatile DamageSystem instance;
+
+	public static DamageSystem getInstance() {
+		if(instance==null) {
+			synchronized (DamageSystem.class) {
+				if(instance==null) {
+					instance = new DamageSystem(SpatialHash.getInstance());
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * 范围伤害按单位编号排序  结果与空间哈希中的存放次序无关
+	 */
+	private static final Comparator<ShapeUnit> UNIT_NO_ORDER = new Comparator<ShapeUnit>() {
+		@Override
+		public int compare(ShapeUnit a, ShapeUnit b) {
+			return Integer.compare(a.unitNo, b.unitNo);
+		}
+	};
+
+	private final SpatialHash spatialHash;
+	/**
+	 * 其他线程造成的伤害  下一次结算时取出
+	 */
+	private final ConcurrentLinkedQueue<OneDamage> pending = new ConcurrentLinkedQueue<OneDamage>();
+	private final List<DamageListener> listeners = new CopyOnWriteArrayList<DamageListener>();
+
+	/* 以下只有逻辑线程访问 */
+	/**
+	 * 本逻辑帧要结算的伤害
+	 */
+	private final List<OneDamage> damages = new ArrayList<OneDamage>();
+	/**
+	 * 被攻击者  下标就是被攻击者编号
+	 */
+	private final UnitRegistry<ShapeUnit> victims = new UnitRegistry<ShapeUnit>();
+	private boolean[] killed = new boolean[64];
+	/**
+	 * 命中  被攻击者编号、伤害值、来自第几个伤害
+	 */
+	private int[] hitVictim = new int[256];
+	private int[] hitAmount = new int[256];
+	private int[] hitSource = new int[256];
+	/**
+	 * 排序键  高32位被攻击者编号,低32位命中下标
+	 */
+	private long[] hitKeys = new long[256];
+	private int hitCount = 0;
+	private final List<ShapeUnit> areaUnits = new ArrayList<ShapeUnit>();
+
+	/** 统计数据 */
+	private int lastHitCount = 0;
+	private int lastKilledCount = 0;
+
+	public DamageSystem(SpatialHash spatialHash) {
+		this.spatialHash = spatialHash;
+	}
+
+	public void addListener(DamageListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(DamageListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 其他线程造成伤害  放入队列,下一次结算时处理  任何线程都可以调用,不会阻塞
+	 */
+	public void submit(OneDamage damage) {
+		pending.offer(damage);
+	}
+
+	/**
+	 * 记下本逻辑帧的一次伤害  提交阶段由逻辑线程按意图次序调用
+	 */
+	void record(OneDamage damage) {
+		damages.add(damage);
+	}
+
+	/**
+	 * 结算本逻辑帧的所有伤害  逻辑线程在提交阶段末尾调用
+	 */
+	public void resolve() {
+		OneDamage queued;
+		while((queued = pending.poll())!=null) {
+			damages.add(queued);
+		}
+		if(damages.isEmpty()) {
+			lastHitCount = 0;
+			lastKilledCount = 0;
+			return;
+		}
+		try {
+			for(int i=0;i<damages.size();i++) {
+				expand(damages.get(i), i);
+			}
+			for(int i=0;i<hitCount;i++) {
+				hitKeys[i] = ((long)hitVictim[i]<<32)|i;
+			}
+			Arrays.sort(hitKeys, 0, hitCount);
+			int killedCount = applyHits();
+			notifyDestroyed();
+			resetTurrets();
+			for(OneDamage damage:damages) {
+				if(damage.shell!=null) {
+					damage.shell.setDamageSettled(true);//伤害结算完毕
+				}
+			}
+			lastHitCount = hitCount;
+			lastKilledCount = killedCount;
+		}finally {
+			for(OneDamage damage:damages) {
+				OneDamage.POOL.release(damage);
+			}
+			damages.clear();
+			victims.clear();
+			hitCount = 0;
+			areaUnits.clear();
+		}
+	}
+
+	/**
+	 * 把一次伤害展开成命中
+	 */
+	private void expand(OneDamage damage,int source) {
+		if(damage.type==DamageType.Single) {
+			addHit(damage.victim, damage.damageValue, source);
+			return;
+		}
+		areaUnits.clear();
+		spatialHash.queryRadius(damage.centerX, damage.centerY, damage.radius, ShapeUnit.class, areaUnits);
+		Collections.sort(areaUnits, UNIT_NO_ORDER);
+		for(ShapeUnit unit:areaUnits) {
+			addHit(unit, areaDamage(damage, SpatialHash.distanceSquared(unit, damage.centerX, damage.centerY)), source);
+		}
+	}
+
+	/**
+	 * 范围伤害在某个距离上的伤害值  中心是damageValue,边缘减半
+	 * @param distanceSquared 到中心距离的平方
+	 */
+	public static int areaDamage(OneDamage damage,long distanceSquared) {
+		if(damage.radius<=0) {
+			return damage.damageValue;
+		}
+		long distance = (long)Math.sqrt((double)distanceSquared);
+		return (int)(damage.damageValue-damage.damageValue*distance/(2L*damage.radius));
+	}
+
+	private void addHit(ShapeUnit victim,int amount,int source) {
+		if(!(victim instanceof Bloodable) || victim.isEnd() || amount<=0) {
+			return;
+		}
+		victims.add(victim);
+		int id = victims.indexOf(victim);
+		if(hitCount==hitVictim.length) {
+			int capacity = hitCount*2;
+			hitVictim = Arrays.copyOf(hitVictim, capacity);
+			hitAmount = Arrays.copyOf(hitAmount, capacity);
+			hitSource = Arrays.copyOf(hitSource, capacity);
+			hitKeys = Arrays.copyOf(hitKeys, capacity);
+		}
+		hitVictim[hitCount] = id;
+		hitAmount[hitCount] = amount;
+		hitSource[hitCount] = source;
+		hitCount++;
+	}
+
+	/**
+	 * 按排好的次序扣血  同一单位的命中合并
+	 * @return 本帧被摧毁的单位数
+	 */
+	private int applyHits() {
+		if(killed.length<victims.size()) {
+			killed = new boolean[Math.max(victims.size(), killed.length*2)];
+		}
+		int killedCount = 0;
+		int i = 0;
+		while(i<hitCount) {
+			int id = (int)(hitKeys[i]>>>32);
+			int total = 0;
+			int j = i;
+			while(j<hitCount && (int)(hitKeys[j]>>>32)==id) {
+				total += hitAmount[(int)hitKeys[j]];
+				j++;
+			}
+			i = j;
+			killed[id] = false;
+			ShapeUnit victim = victims.get(id);
+			int curHp = getHp(victim);
+			if(curHp<=0) {
+				continue;//已经被摧毁  不再重复通知
+			}
+			curHp -= total;
+			setHp(victim, curHp);
+			if(curHp<=0) {
+				killed[id] = true;
+				killedCount++;
+			}
+			for(DamageListener listener:listeners) {
+				try {
+					listener.damaged(victim, total);
+				}catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return killedCount;
+	}
+
+	/**
+	 * 按被攻击者编号的次序通知被摧毁的单位
+	 */
+	private void notifyDestroyed() {
+		int i = 0;
+		while(i<hitCount) {
+			int id = (int)(hitKeys[i]>>>32);
+			int last = i;
+			while(last+1<hitCount && (int)(hitKeys[last+1]>>>32)==id) {
+				last++;
+			}
+			if(killed[id]) {
+				Attackable killer = damages.get(hitSource[(int)hitKeys[last]]).attacker;
+				for(DamageListener listener:listeners) {
+					try {
+						listener.destroyed(victims.get(id), killer);
+					}catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+			i = last+1;
+		}
+	}
+
+	/**
+	 * 坦克炮塔的状态标记为非进攻  目标建筑本帧被摧毁时
+	 */
+	private void resetTurrets() {
+		for(OneDamage damage:damages) {
+			if(!(damage.attacker instanceof Vehicle)) {
+				continue;
+			}
+			TankTurret turret = ((Vehicle)damage.attacker).getTurret();
+			if(turret==null || turret.getAttackBuilding()==null) {
+				continue;
+			}
+			int id = victims.indexOf(turret.getAttackBuilding());
+			if(id>=0 && killed[id]) {
+				turret.setAttackBuilding(null);
+			}
+		}
+	}
+
+	/**
+	 * 单位的血量  建筑的血量在血条上,载具和步兵在自己身上(血条每帧从单位上同步)
+	 */
+	static int getHp(ShapeUnit unit) {
+		if(unit instanceof Vehicle) {
+			return ((Vehicle)unit).getCurHp();
+		}
+		if(unit instanceof Soldier) {
+			return ((Soldier)unit).getCurHp();
+		}
+		Bloodable bloodable = (Bloodable)unit;
+		return bloodable.getBloodBar()==null ? 0 : bloodable.getBloodBar().getCurHp();
+	}
+
+	static void setHp(ShapeUnit unit,int curHp) {
+		if(unit instanceof Vehicle) {
+			((Vehicle)unit).setCurHp(curHp);
+		}else if(unit instanceof Soldier) {
+			((Soldier)unit).setCurHp(curHp);
+		}else {
+			((Bloodable)unit).getBloodBar().setCurHp(curHp);
+		}
+	}
+
+	/**
+	 * 等待结算的其他线程造成的伤害数
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+	public int getLastHitCount() {
+		return lastHitCount;
+	}
+	public int getLastKilledCount() {
+		return lastKilledCount;
+	}
+}
@@ -0,0 +1,325 @@
+package redAlert.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import redAlert.RuntimeParameter;
+import redAlert.SysConfig;
+import redAlert.militaryBuildings.AfWeap;
+import redAlert.resourceCenter.ShapeUnitResourceCenter;
+import redAlert.shapeObjects.Building;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.shapeObjects.animation.TankShell;
+import redAlert.utilBean.ObjectPool;
+import redAlert.utilBean.SpatialHash;
+import redAlert.utils.PerformanceMonitor;
+
+/**
+ * 游戏逻辑循环
+ *
+ * 按固定频率(逻辑帧率)运行,每个逻辑帧把所有存活的方块按顺序计算一遍,然后发布绘制快照
+ * 以前每个方块要经过阻塞队列、借一个帧计算线程、提交线程池才能算一次,游戏速度取决于方块在队列里转一圈的快慢;
+ * 现在游戏速度只由时钟决定,同样的输入每次算出的结果相同
+ *
+ * 方块的frameSpeed是按60帧/秒(RuntimeParameter.fps)定义的,逻辑帧率不是60时,
+ * 每个逻辑帧推进 60/逻辑帧率 个游戏帧(除不尽的部分累积到下一个逻辑帧),frameNum和frameSpeed的节流照旧按游戏帧计算,
+ * 所以调低逻辑帧率不会让游戏变慢,只是画面更新得没那么频繁
+ *
+ * 计算一个逻辑帧超过一个周期记为超时;落后超过MAX_CATCH_UP_TICKS个周期时不再追赶,直接从当前时间重新计时
+ *
+ * 载具、步兵、建筑、炮弹分两个阶段计算：先按地图区域分组并行计算意图(RegionTickExecutor),
+ * 再由TickCommit按固定次序结算格子占用和伤害;其余方块(血条、移动线、战车工厂、动画等)在提交之后顺序计算,
+ * 看到的都是本逻辑帧提交后的状态
+ */
+public class GameLoop extends Thread {
+
+	/**
+	 * 最多连续追赶的逻辑帧数
+	 */
+	private static final int MAX_CATCH_UP_TICKS = 5;
+	public static final String TICK_OPERATION = "逻辑帧";
+
+	/**
+	 * 逻辑帧率(次/秒)
+	 */
+	private final int tickRate;
+	/**
+	 * 逻辑帧周期(纳秒)
+	 */
+	private final long tickNanos;
+	/**
+	 * 本轮要计算的方块  只有逻辑线程访问
+	 */
+	private final List<ShapeUnit> tickUnits = new ArrayList<ShapeUnit>();
+	/**
+	 * 本轮并行计算的方块在tickUnits中的下标  升序
+	 */
+	private int[] regionIndexes = new int[256];
+	private final TickCommit tickCommit = new TickCommit();
+	private final RegionTickExecutor regionExecutor;
+	private final PathService pathService = PathService.getInstance();
+	private final SpatialHash spatialHash = SpatialHash.getInstance();
+	/**
+	 * 游戏帧累积  每个逻辑帧加上RuntimeParameter.fps,满tickRate推进一个游戏帧
+	 */
+	private int frameAccumulator = 0;
+
+	private volatile boolean running = true;
+
+	/** 统计数据 */
+	private volatile long tickCount = 0;
+	private volatile long overrunCount = 0;
+	private volatile long skippedTicks = 0;
+	private volatile long lastTickNanos = 0;
+	private volatile long maxTickNanos = 0;
+	private volatile long lastIntentNanos = 0;
+	private volatile long lastCommitNanos = 0;
+
+	public GameLoop(int tickRate) {
+		this(tickRate, SysConfig.simulationThreads);
+	}
+
+	/**
+	 * @param threads 意图阶段的计算线程数
+	 */
+	public GameLoop(int tickRate,int threads) {
+		super("GameLoop");
+		this.tickRate = tickRate;
+		this.tickNanos = 1000000000L/tickRate;
+		this.regionExecutor = new RegionTickExecutor(threads, tickCommit);
+		setDaemon(true);
+	}
+
+	/**
+	 * 启动方法
+	 */
+	public void startGameLoop() {
+		this.start();
+	}
+
+	public void stopGameLoop() {
+		running = false;
+		this.interrupt();
+		regionExecutor.shutdown();
+	}
+
+	@Override
+	public void run() {
+		long nextTick = System.nanoTime();
+		while(running) {
+			try {
+				long now = System.nanoTime();
+				if(now<nextTick) {
+					TimeUnit.NANOSECONDS.sleep(nextTick-now);
+					continue;
+				}
+				long start = PerformanceMonitor.startOperation(TICK_OPERATION);
+				tick();
+				PerformanceMonitor.endOperation(TICK_OPERATION, start);
+				nextTick += tickNanos;
+
+				long lag = System.nanoTime()-nextTick;
+				if(lag>tickNanos*MAX_CATCH_UP_TICKS) {
+					skippedTicks += lag/tickNanos;
+					nextTick = System.nanoTime();
+				}
+			}catch(InterruptedException e) {
+				break;
+			}catch(Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * 计算一个逻辑帧
+	 * 0. 交付已经算完的寻路请求  没算完的不等
+	 * 1. 取出上一帧算完放回的方块和新加入的方块,生成绘制快照发布给渲染线程
+	 * 2. 意图阶段：并行计算载具、步兵、建筑、炮弹
+	 * 3. 提交阶段：按次序结算意图
+	 * 4. 按顺序计算其余方块,存活的方块按原来的次序放回待计算队列
+	 * 5. 把本逻辑帧中提交的寻路请求交给寻路线程
+	 *
+	 * 逻辑线程调用;测试时也可以不启动线程直接调用
+	 */
+	public void tick() {
+		long start = System.nanoTime();
+		tickCount++;
+		pathService.beginTick();
+		tickUnits.clear();
+		RuntimeParameter.drainPendingUnits(tickUnits);
+		RuntimeParameter.frameSnapshots.getWriteSnapshot().fill(tickUnits, tickCount);
+		RuntimeParameter.frameSnapshots.publish();
+
+		frameAccumulator += RuntimeParameter.fps;
+		int frames = frameAccumulator/tickRate;
+		frameAccumulator %= tickRate;
+
+		int size = tickUnits.size();
+		if(regionIndexes.length<size) {
+			regionIndexes = new int[Math.max(size, regionIndexes.length*2)];
+		}
+		int regionCount = 0;
+		for(int i=0;i<size;i++) {
+			ShapeUnit shp = tickUnits.get(i);
+			if(isRegionUnit(shp) && !shp.isEnd()) {
+				regionIndexes[regionCount++] = i;
+			}
+		}
+		long phaseStart = System.nanoTime();
+		regionExecutor.execute(tickUnits, regionIndexes, regionCount, frames);
+		long commitStart = System.nanoTime();
+		tickCommit.commit();
+		lastCommitNanos = System.nanoTime()-commitStart;
+		lastIntentNanos = commitStart-phaseStart;
+
+		int next = 0;
+		for(int i=0;i<size;i++) {
+			ShapeUnit shp = tickUnits.get(i);
+			if(next<regionCount && regionIndexes[next]==i) {
+				next++;
+				spatialHash.update(shp);
+				RuntimeParameter.addBuildingToQueue(shp);
+				continue;
+			}
+			try {
+				updateUnit(shp, frames);
+			}catch (Exception e) {
+				e.printStackTrace();
+			}
+			spatialHash.update(shp);
+		}
+		pathService.endTick();
+
+		long duration = System.nanoTime()-start;
+		lastTickNanos = duration;
+		if(duration>maxTickNanos) {
+			maxTickNanos = duration;
+		}
+		if(duration>tickNanos) {
+			overrunCount++;
+		}
+		PerformanceMonitor.recordCounter("逻辑帧方块数", tickUnits.size());
+		PerformanceMonitor.recordCounter("寻路队列", pathService.getQueueDepth());
+		ObjectPool.recordCounters();
+	}
+
+	/**
+	 * 是否在意图阶段并行计算
+	 * 战车工厂要拆分子建筑、改待计算队列,仍在逻辑线程上计算
+	 */
+	private static boolean isRegionUnit(ShapeUnit shp) {
+		if(shp instanceof Vehicle || shp instanceof Soldier || shp instanceof TankShell) {
+			return true;
+		}
+		return shp instanceof Building && !(shp instanceof AfWeap);
+	}
+
+	/**
+	 * 计算一个方块
+	 * 战车工厂拆分、方块结束的处理每个逻辑帧只做一次,帧动画按游戏帧数推进
+	 */
+	private void updateUnit(ShapeUnit shp,int frames) {
+		if(shp instanceof AfWeap) {
+			AfWeap afweap = (AfWeap)shp;
+			/*
+			 * 子建筑  只用一次
+			 */
+			if(afweap.isPartOfWeap()) {
+				afweap.setEnd(true);
+				return;
+			}
+
+			/**
+			 * 用主建筑来产生两个子建筑
+			 * 主建筑不再绘制,而两个子建筑代替主建筑的渲染
+			 */
+			if(afweap.isMakingVehicle()) {
+				List<Building> ls = afweap.tankChaifen();
+				for(Building building : ls) {
+					RuntimeParameter.addBuildingToQueue(building);
+				}
+				afweap.setPutChildIn(true);
+			}else if(afweap.isMakingFly()){
+				List<Building> ls = afweap.flyChaifen();
+				for(Building building : ls) {
+					RuntimeParameter.addBuildingToQueue(building);
+				}
+				afweap.setPutChildIn(true);
+			}else {
+				afweap.setPutChildIn(false);
+			}
+
+			advanceFrames(afweap, frames);
+			RuntimeParameter.addBuildingToQueue(afweap);
+		}else {
+			if(shp.isEnd()) {
+				ShapeUnitResourceCenter.removeOneUnit(shp);
+				shp.recycle();
+			}else {
+				advanceFrames(shp, frames);
+				RuntimeParameter.addBuildingToQueue(shp);
+			}
+		}
+	}
+
+	/**
+	 * 推进若干个游戏帧  帧率控制:不同的方块有不同的帧率
+	 * 意图阶段中载具提交了预约后,本逻辑帧剩下的游戏帧不再计算,预约失败时才能退回原位
+	 */
+	static void advanceFrames(ShapeUnit shp,int frames) {
+		for(int i=0;i<frames;i++) {
+			shp.setFrameNum(shp.getFrameNum()+1);
+			if(shp.getFrameNum()%shp.getFrameSpeed()==0) {
+				shp.calculateNextFrame();
+				if(TickCommit.isCurrentUnitSuspended()) {
+					break;
+				}
+			}
+		}
+	}
+
+	public int getTickRate() {
+		return tickRate;
+	}
+	public long getTickCount() {
+		return tickCount;
+	}
+	public long getOverrunCount() {
+		return overrunCount;
+	}
+	public long getSkippedTicks() {
+		return skippedTicks;
+	}
+	public long getLastTickNanos() {
+		return lastTickNanos;
+	}
+	public long getMaxTickNanos() {
+		return maxTickNanos;
+	}
+	public long getLastIntentNanos() {
+		return lastIntentNanos;
+	}
+	public long getLastCommitNanos() {
+		return lastCommitNanos;
+	}
+	public TickCommit getTickCommit() {
+		return tickCommit;
+	}
+	public PathService getPathService() {
+		return pathService;
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public String getStatistics() {
+		return String.format("逻辑帧: %d Hz, %d线程, 已计算=%d, 超时=%d, 放弃追赶=%d, 最近=%.2f ms(意图%.2f ms, 提交%.2f ms), 最长=%.2f ms, 预约冲突=%d",
+				tickRate, regionExecutor.getParallelism(), tickCount, overrunCount, skippedTicks, lastTickNanos/1000000.0,
+				lastIntentNanos/1000000.0, lastCommitNanos/1000000.0, maxTickNanos/1000000.0, tickCommit.getBookConflicts())
+				+"; "+pathService.getStatistics();
+	}
+}
@@ -0,0 +1,543 @@
+package redAlert.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import redAlert.SysConfig;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.FlowField;
+import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.PathCache;
+import redAlert.utilBean.SoldierXunLuAdapter;
+import redAlert.utilBean.XunLuBean3;
+import redAlert.utilBean.XunLuBeanAdapter;
+
+/**
+ * 寻路服务
+ *
+ * 单位下达移动命令或需要重新寻路时,不再在调用线程(鼠标事件线程、意图阶段的计算线程)上直接寻路,
+ * 而是提交一个寻路请求后立即返回;请求由寻路线程池按优先级计算,算完后在下一个逻辑帧开始时由逻辑线程交给单位
+ *
+ * 交付规则：逻辑帧开始时交付已经算完的请求,按提交的次序调用回调;还没算完的不等,算完后在之后的逻辑帧开始时交付
+ * 逻辑线程不会因为寻路慢(大地图、一次命令很多单位)而停下,寻路线程算一条路可能跨过几个逻辑帧,
+ * 单位拿到路径时会检查起点是否还是自己的位置,路上遇到阻挡再重新寻路
+ * 逻辑帧计算过程中提交的请求先暂存,等本逻辑帧结束后再交给寻路线程
+ * 测试时可以用setWaitForSolved(true)让逻辑帧开始时等所有请求算完,每次运行在同样的逻辑帧拿到同样的路径
+ *
+ * 还没交付的请求中,起点终点相同的请求只算一次(例如一组单位的移动命令里重复的请求),结果复制给每个回调
+ * 以前算过的起点终点直接取路径缓存(见PathCache),不再交给寻路线程;查找和放入缓存都在交给寻路线程和交付时进行,
+ * 次序固定,缓存的内容与线程数无关
+ *
+ * 群体移动命令的流场也由寻路线程建立,和寻路请求一样暂存、交付,每个单位拿到流场给自己分的路径
+ */
+public class PathService {
+
+	/**
+	 * 请求的优先级  寻路线程先算优先级高的
+	 */
+	public enum Priority{
+		High("玩家命令"),
+		Normal("重新寻路"),
+		Low("后台");
+
+		public String desc;
+
+		private Priority(String desc) {
+			this.desc = desc;
+		}
+	}
+
+	/**
+	 * 最近多少个请求参与延迟统计
+	 */
+	private static final int LATENCY_SAMPLES = 1024;
+
+	private static volatile PathService instance;
+
+	/**
+	 * 获取寻路服务  第一次使用时创建,寻路线程数见SysConfig.pathfindingThreads
+	 */
+	public static PathService getInstance() {
+		if(instance==null) {
+			synchronized (PathService.class) {
+				if(instance==null) {
+					instance = new PathService(SysConfig.pathfindingThreads);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * 一个寻路请求
+	 */
+	private class Request implements Runnable,Comparable<Request> {
+		final Object start;
+		final Object end;
+		final boolean vehicle;
+		final Priority priority;
+		final long seq;
+		final long key;
+		final long submitNanos;
+		final List<Consumer<List<?>>> callbacks = new ArrayList<>(1);
+		List<?> path;
+		/**
+		 * 寻路开始前的地图版本  不是寻路得到的路径(缓存、流场)为-1
+		 */
+		int mapVersion = -1;
+
+		Request(Object start,Object end,boolean vehicle,Priority priority,long seq,long key) {
+			this.start = start;
+			this.end = end;
+			this.vehicle = vehicle;
+			this.priority = priority;
+			this.seq = seq;
+			this.key = key;
+			this.submitNanos = System.nanoTime();
+		}
+
+		@Override
+		public void run() {
+			try {
+				mapVersion = PathCache.getInstance().getVersion();
+				if(vehicle) {
+					path = XunLuBeanAdapter.getInstance().xunlu((CenterPoint)start, (CenterPoint)end);
+				}else {
+					path = SOLDIER_XUNLU.get().xunlu((LittleCenterPoint)start, (LittleCenterPoint)end);
+				}
+			}catch (Exception e) {
+				e.printStackTrace();
+			}finally {
+				solved(this);
+			}
+		}
+
+		/**
+		 * 交给第index个回调的路径  同一个结果交给多个单位时各给一份,单位会修改自己的路径
+		 */
+		List<?> pathFor(int index) {
+			return index>0 && path!=null ? new ArrayList<>(path) : path;
+		}
+
+		@Override
+		public int compareTo(Request o) {
+			if(priority!=o.priority) {
+				return priority.ordinal()<o.priority.ordinal() ? -1 : 1;
+			}
+			return Long.compare(seq, o.seq);
+		}
+	}
+
+	/**
+	 * 群体移动命令的流场请求  寻路线程建流场(或取流场缓存),再按流场给每个单位分一条路径
+	 * 第i个回调拿到第i个起点的路径,走不到目标区域时为null
+	 */
+	private class FlowRequest extends Request {
+		final List<?> starts;
+		final int[] goals;
+		List<? extends List<?>> paths;
+
+		FlowRequest(List<?> starts,int[] goals,boolean vehicle,Priority priority,long seq) {
+			super(null, null, vehicle, priority, seq, -1);
+			this.starts = starts;
+			this.goals = goals;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				FlowField field = FlowField.obtain(vehicle, goals);
+				if(vehicle) {
+					paths = field.vehiclePaths((List<CenterPoint>)starts);
+				}else {
+					paths = field.soldierPaths((List<LittleCenterPoint>)starts);
+				}
+			}catch (Exception e) {
+				e.printStackTrace();
+			}finally {
+				solved(this);
+			}
+		}
+
+		@Override
+		List<?> pathFor(int index) {
+			return paths==null ? null : paths.get(index);
+		}
+	}
+
+	/**
+	 * 寻路线程各自的步兵寻路实例  不和其他线程争用缓存池
+	 */
+	private static final ThreadLocal<SoldierXunLuAdapter> SOLDIER_XUNLU = new ThreadLocal<SoldierXunLuAdapter>() {
+		@Override
+		protected SoldierXunLuAdapter initialValue() {
+			return new SoldierXunLuAdapter();
+		}
+	};
+
+	private final ThreadPoolExecutor executor;
+	private final int threads;
+
+	/**
+	 * 以下字段由this同步
+	 * pending  还没交付的请求(按起点终点去重)
+	 * parked   逻辑帧计算过程中提交、等本逻辑帧结束再交给寻路线程的请求
+	 * solvedList  已经算完、等待交付的请求
+	 * unsolved 已交给寻路线程还没算完的请求数
+	 */
+	private final Map<Long,Request> pending = new HashMap<>();
+	private final List<Request> parked = new ArrayList<>();
+	private final List<Request> solvedList = new ArrayList<>();
+	private int unsolved = 0;
+	private boolean inTick = false;
+	private long nextSeq = 0;
+	/**
+	 * 逻辑帧开始时是否等所有请求算完  见setWaitForSolved
+	 */
+	private volatile boolean waitForSolved = false;
+
+	/**
+	 * 交付用  只有逻辑线程访问
+	 */
+	private final List<Request> delivering = new ArrayList<>();
+
+	/** 统计数据 */
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private int latencyCount = 0;
+	private volatile long solvedTotal = 0;
+	private volatile long dedupedTotal = 0;
+	private volatile long cachedTotal = 0;
+	private volatile long deliveredTotal = 0;
+	private long rateWindowStart = System.nanoTime();
+	private long rateWindowSolved = 0;
+	private volatile double solvedPerSecond = 0;
+
+	/**
+	 * @param threads 寻路线程数
+	 */
+	public PathService(int threads) {
+		this.threads = Math.max(1, threads);
+		this.executor = new ThreadPoolExecutor(this.threads, this.threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), r -> {
+			Thread thread = new Thread(r, "寻路线程");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 请求载具路径
+	 * @param callback 算完后的逻辑帧开始时在逻辑线程上调用,找不到路时参数为null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void requestVehiclePath(CenterPoint start,CenterPoint end,Priority priority,Consumer<List<CenterPoint>> callback) {
+		submit(start, end, true, XunLuBean3.cellId(start.getX(), start.getY()), XunLuBean3.cellId(end.getX(), end.getY()), priority, (Consumer)callback);
+	}
+
+	/**
+	 * 请求步兵路径
+	 * @param callback 算完后的逻辑帧开始时在逻辑线程上调用,找不到路时参数为null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void requestSoldierPath(LittleCenterPoint start,LittleCenterPoint end,Priority priority,Consumer<List<LittleCenterPoint>> callback) {
+		submit(start, end, false, FlowField.littleCellId(start), FlowField.littleCellId(end), priority, (Consumer)callback);
+	}
+
+	/**
+	 * @param startId 起点编号  载具用XunLuBean3.cellId,步兵用FlowField.littleCellId,不在地图上时为-1
+	 * @param endId 终点编号  同startId
+	 */
+	private void submit(Object start,Object end,boolean vehicle,int startId,int endId,Priority priority,Consumer<List<?>> callback) {
+		//起点终点编号和类型拼成一个long(拼法与PathCache的键相同)  编号先加1,不在地图上的-1也能放进去,键都是非负数
+		long key = (long)(startId+1)<<32 | (long)(endId+1)<<1 | (vehicle ? 1 : 0);
+		Request request;
+		synchronized (this) {
+			request = pending.get(key);
+			if(request!=null) {
+				request.callbacks.add(callback);
+				dedupedTotal++;
+				return;
+			}
+			request = new Request(start, end, vehicle, priority, nextSeq++, key);
+			request.callbacks.add(callback);
+			pending.put(key, request);
+			if(inTick) {
+				parked.add(request);
+				return;
+			}
+			if(fromCache(request)) {
+				solvedList.add(request);
+				return;
+			}
+			unsolved++;
+		}
+		executor.execute(request);
+	}
+
+	/**
+	 * 请求一组载具按流场移动的路径
+	 * @param starts 各载具所在的中心点
+	 * @param goalIds 目标区域(XunLuBean3.cellId)
+	 * @param callbacks 与starts一一对应  算完后的逻辑帧开始时在逻辑线程上调用,走不到目标区域时参数为null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void requestVehicleFlowPaths(List<CenterPoint> starts,int[] goalIds,Priority priority,List<Consumer<List<CenterPoint>>> callbacks) {
+		submitFlow(starts, goalIds, true, priority, (List)callbacks);
+	}
+
+	/**
+	 * 请求一组步兵按流场移动的路径
+	 * @param starts 各步兵新路径的起点(Soldier.getPathStart)
+	 * @param goalIds 目标区域(FlowField.littleCellId)
+	 * @param callbacks 与starts一一对应  算完后的逻辑帧开始时在逻辑线程上调用,走不到目标区域时参数为null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void requestSoldierFlowPaths(List<LittleCenterPoint> starts,int[] goalIds,Priority priority,List<Consumer<List<LittleCenterPoint>>> callbacks) {
+		submitFlow(starts, goalIds, false, priority, (List)callbacks);
+	}
+
+	/**
+	 * 流场请求不去重、不用路径缓存(流场有自己的缓存),其他同寻路请求
+	 */
+	private void submitFlow(List<?> starts,int[] goalIds,boolean vehicle,Priority priority,List<Consumer<List<?>>> callbacks) {
+		Request request;
+		synchronized (this) {
+			request = new FlowRequest(new ArrayList<>(starts), goalIds.clone(), vehicle, priority, nextSeq++);
+			request.callbacks.addAll(callbacks);
+			if(inTick) {
+				parked.add(request);
+				return;
+			}
+			unsolved++;
+		}
+		executor.execute(request);
+	}
+
+	/**
+	 * 从路径缓存取路径  取到时请求不用再交给寻路线程
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean fromCache(Request request) {
+		PathCache cache = PathCache.getInstance();
+		if(request.vehicle) {
+			request.path = cache.getVehiclePath((CenterPoint)request.start, (CenterPoint)request.end);
+		}else {
+			request.path = cache.getSoldierPath((LittleCenterPoint)request.start, (LittleCenterPoint)request.end);
+		}
+		if(request.path!=null) {
+			cachedTotal++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 寻路得到的路径放入缓存  要在交给单位之前放入,单位会修改路径
+	 */
+	@SuppressWarnings("unchecked")
+	private void toCache(Request request) {
+		if(request.mapVersion<0 || request.path==null) {
+			return;
+		}
+		PathCache cache = PathCache.getInstance();
+		if(request.vehicle) {
+			cache.putVehiclePath((CenterPoint)request.start, (CenterPoint)request.end, (List<CenterPoint>)request.path, request.mapVersion);
+		}else {
+			cache.putSoldierPath((LittleCenterPoint)request.start, (LittleCenterPoint)request.end, (List<LittleCenterPoint>)request.path, request.mapVersion);
+		}
+	}
+
+	private void solved(Request request) {
+		synchronized (this) {
+			solvedList.add(request);
+			unsolved--;
+			solvedTotal++;
+			if(unsolved==0) {
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * 逻辑帧开始  交付已经算完的请求,按提交次序调用回调,还没算完的留到之后的逻辑帧
+	 * 之后提交的请求暂存到endTick()
+	 * 只能由逻辑线程调用
+	 */
+	public void beginTick() {
+		synchronized (this) {
+			if(waitForSolved) {
+				awaitSolved();
+			}
+			inTick = true;
+			delivering.addAll(solvedList);
+			solvedList.clear();
+			for(Request request:delivering) {
+				pending.remove(request.key, request);
+			}
+		}
+		long now = System.nanoTime();
+		updateRate(now);
+		if(delivering.isEmpty()) {
+			return;
+		}
+		Collections.sort(delivering, (a, b) -> Long.compare(a.seq, b.seq));
+		for(Request request:delivering) {
+			recordLatency(now-request.submitNanos);
+			toCache(request);
+			for(int i=0;i<request.callbacks.size();i++) {
+				try {
+					request.callbacks.get(i).accept(request.pathFor(i));
+				}catch (Exception e) {
+					e.printStackTrace();
+				}
+				deliveredTotal++;
+			}
+		}
+		delivering.clear();
+	}
+
+	/**
+	 * 逻辑帧结束  把本逻辑帧中暂存的请求交给寻路线程
+	 * 只能由逻辑线程调用
+	 */
+	public void endTick() {
+		List<Request> dispatch;
+		synchronized (this) {
+			inTick = false;
+			if(parked.isEmpty()) {
+				return;
+			}
+			dispatch = new ArrayList<>(parked.size());
+			for(Request request:parked) {
+				if(!(request instanceof FlowRequest) && fromCache(request)) {
+					solvedList.add(request);
+				}else {
+					dispatch.add(request);
+				}
+			}
+			unsolved += dispatch.size();
+			parked.clear();
+		}
+		for(Request request:dispatch) {
+			executor.execute(request);
+		}
+	}
+
+	/**
+	 * 等已交给寻路线程的请求都算完  调用方持有this的锁
+	 */
+	private void awaitSolved() {
+		boolean interrupted = false;
+		while(unsolved>0) {
+			try {
+				wait();
+			}catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 等所有已提交的请求算完并交付  不在逻辑帧中时使用(例如测试时切换场景)
+	 */
+	public void flush() {
+		synchronized (this) {
+			awaitSolved();
+		}
+		beginTick();
+		endTick();
+	}
+
+	/**
+	 * 逻辑帧开始时是否等所有请求算完再交付
+	 * 默认不等,寻路结果到达的逻辑帧与寻路线程的快慢有关;测试比较多次运行的结果时打开
+	 */
+	public void setWaitForSolved(boolean waitForSolved) {
+		this.waitForSolved = waitForSolved;
+	}
+
+	private synchronized void recordLatency(long nanos) {
+		latencies[latencyCount%LATENCY_SAMPLES] = nanos;
+		latencyCount++;
+	}
+
+	private void updateRate(long now) {
+		long elapsed = now-rateWindowStart;
+		if(elapsed>=1000000000L) {
+			long solved = solvedTotal;
+			solvedPerSecond = (solved-rateWindowSolved)*1000000000.0/elapsed;
+			rateWindowSolved = solved;
+			rateWindowStart = now;
+		}
+	}
+
+	/**
+	 * 还没算完的请求数(包括暂存的)
+	 */
+	public synchronized int getQueueDepth() {
+		return unsolved+parked.size();
+	}
+
+	/**
+	 * 最近请求从提交到交付的延迟(毫秒)
+	 * @param percentile 0~100
+	 */
+	public synchronized double getLatencyPercentile(double percentile) {
+		int n = Math.min(latencyCount, LATENCY_SAMPLES);
+		if(n==0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, n);
+		Arrays.sort(sorted);
+		int index = (int)Math.ceil(percentile/100*n)-1;
+		return sorted[Math.min(Math.max(index, 0), n-1)]/1000000.0;
+	}
+
+	/**
+	 * 最近一秒多的寻路速度(次/秒)
+	 */
+	public double getSolvedPerSecond() {
+		return solvedPerSecond;
+	}
+
+	public long getSolvedTotal() {
+		return solvedTotal;
+	}
+	public long getDedupedTotal() {
+		return dedupedTotal;
+	}
+	public long getCachedTotal() {
+		return cachedTotal;
+	}
+	public long getDeliveredTotal() {
+		return deliveredTotal;
+	}
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public String getStatistics() {
+		return String.format("寻路: %d线程, 队列=%d, 已算=%d, 去重=%d, 取缓存=%d, %.1f次/秒, 延迟p50=%.2f ms p95=%.2f ms p99=%.2f ms; %s",
+				threads, getQueueDepth(), solvedTotal, dedupedTotal, cachedTotal, solvedPerSecond,
+				getLatencyPercentile(50), getLatencyPercentile(95), getLatencyPercentile(99),
+				PathCache.getInstance().getStatistics());
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,191 @@
+package redAlert.task;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utilBean.DiamondGrid;
+
+/**
+ * 逻辑帧意图阶段的并行执行器
+ *
+ * 把要计算的单位按所在的地图区域分组(同一区域内保持原来的次序),
+ * 再按区域把单位序列对半拆成ForkJoin任务,一个叶子任务在一个线程上顺序计算一段相邻区域的单位
+ * 相邻的单位大多读写相同的格子,放在同一个线程上算缓存命中更好
+ *
+ * 叶子任务把格子占用、伤害等意图记在自己的缓冲里,由TickCommit在提交阶段统一结算
+ * 线程数为1时不创建线程池,直接在调用线程上计算,用来和多线程比较
+ */
+public class RegionTickExecutor {
+
+	/**
+	 * 区域大小(像素)  8x8个中心点
+	 */
+	private static final int REGION_WIDTH = 480;
+	private static final int REGION_HEIGHT = 240;
+	/**
+	 * 叶子任务最多计算的单位数
+	 */
+	private static final int LEAF_UNITS = 32;
+
+	private final int parallelism;
+	private final ForkJoinPool pool;
+	private final TickCommit tickCommit;
+	/**
+	 * 区域的列数、行数  按中心点网格的大小(网格建立后地图大小不再改变)
+	 */
+	private final int regionColumns;
+	private final int regionRows;
+	private final int regionCount;
+
+	/**
+	 * 按区域排好的单位次序  以及每个单位所在的区域
+	 */
+	private int[] sorted = new int[256];
+	private int[] regionOf = new int[256];
+	private final int[] regionStart;
+
+	/** 本轮计算用的参数  计算线程只读 */
+	private List<ShapeUnit> units;
+	private int frames;
+
+	public RegionTickExecutor(int parallelism,TickCommit tickCommit) {
+		this.parallelism = Math.max(1, parallelism);
+		this.pool = this.parallelism>1 ? new ForkJoinPool(this.parallelism) : null;
+		this.tickCommit = tickCommit;
+		this.regionColumns = (DiamondGrid.COLUMNS*30+REGION_WIDTH-1)/REGION_WIDTH;
+		this.regionRows = (DiamondGrid.ROWS*15+REGION_HEIGHT-1)/REGION_HEIGHT;
+		this.regionCount = regionColumns*regionRows;
+		this.regionStart = new int[regionCount+1];
+	}
+
+	/**
+	 * 意图阶段  计算units中下标为indexes[0,count)的单位,每个推进frames个游戏帧
+	 * 意图的次序就是单位的下标
+	 */
+	public void execute(List<ShapeUnit> units,int[] indexes,int count,int frames) {
+		if(count==0) {
+			return;
+		}
+		this.units = units;
+		this.frames = frames;
+		partition(indexes, count);
+		RegionTask task = new RegionTask(0, count);
+		if(pool==null) {
+			task.compute();
+		}else {
+			pool.invoke(task);
+		}
+		this.units = null;
+	}
+
+	/**
+	 * 按区域计数排序  同一区域内保持下标次序
+	 */
+	private void partition(int[] indexes,int count) {
+		if(sorted.length<count) {
+			sorted = new int[Math.max(count, sorted.length*2)];
+			regionOf = new int[sorted.length];
+		}
+		Arrays.fill(regionStart, 0);
+		for(int i=0;i<count;i++) {
+			ShapeUnit shp = units.get(indexes[i]);
+			int region = regionOf(shp.getPositionX()+shp.getCenterOffX(), shp.getPositionY()+shp.getCenterOffY());
+			regionOf[i] = region;
+			regionStart[region+1]++;
+		}
+		for(int r=0;r<regionCount;r++) {
+			regionStart[r+1] += regionStart[r];
+		}
+		int[] next = Arrays.copyOf(regionStart, regionCount);
+		for(int i=0;i<count;i++) {
+			sorted[next[regionOf[i]]++] = indexes[i];
+		}
+		//regionOf改为按排好的次序存放,拆分任务时找区域边界用
+		for(int r=0;r<regionCount;r++) {
+			Arrays.fill(regionOf, regionStart[r], regionStart[r+1], r);
+		}
+	}
+
+	private int regionOf(int x,int y) {
+		int column = Math.min(Math.max(x, 0)/REGION_WIDTH, regionColumns-1);
+		int row = Math.min(Math.max(y, 0)/REGION_HEIGHT, regionRows-1);
+		return row*regionColumns+column;
+	}
+
+	/**
+	 * 计算sorted[from,to)的单位
+	 */
+	private class RegionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		RegionTask(int from,int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to-from<=LEAF_UNITS || pool==null) {
+				computeLeaf();
+				return;
+			}
+			int mid = splitPoint();
+			invokeAll(new RegionTask(from, mid), new RegionTask(mid, to));
+		}
+
+		/**
+		 * 拆分点  尽量选在离中间最近的区域边界上,整段都在一个区域时从中间拆
+		 */
+		private int splitPoint() {
+			int mid = (from+to)>>>1;
+			int region = regionOf[mid];
+			int left = mid;
+			while(left>from && regionOf[left-1]==region) {
+				left--;
+			}
+			int right = mid;
+			while(right<to && regionOf[right]==region) {
+				right++;
+			}
+			boolean leftInside = left>from;
+			boolean rightInside = right<to;
+			if(leftInside && (!rightInside || mid-left<=right-mid)) {
+				return left;
+			}
+			return rightInside ? right : mid;
+		}
+
+		private void computeLeaf() {
+			TickCommit.Collector collector = tickCommit.newCollector();
+			TickCommit.bind(collector);
+			try {
+				for(int i=from;i<to;i++) {
+					int index = sorted[i];
+					collector.begin(index);
+					try {
+						GameLoop.advanceFrames(units.get(index), frames);
+					}catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}finally {
+				TickCommit.unbind();
+			}
+		}
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void shutdown() {
+		if(pool!=null) {
+			pool.shutdown();
+		}
+	}
+}
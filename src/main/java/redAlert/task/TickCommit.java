@@ -0,0 +1,364 @@
+package redAlert.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import redAlert.other.OneDamage;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.shapeObjects.Vehicle.EngineStatus;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.LittleCenterPoint;
+
+/**
+ * 逻辑帧的提交阶段
+ *
+ * 逻辑帧分两个阶段：
+ *   意图阶段  各区域的单位在计算线程上并行计算,只改自己的字段;要改格子占用、造成伤害、生成新单位时只记下一条意图
+ *   提交阶段  逻辑线程把所有意图按(单位在本帧中的次序,意图的先后)排好,逐条结算
+ * 意图阶段读到的格子状态都是上一帧提交后的状态,提交的次序与线程数和区域划分无关,所以同样的输入每次结果相同
+ *
+ * 单位调用这里的静态方法代替直接修改格子：
+ * 在意图阶段的计算线程上调用时记为意图,在其他线程(鼠标事件、出兵等)上调用时立即执行,和以前一样
+ *
+ * 预约冲突：同一帧两辆载具预约同一个格子时,次序在前的成功,次序在后的退回预约前的位置,原地等待下一帧
+ * 为了能退回,载具预约成功后本逻辑帧不再继续计算
+ */
+public class TickCommit {
+
+	/**
+	 * 意图类型
+	 */
+	enum IntentType{
+		AddVehicle,RemoveUnit,AddSoldier,AddBook,ExitBook,EngineStatus,Damage,Action
+	}
+
+	/**
+	 * 一条意图
+	 */
+	static class Intent {
+		IntentType type;
+		/**
+		 * 单位在本逻辑帧中的次序
+		 */
+		int order;
+		/**
+		 * 同一区域内记录的先后
+		 */
+		int seq;
+		ShapeUnit unit;
+		CenterPoint cp;
+		LittleCenterPoint lcp;
+		EngineStatus engineStatus;
+		OneDamage damage;
+		Runnable action;
+		/**
+		 * 预约前的位置  预约失败时退回
+		 */
+		int rollbackX,rollbackY;
+	}
+
+	private static final Comparator<Intent> COMMIT_ORDER = new Comparator<Intent>() {
+		@Override
+		public int compare(Intent a, Intent b) {
+			if(a.order!=b.order) {
+				return a.order<b.order ? -1 : 1;
+			}
+			return a.seq<b.seq ? -1 : (a.seq==b.seq ? 0 : 1);
+		}
+	};
+
+	/**
+	 * 一个区域任务的意图缓冲  只有一个计算线程使用
+	 */
+	static class Collector {
+		final List<Intent> intents = new ArrayList<Intent>();
+		int order;
+		int seq;
+		/**
+		 * 当前单位已经提交了预约  本逻辑帧不再计算
+		 */
+		boolean suspended;
+
+		/**
+		 * 开始计算第order个单位
+		 */
+		void begin(int order) {
+			this.order = order;
+			this.suspended = false;
+		}
+
+		Intent add(IntentType type,ShapeUnit unit) {
+			Intent intent = new Intent();
+			intent.type = type;
+			intent.order = order;
+			intent.seq = seq++;
+			intent.unit = unit;
+			intents.add(intent);
+			return intent;
+		}
+	}
+
+	/**
+	 * 当前线程正在使用的意图缓冲  不在意图阶段时为null
+	 */
+	private static final ThreadLocal<Collector> CURRENT = new ThreadLocal<Collector>();
+
+	/**
+	 * 本逻辑帧各区域任务的缓冲  区域任务可能在不同线程上创建
+	 */
+	private final List<Collector> collectors = new ArrayList<Collector>();
+	private final List<Intent> merged = new ArrayList<Intent>();
+	private final DamageSystem damageSystem = DamageSystem.getInstance();
+
+	/** 统计数据 */
+	private int lastIntentCount = 0;
+	private int lastBookConflicts = 0;
+	private long bookConflicts = 0;
+
+	/**
+	 * 创建一个区域任务的缓冲
+	 */
+	Collector newCollector() {
+		Collector collector = new Collector();
+		synchronized (collectors) {
+			collectors.add(collector);
+		}
+		return collector;
+	}
+
+	static void bind(Collector collector) {
+		CURRENT.set(collector);
+	}
+
+	static void unbind() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * 当前线程是否处在意图阶段
+	 */
+	public static boolean isCollecting() {
+		return CURRENT.get()!=null;
+	}
+
+	/**
+	 * 当前单位是否已经提交了预约  是则本逻辑帧不再计算它
+	 */
+	static boolean isCurrentUnitSuspended() {
+		Collector collector = CURRENT.get();
+		return collector!=null && collector.suspended;
+	}
+
+	/**
+	 * 载具进入格子
+	 */
+	public static void addVehicle(CenterPoint cp,Vehicle vehicle) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			cp.addVehicle(vehicle);
+		}else {
+			collector.add(IntentType.AddVehicle, vehicle).cp = cp;
+		}
+	}
+
+	/**
+	 * 单位离开格子
+	 */
+	public static void removeUnit(CenterPoint cp,ShapeUnit unit) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			cp.removeUnit(unit);
+		}else {
+			collector.add(IntentType.RemoveUnit, unit).cp = cp;
+		}
+	}
+
+	/**
+	 * 步兵进入格子和小中心点
+	 */
+	public static void addSoldier(CenterPoint cp,LittleCenterPoint lcp,Soldier soldier) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			cp.addSoldier(soldier);
+			lcp.soldier = soldier;
+		}else {
+			Intent intent = collector.add(IntentType.AddSoldier, soldier);
+			intent.cp = cp;
+			intent.lcp = lcp;
+		}
+	}
+
+	/**
+	 * 载具申请预约格子
+	 * 意图阶段按上一帧提交后的状态判断,没被预约就先当作成功,由提交阶段裁决
+	 * @return true表示申请通过(或暂时通过)
+	 */
+	public static boolean addBook(CenterPoint cp,Vehicle vehicle) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			return cp.addBook(vehicle);
+		}
+		if(cp.isBooked()) {
+			return false;
+		}
+		Intent intent = collector.add(IntentType.AddBook, vehicle);
+		intent.cp = cp;
+		intent.rollbackX = vehicle.getPositionX();
+		intent.rollbackY = vehicle.getPositionY();
+		collector.suspended = true;
+		return true;
+	}
+
+	/**
+	 * 载具释放预约
+	 */
+	public static void exitBook(CenterPoint cp,Vehicle vehicle) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			cp.exitBook(vehicle);
+		}else {
+			collector.add(IntentType.ExitBook, vehicle).cp = cp;
+		}
+	}
+
+	/**
+	 * 修改载具的发动机状态
+	 * 别的载具寻路和让路时会看这个状态,所以也等到提交阶段再改
+	 */
+	public static void setEngineStatus(Vehicle vehicle,EngineStatus engineStatus) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			vehicle.setEngineStatus(engineStatus);
+		}else {
+			collector.add(IntentType.EngineStatus, vehicle).engineStatus = engineStatus;
+		}
+	}
+
+	/**
+	 * 造成一次伤害
+	 * 意图阶段造成的伤害按意图次序记下,其他线程造成的伤害放入DamageSystem的队列,都在提交阶段末尾一起结算
+	 */
+	public static void damage(OneDamage damage) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			DamageSystem.getInstance().submit(damage);
+		}else {
+			collector.add(IntentType.Damage, damage.victim).damage = damage;
+		}
+	}
+
+	/**
+	 * 其他会改共享数据的操作(生成单位、移除建筑、展开基地车等)  意图阶段推迟到提交阶段执行
+	 */
+	public static void defer(Runnable action) {
+		Collector collector = CURRENT.get();
+		if(collector==null) {
+			action.run();
+		}else {
+			collector.add(IntentType.Action, null).action = action;
+		}
+	}
+
+	/**
+	 * 提交阶段  按次序结算本逻辑帧的所有意图,最后一起结算本逻辑帧的伤害  只能由逻辑线程在意图阶段结束后调用
+	 */
+	void commit() {
+		merged.clear();
+		synchronized (collectors) {
+			for(Collector collector:collectors) {
+				merged.addAll(collector.intents);
+			}
+			collectors.clear();
+		}
+		Collections.sort(merged, COMMIT_ORDER);
+
+		int conflicts = 0;
+		int rejectedOrder = -1;
+		for(int i=0;i<merged.size();i++) {
+			Intent intent = merged.get(i);
+			if(intent.order==rejectedOrder) {
+				continue;//预约失败的单位  预约之后的意图作废
+			}
+			try {
+				if(!apply(intent)) {
+					rejectedOrder = intent.order;
+					conflicts++;
+				}
+			}catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		lastIntentCount = merged.size();
+		lastBookConflicts = conflicts;
+		bookConflicts += conflicts;
+		merged.clear();
+		try {
+			damageSystem.resolve();
+		}catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * 结算一条意图
+	 * @return false表示预约失败
+	 */
+	private boolean apply(Intent intent) {
+		switch (intent.type) {
+		case AddVehicle:
+			intent.cp.addVehicle((Vehicle)intent.unit);
+			break;
+		case RemoveUnit:
+			//同一帧别的载具可能已经进入了这个格子  只移除自己
+			if(!(intent.unit instanceof Vehicle) || intent.cp.getVehicle()==intent.unit) {
+				intent.cp.removeUnit(intent.unit);
+			}
+			break;
+		case AddSoldier:
+			intent.cp.addSoldier((Soldier)intent.unit);
+			intent.lcp.soldier = (Soldier)intent.unit;
+			break;
+		case AddBook:
+			Vehicle vehicle = (Vehicle)intent.unit;
+			if(!intent.cp.addBook(vehicle)) {
+				//退回预约前的位置,和没预约上时一样原地等待
+				int dx = vehicle.getPositionX()-intent.rollbackX;
+				int dy = vehicle.getPositionY()-intent.rollbackY;
+				vehicle.setPositionX(intent.rollbackX);
+				vehicle.setPositionY(intent.rollbackY);
+				vehicle.setPositionMinX(vehicle.getPositionMinX()-dx);
+				vehicle.setPositionMinY(vehicle.getPositionMinY()-dy);
+				vehicle.setNextTarget(vehicle.getCurCenterPoint());
+				return false;
+			}
+			break;
+		case ExitBook:
+			intent.cp.exitBook((Vehicle)intent.unit);
+			break;
+		case EngineStatus:
+			((Vehicle)intent.unit).setEngineStatus(intent.engineStatus);
+			break;
+		case Damage:
+			damageSystem.record(intent.damage);
+			break;
+		case Action:
+			intent.action.run();
+			break;
+		}
+		return true;
+	}
+
+	public int getLastIntentCount() {
+		return lastIntentCount;
+	}
+	public int getLastBookConflicts() {
+		return lastBookConflicts;
+	}
+	public long getBookConflicts() {
+		return bookConflicts;
+	}
+}
@@ -0,0 +1,262 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import redAlert.SysConfig;
+import redAlert.other.BloodBar;
+import redAlert.other.OneDamage;
+import redAlert.shapeObjects.Attackable;
+import redAlert.shapeObjects.Building;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.task.DamageSystem;
+import redAlert.task.DamageSystem.DamageListener;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.SpatialHash;
+
+/**
+ * 伤害结算测试
+ *
+ * 地图上随机放置若干建筑,每个逻辑帧随机造成单体伤害和范围伤害,用DamageSystem结算,与遍历全部建筑逐条计算的参照结果比较：
+ *   1 顺序提交  每帧结束后各建筑的血量、被摧毁的建筑相同;同样的输入结算两次,摧毁通知的次序相同
+ *   2 多个线程同时提交  不阻塞、不丢伤害,结算后血量、被摧毁的建筑与参照结果相同
+ *   3 每帧结算的耗时  DamageSystem与遍历全部建筑计算范围伤害比较
+ *
+ * 参数(都可省略)：
+ *   建筑数 逻辑帧数 每帧伤害数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.DamageBenchmark 3000 100 100
+ */
+public class DamageBenchmark {
+
+	/**
+	 * 测试用的血条  不绘制
+	 */
+	private static class BenchBloodBar extends BloodBar {
+		@Override
+		public void rePaintBloodBar() {}
+		@Override
+		public int calCurBloodNum() {
+			return 0;
+		}
+		@Override
+		public void calculateNextFrame() {}
+	}
+
+	/**
+	 * 测试用的建筑  不加载图片
+	 */
+	private static class BenchBuilding extends Building {
+		BenchBuilding(int hp) {
+			super.bloodBar = new BenchBloodBar();
+			bloodBar.maxHp = hp;
+			bloodBar.curHp = hp;
+		}
+		@Override
+		public List<CenterPoint> getNoConstCpList() {
+			return Collections.emptyList();
+		}
+		@Override
+		public List<CenterPoint> getNoVehicleCpList() {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * 一个测试世界  建筑、空间哈希、伤害结算
+	 */
+	private static class World {
+		final List<BenchBuilding> buildings = new ArrayList<>();
+		final SpatialHash hash = new SpatialHash(SysConfig.gameMapWidth, SysConfig.gameMapHeight);
+		final DamageSystem system = new DamageSystem(hash);
+		final List<Integer> destroyedOrder = new ArrayList<>();
+
+		World(int count,long seed) {
+			Random random = new Random(seed);
+			for(int i=0;i<count;i++) {
+				BenchBuilding building = new BenchBuilding(500+random.nextInt(2500));
+				building.centerOffX = 60;
+				building.centerOffY = 40;
+				building.positionX = random.nextInt(SysConfig.gameMapWidth)-building.centerOffX;
+				building.positionY = random.nextInt(SysConfig.gameMapHeight)-building.centerOffY;
+				building.setUnitNo(i);
+				buildings.add(building);
+				hash.add(building);
+			}
+			system.addListener(new DamageListener() {
+				@Override
+				public void damaged(ShapeUnit victim, int amount) {}
+				@Override
+				public void destroyed(ShapeUnit victim, Attackable killer) {
+					victim.setEnd(true);
+					hash.remove(victim);
+					destroyedOrder.add(victim.getUnitNo());
+				}
+			});
+		}
+
+		/**
+		 * 按伤害的描述生成OneDamage  范围伤害的描述里没有目标
+		 */
+		OneDamage toDamage(int[] d) {
+			if(d[0]<0) {
+				return new OneDamage(null, null, d[1], d[2], d[3], d[4]);
+			}
+			return new OneDamage(null, null, buildings.get(d[0]), d[4]);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		int count = args.length>0 ? Integer.parseInt(args[0]) : 3000;
+		int ticks = args.length>1 ? Integer.parseInt(args[1]) : 100;
+		int perTick = args.length>2 ? Integer.parseInt(args[2]) : 100;
+
+		Random random = new Random(24);
+		List<int[][]> plan = new ArrayList<>();
+		for(int t=0;t<ticks;t++) {
+			int[][] tick = new int[perTick][];
+			for(int i=0;i<perTick;i++) {
+				if(random.nextInt(5)==0) {
+					tick[i] = new int[] {-1, random.nextInt(SysConfig.gameMapWidth), random.nextInt(SysConfig.gameMapHeight), 50+random.nextInt(200), 20+random.nextInt(100)};
+				}else {
+					tick[i] = new int[] {random.nextInt(count), 0, 0, 0, 10+random.nextInt(100)};
+				}
+			}
+			plan.add(tick);
+		}
+
+		World first = new World(count, 1);
+		World second = new World(count, 1);
+		World concurrent = new World(count, 1);
+		List<BenchBuilding> refBuildings = new World(count, 1).buildings;
+		int[] reference = initialHp(refBuildings);
+		boolean[] refDestroyed = new boolean[count];
+		int mismatched = 0;
+		int destroyed = 0;
+		for(int[][] tick:plan) {
+			submit(first, tick);
+			first.system.resolve();
+			submit(second, tick);
+			second.system.resolve();
+			submitConcurrently(concurrent, tick, 4);
+			concurrent.system.resolve();
+			destroyed += referenceTick(refBuildings, reference, refDestroyed, tick);
+
+			for(int i=0;i<count;i++) {
+				if(hp(first.buildings, i)!=reference[i] || first.buildings.get(i).isEnd()!=refDestroyed[i]
+						|| hp(concurrent.buildings, i)!=reference[i] || concurrent.buildings.get(i).isEnd()!=refDestroyed[i]) {
+					mismatched++;
+				}
+			}
+		}
+		System.out.printf("%d个建筑, %d帧, 每帧%d次伤害: 摧毁 %d, 与参照结果不一致 %d, 两次结算摧毁通知次序%s, 未结算 %d%n",
+				count, ticks, perTick, destroyed, mismatched,
+				first.destroyedOrder.equals(second.destroyedOrder) ? "相同" : "不同",
+				first.system.getPendingCount()+concurrent.system.getPendingCount());
+
+		//耗时  前几轮预热,取最后一轮的结果
+		for(int pass=0;pass<5;pass++) {
+			World world = new World(count, 1);
+			List<BenchBuilding> buildings = new World(count, 1).buildings;
+			int[] hp = initialHp(buildings);
+			boolean[] dead = new boolean[count];
+			long systemNanos = 0;
+			long referenceNanos = 0;
+			for(int[][] tick:plan) {
+				long start = System.nanoTime();
+				submit(world, tick);
+				world.system.resolve();
+				systemNanos += System.nanoTime()-start;
+				start = System.nanoTime();
+				referenceTick(buildings, hp, dead, tick);
+				referenceNanos += System.nanoTime()-start;
+			}
+			if(pass==4) {
+				System.out.printf("每帧结算: DamageSystem %.1f µs, 遍历全部建筑 %.1f µs%n",
+						systemNanos/1000.0/ticks, referenceNanos/1000.0/ticks);
+			}
+		}
+	}
+
+	private static void submit(World world,int[][] tick) {
+		for(int[] d:tick) {
+			world.system.submit(world.toDamage(d));
+		}
+	}
+
+	private static int hp(List<BenchBuilding> buildings,int i) {
+		return buildings.get(i).getBloodBar().getCurHp();
+	}
+
+	private static int[] initialHp(List<BenchBuilding> buildings) {
+		int[] hp = new int[buildings.size()];
+		for(int i=0;i<hp.length;i++) {
+			hp[i] = hp(buildings, i);
+		}
+		return hp;
+	}
+
+	/**
+	 * 几个线程同时提交一帧的伤害
+	 */
+	private static void submitConcurrently(final World world,final int[][] tick,int threads) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(threads);
+		for(int t=0;t<threads;t++) {
+			final int offset = t;
+			final int step = threads;
+			new Thread() {
+				public void run() {
+					for(int i=offset;i<tick.length;i+=step) {
+						world.system.submit(world.toDamage(tick[i]));
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		done.await();
+	}
+
+	/**
+	 * 参照结果  每次伤害遍历全部建筑,累计本帧的伤害后扣血
+	 * @return 本帧被摧毁的建筑数
+	 */
+	private static int referenceTick(List<BenchBuilding> buildings,int[] hp,boolean[] destroyed,int[][] tick) {
+		int[] total = new int[hp.length];
+		for(int[] d:tick) {
+			if(d[0]>=0) {
+				if(!destroyed[d[0]]) {
+					total[d[0]] += d[4];
+				}
+				continue;
+			}
+			OneDamage area = new OneDamage(null, null, d[1], d[2], d[3], d[4]);
+			long limit = (long)d[3]*d[3];
+			for(int i=0;i<buildings.size();i++) {
+				long distance = SpatialHash.distanceSquared(buildings.get(i), d[1], d[2]);
+				if(!destroyed[i] && distance<=limit) {
+					int amount = DamageSystem.areaDamage(area, distance);
+					if(amount>0) {
+						total[i] += amount;
+					}
+				}
+			}
+		}
+		int killed = 0;
+		for(int i=0;i<hp.length;i++) {
+			if(total[i]==0 || hp[i]<=0) {
+				continue;
+			}
+			hp[i] -= total[i];
+			if(hp[i]<=0) {
+				destroyed[i] = true;
+				killed++;
+			}
+		}
+		return killed;
+	}
+}
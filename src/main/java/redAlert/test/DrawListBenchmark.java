@@ -0,0 +1,164 @@
+package redAlert.test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utils.DrawList;
+
+/**
+ * 绘制次序排序性能测试
+ *
+ * 比较原来的PriorityQueue(逐个入队再逐个出队)和DrawList(加入、基数排序、顺序遍历)排一帧单位的耗时,
+ * 并逐个核对两者排出的次序按ShapeUnit.compareTo是否一致
+ *
+ * 参数(都可省略)：
+ *   每种单位数的测试帧数  单位少时会自动加大,保证每轮至少排400万个单位
+ * 例如：
+ *   java redAlert.test.DrawListBenchmark 2000
+ */
+public class DrawListBenchmark {
+
+	private static final int[] UNIT_COUNTS = {200, 2000, 20000};
+	private static final int[] PRIORITIES = {48, 50, 50, 50, 51, 55, 60, 70};
+	/**
+	 * 每种单位数每轮至少排这么多个单位
+	 */
+	private static final int MIN_UNITS_PER_RUN = 4000000;
+
+	/**
+	 * 测试用单位  只有排序用到的字段
+	 */
+	static class SortUnit extends ShapeUnit {
+		@Override
+		public void calculateNextFrame() {
+		}
+	}
+
+	public static void main(String[] args) {
+		int frames = args.length>0 ? Integer.parseInt(args[0]) : 1000;
+
+		//位数超过64的大坐标,检查退回归并排序时的次序
+		ShapeUnit[] hugeUnits = newUnits(5000, new Random(7), Integer.MAX_VALUE/4);
+		DrawList checkList = new DrawList(16);
+		System.out.printf("大坐标次序核对: %s, 退回归并排序: %s%n",
+				checkOrder(hugeUnits, checkList) ? "一致" : "不一致", checkList.isLastSortFallback());
+
+		//先把每种单位数都跑一遍让JIT编译完,再正式计时
+		for(int round=0;round<3;round++) {
+			boolean measure = round==2;
+			for(int unitCount:UNIT_COUNTS) {
+				ShapeUnit[] units = newUnits(unitCount, new Random(unitCount), 50*60);
+				DrawList drawList = new DrawList(unitCount);
+				boolean same = checkOrder(units, drawList);
+				//单位少时多跑几帧,否则排序方法还没被JIT编译完就结束了
+				int runFrames = Math.max(frames, MIN_UNITS_PER_RUN/unitCount);
+				for(boolean keepOrder:new boolean[] {false, true}) {
+					long[] nanos = run(units, drawList, runFrames, keepOrder);
+					if(measure) {
+						System.out.printf("单位数 %6d %s: PriorityQueue %9.1f us/帧, DrawList %9.1f us/帧, 加速 %.2fx, 次序%s%n",
+								unitCount, keepOrder ? "按上一帧次序加入" : "随机次序加入    ",
+								nanos[0]/1000.0/runFrames, nanos[1]/1000.0/runFrames,
+								(double)nanos[0]/nanos[1], same ? "一致" : "不一致");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 两种方式各排frames帧  返回两者的总耗时(纳秒)
+	 * keepOrder为true时下一帧按本帧排好的次序加入,和游戏中帧计算线程放回单位的次序一样
+	 */
+	static long[] run(ShapeUnit[] units,DrawList drawList,int frames,boolean keepOrder) {
+		PriorityQueue<ShapeUnit> heap = new PriorityQueue<ShapeUnit>(units.length);
+		long heapNanos = 0, listNanos = 0;
+		long sink = 0;
+		for(int frame=0;frame<frames;frame++) {
+			jitter(units, frame);
+
+			long start = System.nanoTime();
+			for(ShapeUnit unit:units) {
+				heap.offer(unit);
+			}
+			while(!heap.isEmpty()) {
+				sink += heap.poll().positionX;
+			}
+			heapNanos += System.nanoTime()-start;
+
+			start = System.nanoTime();
+			for(ShapeUnit unit:units) {
+				drawList.add(unit);
+			}
+			drawList.sort();
+			for(int i=0;i<drawList.size();i++) {
+				sink -= drawList.get(i).positionX;
+			}
+			listNanos += System.nanoTime()-start;
+			if(keepOrder) {
+				for(int i=0;i<drawList.size();i++) {
+					units[i] = drawList.get(i);
+				}
+			}
+			drawList.clear();
+		}
+		if(sink!=0) {
+			System.out.println("两种方式取到的单位不同");
+		}
+		return new long[] {heapNanos, listNanos};
+	}
+
+	/**
+	 * 生成单位  中心点对齐到菱形网格,同一格子上会有多个单位,可以测到后几个比较字段
+	 */
+	static ShapeUnit[] newUnits(int count,Random random,int mapPixels) {
+		ShapeUnit[] units = new ShapeUnit[count];
+		for(int i=0;i<count;i++) {
+			SortUnit unit = new SortUnit();
+			unit.priority = PRIORITIES[random.nextInt(PRIORITIES.length)];
+			unit.isHided = random.nextInt(20)==0;
+			unit.positionX = random.nextInt(mapPixels/30)*30-60;
+			unit.positionY = random.nextInt(mapPixels/60)*15-30;
+			unit.centerOffX = 60;
+			unit.centerOffY = 30;
+			unit.positionMinX = unit.positionX+random.nextInt(4)*10;
+			unit.positionMinY = unit.positionY+random.nextInt(4)*10;
+			unit.setUnitNo(i);
+			units[i] = unit;
+		}
+		return units;
+	}
+
+	/**
+	 * 每帧让一部分单位移动一格,模拟单位走动
+	 */
+	static void jitter(ShapeUnit[] units,int frame) {
+		for(int i=frame%8;i<units.length;i+=8) {
+			ShapeUnit unit = units[i];
+			int step = (frame/8)%2==0 ? 1 : -1;
+			unit.positionX += step*30;
+			unit.positionMinX += step*30;
+		}
+	}
+
+	/**
+	 * 两种方式排出的次序逐个按compareTo比较  相等的单位可以互换位置
+	 */
+	static boolean checkOrder(ShapeUnit[] units,DrawList drawList) {
+		PriorityQueue<ShapeUnit> heap = new PriorityQueue<ShapeUnit>(units.length);
+		for(ShapeUnit unit:units) {
+			heap.offer(unit);
+			drawList.add(unit);
+		}
+		drawList.sort();
+		boolean same = drawList.size()==units.length;
+		for(int i=0;i<drawList.size();i++) {
+			ShapeUnit expected = heap.poll();
+			if(expected.compareTo(drawList.get(i))!=0) {
+				same = false;
+			}
+		}
+		drawList.clear();
+		return same;
+	}
+}
@@ -0,0 +1,249 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.FlowField;
+import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.SoldierXunLuAdapter;
+import redAlert.utilBean.XunLuBean3;
+import redAlert.utilBean.XunLuBeanAdapter;
+
+/**
+ * 群体移动命令的寻路耗时对比
+ *
+ * 在地图上放一批坦克和步兵,取前N个单位对同一个目标下命令,目标点是离目标最近的N个能进入的点,比较：
+ *   A*     每个单位各自寻路到自己的目标点(以前MoveUtil.move的做法)
+ *   流场   整组算一次流场,每个单位顺着流场走并分到一个目标点
+ *   缓存   再对同一组目标点下一次命令,流场直接从缓存取
+ * 并检查流场得到的路径每一步都是相邻点、终点是目标点且互不相同
+ *
+ * 参数(都可省略)：
+ *   命令次数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.FlowFieldBenchmark 20
+ */
+public class FlowFieldBenchmark {
+
+	private static final int[] GROUP_SIZES = {10, 32, 50, 64, 80, 100, 200};
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int orders = args.length>0 ? Integer.parseInt(args[0]) : 20;
+		int maxGroup = GROUP_SIZES[GROUP_SIZES.length-1];
+
+		TickScalingBenchmark.resetWorld();
+		List<Vehicle> tanks = new ArrayList<>();
+		List<Soldier> soldiers = new ArrayList<>();
+		Random random = new Random(3);
+		TickScalingBenchmark.spawn(random, maxGroup, maxGroup, tanks, soldiers);
+		System.out.printf("命令次数: %d, 坦克: %d, 步兵: %d%n", orders, tanks.size(), soldiers.size());
+
+		List<CenterPoint> inner = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(TickScalingBenchmark.isInner(cp)) {
+				inner.add(cp);
+			}
+		}
+		CenterPoint[] targets = new CenterPoint[orders];
+		for(int i=0;i<orders;i++) {
+			targets[i] = inner.get(random.nextInt(inner.size()));
+		}
+
+		//预热
+		for(int round=0;round<2;round++) {
+			for(CenterPoint target:targets) {
+				vehicleOrder(tanks, maxGroup, target, true, null);
+				soldierOrder(soldiers, maxGroup, target, true, null);
+			}
+		}
+
+		for(int groupSize:GROUP_SIZES) {
+			long[] vehicleNanos = new long[3];
+			long[] soldierNanos = new long[3];
+			int[] invalid = new int[1];
+			for(CenterPoint target:targets) {
+				long[] v = vehicleOrder(tanks, groupSize, target, false, invalid);
+				long[] s = soldierOrder(soldiers, groupSize, target, false, invalid);
+				for(int k=0;k<3;k++) {
+					vehicleNanos[k] += v[k];
+					soldierNanos[k] += s[k];
+				}
+			}
+			System.out.printf("%3d个单位  载具: A* %8.3f ms, 流场 %7.3f ms, 缓存 %7.3f ms  |  步兵: A* %8.3f ms, 流场 %7.3f ms, 缓存 %7.3f ms  |  无效路径 %d%n",
+					groupSize,
+					vehicleNanos[0]/1000000.0/orders, vehicleNanos[1]/1000000.0/orders, vehicleNanos[2]/1000000.0/orders,
+					soldierNanos[0]/1000000.0/orders, soldierNanos[1]/1000000.0/orders, soldierNanos[2]/1000000.0/orders,
+					invalid[0]);
+		}
+	}
+
+	/**
+	 * 一次载具命令
+	 * @return A*、流场、缓存流场的耗时(纳秒)
+	 */
+	static long[] vehicleOrder(List<Vehicle> tanks,int groupSize,CenterPoint target,boolean warmup,int[] invalid) {
+		List<CenterPoint> slots = nearestCells(target, groupSize);
+		long[] nanos = new long[3];
+
+		long start = System.nanoTime();
+		for(int i=0;i<groupSize;i++) {
+			XunLuBeanAdapter.getInstance().xunlu(tanks.get(i).getCurCenterPoint(), slots.get(i));
+		}
+		nanos[0] = System.nanoTime()-start;
+
+		int[] goals = new int[slots.size()];
+		for(int i=0;i<goals.length;i++) {
+			goals[i] = XunLuBean3.cellId(slots.get(i).getX(), slots.get(i).getY());
+		}
+		for(int pass=1;pass<=2;pass++) {
+			if(pass==1) {
+				FlowField.clearCache();
+			}
+			start = System.nanoTime();
+			FlowField field = FlowField.obtain(true, goals);
+			boolean[] claimed = field.newClaimTable();
+			List<List<CenterPoint>> paths = new ArrayList<>();
+			for(int i=0;i<groupSize;i++) {
+				paths.add(field.vehiclePath(tanks.get(i).getCurCenterPoint(), claimed));
+			}
+			nanos[pass] = System.nanoTime()-start;
+			if(!warmup && pass==1) {
+				invalid[0] += checkVehiclePaths(paths, slots);
+			}
+		}
+		return nanos;
+	}
+
+	/**
+	 * 一次步兵命令
+	 * @return A*、流场、缓存流场的耗时(纳秒)
+	 */
+	static long[] soldierOrder(List<Soldier> soldiers,int groupSize,CenterPoint target,boolean warmup,int[] invalid) {
+		List<LittleCenterPoint> slots = nearestLittleCells(target, groupSize);
+		long[] nanos = new long[3];
+
+		long start = System.nanoTime();
+		for(int i=0;i<groupSize;i++) {
+			SoldierXunLuAdapter.getInstance().xunlu(soldiers.get(i).getPathStart(), slots.get(i));
+		}
+		nanos[0] = System.nanoTime()-start;
+
+		int[] goals = new int[slots.size()];
+		for(int i=0;i<goals.length;i++) {
+			goals[i] = FlowField.littleCellId(slots.get(i));
+		}
+		for(int pass=1;pass<=2;pass++) {
+			if(pass==1) {
+				FlowField.clearCache();
+			}
+			start = System.nanoTime();
+			FlowField field = FlowField.obtain(false, goals);
+			boolean[] claimed = field.newClaimTable();
+			List<List<LittleCenterPoint>> paths = new ArrayList<>();
+			for(int i=0;i<groupSize;i++) {
+				paths.add(field.soldierPath(soldiers.get(i).getPathStart(), claimed));
+			}
+			nanos[pass] = System.nanoTime()-start;
+			if(!warmup && pass==1) {
+				invalid[0] += checkSoldierPaths(paths, slots);
+			}
+		}
+		return nanos;
+	}
+
+	/**
+	 * 检查载具路径  每一步是相邻点,终点是目标点且互不相同
+	 * @return 无效路径数
+	 */
+	static int checkVehiclePaths(List<List<CenterPoint>> paths,List<CenterPoint> slots) {
+		int bad = 0;
+		Set<CenterPoint> ends = new HashSet<>();
+		for(List<CenterPoint> path:paths) {
+			if(path==null) {
+				continue;
+			}
+			boolean ok = slots.contains(path.get(path.size()-1)) && ends.add(path.get(path.size()-1));
+			for(int i=1;i<path.size() && ok;i++) {
+				int dx = Math.abs(path.get(i).getX()-path.get(i-1).getX());
+				int dy = Math.abs(path.get(i).getY()-path.get(i-1).getY());
+				ok = (dx==30 && dy==15) || (dx==60 && dy==0) || (dx==0 && dy==30);
+			}
+			if(!ok) {
+				bad++;
+			}
+		}
+		return bad;
+	}
+
+	/**
+	 * 检查步兵路径  每一步不超过一个中心点的距离,终点是目标点且互不相同
+	 * @return 无效路径数
+	 */
+	static int checkSoldierPaths(List<List<LittleCenterPoint>> paths,List<LittleCenterPoint> slots) {
+		int bad = 0;
+		Set<LittleCenterPoint> ends = new HashSet<>();
+		for(List<LittleCenterPoint> path:paths) {
+			if(path==null) {
+				continue;
+			}
+			boolean ok = slots.contains(path.get(path.size()-1)) && ends.add(path.get(path.size()-1));
+			for(int i=1;i<path.size() && ok;i++) {
+				int dx = Math.abs(path.get(i).getX()-path.get(i-1).getX());
+				int dy = Math.abs(path.get(i).getY()-path.get(i-1).getY());
+				ok = dx<=32 && dy<=16;
+			}
+			if(!ok) {
+				bad++;
+			}
+		}
+		return bad;
+	}
+
+	/**
+	 * 离目标最近的count个载具能进入的中心点
+	 */
+	static List<CenterPoint> nearestCells(CenterPoint target,int count) {
+		List<CenterPoint> cells = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(TickScalingBenchmark.isInner(cp) && cp.isVehicleCanOn()) {
+				cells.add(cp);
+			}
+		}
+		cells.sort(Comparator.comparingInt(cp -> distance(cp.getX(), cp.getY(), target)));
+		return cells.subList(0, count);
+	}
+
+	/**
+	 * 离目标最近的count个步兵能进入的小中心点
+	 */
+	static List<LittleCenterPoint> nearestLittleCells(CenterPoint target,int count) {
+		List<LittleCenterPoint> cells = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(TickScalingBenchmark.isInner(cp)) {
+				for(int k=0;k<4;k++) {
+					LittleCenterPoint lcp = TickScalingBenchmark.littleCenterPointOf(cp, k);
+					if(lcp!=null && lcp.soldier==null && lcp.isSoldierCanOn()) {
+						cells.add(lcp);
+					}
+				}
+			}
+		}
+		cells.sort(Comparator.comparingInt(lcp -> distance(lcp.getX(), lcp.getY(), target)));
+		return cells.subList(0, count);
+	}
+
+	static int distance(int x,int y,CenterPoint target) {
+		int dx = x-target.getX();
+		int dy = (y-target.getY())*2;
+		return dx*dx+dy*dy;
+	}
+}
@@ -0,0 +1,227 @@
+package redAlert.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import redAlert.SysConfig;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utils.PointUtil;
+
+/**
+ * 菱形网格查找测试
+ *
+ * 以前的做法：中心点放在以long为键的HashMap里,小中心点放在以"x,y"字符串为键的HashMap里,取相邻点时算出坐标再查表
+ * 现在的做法：DiamondGrid按坐标计算编号从数组中取,相邻点按编号查相邻点编号表
+ * 比较按坐标查找中心点、查找小中心点、取8个相邻点的耗时(纳秒/次)
+ * 并检查两种做法在地图内外所有坐标上的结果完全相同
+ *
+ * 参数(可省略)：
+ *   每项测试的查找次数(百万)
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.GridLookupBenchmark 20
+ */
+public class GridLookupBenchmark {
+
+	private static final int ROUNDS = 3;
+	/**
+	 * 小中心点的相邻点偏移  [Direction.ordinal()][方向]{dx,dy}  与LittleCenterPoint的getXxx方法相同
+	 */
+	private static final int[][][] LITTLE_STEPS = {
+		//上
+		{{14,-7}, {16,8}, {-16,8}, {-14,-7}, {-30,1}, {30,1}, {0,-14}, {0,16}},
+		//下
+		{{16,-8}, {14,7}, {-14,7}, {-16,-8}, {-30,-1}, {30,-1}, {0,-16}, {0,14}},
+		//左
+		{{16,-8}, {16,8}, {-14,7}, {-14,-7}, {-28,0}, {32,0}, {2,-15}, {2,15}},
+		//右
+		{{14,-7}, {14,7}, {-16,8}, {-16,-8}, {-32,0}, {28,0}, {-2,-15}, {-2,15}},
+	};
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		int lookups = (args.length>0 ? Integer.parseInt(args[0]) : 20)*1000000;
+
+		//以前的HashMap
+		Map<Long,CenterPoint> centerPointMap = new HashMap<>();
+		Map<String,LittleCenterPoint> littleCenterPointMap = new HashMap<>();
+		for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+			CenterPoint cp = DiamondGrid.getCell(id);
+			if(cp!=null) {
+				centerPointMap.put(key(cp.getX(), cp.getY()), cp);
+			}
+		}
+		for(int id=0;id<DiamondGrid.LITTLE_CELL_COUNT;id++) {
+			LittleCenterPoint lcp = DiamondGrid.getLittleCell(id);
+			if(lcp!=null) {
+				littleCenterPointMap.put(lcp.getX()+","+lcp.getY(), lcp);
+			}
+		}
+
+		//结果对比
+		int mismatched = 0;
+		for(int x=-40;x<SysConfig.gameMapWidth+40;x++) {
+			for(int y=-20;y<SysConfig.gameMapHeight+20;y++) {
+				if(centerPointMap.get(key(x, y))!=PointUtil.fetchCenterPoint(x, y)) {
+					mismatched++;
+				}
+				if(littleCenterPointMap.get(x+","+y)!=PointUtil.fetchLittleCenterPoint(x, y)) {
+					mismatched++;
+				}
+			}
+		}
+		int neighborMismatched = 0;
+		for(CenterPoint cp:centerPointMap.values()) {
+			//自己new出来的中心点没有存相邻点,按坐标查找
+			CenterPoint plain = new CenterPoint(cp.getX(), cp.getY());
+			if(cp.getLeftUp()!=plain.getLeftUp() || cp.getLeft()!=plain.getLeft() || cp.getLeftDn()!=plain.getLeftDn() || cp.getDn()!=plain.getDn()
+					|| cp.getRightDn()!=plain.getRightDn() || cp.getRight()!=plain.getRight() || cp.getRightUp()!=plain.getRightUp() || cp.getUp()!=plain.getUp()
+					|| cp.getLeftLittleCenterPoint()!=plain.getLeftLittleCenterPoint() || cp.getRightLittleCenterPoint()!=plain.getRightLittleCenterPoint()
+					|| cp.getUpLittleCenterPoint()!=plain.getUpLittleCenterPoint() || cp.getDownLittleCenterPoint()!=plain.getDownLittleCenterPoint()) {
+				neighborMismatched++;
+			}
+		}
+		for(LittleCenterPoint lcp:littleCenterPointMap.values()) {
+			LittleCenterPoint plain = new LittleCenterPoint(lcp.getX(), lcp.getY(), lcp.getDirection());
+			if(lcp.getLeftUp()!=plain.getLeftUp() || lcp.getLeft()!=plain.getLeft() || lcp.getLeftDn()!=plain.getLeftDn() || lcp.getDn()!=plain.getDn()
+					|| lcp.getRightDn()!=plain.getRightDn() || lcp.getRight()!=plain.getRight() || lcp.getRightUp()!=plain.getRightUp() || lcp.getUp()!=plain.getUp()
+					|| lcp.getCenterPoint()!=plain.getCenterPoint()) {
+				neighborMismatched++;
+			}
+		}
+		System.out.printf("中心点 %d, 小中心点 %d, 坐标查找不一致 %d, 相邻点不一致 %d%n",
+				centerPointMap.size(), littleCenterPointMap.size(), mismatched, neighborMismatched);
+
+		//随机的坐标  都是中心点、小中心点的坐标
+		Random random = new Random(3);
+		int[] cx = new int[4096];
+		int[] cy = new int[4096];
+		int[] lx = new int[4096];
+		int[] ly = new int[4096];
+		CenterPoint[] cps = new CenterPoint[4096];
+		LittleCenterPoint[] lcps = new LittleCenterPoint[4096];
+		CenterPoint[] plainCps = new CenterPoint[4096];
+		LittleCenterPoint[] plainLcps = new LittleCenterPoint[4096];
+		for(int i=0;i<cx.length;i++) {
+			int id = random.nextInt(DiamondGrid.CELL_COUNT);
+			cps[i] = DiamondGrid.getCell(id);
+			plainCps[i] = new CenterPoint(cps[i].getX(), cps[i].getY());
+			cx[i] = cps[i].getX();
+			cy[i] = cps[i].getY();
+			lcps[i] = DiamondGrid.getLittleCell(id*4+random.nextInt(4));
+			plainLcps[i] = new LittleCenterPoint(lcps[i].getX(), lcps[i].getY(), lcps[i].getDirection());
+			lx[i] = lcps[i].getX();
+			ly[i] = lcps[i].getY();
+		}
+
+		for(int round=1;round<=ROUNDS;round++) {
+			long sink = 0;
+			long start = System.nanoTime();
+			for(int i=0;i<lookups;i++) {
+				int k = i&4095;
+				sink += centerPointMap.get(key(cx[k], cy[k])).getX();
+			}
+			long mapCp = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<lookups;i++) {
+				int k = i&4095;
+				sink += PointUtil.fetchCenterPoint(cx[k], cy[k]).getX();
+			}
+			long gridCp = System.nanoTime()-start;
+
+			start = System.nanoTime();
+			for(int i=0;i<lookups;i++) {
+				int k = i&4095;
+				sink += littleCenterPointMap.get(lx[k]+","+ly[k]).getX();
+			}
+			long mapLcp = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<lookups;i++) {
+				int k = i&4095;
+				sink += PointUtil.fetchLittleCenterPoint(lx[k], ly[k]).getX();
+			}
+			long gridLcp = System.nanoTime()-start;
+
+			//取8个相邻点  以前算出坐标查HashMap,自己new出来的点现在按坐标计算编号,网格里的点按编号查表
+			int walks = lookups/8;
+			start = System.nanoTime();
+			for(int i=0;i<walks;i++) {
+				sink += neighborSum(centerPointMap, cps[i&4095]);
+			}
+			long mapCpWalk = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<walks;i++) {
+				sink += neighborSum(plainCps[i&4095]);
+			}
+			long oldCpWalk = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<walks;i++) {
+				sink += neighborSum(cps[i&4095]);
+			}
+			long newCpWalk = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<walks;i++) {
+				sink += neighborSum(littleCenterPointMap, lcps[i&4095]);
+			}
+			long mapLcpWalk = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<walks;i++) {
+				sink += neighborSum(plainLcps[i&4095]);
+			}
+			long oldLcpWalk = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<walks;i++) {
+				sink += neighborSum(lcps[i&4095]);
+			}
+			long newLcpWalk = System.nanoTime()-start;
+
+			System.out.printf("第%d轮  中心点: HashMap %6.2f ns, 数组 %5.2f ns  |  小中心点: HashMap %6.2f ns, 数组 %5.2f ns%n",
+					round, (double)mapCp/lookups, (double)gridCp/lookups, (double)mapLcp/lookups, (double)gridLcp/lookups);
+			System.out.printf("      8个相邻点  中心点: HashMap %6.2f ns, 按坐标计算 %6.2f ns, 查编号表 %5.2f ns  |  小中心点: HashMap %6.2f ns, 按坐标计算 %6.2f ns, 查编号表 %5.2f ns  (%d)%n",
+					(double)mapCpWalk/walks, (double)oldCpWalk/walks, (double)newCpWalk/walks,
+					(double)mapLcpWalk/walks, (double)oldLcpWalk/walks, (double)newLcpWalk/walks, sink&1);
+		}
+	}
+
+	static long key(int x,int y) {
+		return ((long)x<<32) | y;
+	}
+
+	/**
+	 * 以前的做法  算出8个相邻点的坐标查HashMap
+	 */
+	static int neighborSum(Map<Long,CenterPoint> map,CenterPoint cp) {
+		int x = cp.getX();
+		int y = cp.getY();
+		return count(map.get(key(x-30, y-15)))+count(map.get(key(x-60, y)))+count(map.get(key(x-30, y+15)))+count(map.get(key(x, y+30)))
+			+count(map.get(key(x+30, y+15)))+count(map.get(key(x+60, y)))+count(map.get(key(x+30, y-15)))+count(map.get(key(x, y-30)));
+	}
+
+	/**
+	 * 以前的做法  算出8个相邻点的坐标拼成字符串查HashMap  偏移与LittleCenterPoint的getXxx方法相同
+	 */
+	static int neighborSum(Map<String,LittleCenterPoint> map,LittleCenterPoint lcp) {
+		int[][] steps = LITTLE_STEPS[lcp.getDirection().ordinal()];
+		int sum = 0;
+		for(int[] step:steps) {
+			sum += count(map.get((lcp.getX()+step[0])+","+(lcp.getY()+step[1])));
+		}
+		return sum;
+	}
+
+	static int neighborSum(CenterPoint cp) {
+		return count(cp.getLeftUp())+count(cp.getLeft())+count(cp.getLeftDn())+count(cp.getDn())
+			+count(cp.getRightDn())+count(cp.getRight())+count(cp.getRightUp())+count(cp.getUp());
+	}
+
+	static int neighborSum(LittleCenterPoint lcp) {
+		return count(lcp.getLeftUp())+count(lcp.getLeft())+count(lcp.getLeftDn())+count(lcp.getDn())
+			+count(lcp.getRightDn())+count(lcp.getRight())+count(lcp.getRightUp())+count(lcp.getUp());
+	}
+
+	static int count(Object o) {
+		return o==null ? 0 : 1;
+	}
+}
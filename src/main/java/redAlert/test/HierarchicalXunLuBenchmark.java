@@ -0,0 +1,195 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.SysConfig;
+import redAlert.utilBean.HierarchicalXunLuBean;
+
+/**
+ * 分层寻路的对比测试
+ *
+ * 分别建立50x50、128x128、256x256(每类中心点的行列数)的菱形网格,随机放置岩石和矩形建筑,取一批随机的起点终点,比较：
+ *   不分层的A*  与分层寻路的耗时、从边界方块取出的次数
+ *   路径代价    分层寻路的路径代价与最短路径代价之比
+ *   能否到达    两者必须一致,分层寻路的路径每一步都必须是相邻的可通行点
+ * 再随机放置一批建筑,比较增量重算与整张地图重建的耗时,并在改变后的地图上重新检查
+ *
+ * 参数(都可省略)：
+ *   寻路次数 岩石比例(百分比) 地图大小...
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.HierarchicalXunLuBenchmark 300 10 50 128 256
+ */
+public class HierarchicalXunLuBenchmark {
+
+	/**
+	 * 测试增量重算时放置的建筑数和边长(行列数)
+	 */
+	private static final int NEW_BUILDINGS = 20;
+	private static final int BUILDING_SIZE = 6;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int queries = args.length>0 ? Integer.parseInt(args[0]) : 300;
+		int rockPercent = args.length>1 ? Integer.parseInt(args[1]) : 10;
+		int[] sizes = {50, 128, 256};
+		if(args.length>2) {
+			sizes = new int[args.length-2];
+			for(int i=2;i<args.length;i++) {
+				sizes[i-2] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.printf("寻路次数: %d, 岩石比例: %d%%, 区块大小: %d%n", queries, rockPercent, SysConfig.hierarchicalPathClusterSize);
+		for(int size:sizes) {
+			run(size, queries, rockPercent);
+		}
+	}
+
+	static void run(int size,int queries,int rockPercent) {
+		int columns = size*2;
+		int rows = size*2;
+		int rowStride = (columns+1)/2;
+		boolean[] blocked = new boolean[rows*rowStride];
+		Random random = new Random(size);
+		for(int id=0;id<blocked.length;id++) {
+			blocked[id] = random.nextInt(100)<rockPercent;
+		}
+		//建筑  每400个点一座
+		for(int i=0;i<blocked.length/400;i++) {
+			placeBuilding(random, blocked, columns, rows, rowStride, 2+random.nextInt(BUILDING_SIZE-1), null);
+		}
+
+		long start = System.nanoTime();
+		HierarchicalXunLuBean hpa = new HierarchicalXunLuBean(columns, rows, SysConfig.hierarchicalPathClusterSize, id -> !blocked[id]);
+		long buildNanos = System.nanoTime()-start;
+		System.out.printf("%n%dx%d: 中心点 %d, 区块 %d, 入口点 %d, 建立 %.2f ms%n",
+				size, size, hpa.getCellCount(), hpa.getClusterCount(), hpa.getEntranceCount(), buildNanos/1000000.0);
+
+		int[][] pairs = randomPairs(random, hpa, columns, rows, queries);
+		check(hpa, pairs, "初始地图");
+		//预热
+		for(int round=0;round<3;round++) {
+			for(int[] pair:pairs) {
+				hpa.findFlatPath(pair[0], pair[1]);
+				hpa.findPath(pair[0], pair[1]);
+			}
+		}
+		long flatNanos = 0;
+		long flatExpanded = 0;
+		start = System.nanoTime();
+		for(int[] pair:pairs) {
+			hpa.findFlatPath(pair[0], pair[1]);
+			flatExpanded += hpa.getLastExpanded();
+		}
+		flatNanos = System.nanoTime()-start;
+		long hpaNanos = 0;
+		long hpaExpanded = 0;
+		start = System.nanoTime();
+		for(int[] pair:pairs) {
+			hpa.findPath(pair[0], pair[1]);
+			hpaExpanded += hpa.getLastExpanded();
+		}
+		hpaNanos = System.nanoTime()-start;
+		System.out.printf("不分层A*: %8.3f ms/次, 取出 %7.0f 次  |  分层: %8.3f ms/次, 取出 %7.0f 次  |  加速 %.1fx%n",
+				flatNanos/1000000.0/queries, (double)flatExpanded/queries,
+				hpaNanos/1000000.0/queries, (double)hpaExpanded/queries,
+				(double)flatNanos/hpaNanos);
+
+		//放置新建筑  增量重算
+		long updateNanos = 0;
+		int rebuilt = 0;
+		for(int i=0;i<NEW_BUILDINGS;i++) {
+			List<Integer> changed = new ArrayList<>();
+			placeBuilding(random, blocked, columns, rows, rowStride, BUILDING_SIZE, changed);
+			int[] ids = new int[changed.size()];
+			for(int k=0;k<ids.length;k++) {
+				ids[k] = changed.get(k);
+			}
+			hpa.update(ids);
+			updateNanos += hpa.getLastUpdateNanos();
+			rebuilt += hpa.getLastRebuiltClusters();
+		}
+		start = System.nanoTime();
+		new HierarchicalXunLuBean(columns, rows, SysConfig.hierarchicalPathClusterSize, id -> !blocked[id]);
+		long rebuildNanos = System.nanoTime()-start;
+		System.out.printf("放置建筑: 增量重算 %.3f ms/次(平均重算 %.1f 个区块), 整张地图重建 %.2f ms%n",
+				updateNanos/1000000.0/NEW_BUILDINGS, (double)rebuilt/NEW_BUILDINGS, rebuildNanos/1000000.0);
+		check(hpa, pairs, "放置建筑后");
+	}
+
+	/**
+	 * 对比分层寻路与不分层A*的结果
+	 */
+	static void check(HierarchicalXunLuBean hpa,int[][] pairs,String title) {
+		int found = 0;
+		int mismatched = 0;
+		int invalid = 0;
+		double ratioSum = 0;
+		double ratioMax = 1;
+		for(int[] pair:pairs) {
+			int[] flat = hpa.findFlatPath(pair[0], pair[1]);
+			int flatCost = hpa.getLastCost();
+			int[] path = hpa.findPath(pair[0], pair[1]);
+			int cost = hpa.getLastCost();
+			if((flat==null)!=(path==null)) {
+				mismatched++;
+				continue;
+			}
+			if(path==null) {
+				continue;
+			}
+			found++;
+			if(path[0]!=pair[0] || path[path.length-1]!=pair[1] || hpa.pathCost(path)!=cost) {
+				invalid++;
+			}
+			for(int i=1;i<path.length;i++) {
+				if(!hpa.isPassable(path[i])) {
+					invalid++;
+					break;
+				}
+			}
+			double ratio = flatCost==0 ? 1 : (double)cost/flatCost;
+			ratioSum += ratio;
+			ratioMax = Math.max(ratioMax, ratio);
+		}
+		System.out.printf("%s: 能到达 %d/%d, 能否到达不一致 %d, 无效路径 %d, 代价/最短代价 平均 %.3f 最大 %.3f%n",
+				title, found, pairs.length, mismatched, invalid, found==0 ? 1 : ratioSum/found, ratioMax);
+	}
+
+	static int[][] randomPairs(Random random,HierarchicalXunLuBean hpa,int columns,int rows,int count) {
+		int[][] pairs = new int[count][];
+		for(int i=0;i<count;i++) {
+			pairs[i] = new int[] {randomOpenCell(random, hpa, columns, rows), randomOpenCell(random, hpa, columns, rows)};
+		}
+		return pairs;
+	}
+
+	static int randomOpenCell(Random random,HierarchicalXunLuBean hpa,int columns,int rows) {
+		while(true) {
+			int id = hpa.cellId(random.nextInt(columns), random.nextInt(rows));
+			if(id>=0 && hpa.isPassable(id)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * 放一座矩形建筑(行列数side)
+	 * @param changed 不为null时记录被挡住的点
+	 */
+	static void placeBuilding(Random random,boolean[] blocked,int columns,int rows,int rowStride,int side,List<Integer> changed) {
+		int col0 = random.nextInt(columns-side);
+		int row0 = random.nextInt(rows-side);
+		for(int row=row0;row<row0+side;row++) {
+			for(int col=col0+((col0^row)&1);col<col0+side;col+=2) {
+				int id = row*rowStride+col/2;
+				if(!blocked[id] && changed!=null) {
+					changed.add(id);
+				}
+				blocked[id] = true;
+			}
+		}
+	}
+}
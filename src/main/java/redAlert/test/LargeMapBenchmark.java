@@ -0,0 +1,218 @@
+package redAlert.test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.SysConfig;
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+import redAlert.utilBean.FlowField;
+import redAlert.utilBean.HierarchicalXunLuBean;
+import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.ReachabilityIndex;
+import redAlert.utilBean.SoldierXunLuAdapter;
+import redAlert.utilBean.XunLuBean3;
+import redAlert.utilBean.XunLuBeanAdapter;
+import redAlert.utils.CanvasPainter;
+import redAlert.utils.LittleCenterPointUtil;
+import redAlert.utils.PointUtil;
+
+/**
+ * 大地图测试
+ *
+ * 按指定的地图大小(默认256x256)建立中心点网格,随机放置岩石,检查各部分在大地图上的耗时和内存：
+ *   网格(中心点、第一次用到时才建立的相邻点编号表和小中心点)、连通区域索引、分层寻路的建立耗时和占用内存
+ *   载具寻路、步兵寻路、就近找空位每次的耗时和分配的内存  不应与地图大小成正比
+ *   新建步兵寻路对象(每个寻路线程一个)的耗时和内存
+ *   流场的建立耗时、绘制一帧辅助线网格的耗时
+ *
+ * 参数(都可省略)：
+ *   地图大小(每类中心点的行列数) 寻路次数 岩石比例(百分比)
+ * 例如：
+ *   java -Xmx1500m -Djava.awt.headless=true redAlert.test.LargeMapBenchmark 256 200 10
+ */
+public class LargeMapBenchmark {
+
+	/**
+	 * 步兵寻路的起点终点最多相距多少行列
+	 */
+	private static final int SOLDIER_RANGE = 12;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int size = args.length>0 ? Integer.parseInt(args[0]) : 256;
+		int queries = args.length>1 ? Integer.parseInt(args[1]) : 200;
+		int rockPercent = args.length>2 ? Integer.parseInt(args[2]) : 10;
+		//必须在使用中心点之前设置
+		SysConfig.setMapSize(size, size);
+		SysConfig.viewportWidth = 1600;
+		SysConfig.viewportHeight = 900;
+
+		long memory = usedMemory();
+		long start = System.nanoTime();
+		int cellCount = DiamondGrid.CELL_COUNT;
+		long gridNanos = System.nanoTime()-start;
+		int cells = 0;
+		for(int id=0;id<cellCount;id++) {
+			if(DiamondGrid.getCell(id)!=null) {
+				cells++;
+			}
+		}
+		System.out.printf("地图 %dx%d (%dx%d像素): 中心点 %d, 建立网格 %.1f ms, 内存 %.1f MB%n",
+				size, size, SysConfig.gameMapWidth, SysConfig.gameMapHeight, cells, gridNanos/1000000.0, (usedMemory()-memory)/1048576.0);
+		memory = usedMemory();
+		start = System.nanoTime();
+		DiamondGrid.cellNeighbors();
+		System.out.printf("相邻点编号表: 建立 %.1f ms, 内存 %.1f MB%n", (System.nanoTime()-start)/1000000.0, (usedMemory()-memory)/1048576.0);
+		memory = usedMemory();
+		start = System.nanoTime();
+		DiamondGrid.littleCells();
+		System.out.printf("小中心点: 建立 %.1f ms, 内存 %.1f MB%n", (System.nanoTime()-start)/1000000.0, (usedMemory()-memory)/1048576.0);
+
+		Random random = new Random(size);
+		List<CenterPoint> open = new ArrayList<>();
+		for(int id=0;id<cellCount;id++) {
+			CenterPoint cp = DiamondGrid.getCell(id);
+			if(cp==null) {
+				continue;
+			}
+			if(random.nextInt(100)<rockPercent) {
+				cp.setTerrainType(TerrainType.Rock);
+			}else {
+				open.add(cp);
+			}
+		}
+
+		memory = usedMemory();
+		start = System.nanoTime();
+		ReachabilityIndex.getInstance();
+		System.out.printf("连通区域索引: 建立 %.1f ms, 内存 %.1f MB%n", (System.nanoTime()-start)/1000000.0, (usedMemory()-memory)/1048576.0);
+		memory = usedMemory();
+		start = System.nanoTime();
+		HierarchicalXunLuBean hpa = HierarchicalXunLuBean.getInstance();
+		System.out.printf("分层寻路: 区块 %d, 入口点 %d, 建立 %.1f ms, 内存 %.1f MB%n",
+				hpa.getClusterCount(), hpa.getEntranceCount(), (System.nanoTime()-start)/1000000.0, (usedMemory()-memory)/1048576.0);
+
+		//载具寻路  起点终点随机,远的走分层寻路
+		XunLuBeanAdapter xlb = XunLuBeanAdapter.getInstance();
+		List<CenterPoint[]> pairs = new ArrayList<>();
+		for(int i=0;i<queries;i++) {
+			pairs.add(new CenterPoint[] {open.get(random.nextInt(open.size())), open.get(random.nextInt(open.size()))});
+		}
+		int found = 0;
+		for(int round=0;round<2;round++) {
+			found = 0;
+			long bytes = XunLuBenchmark.allocatedBytes();
+			start = System.nanoTime();
+			for(CenterPoint[] pair:pairs) {
+				if(xlb.xunlu(pair[0], pair[1])!=null) {
+					found++;
+				}
+			}
+			long nanos = System.nanoTime()-start;
+			bytes = XunLuBenchmark.allocatedBytes()-bytes;
+			if(round==1) {
+				System.out.printf("载具寻路: %.1f us/次, 分配 %.1f KB/次, 找到路 %d/%d%n",
+						nanos/1000.0/queries, bytes/1024.0/queries, found, queries);
+			}
+		}
+
+		//步兵寻路  每个寻路线程一个寻路对象,寻路点第一次用到时才创建
+		memory = usedMemory();
+		long bytes = XunLuBenchmark.allocatedBytes();
+		start = System.nanoTime();
+		SoldierXunLuAdapter soldierXlb = new SoldierXunLuAdapter();
+		System.out.printf("新建步兵寻路对象: %.2f ms, 分配 %.1f KB%n", (System.nanoTime()-start)/1000000.0, (XunLuBenchmark.allocatedBytes()-bytes)/1024.0);
+		List<LittleCenterPoint[]> soldierPairs = new ArrayList<>();
+		for(int i=0;i<queries;i++) {
+			CenterPoint from = open.get(random.nextInt(open.size()));
+			CenterPoint to = PointUtil.fetchCenterPoint(from.getX()+(random.nextInt(SOLDIER_RANGE*2+1)-SOLDIER_RANGE)*60, from.getY()+(random.nextInt(SOLDIER_RANGE*2+1)-SOLDIER_RANGE)*30);
+			if(to!=null && to.isSoldierCanOn()) {
+				soldierPairs.add(new LittleCenterPoint[] {from.getLeftLittleCenterPoint(), to.getRightLittleCenterPoint()});
+			}
+		}
+		for(int round=0;round<2;round++) {
+			found = 0;
+			bytes = XunLuBenchmark.allocatedBytes();
+			start = System.nanoTime();
+			for(LittleCenterPoint[] pair:soldierPairs) {
+				if(soldierXlb.xunlu(pair[0], pair[1])!=null) {
+					found++;
+				}
+			}
+			long nanos = System.nanoTime()-start;
+			bytes = XunLuBenchmark.allocatedBytes()-bytes;
+			if(round==1) {
+				System.out.printf("步兵寻路: %.1f us/次, 分配 %.1f KB/次, 找到路 %d/%d, 步兵寻路对象共 %.1f MB%n",
+						nanos/1000.0/soldierPairs.size(), bytes/1024.0/soldierPairs.size(), found, soldierPairs.size(), (usedMemory()-memory)/1048576.0);
+			}
+		}
+
+		//就近找空位  从岩石上出发
+		List<CenterPoint> rocks = new ArrayList<>();
+		for(int id=0;id<cellCount && rocks.size()<queries;id+=7) {
+			CenterPoint cp = DiamondGrid.getCell(id);
+			if(cp!=null && cp.terrainType==TerrainType.Rock) {
+				rocks.add(cp);
+			}
+		}
+		for(int round=0;round<2;round++) {
+			bytes = XunLuBenchmark.allocatedBytes();
+			start = System.nanoTime();
+			for(CenterPoint rock:rocks) {
+				PointUtil.findVehicleCanOnCpNearBy(rock, Collections.<CenterPoint>emptySet());
+				LittleCenterPointUtil.findSoldierCanOnLcpNearBy(rock.getUpLittleCenterPoint(), Collections.<LittleCenterPoint>emptySet());
+			}
+			long nanos = System.nanoTime()-start;
+			bytes = XunLuBenchmark.allocatedBytes()-bytes;
+			if(round==1) {
+				System.out.printf("就近找空位(载具+步兵): %.1f us/次, 分配 %.1f KB/次%n", nanos/1000.0/rocks.size(), bytes/1024.0/rocks.size());
+			}
+		}
+
+		//流场  每次换一组目标点
+		for(int round=0;round<3;round++) {
+			CenterPoint center = open.get(random.nextInt(open.size()));
+			int[] goals = new int[9];
+			for(int i=0;i<goals.length;i++) {
+				goals[i] = XunLuBean3.cellId(center.getX()+(i%3)*60, center.getY()+(i/3)*30);
+				if(goals[i]<0) {
+					goals[i] = XunLuBean3.cellId(center.getX(), center.getY());
+				}
+			}
+			bytes = XunLuBenchmark.allocatedBytes();
+			start = System.nanoTime();
+			FlowField.obtain(true, goals);
+			System.out.printf("载具流场: 建立 %.1f ms, 分配 %.1f MB%n", (System.nanoTime()-start)/1000000.0, (XunLuBenchmark.allocatedBytes()-bytes)/1048576.0);
+		}
+		FlowField.clearCache();
+
+		//辅助线网格  只遍历视口附近的行列
+		BufferedImage canvas = new BufferedImage(SysConfig.viewportWidth, SysConfig.viewportHeight, BufferedImage.TYPE_INT_ARGB);
+		int frames = 60;
+		for(int round=0;round<2;round++) {
+			start = System.nanoTime();
+			for(int i=0;i<frames;i++) {
+				int offX = random.nextInt(Math.max(1, SysConfig.gameMapWidth-SysConfig.viewportWidth));
+				int offY = random.nextInt(Math.max(1, SysConfig.gameMapHeight-SysConfig.viewportHeight));
+				CanvasPainter.drawGuidelines(canvas, offX, offY);
+			}
+			if(round==1) {
+				System.out.printf("辅助线网格: %.2f ms/帧%n", (System.nanoTime()-start)/1000000.0/frames);
+			}
+		}
+	}
+
+	static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i=0;i<3;i++) {
+			System.gc();
+		}
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+}
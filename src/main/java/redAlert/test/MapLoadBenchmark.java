@@ -0,0 +1,128 @@
+package redAlert.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+import redAlert.SysConfig;
+import redAlert.enums.OverlayType;
+import redAlert.enums.RampType;
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+import redAlert.utils.MapFileReader;
+
+/**
+ * 地图读取测试
+ *
+ * 按指定大小(默认256x256)随机生成一张文本地图,转换成二进制地图,分别读取若干次：
+ *   比较文本地图、二进制地图的文件大小和读取耗时
+ *   检查两种格式读取后每个中心点的瓦片序号、地形类型、覆盖物、坡面类型都相同
+ *
+ * 参数(都可省略)：
+ *   地图大小(每类中心点的行列数) 读取次数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.MapLoadBenchmark 256 10
+ */
+public class MapLoadBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length>0 ? Integer.parseInt(args[0]) : 256;
+		int rounds = args.length>1 ? Integer.parseInt(args[1]) : 10;
+		//必须在使用中心点之前设置
+		SysConfig.setMapSize(size, size);
+
+		List<String> tileNames = new ArrayList<>();
+		for(int i=1;i<=16;i++) {
+			tileNames.add(String.format("clat%02d.tem", i));
+		}
+		//随机地图  少量地块没有地形类型(旧格式),少量瓦片名不在列表中
+		Random random = new Random(size);
+		StringBuilder text = new StringBuilder(MapFileReader.sizeHeader());
+		TerrainType[] terrains = TerrainType.values();
+		OverlayType[] overlays = OverlayType.values();
+		for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+			CenterPoint cp = DiamondGrid.getCell(id);
+			if(cp==null) {
+				continue;
+			}
+			int r = random.nextInt(100);
+			String name = r==0 ? "unknown.tem" : tileNames.get(random.nextInt(tileNames.size()));
+			text.append(cp.getX()).append(',').append(cp.getY()).append(',').append(name);
+			if(r>=5) {
+				text.append(',').append(terrains[random.nextInt(terrains.length)]).append(',').append(overlays[random.nextInt(overlays.length)]);
+			}
+			text.append('$');
+		}
+		File dir = new File(System.getProperty("java.io.tmpdir"));
+		File textFile = new File(dir, "map_load_benchmark.text");
+		File binaryFile = new File(dir, "map_load_benchmark.bin");
+		FileUtils.writeStringToFile(textFile, text.toString(), "UTF-8");
+		long start = System.nanoTime();
+		MapFileReader.convertToBinary(textFile, binaryFile);
+		System.out.printf("地图 %dx%d: 文本 %d KB, 二进制 %d KB, 转换 %.1f ms%n",
+				size, size, textFile.length()/1024, binaryFile.length()/1024, (System.nanoTime()-start)/1000000.0);
+		int [] binarySize = MapFileReader.readBinaryMapSize(binaryFile);
+		System.out.println("二进制地图大小: "+binarySize[0]+"x"+binarySize[1]);
+
+		int [][] textState = null;
+		int [][] binaryState = null;
+		for(File file:new File[] {textFile, binaryFile}) {
+			long best = Long.MAX_VALUE;
+			int loaded = 0;
+			for(int round=0;round<rounds;round++) {
+				reset();
+				start = System.nanoTime();
+				loaded = MapFileReader.loadMap(file, tileNames);
+				best = Math.min(best, System.nanoTime()-start);
+			}
+			System.out.printf("%s: 读取 %.2f ms (最快一次), 设置中心点 %d%n", file.getName(), best/1000000.0, loaded);
+			if(file==textFile) {
+				textState = snapshot();
+			}else {
+				binaryState = snapshot();
+			}
+		}
+		int diff = 0;
+		for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+			for(int i=0;i<4;i++) {
+				if(textState[id][i]!=binaryState[id][i]) {
+					diff++;
+					break;
+				}
+			}
+		}
+		System.out.println("与文本地图不一致的中心点: "+diff);
+		textFile.delete();
+		binaryFile.delete();
+	}
+
+	/**
+	 * 中心点恢复成读取地图之前的状态
+	 */
+	private static void reset() {
+		for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+			CenterPoint cp = DiamondGrid.getCell(id);
+			if(cp!=null) {
+				cp.setTileIndex(-1);
+				cp.setTerrainType(TerrainType.Rough);
+				cp.setOverlayType(OverlayType.None);
+				cp.setRampType(RampType.Flat);
+			}
+		}
+	}
+
+	private static int [][] snapshot() {
+		int [][] state = new int[DiamondGrid.CELL_COUNT][4];
+		for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+			CenterPoint cp = DiamondGrid.getCell(id);
+			if(cp!=null) {
+				state[id] = new int[] {cp.getTileIndex(), cp.terrainType.ordinal(), cp.overlayType.ordinal(), cp.rampType.ordinal()};
+			}
+		}
+		return state;
+	}
+}
@@ -0,0 +1,172 @@
+package redAlert.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.other.BloodBar;
+import redAlert.shapeObjects.Building;
+import redAlert.shapeObjects.animation.TankShell;
+import redAlert.task.DamageSystem;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.ObjectPool;
+
+/**
+ * 对象池测试
+ *
+ * 模拟持续交火：若干坦克轮流向几个建筑开火,每个逻辑帧推进所有炮弹、结算伤害,炸完的炮弹移出
+ * 分别用对象池(TankShell.obtain,炸完recycle)和不用对象池(new TankShell)各跑一遍：
+ *   比较两种方式的开火次数、造成的伤害合计(应相同)
+ *   比较每发炮弹在逻辑线程上分配的内存(字节)和耗时
+ * 最后打印各对象池的命中、新建次数
+ *
+ * 需要在工程目录下运行(要读取炮弹的shp图片)
+ * 参数(都可省略)：
+ *   坦克数 逻辑帧数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.ObjectPoolBenchmark 48 3000
+ */
+public class ObjectPoolBenchmark {
+
+	/**
+	 * 测试用的血条  不绘制
+	 */
+	private static class BenchBloodBar extends BloodBar {
+		@Override
+		public void rePaintBloodBar() {}
+		@Override
+		public int calCurBloodNum() {
+			return 0;
+		}
+		@Override
+		public void calculateNextFrame() {}
+	}
+
+	/**
+	 * 测试用的目标建筑  血量足够多,不会被摧毁
+	 */
+	private static class BenchBuilding extends Building {
+		BenchBuilding(int x,int y) {
+			super.bloodBar = new BenchBloodBar();
+			super.curCenterPoint = new CenterPoint(x, y);
+		}
+		@Override
+		public List<CenterPoint> getNoConstCpList() {
+			return Collections.emptyList();
+		}
+		@Override
+		public List<CenterPoint> getNoVehicleCpList() {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * 一轮交火的结果
+	 */
+	private static class Result {
+		long shots;
+		long damage;
+		long bytes;
+		long nanos;
+	}
+
+	private static final int TARGET_HP = 1000000000;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int tanks = args.length>0 ? Integer.parseInt(args[0]) : 48;
+		int ticks = args.length>1 ? Integer.parseInt(args[1]) : 3000;
+
+		List<BenchBuilding> targets = new ArrayList<>();
+		for(int i=0;i<8;i++) {
+			targets.add(new BenchBuilding(600+i*150, 500+(i%3)*90));
+		}
+
+		Result pooled = null;
+		Result fresh = null;
+		for(int pass=0;pass<3;pass++) {
+			pooled = run(tanks, ticks, targets, true);
+			fresh = run(tanks, ticks, targets, false);
+		}
+		System.out.printf("%d辆坦克, %d个逻辑帧: 开火 %d/%d 次, 伤害合计 %d/%d (对象池/new, 应相同)%n",
+				tanks, ticks, pooled.shots, fresh.shots, pooled.damage, fresh.damage);
+		System.out.printf("每发炮弹: 对象池 %.0f 字节 %.2f µs, new %.0f 字节 %.2f µs%n",
+				(double)pooled.bytes/pooled.shots, pooled.nanos/1000.0/pooled.shots,
+				(double)fresh.bytes/fresh.shots, fresh.nanos/1000.0/fresh.shots);
+		System.out.print(ObjectPool.report());
+	}
+
+	/**
+	 * 交火一轮
+	 * @param pooled 是否用对象池
+	 */
+	private static Result run(int tanks,int ticks,List<BenchBuilding> targets,boolean pooled) {
+		for(BenchBuilding target:targets) {
+			target.getBloodBar().setCurHp(TARGET_HP);
+		}
+		DamageSystem damageSystem = DamageSystem.getInstance();
+		Random random = new Random(25);
+		int[] tankX = new int[tanks];
+		int[] tankY = new int[tanks];
+		int[] cooldown = new int[tanks];
+		for(int i=0;i<tanks;i++) {
+			tankX[i] = 100+random.nextInt(1800);
+			tankY[i] = 100+random.nextInt(1000);
+			cooldown[i] = random.nextInt(12);
+		}
+		List<TankShell> live = new ArrayList<>(tanks*4);
+
+		Result result = new Result();
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for(int t=0;t<ticks;t++) {
+			for(int i=0;i<tanks;i++) {
+				if(--cooldown[i]>0) {
+					continue;
+				}
+				cooldown[i] = 12;
+				BenchBuilding target = targets.get((i+t)%targets.size());
+				TankShell shell = pooled ? TankShell.obtain(tankX[i], tankY[i], null, target) : new TankShell(tankX[i], tankY[i], null, target);
+				live.add(shell);
+				result.shots++;
+			}
+			for(int i=live.size()-1;i>=0;i--) {
+				TankShell shell = live.get(i);
+				shell.calculateNextFrame();
+				if(shell.isEnd()) {
+					live.set(i, live.get(live.size()-1));
+					live.remove(live.size()-1);
+					if(pooled) {
+						shell.recycle();
+					}
+				}
+			}
+			damageSystem.resolve();
+		}
+		result.nanos = System.nanoTime()-start;
+		result.bytes = allocatedBytes()-bytesBefore;
+		for(TankShell shell:live) {
+			if(pooled) {
+				shell.recycle();
+			}
+		}
+		for(BenchBuilding target:targets) {
+			result.damage += TARGET_HP-target.getBloodBar().getCurHp();
+		}
+		return result;
+	}
+
+	/**
+	 * 当前线程累计分配的内存  不支持时返回0
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,194 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import redAlert.enums.BuildingAreaType;
+import redAlert.enums.OverlayType;
+import redAlert.enums.RampType;
+import redAlert.enums.TerrainType;
+import redAlert.enums.UnitColor;
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.shapeObjects.soldier.Gi;
+import redAlert.shapeObjects.vehicle.GrizTank;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+import redAlert.utilBean.OccupancyGrid;
+
+/**
+ * 中心点占用网格测试
+ *
+ * 1 随机设置地形、覆盖物、坡面、建筑区域类型,检查OccupancyGrid中的通行标记与按各类型条件判断的结果相同
+ * 2 多个线程同时在少数几个中心点上反复预约/释放、添加/移除步兵：
+ *   同一时刻一个中心点只能有一个预约者,预约中的中心点上没有步兵,步兵不能超过3个,全部释放后占用状态清空
+ * 3 多个线程同时遍历所有中心点判断载具能否进入,统计每次判断的耗时
+ *
+ * 参数(都可省略)：
+ *   线程数 每个线程的操作次数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.OccupancyBenchmark 8 200000
+ */
+public class OccupancyBenchmark {
+
+	/**
+	 * 争用的中心点个数
+	 */
+	private static final int HOT_CELLS = 4;
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		final int threads = args.length>0 ? Integer.parseInt(args[0]) : 8;
+		final int operations = args.length>1 ? Integer.parseInt(args[1]) : 200000;
+
+		List<CenterPoint> cps = TickScalingBenchmark.allCenterPoints();
+		//单位放在地图中间,建好后清空占用,只用来当预约者和步兵
+		CenterPoint home = cps.get(cps.size()/2);
+		final Vehicle[] vehicles = new Vehicle[threads];
+		final Soldier[][] soldiers = new Soldier[threads][2];
+		for(int t=0;t<threads;t++) {
+			vehicles[t] = new GrizTank(home.getX()-64, home.getY()-64, UnitColor.Red);
+			for(int k=0;k<soldiers[t].length;k++) {
+				soldiers[t][k] = new Gi(home.getLeftLittleCenterPoint(), UnitColor.Blue);
+			}
+		}
+		OccupancyGrid.clearUnits();
+
+		//通行标记
+		Random random = new Random(5);
+		TerrainType[] terrains = TerrainType.values();
+		OverlayType[] overlays = OverlayType.values();
+		RampType[] ramps = RampType.values();
+		BuildingAreaType[] areas = {BuildingAreaType.None, BuildingAreaType.None, BuildingAreaType.Normal, BuildingAreaType.WeighBridge};
+		int mismatched = 0;
+		for(CenterPoint cp:cps) {
+			cp.setTerrainType(terrains[random.nextInt(terrains.length)]);
+			cp.setOverlayType(random.nextInt(3)==0 ? overlays[random.nextInt(overlays.length)] : OverlayType.None);
+			cp.setRampType(ramps[random.nextInt(ramps.length)]);
+			cp.setBuildingAreaType(areas[random.nextInt(areas.length)]);
+			boolean vehicle = cp.rampType.vehicleCondition() && cp.terrainType.vehicleCondition() && cp.overlayType.vehicleCondition() && cp.buildingAreaType.vehicleCondition();
+			boolean soldier = cp.rampType.soldierCondition() && cp.terrainType.soldierCondition() && cp.overlayType.soldierCondition() && cp.buildingAreaType.soldierCondition();
+			boolean building = cp.rampType.buildingCondition() && cp.terrainType.buildingCondition() && cp.overlayType.buildingCondition() && cp.buildingAreaType.buildingCondition();
+			if(cp.isVehicleCanOn()!=vehicle || cp.isVehicleCanOnXunLuFirst()!=vehicle || cp.isVehicleCanOnXunLuSecond()!=vehicle
+					|| cp.isSoldierCanOn()!=soldier || cp.isSoldierCanPass()!=soldier || cp.isBuildingCanPutOn()!=building) {
+				mismatched++;
+			}
+		}
+		System.out.printf("中心点 %d, 通行标记不一致 %d%n", cps.size(), mismatched);
+		for(CenterPoint cp:cps) {
+			cp.setTerrainType(TerrainType.Rough);
+			cp.setOverlayType(OverlayType.None);
+			cp.setRampType(RampType.Flat);
+			cp.setBuildingAreaType(BuildingAreaType.None);
+		}
+
+		//争用
+		final CenterPoint[] hot = new CenterPoint[HOT_CELLS];
+		for(int i=0;i<HOT_CELLS;i++) {
+			hot[i] = cps.get(cps.size()/3+i*7);
+		}
+		final AtomicIntegerArray holders = new AtomicIntegerArray(HOT_CELLS);
+		final AtomicLong violations = new AtomicLong();
+		final AtomicLong books = new AtomicLong();
+		final AtomicLong soldierAdds = new AtomicLong();
+		long nanos = runThreads(threads, new Worker() {
+			@Override
+			public void run(int t) {
+				Random random = new Random(t);
+				for(int i=0;i<operations;i++) {
+					int h = random.nextInt(HOT_CELLS);
+					CenterPoint cp = hot[h];
+					if(cp.addBook(vehicles[t])) {
+						books.incrementAndGet();
+						if(holders.incrementAndGet(h)>1 || !cp.isBookedBy(vehicles[t]) || cp.isVehicleCanOn() || cp.getSoldierCount()>0) {
+							violations.incrementAndGet();
+						}
+						holders.decrementAndGet(h);
+						if(!cp.exitBook(vehicles[t])) {
+							violations.incrementAndGet();
+						}
+					}
+					Soldier soldier = soldiers[t][i&1];
+					if(cp.addSoldier(soldier)) {
+						soldierAdds.incrementAndGet();
+						if(cp.getSoldierCount()>OccupancyGrid.MAX_SOLDIERS || cp.isVehicleCanOn()) {
+							violations.incrementAndGet();
+						}
+						cp.removeUnit(soldier);
+					}
+				}
+			}
+		});
+		int dirty = 0;
+		for(CenterPoint cp:hot) {
+			if(cp.isBooked() || cp.getSoldierCount()!=0 || !cp.getSoldiers().isEmpty() || !cp.isVehicleCanOn()) {
+				dirty++;
+			}
+		}
+		System.out.printf("%d线程争用%d个中心点: %.1f ns/次, 预约成功 %d, 添加步兵成功 %d, 违反约束 %d, 结束后未清空的中心点 %d%n",
+				threads, HOT_CELLS, (double)nanos/operations, books.get(), soldierAdds.get(), violations.get(), dirty);
+
+		//只读判断
+		final int rounds = Math.max(1, operations/1000);
+		final AtomicLong sink = new AtomicLong();
+		for(int round=0;round<2;round++) {
+			nanos = runThreads(threads, new Worker() {
+				@Override
+				public void run(int t) {
+					int count = 0;
+					for(int r=0;r<rounds;r++) {
+						for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+							CenterPoint cp = DiamondGrid.getCell(id);
+							if(cp!=null && cp.isVehicleCanOn()) {
+								count++;
+							}
+						}
+					}
+					sink.addAndGet(count);
+				}
+			});
+			if(round==1) {
+				System.out.printf("%d线程判断载具能否进入: %.2f ns/次 (%d)%n", threads, (double)nanos/rounds/DiamondGrid.CELL_COUNT, sink.get());
+			}
+		}
+	}
+
+	private interface Worker {
+		void run(int thread);
+	}
+
+	/**
+	 * 所有线程同时开始,返回全部结束的耗时
+	 */
+	private static long runThreads(int threads,final Worker worker) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> list = new ArrayList<>();
+		for(int t=0;t<threads;t++) {
+			final int index = t;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					}catch (InterruptedException e) {
+						return;
+					}
+					worker.run(index);
+				}
+			};
+			thread.start();
+			list.add(thread);
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for(Thread thread:list) {
+			thread.join();
+		}
+		return System.nanoTime()-begin;
+	}
+}
@@ -0,0 +1,167 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.PathCache;
+import redAlert.utilBean.XunLuBeanAdapter;
+import redAlert.utils.PointUtil;
+
+/**
+ * 路径缓存测试
+ *
+ * 模拟玩家反复下达的命令：从几个集结点(工厂门口)到几个前线位置,以及矿场和矿区之间的往返,
+ * 其中一部分命令是随机的起点终点;每隔一段命令放一座建筑(用岩石模拟),使经过它的路径作废
+ * 同一串命令分别交给不同容量的缓存,比较命中率、淘汰次数、作废次数和耗时,用来确定SysConfig.pathCacheSize
+ * 缓存给出的路径都要检查：起点终点正确、相邻、每个点都能通过
+ *
+ * 参数(都可省略)：
+ *   命令次数 随机命令比例(百分比) 每隔多少次命令放一座建筑
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.PathCacheBenchmark 5000 30 100
+ */
+public class PathCacheBenchmark {
+
+	private static final int[] CAPACITIES = {0, 64, 256, 512, 2048};
+	/**
+	 * 集结点、前线位置、矿区的个数
+	 */
+	private static final int RALLY_POINTS = 4;
+	private static final int FRONT_POINTS = 12;
+	private static final int ORE_FIELDS = 6;
+	private static final int BUILDING_SIZE = 3;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int orders = args.length>0 ? Integer.parseInt(args[0]) : 5000;
+		int randomPercent = args.length>1 ? Integer.parseInt(args[1]) : 30;
+		int buildEvery = args.length>2 ? Integer.parseInt(args[2]) : 100;
+
+		Random random = new Random(23);
+		List<CenterPoint> open = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(random.nextInt(100)<10) {
+				cp.setTerrainType(TerrainType.Rock);
+			}else {
+				open.add(cp);
+			}
+		}
+		List<CenterPoint> rally = pick(random, open, RALLY_POINTS);
+		List<CenterPoint> front = pick(random, open, FRONT_POINTS);
+		List<CenterPoint> ore = pick(random, open, ORE_FIELDS);
+		CenterPoint refinery = open.get(random.nextInt(open.size()));
+
+		PathCache[] caches = new PathCache[CAPACITIES.length];
+		long[] nanos = new long[CAPACITIES.length];
+		int[] invalid = new int[CAPACITIES.length];
+		for(int c=0;c<caches.length;c++) {
+			caches[c] = new PathCache(CAPACITIES[c]);
+		}
+		XunLuBeanAdapter xlb = XunLuBeanAdapter.getInstance();
+		System.out.printf("命令次数: %d, 随机命令: %d%%, 每%d次命令放一座建筑%n", orders, randomPercent, buildEvery);
+
+		for(int order=0;order<orders;order++) {
+			CenterPoint start;
+			CenterPoint end;
+			int kind = random.nextInt(100);
+			if(kind<randomPercent) {
+				start = open.get(random.nextInt(open.size()));
+				end = open.get(random.nextInt(open.size()));
+			}else if(kind<randomPercent+(100-randomPercent)/2) {
+				start = rally.get(random.nextInt(rally.size()));
+				end = front.get(random.nextInt(front.size()));
+			}else {
+				CenterPoint field = ore.get(random.nextInt(ore.size()));
+				boolean back = random.nextBoolean();
+				start = back ? field : refinery;
+				end = back ? refinery : field;
+			}
+
+			for(int c=0;c<caches.length;c++) {
+				long t = System.nanoTime();
+				List<CenterPoint> path = caches[c].getVehiclePath(start, end);
+				boolean hit = path!=null;
+				if(!hit) {
+					int version = caches[c].getVersion();
+					path = xlb.xunlu(start, end);
+					caches[c].putVehiclePath(start, end, path, version);
+				}
+				nanos[c] += System.nanoTime()-t;
+				if(hit && !isValid(path, start, end)) {
+					invalid[c]++;
+				}
+			}
+
+			if(buildEvery>0 && order%buildEvery==buildEvery-1) {
+				List<CenterPoint> area = placeBuilding(random, open);
+				PointUtil.notifyPassabilityChanged(area);
+				for(PathCache cache:caches) {
+					cache.invalidate(area);
+				}
+			}
+		}
+
+		for(int c=0;c<caches.length;c++) {
+			PathCache cache = caches[c];
+			long total = cache.getHitCount()+cache.getMissCount();
+			System.out.printf("容量 %4d: %6.1f us/次, 命中率 %5.1f%%, 淘汰 %5d, 作废 %4d, 无效路径 %d%n",
+					CAPACITIES[c], nanos[c]/1000.0/orders, total==0 ? 0 : cache.getHitCount()*100.0/total,
+					cache.getEvictCount(), cache.getInvalidateCount(), invalid[c]);
+		}
+	}
+
+	static List<CenterPoint> pick(Random random,List<CenterPoint> open,int count) {
+		List<CenterPoint> result = new ArrayList<>();
+		for(int i=0;i<count;i++) {
+			result.add(open.get(random.nextInt(open.size())));
+		}
+		return result;
+	}
+
+	/**
+	 * 放一座建筑(边长BUILDING_SIZE个中心点)  返回被挡住的点
+	 */
+	static List<CenterPoint> placeBuilding(Random random,List<CenterPoint> open) {
+		CenterPoint corner = open.get(random.nextInt(open.size()));
+		List<CenterPoint> area = new ArrayList<>();
+		for(int r=0;r<BUILDING_SIZE;r++) {
+			for(int c=0;c<BUILDING_SIZE;c++) {
+				CenterPoint cp = PointUtil.fetchCenterPoint(corner.getX()+(c-r)*30, corner.getY()+(c+r)*15);
+				if(cp!=null && cp.terrainType!=TerrainType.Rock) {
+					cp.setTerrainType(TerrainType.Rock);
+					area.add(cp);
+				}
+			}
+		}
+		return area;
+	}
+
+	/**
+	 * 缓存给出的路径  起点终点正确,每一步都是相邻点,每个点都能通过
+	 */
+	static boolean isValid(List<CenterPoint> path,CenterPoint start,CenterPoint end) {
+		if(path.isEmpty() || !path.get(0).equals(start) || !path.get(path.size()-1).equals(end)) {
+			return false;
+		}
+		for(int i=0;i<path.size();i++) {
+			CenterPoint cp = path.get(i);
+			if(i>0 && !cp.isVehicleCanPass()) {
+				return false;
+			}
+			if(i>0) {
+				int dx = Math.abs(cp.getX()-path.get(i-1).getX());
+				int dy = Math.abs(cp.getY()-path.get(i-1).getY());
+				boolean diagonal = dx==30 && dy==15;
+				boolean straight = (dx==60 && dy==0) || (dx==0 && dy==30);
+				if(!diagonal && !straight) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
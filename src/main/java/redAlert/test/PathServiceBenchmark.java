@@ -0,0 +1,121 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.RuntimeParameter;
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.task.GameLoop;
+import redAlert.task.PathService;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.XunLuBeanAdapter;
+
+/**
+ * 寻路服务测试
+ *
+ * 在地图上放一批坦克,反复给它们下达一组移动命令(每辆坦克去目标附近各自的格子),比较：
+ *   同步  下达命令的线程自己寻路(以前Vehicle.moveToTarget的做法)花的时间
+ *   异步  下达命令的线程只提交请求花的时间,以及提交后到寻路全部完成的时间(逻辑帧不等寻路,这里用flush单独计时)
+ * 最后输出寻路服务的队列、延迟和速度统计
+ *
+ * 参数(都可省略)：
+ *   命令次数 每次命令的坦克数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.PathServiceBenchmark 40 50
+ */
+public class PathServiceBenchmark {
+
+	/**
+	 * 一次命令后最多计算的逻辑帧数
+	 */
+	private static final int MAX_TICKS_PER_ORDER = 120;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int orders = args.length>0 ? Integer.parseInt(args[0]) : 40;
+		int tankCount = args.length>1 ? Integer.parseInt(args[1]) : 50;
+
+		TickScalingBenchmark.resetWorld();
+		List<Vehicle> tanks = new ArrayList<>();
+		Random random = new Random(5);
+		TickScalingBenchmark.spawn(random, tankCount, 0, tanks, new ArrayList<Soldier>());
+		GameLoop gameLoop = new GameLoop(RuntimeParameter.fps, 1);
+		gameLoop.tick();
+		PathService pathService = gameLoop.getPathService();
+		System.out.printf("命令次数: %d, 坦克: %d, 寻路线程: %d, CPU核数: %d%n",
+				orders, tankCount, pathService.getThreads(), Runtime.getRuntime().availableProcessors());
+
+		long requests = 0;
+		long syncNanos = 0;
+		long submitNanos = 0;
+		long waitNanos = 0;
+		for(int order=0;order<orders;order++) {
+			List<CenterPoint> targets = groupTargets(random, tanks.size());
+
+			//同步寻路  只计时,不改变坦克状态
+			long start = System.nanoTime();
+			for(int i=0;i<tanks.size();i++) {
+				XunLuBeanAdapter.getInstance().xunlu(tanks.get(i).getCurCenterPoint(), targets.get(i));
+			}
+			syncNanos += System.nanoTime()-start;
+
+			//异步  下达命令
+			start = System.nanoTime();
+			for(int i=0;i<tanks.size();i++) {
+				Vehicle tank = tanks.get(i);
+				if(!tank.haveNextTarget()) {
+					tank.moveToTarget(targets.get(i));
+					requests++;
+				}
+			}
+			submitNanos += System.nanoTime()-start;
+
+			//等寻路全部完成并交付  这里单独计时
+			start = System.nanoTime();
+			pathService.flush();
+			waitNanos += System.nanoTime()-start;
+			//等坦克都停下再下达下一次命令
+			for(int tick=0;tick<MAX_TICKS_PER_ORDER && !allStopped(tanks);tick++) {
+				gameLoop.tick();
+			}
+		}
+		gameLoop.stopGameLoop();
+
+		System.out.printf("移动命令: %d个%n", requests);
+		System.out.printf("同步寻路: %8.3f ms/次命令 (下达命令的线程被占用)%n", syncNanos/1000000.0/orders);
+		System.out.printf("异步提交: %8.3f ms/次命令 (下达命令的线程被占用)%n", submitNanos/1000000.0/orders);
+		System.out.printf("提交后到寻路完成: %8.3f ms/次命令 (逻辑帧不等待)%n", waitNanos/1000000.0/orders);
+		System.out.println(pathService.getStatistics());
+	}
+
+	static boolean allStopped(List<Vehicle> tanks) {
+		for(Vehicle tank:tanks) {
+			if(tank.haveNextTarget()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 一组移动命令的目标  随机选一个中心,每辆坦克去中心附近的一个格子
+	 */
+	static List<CenterPoint> groupTargets(Random random,int count) {
+		List<CenterPoint> inner = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(TickScalingBenchmark.isInner(cp)) {
+				inner.add(cp);
+			}
+		}
+		CenterPoint center = inner.get(random.nextInt(inner.size()));
+		List<CenterPoint> targets = new ArrayList<>();
+		while(targets.size()<count) {
+			CenterPoint target = TickScalingBenchmark.nearbyCenterPoint(random, center);
+			targets.add(target!=null && target.isVehicleCanOn() ? target : center);
+		}
+		return targets;
+	}
+}
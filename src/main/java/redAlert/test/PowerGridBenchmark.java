@@ -0,0 +1,169 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import redAlert.enums.ConstConfig;
+import redAlert.resourceCenter.PowerGrid;
+import redAlert.shapeObjects.Building;
+import redAlert.shapeObjects.PowerPlant;
+import redAlert.utilBean.CenterPoint;
+
+/**
+ * 电网测试
+ *
+ * 1 在少数建筑上随机加入、移除,随机改变发电厂的发电量(模拟受损),每次操作后与遍历全部建筑重新计算的结果比较：
+ *   发电量、负载、是否有电、每种建筑的个数、电力充足/不足的通知次数
+ * 2 比较增量维护与原来每次遍历全部建筑重新计算的耗时,以及逻辑帧中判断是否有电的耗时
+ *
+ * 参数(都可省略)：
+ *   建筑数 操作次数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.PowerGridBenchmark 2000 200000
+ */
+public class PowerGridBenchmark {
+
+	/**
+	 * 测试用的建筑  不加载图片
+	 */
+	private static class BenchBuilding extends Building {
+		BenchBuilding(ConstConfig config) {
+			super.constConfig = config;
+		}
+		@Override
+		public List<CenterPoint> getNoConstCpList() {
+			return Collections.emptyList();
+		}
+		@Override
+		public List<CenterPoint> getNoVehicleCpList() {
+			return Collections.emptyList();
+		}
+	}
+	private static class BenchPowerPlant extends BenchBuilding implements PowerPlant {
+		int output = 200;
+		BenchPowerPlant() {
+			super(ConstConfig.AfPowr);
+		}
+		@Override
+		public int getPowerGeneration() {
+			return output;
+		}
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int count = args.length>0 ? Integer.parseInt(args[0]) : 2000;
+		int operations = args.length>1 ? Integer.parseInt(args[1]) : 200000;
+
+		ConstConfig[] configs = {ConstConfig.AfPile, ConstConfig.AfRefn, ConstConfig.AfWeap, ConstConfig.AfAirc,
+				ConstConfig.AfTech, ConstConfig.AfPris, ConstConfig.AfWall, ConstConfig.SfNrad};
+		Random random = new Random(23);
+		List<Building> buildings = new ArrayList<>();
+		for(int i=0;i<count;i++) {
+			buildings.add(random.nextInt(3)==0 ? new BenchPowerPlant() : new BenchBuilding(configs[random.nextInt(configs.length)]));
+		}
+
+		PowerGrid grid = new PowerGrid();
+		final AtomicInteger notifications = new AtomicInteger();
+		grid.addListener(enough -> notifications.incrementAndGet());
+		List<Building> placed = new ArrayList<>();
+		int mismatched = 0;
+		int expectedNotifications = 0;
+		boolean enough = false;
+		//只在少数建筑上操作  发电量与负载接近,电力状态会反复变化
+		int pool = Math.min(count, 30);
+		for(int op=0;op<operations;op++) {
+			Building building = buildings.get(random.nextInt(pool));
+			int r = random.nextInt(10);
+			if(r<4) {
+				grid.add(building);
+				if(!placed.contains(building)) {
+					placed.add(building);
+				}
+			}else if(r<8) {
+				grid.remove(building);
+				placed.remove(building);
+			}else if(building instanceof BenchPowerPlant) {
+				((BenchPowerPlant)building).output = 100+random.nextInt(101);
+				grid.refresh(building);
+			}
+			int[] expected = recompute(placed);
+			boolean nowEnough = expected[0]>expected[1];
+			if(nowEnough!=enough) {
+				enough = nowEnough;
+				expectedNotifications++;
+			}
+			if(grid.getGeneration()!=expected[0] || grid.getLoad()!=expected[1] || grid.isPowerOn()!=(expected[1]<=expected[0])) {
+				mismatched++;
+			}
+			if(op%1000==0) {
+				for(ConstConfig config:configs) {
+					int n = 0;
+					for(Building b:placed) {
+						if(b.getConstConfig()==config) {
+							n++;
+						}
+					}
+					if(grid.getCount(config)!=n) {
+						mismatched++;
+					}
+				}
+			}
+		}
+		System.out.printf("操作 %d 次, 最后在电网中 %d 个建筑, 与重新计算不一致 %d, 通知 %d 次(应为 %d)%n",
+				operations, placed.size(), mismatched, notifications.get(), expectedNotifications);
+
+		//耗时  所有建筑在电网中,反复移除再加入一个建筑
+		for(Building building:buildings) {
+			grid.add(building);
+		}
+		int rounds = 20000;
+		long sink = 0;
+		for(int pass=0;pass<2;pass++) {
+			long start = System.nanoTime();
+			for(int i=0;i<rounds;i++) {
+				Building building = buildings.get(i%count);
+				grid.remove(building);
+				grid.add(building);
+			}
+			long incremental = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<rounds;i++) {
+				sink += recompute(buildings)[1];
+			}
+			long full = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int i=0;i<rounds*100;i++) {
+				if(grid.isPowerOn()) {
+					sink++;
+				}
+			}
+			long reads = System.nanoTime()-start;
+			if(pass==1) {
+				System.out.printf("%d个建筑, 移除+加入一个建筑: 增量 %.1f ns, 遍历重新计算 %.1f ns; 判断是否有电 %.2f ns/次 (%d)%n",
+						count, (double)incremental/rounds, (double)full/rounds, (double)reads/rounds/100, sink);
+			}
+		}
+	}
+
+	/**
+	 * 原来calculatePowerInfo的算法
+	 * @return 发电量 负载
+	 */
+	private static int[] recompute(List<Building> buildings) {
+		int generation = 0;
+		int load = 0;
+		for(Building building:buildings) {
+			if(building instanceof PowerPlant) {
+				generation += ((PowerPlant)building).getPowerGeneration();
+			}else {
+				load += building.getConstConfig().powerLoad;
+			}
+		}
+		return new int[] {generation, load};
+	}
+}
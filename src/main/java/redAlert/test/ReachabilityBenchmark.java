@@ -0,0 +1,206 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.HierarchicalXunLuBean;
+import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.ReachabilityIndex;
+import redAlert.utilBean.SoldierXunLuBean2;
+import redAlert.utilBean.XunLuBean3;
+import redAlert.utils.PointUtil;
+
+/**
+ * 连通区域索引测试
+ *
+ * 在地图上随机放置岩石,取一批随机的起点终点：
+ *   载具  索引的结论与不限次数的A*(HierarchicalXunLuBean.findFlatPath)必须完全一致
+ *   步兵  索引判为走不到的,SoldierXunLuBean2也必须找不到路
+ * 比较走不到时A*搜索到寻路次数用完的耗时与查索引的耗时
+ * 再用岩石模拟建筑建成,比较增量重新标记与整张地图重建的耗时,并与重建的结果对比
+ *
+ * 参数(都可省略)：
+ *   寻路次数 岩石比例(百分比)
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.ReachabilityBenchmark 2000 45
+ */
+public class ReachabilityBenchmark {
+
+	/**
+	 * 模拟建筑的个数和边长(中心点)
+	 */
+	private static final int NEW_BUILDINGS = 30;
+	private static final int BUILDING_SIZE = 4;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int queries = args.length>0 ? Integer.parseInt(args[0]) : 2000;
+		int rockPercent = args.length>1 ? Integer.parseInt(args[1]) : 45;
+
+		Random random = new Random(17);
+		List<CenterPoint> open = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(random.nextInt(100)<rockPercent) {
+				cp.setTerrainType(TerrainType.Rock);
+			}else {
+				open.add(cp);
+			}
+		}
+		long start = System.nanoTime();
+		ReachabilityIndex index = ReachabilityIndex.getInstance();
+		long buildNanos = System.nanoTime()-start;
+		HierarchicalXunLuBean flat = HierarchicalXunLuBean.getInstance();
+		System.out.printf("寻路次数: %d, 岩石比例: %d%%, 建立索引: %.2f ms%n", queries, rockPercent, buildNanos/1000000.0);
+
+		CenterPoint[] starts = new CenterPoint[queries];
+		CenterPoint[] ends = new CenterPoint[queries];
+		for(int i=0;i<queries;i++) {
+			starts[i] = open.get(random.nextInt(open.size()));
+			ends[i] = open.get(random.nextInt(open.size()));
+		}
+
+		//载具  与不限次数的A*对比
+		int reachable = 0;
+		int vehicleMismatched = 0;
+		List<Integer> unreachable = new ArrayList<>();
+		for(int i=0;i<queries;i++) {
+			boolean expected = flat.findFlatPath(id(starts[i]), id(ends[i]))!=null;
+			boolean actual = index.isVehicleReachable(starts[i], ends[i]);
+			if(expected!=actual) {
+				vehicleMismatched++;
+			}
+			if(actual) {
+				reachable++;
+			}else {
+				unreachable.add(i);
+			}
+		}
+		System.out.printf("载具: 能到达 %d/%d, 与A*不一致 %d%n", reachable, queries, vehicleMismatched);
+
+		//步兵  索引说走不到的,寻路也必须找不到
+		SoldierReference soldierReference = new SoldierReference();
+		int soldierUnreachable = 0;
+		int soldierWrong = 0;
+		for(int i=0;i<queries;i++) {
+			LittleCenterPoint from = starts[i].getLeftLittleCenterPoint();
+			LittleCenterPoint to = ends[i].getRightLittleCenterPoint();
+			if(!index.isSoldierReachable(from, to)) {
+				soldierUnreachable++;
+				if(soldierReference.search(from, to)!=null) {
+					soldierWrong++;
+				}
+			}
+		}
+		System.out.printf("步兵: 索引判为走不到 %d, 其中寻路找到了路 %d%n", soldierUnreachable, soldierWrong);
+
+		//走不到时的耗时
+		XunLuBean3 bean3 = new XunLuBean3();
+		for(int round=0;round<3;round++) {
+			start = System.nanoTime();
+			for(int i:unreachable) {
+				bean3.xunlu(starts[i], ends[i]);
+			}
+			long searchNanos = System.nanoTime()-start;
+			start = System.nanoTime();
+			int count = 0;
+			for(int i:unreachable) {
+				if(!index.isVehicleReachable(starts[i], ends[i])) {
+					count++;
+				}
+			}
+			long indexNanos = System.nanoTime()-start;
+			System.out.printf("第%d轮  走不到的%d次: A*搜索 %8.2f us/次, 查索引 %6.3f us/次%n",
+					round+1, count, searchNanos/1000.0/Math.max(1, unreachable.size()), indexNanos/1000.0/Math.max(1, unreachable.size()));
+		}
+
+		//附近找点  不限定起点时可能找到开不到的点
+		int wrongNearBy = 0;
+		long nearByNanos = 0;
+		long reachableNearByNanos = 0;
+		int nearByQueries = Math.min(queries, 500);
+		for(int i=0;i<nearByQueries;i++) {
+			CenterPoint target = TickScalingBenchmark.allCenterPoints().get(random.nextInt(TickScalingBenchmark.allCenterPoints().size()));
+			start = System.nanoTime();
+			CenterPoint any = PointUtil.findVehicleCanOnCpNearBy(target, new HashSet<CenterPoint>());
+			nearByNanos += System.nanoTime()-start;
+			start = System.nanoTime();
+			CenterPoint reachableCp = PointUtil.findVehicleCanOnCpNearBy(target, new HashSet<CenterPoint>(), starts[i]);
+			reachableNearByNanos += System.nanoTime()-start;
+			if(any!=null && !index.isVehicleReachable(starts[i], any)) {
+				wrongNearBy++;
+			}
+			if(reachableCp==null || !index.isVehicleReachable(starts[i], reachableCp)) {
+				System.out.println("附近找点失败: "+target+" 起点 "+starts[i]);
+			}
+		}
+		System.out.printf("附近找点: 不限定起点 %.2f us/次(其中%d次找到开不到的点), 限定起点 %.2f us/次%n",
+				nearByNanos/1000.0/nearByQueries, wrongNearBy, reachableNearByNanos/1000.0/nearByQueries);
+
+		//模拟建筑建成  增量重新标记
+		long updateNanos = 0;
+		long relabeled = 0;
+		for(int b=0;b<NEW_BUILDINGS;b++) {
+			CenterPoint corner = open.get(random.nextInt(open.size()));
+			List<CenterPoint> area = new ArrayList<>();
+			for(int r=0;r<BUILDING_SIZE;r++) {
+				for(int c=0;c<BUILDING_SIZE;c++) {
+					CenterPoint cp = PointUtil.fetchCenterPoint(corner.getX()+(c-r)*30, corner.getY()+(c+r)*15);
+					if(cp!=null) {
+						cp.setTerrainType(TerrainType.Rock);
+						area.add(cp);
+					}
+				}
+			}
+			start = System.nanoTime();
+			PointUtil.notifyPassabilityChanged(area);
+			updateNanos += System.nanoTime()-start;
+			relabeled += index.getLastVehicleRelabeled()+index.getLastSoldierRelabeled();
+		}
+		start = System.nanoTime();
+		ReachabilityIndex rebuilt = new ReachabilityIndex();
+		long rebuildNanos = System.nanoTime()-start;
+		int afterMismatched = 0;
+		for(int i=0;i<queries;i++) {
+			if(index.isVehicleReachable(starts[i], ends[i])!=rebuilt.isVehicleReachable(starts[i], ends[i])) {
+				afterMismatched++;
+			}
+			LittleCenterPoint from = starts[i].getUpLittleCenterPoint();
+			LittleCenterPoint to = ends[i].getDownLittleCenterPoint();
+			if(index.isSoldierReachable(from, to)!=rebuilt.isSoldierReachable(from, to)) {
+				afterMismatched++;
+			}
+		}
+		System.out.printf("放置建筑: 增量重新标记 %.3f ms/次(平均 %d 个点), 整张地图重建 %.2f ms, 与重建结果不一致 %d%n",
+				updateNanos/1000000.0/NEW_BUILDINGS, relabeled/NEW_BUILDINGS, rebuildNanos/1000000.0, afterMismatched);
+	}
+
+	static int id(CenterPoint cp) {
+		return XunLuBean3.cellId(cp.getX(), cp.getY());
+	}
+
+	/**
+	 * 作为对照的SoldierXunLuBean2  每次寻路后重置,和SoldierXunLuAdapter一样,但不查索引
+	 */
+	static class SoldierReference extends SoldierXunLuBean2 {
+		List<LittleCenterPoint> search(LittleCenterPoint startCp,LittleCenterPoint endCp) {
+			List<LittleCenterPoint> path = xunlu(startCp, endCp);
+			for(RaPoint rp:getHaveGetSet()) {
+				rp.setCurPrice(0);
+				rp.setEuDistance(9999);
+				rp.setLastPoint(null);
+				rp.setTotalPrice(Integer.MAX_VALUE);
+			}
+			getHaveGetSet().clear();
+			setCurRecNum(0);
+			setMaxRecNum(0);
+			setFoundWay(false);
+			getRest().clear();
+			return path;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package redAlert.test;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import redAlert.MouseEventDeal;
+import redAlert.RuntimeParameter;
+import redAlert.SceneRenderer;
+import redAlert.ShapeUnitFrame;
+import redAlert.SysConfig;
+import redAlert.enums.ConstConfig;
+import redAlert.enums.MouseStatus;
+import redAlert.other.Mouse;
+import redAlert.other.Place;
+import redAlert.resourceCenter.ShpResourceCenter;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.task.GameLoop;
+import redAlert.utils.SoftwareRenderBackend;
+
+/**
+ * 渲染性能测试
+ *
+ * 用软件光栅化后端在无显卡、无显示器的机器上跑场景绘制,输出每遍绘制的耗时
+ * 画面内容固定(随机数种子固定、视口按固定路线滚动),可以输出PNG作为基准画面,之后逐像素比对
+ *
+ * 参数(都可省略,目录写-表示不使用)：
+ *   帧数 单位数 PNG输出目录 基准画面目录
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.RenderBenchmark 300 120 target/frames target/golden
+ */
+public class RenderBenchmark {
+
+	private static final int VIEWPORT_WIDTH = 1280;
+	private static final int VIEWPORT_HEIGHT = 720;
+
+	/**
+	 * 测试用单位  循环播放一组帧
+	 */
+	static class BenchUnit extends ShapeUnit {
+		private final List<ShapeUnitFrame> frames;
+		private int frameIndex;
+
+		BenchUnit(List<ShapeUnitFrame> frames,int frameIndex,int positionX,int positionY) {
+			this.frames = frames;
+			this.frameIndex = frameIndex;
+			this.positionX = positionX;
+			this.positionY = positionY;
+			calculateNextFrame();
+		}
+
+		@Override
+		public void calculateNextFrame() {
+			curFrame = frames.get(frameIndex%frames.size());
+			positionMinX = positionX+curFrame.getMinX();
+			positionMinY = positionY+curFrame.getMinY();
+			frameIndex++;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		int frameCount = args.length>0 ? Integer.parseInt(args[0]) : 300;
+		int unitCount = args.length>1 ? Integer.parseInt(args[1]) : 120;
+		File dumpDirectory = args.length>2 ? directoryOf(args[2]) : null;
+		File goldenDirectory = args.length>3 ? directoryOf(args[3]) : null;
+
+		//没有屏幕,视口尺寸固定,保证每次画面一致
+		SysConfig.viewportWidth = VIEWPORT_WIDTH;
+		SysConfig.viewportHeight = VIEWPORT_HEIGHT;
+		
+		//加载资源  不能调用Mouse.initMouseCursor,它会创建系统鼠标指针
+		long loadStart = System.nanoTime();
+		Place.initPlaceRect();
+		Mouse.mouseShapeFrames = ShpResourceCenter.loadShpResource("mouse", "mousepal", false);
+		SceneRenderer sceneRenderer = new SceneRenderer();
+		sceneRenderer.loadTerrain(0, 0);
+		List<ShapeUnitFrame> giFrames = ShpResourceCenter.loadShpResource("gi", "unittem");
+		System.out.printf("资源加载: %.1f ms, 地形: %s%n", (System.nanoTime()-loadStart)/1_000_000.0,
+				sceneRenderer.terrainLayer==null ? "无(画辅助线网格)" : sceneRenderer.terrainLayer.getChunkCount()+"个区块");
+
+		Random random = new Random(1);
+		List<ShapeUnit> units = new ArrayList<>();
+		for(int i=0;i<unitCount;i++) {
+			int x = random.nextInt(SysConfig.viewportWidth+400)-100;
+			int y = random.nextInt(SysConfig.viewportHeight+400)-100;
+			BenchUnit unit = new BenchUnit(giFrames, random.nextInt(giFrames.size()), x, y);
+			unit.setUnitNo(i);
+			units.add(unit);
+			RuntimeParameter.addBuildingToQueue(unit);
+		}
+		//不启动逻辑线程,每画一帧算一个逻辑帧
+		GameLoop gameLoop = new GameLoop(RuntimeParameter.fps);
+		gameLoop.tick();
+
+		SoftwareRenderBackend backend = new SoftwareRenderBackend(SysConfig.viewportWidth, SysConfig.viewportHeight);
+		backend.setDumpDirectory(dumpDirectory);
+		RuntimeParameter.mouseStatus = MouseStatus.Construct;//画菱形块
+		MouseEventDeal.constName = ConstConfig.AfWeap;
+		Point mousePoint = new Point(SysConfig.viewportWidth/2, SysConfig.viewportHeight/2);
+
+		int warmup = Math.min(30, frameCount/10);
+		long differentPixels = 0;
+		int comparedFrames = 0;
+		for(int frame=0;frame<frameCount;frame++) {
+			if(frame==warmup) {
+				backend.resetStatistics();
+			}
+			//视口沿对角线来回滚动
+			int step = frame%200<100 ? frame%200 : 200-frame%200;
+			int viewportOffX = step*4;
+			int viewportOffY = step*2;
+			RuntimeParameter.viewportOffX = viewportOffX;//鼠标坐标换算中心点时使用
+			RuntimeParameter.viewportOffY = viewportOffY;
+
+			backend.beginFrame();
+			sceneRenderer.render(backend, viewportOffX, viewportOffY, mousePoint);
+			backend.endFrame();
+
+			gameLoop.tick();
+
+			if(goldenDirectory!=null) {
+				File golden = new File(goldenDirectory, SoftwareRenderBackend.frameFileName(backend.getFrameNo()));
+				if(golden.exists()) {
+					differentPixels += countDifferentPixels(backend.getImage(), ImageIO.read(golden));
+					comparedFrames++;
+				}
+			}
+		}
+
+		System.out.printf("帧数: %d (预热%d), 单位数: %d, 视口: %dx%d%n",
+				frameCount, warmup, unitCount, SysConfig.viewportWidth, SysConfig.viewportHeight);
+		System.out.println(backend.getPassStatistics());
+		System.out.println(gameLoop.getStatistics());
+		if(goldenDirectory!=null) {
+			System.out.printf("基准画面比对: %d帧, 不同像素 %d%n", comparedFrames, differentPixels);
+		}
+	}
+
+	static File directoryOf(String arg) {
+		return arg.isEmpty() || "-".equals(arg) ? null : new File(arg);
+	}
+
+	/**
+	 * 逐像素比对两张图片  尺寸不同时返回较大图片的像素总数
+	 */
+	static long countDifferentPixels(BufferedImage image,BufferedImage golden) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		if(golden.getWidth()!=width || golden.getHeight()!=height) {
+			return (long)Math.max(width, golden.getWidth())*Math.max(height, golden.getHeight());
+		}
+		int[] a = image.getRGB(0, 0, width, height, null, 0, width);
+		int[] b = golden.getRGB(0, 0, width, height, null, 0, width);
+		long count = 0;
+		for(int i=0;i<a.length;i++) {
+			if(a[i]!=b[i]) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
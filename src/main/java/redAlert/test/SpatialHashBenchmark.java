@@ -0,0 +1,235 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.SysConfig;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utilBean.SpatialHash;
+
+/**
+ * 空间哈希测试
+ *
+ * 在地图上随机放置若干单位(少量在地图外),随机做矩形查询、范围查询、最近k个查询：
+ *   检查结果与遍历所有单位的结果相同
+ *   比较两种方式每次查询的耗时
+ * 然后让所有单位随机移动若干轮,统计每轮update的耗时,移动后再检查一遍
+ *
+ * 参数(都可省略)：
+ *   单位数 查询次数 移动轮数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.SpatialHashBenchmark 2000 20000 100
+ */
+public class SpatialHashBenchmark {
+
+	/**
+	 * 测试用的单位  只有坐标
+	 */
+	private static class Unit extends ShapeUnit {
+		@Override
+		public void calculateNextFrame() {}
+	}
+	/**
+	 * 用来检查按类型过滤
+	 */
+	private static class MarkedUnit extends Unit {}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int unitCount = args.length>0 ? Integer.parseInt(args[0]) : 2000;
+		int queries = args.length>1 ? Integer.parseInt(args[1]) : 20000;
+		int moveRounds = args.length>2 ? Integer.parseInt(args[2]) : 100;
+
+		int width = SysConfig.gameMapWidth;
+		int height = SysConfig.gameMapHeight;
+		SpatialHash hash = new SpatialHash(width, height);
+		Random random = new Random(21);
+		List<Unit> units = new ArrayList<>();
+		for(int i=0;i<unitCount;i++) {
+			Unit unit = random.nextInt(3)==0 ? new MarkedUnit() : new Unit();
+			unit.centerOffX = 32;
+			unit.centerOffY = 24;
+			if(random.nextInt(50)==0) {
+				unit.positionX = random.nextInt(width+400)-200;
+				unit.positionY = random.nextBoolean() ? -100-random.nextInt(100) : height+random.nextInt(100);
+			}else {
+				unit.positionX = random.nextInt(width)-unit.centerOffX;
+				unit.positionY = random.nextInt(height)-unit.centerOffY;
+			}
+			units.add(unit);
+			hash.add(unit);
+		}
+		System.out.printf("地图 %dx%d, 单位 %d, 空间哈希中 %d%n", width, height, unitCount, hash.size());
+
+		verifyAndTime(hash, units, queries, new Random(1));
+
+		//移动
+		long moveNanos = 0;
+		for(int round=0;round<moveRounds;round++) {
+			for(Unit unit:units) {
+				unit.positionX += random.nextInt(7)-3;
+				unit.positionY += random.nextInt(5)-2;
+			}
+			long start = System.nanoTime();
+			for(Unit unit:units) {
+				hash.update(unit);
+			}
+			moveNanos += System.nanoTime()-start;
+		}
+		System.out.printf("移动%d轮: update %.1f ns/单位%n", moveRounds, (double)moveNanos/moveRounds/unitCount);
+
+		//移除一部分
+		for(int i=units.size()-1;i>=0;i-=4) {
+			hash.remove(units.remove(i));
+		}
+		System.out.printf("移除后 单位 %d, 空间哈希中 %d%n", units.size(), hash.size());
+		verifyAndTime(hash, units, queries, new Random(2));
+	}
+
+	private static void verifyAndTime(SpatialHash hash,List<Unit> units,int queries,Random random) {
+		int width = SysConfig.gameMapWidth;
+		int height = SysConfig.gameMapHeight;
+		int[][] params = new int[queries][];
+		for(int i=0;i<queries;i++) {
+			int x = random.nextInt(width+200)-100;
+			int y = random.nextInt(height+200)-100;
+			params[i] = new int[] {x, y, x+random.nextInt(401)-200, y+random.nextInt(301)-150,
+					random.nextInt(300), 1+random.nextInt(8), random.nextBoolean() ? -1 : random.nextInt(600)};
+		}
+
+		int mismatched = 0;
+		long found = 0;
+		for(int[] p:params) {
+			Class<? extends Unit> type = (p[4]&1)==0 ? Unit.class : MarkedUnit.class;
+			if(!sameUnits(hash.queryRect(p[0], p[1], p[2], p[3], type, new ArrayList<Unit>()), linearRect(units, p, type))) {
+				mismatched++;
+			}
+			List<Unit> inRadius = hash.queryRadius(p[0], p[1], p[4], type, new ArrayList<Unit>());
+			found += inRadius.size();
+			if(!sameUnits(inRadius, linearRadius(units, p, type))) {
+				mismatched++;
+			}
+			//距离相同的单位先后不定  只比较距离
+			if(!Arrays.equals(distances(hash.nearest(p[0], p[1], p[5], p[6], type), p), distances(linearNearest(units, p, type), p))) {
+				mismatched++;
+			}
+		}
+		System.out.printf("查询 %d 次, 范围内平均 %.1f 个, 与遍历结果不一致 %d%n", queries, (double)found/queries, mismatched);
+
+		long sink = 0;
+		for(int round=0;round<2;round++) {
+			long start = System.nanoTime();
+			for(int[] p:params) {
+				sink += hash.queryRect(p[0], p[1], p[2], p[3], Unit.class, new ArrayList<Unit>()).size();
+			}
+			long hashRect = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int[] p:params) {
+				sink += linearRect(units, p, Unit.class).size();
+			}
+			long linearRect = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int[] p:params) {
+				sink += hash.queryRadius(p[0], p[1], p[4], Unit.class, new ArrayList<Unit>()).size();
+			}
+			long hashRadius = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int[] p:params) {
+				sink += linearRadius(units, p, Unit.class).size();
+			}
+			long linearRadius = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int[] p:params) {
+				sink += hash.nearest(p[0], p[1], p[5], p[6], Unit.class).size();
+			}
+			long hashNearest = System.nanoTime()-start;
+			start = System.nanoTime();
+			for(int[] p:params) {
+				sink += linearNearest(units, p, Unit.class).size();
+			}
+			long linearNearest = System.nanoTime()-start;
+			if(round==1) {
+				System.out.printf("矩形: 空间哈希 %.2f µs/次, 遍历 %.2f µs/次%n", hashRect/1000.0/queries, linearRect/1000.0/queries);
+				System.out.printf("范围: 空间哈希 %.2f µs/次, 遍历 %.2f µs/次%n", hashRadius/1000.0/queries, linearRadius/1000.0/queries);
+				System.out.printf("最近k个: 空间哈希 %.2f µs/次, 遍历 %.2f µs/次 (%d)%n", hashNearest/1000.0/queries, linearNearest/1000.0/queries, sink);
+			}
+		}
+	}
+
+	private static List<Unit> linearRect(List<Unit> units,int[] p,Class<? extends Unit> type) {
+		int x1 = Math.min(p[0], p[2]);
+		int x2 = Math.max(p[0], p[2]);
+		int y1 = Math.min(p[1], p[3]);
+		int y2 = Math.max(p[1], p[3]);
+		List<Unit> result = new ArrayList<>();
+		for(Unit unit:units) {
+			int x = unit.positionX+unit.centerOffX;
+			int y = unit.positionY+unit.centerOffY;
+			if(x>=x1 && x<=x2 && y>=y1 && y<=y2 && type.isInstance(unit)) {
+				result.add(unit);
+			}
+		}
+		return result;
+	}
+
+	private static List<Unit> linearRadius(List<Unit> units,int[] p,Class<? extends Unit> type) {
+		long limit = (long)p[4]*p[4];
+		List<Unit> result = new ArrayList<>();
+		for(Unit unit:units) {
+			if(SpatialHash.distanceSquared(unit, p[0], p[1])<=limit && type.isInstance(unit)) {
+				result.add(unit);
+			}
+		}
+		return result;
+	}
+
+	private static List<Unit> linearNearest(List<Unit> units,int[] p,Class<? extends Unit> type) {
+		long limit = p[6]<0 ? Long.MAX_VALUE : (long)p[6]*p[6];
+		List<Unit> result = new ArrayList<>();
+		for(Unit unit:units) {
+			if(SpatialHash.distanceSquared(unit, p[0], p[1])<=limit && type.isInstance(unit)) {
+				result.add(unit);
+			}
+		}
+		final int x = p[0];
+		final int y = p[1];
+		Collections.sort(result, new Comparator<Unit>() {
+			@Override
+			public int compare(Unit a, Unit b) {
+				return Long.compare(SpatialHash.distanceSquared(a, x, y), SpatialHash.distanceSquared(b, x, y));
+			}
+		});
+		return result.size()>p[5] ? result.subList(0, p[5]) : result;
+	}
+
+	private static long[] distances(List<? extends Unit> units,int[] p) {
+		long[] d = new long[units.size()];
+		for(int i=0;i<d.length;i++) {
+			d[i] = SpatialHash.distanceSquared(units.get(i), p[0], p[1]);
+		}
+		Arrays.sort(d);
+		return d;
+	}
+
+	private static boolean sameUnits(List<? extends Unit> a,List<? extends Unit> b) {
+		if(a.size()!=b.size()) {
+			return false;
+		}
+		IdentityHashMap<Unit,Boolean> set = new IdentityHashMap<>();
+		for(Unit unit:a) {
+			set.put(unit, Boolean.TRUE);
+		}
+		for(Unit unit:b) {
+			if(set.remove(unit)==null) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,239 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.RuntimeParameter;
+import redAlert.SysConfig;
+import redAlert.enums.UnitColor;
+import redAlert.resourceCenter.ShapeUnitResourceCenter;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.shapeObjects.soldier.Gi;
+import redAlert.shapeObjects.vehicle.GrizTank;
+import redAlert.task.GameLoop;
+import redAlert.task.PathService;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.OccupancyGrid;
+import redAlert.utilBean.PathCache;
+import redAlert.utilBean.SpatialHash;
+import redAlert.utils.PointUtil;
+
+/**
+ * 逻辑帧并行计算的扩展性测试
+ *
+ * 在地图上放一批灰熊坦克和美国大兵,不停地给停下来的单位下达附近的移动命令,
+ * 分别用1、2、4、8个计算线程跑同样的逻辑帧数,输出每个逻辑帧的平均耗时(只计GameLoop.tick(),其中包括逻辑帧开始时等待还没算完的寻路请求)
+ * 每种线程数都从同样的初始局面开始,最后比较所有单位的位置和格子占用,检查提交阶段的结果与线程数无关
+ * 为了能比较结果,寻路服务设为逻辑帧开始时等所有请求算完(PathService.setWaitForSolved),游戏中不等
+ *
+ * 参数(都可省略)：
+ *   逻辑帧数 坦克数 步兵数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.TickScalingBenchmark 120 100 1000
+ */
+public class TickScalingBenchmark {
+
+	private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+	/**
+	 * 移动命令的范围(中心点)
+	 */
+	private static final int ORDER_RADIUS = 6;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int ticks = args.length>0 ? Integer.parseInt(args[0]) : 120;
+		int tankCount = args.length>1 ? Integer.parseInt(args[1]) : 100;
+		int soldierCount = args.length>2 ? Integer.parseInt(args[2]) : 1000;
+		int warmup = Math.min(60, ticks/5);
+
+		System.out.printf("逻辑帧数: %d (预热%d), 坦克: %d, 步兵: %d, CPU核数: %d%n",
+				ticks, warmup, tankCount, soldierCount, Runtime.getRuntime().availableProcessors());
+
+		PathService.getInstance().setWaitForSolved(true);
+		//先用1个线程完整跑一遍让JIT编译完,不计入结果
+		runScenario(1, ticks, warmup, tankCount, soldierCount);
+
+		long baseNanos = 0;
+		long baseFingerprint = 0;
+		for(int threads:THREAD_COUNTS) {
+			long[] result = runScenario(threads, ticks, warmup, tankCount, soldierCount);
+			if(threads==THREAD_COUNTS[0]) {
+				baseNanos = result[0];
+				baseFingerprint = result[4];
+			}
+			int measured = ticks-warmup;
+			System.out.printf("%d线程: %7.3f ms/逻辑帧 (意图 %7.3f ms, 提交 %6.3f ms), 加速 %.2fx, 预约冲突 %d, 结果%s%n",
+					threads, result[0]/1000000.0/measured, result[1]/1000000.0/measured, result[2]/1000000.0/measured,
+					(double)baseNanos/result[0], result[3], result[4]==baseFingerprint ? "与1线程一致" : "与1线程不一致");
+		}
+	}
+
+	/**
+	 * 从同样的初始局面跑ticks个逻辑帧
+	 * @return 逻辑帧总耗时、意图阶段总耗时、提交阶段总耗时(纳秒,不含预热)、预约冲突数、结果指纹
+	 */
+	static long[] runScenario(int threads,int ticks,int warmup,int tankCount,int soldierCount) {
+		resetWorld();
+		List<Vehicle> tanks = new ArrayList<>();
+		List<Soldier> soldiers = new ArrayList<>();
+		Random random = new Random(20);
+		spawn(random, tankCount, soldierCount, tanks, soldiers);
+
+		GameLoop gameLoop = new GameLoop(RuntimeParameter.fps, threads);
+		long tickNanos = 0;
+		long intentNanos = 0;
+		long commitNanos = 0;
+		for(int tick=0;tick<ticks;tick++) {
+			giveOrders(random, tanks, soldiers);
+			long start = System.nanoTime();
+			gameLoop.tick();
+			if(tick>=warmup) {
+				tickNanos += System.nanoTime()-start;
+				intentNanos += gameLoop.getLastIntentNanos();
+				commitNanos += gameLoop.getLastCommitNanos();
+			}
+		}
+		gameLoop.stopGameLoop();
+		return new long[] {tickNanos, intentNanos, commitNanos, gameLoop.getTickCommit().getBookConflicts(), fingerprint(tanks, soldiers)};
+	}
+
+	/**
+	 * 清空格子占用、待计算队列、寻路请求和资源中心的单位,让每种线程数都从空地图开始
+	 */
+	static void resetWorld() {
+		List<ShapeUnit> leftover = new ArrayList<>();
+		RuntimeParameter.drainPendingUnits(leftover);
+		PathService.getInstance().flush();
+		PathCache.getInstance().clear();
+		ShapeUnitResourceCenter.shapeUnitList.clear();
+		ShapeUnitResourceCenter.movableUnitQueryList.clear();
+		SpatialHash.getInstance().clear();
+		OccupancyGrid.clearUnits();
+		for(int id=0;id<DiamondGrid.LITTLE_CELL_COUNT;id++) {
+			LittleCenterPoint lcp = DiamondGrid.getLittleCell(id);
+			lcp.soldier = null;
+			lcp.preBooked.set(false);
+		}
+	}
+
+	/**
+	 * 按固定随机数种子放置单位
+	 */
+	static void spawn(Random random,int tankCount,int soldierCount,List<Vehicle> tanks,List<Soldier> soldiers) {
+		List<CenterPoint> cps = new ArrayList<>();
+		for(CenterPoint cp:allCenterPoints()) {
+			if(isInner(cp)) {
+				cps.add(cp);
+			}
+		}
+		while(tanks.size()<tankCount) {
+			CenterPoint cp = cps.get(random.nextInt(cps.size()));
+			if(cp.isVehicleCanOn()) {
+				GrizTank tank = new GrizTank(cp.getX()-64, cp.getY()-64, UnitColor.Red);
+				tank.setUnitNo(tanks.size());
+				tanks.add(tank);
+				RuntimeParameter.addBuildingToQueue(tank);
+			}
+		}
+		while(soldiers.size()<soldierCount) {
+			CenterPoint cp = cps.get(random.nextInt(cps.size()));
+			LittleCenterPoint lcp = littleCenterPointOf(cp, random.nextInt(4));
+			if(lcp!=null && lcp.soldier==null && cp.isSoldierCanOn()) {
+				Gi gi = new Gi(lcp, UnitColor.Blue);
+				gi.setUnitNo(tankCount+soldiers.size());
+				soldiers.add(gi);
+				RuntimeParameter.addBuildingToQueue(gi);
+			}
+		}
+	}
+
+	/**
+	 * 停下来的单位向附近随机一个能进入的中心点移动
+	 */
+	static void giveOrders(Random random,List<Vehicle> tanks,List<Soldier> soldiers) {
+		for(Vehicle tank:tanks) {
+			if(!tank.haveNextTarget() && tank.getEndTarget()==null) {
+				CenterPoint target = nearbyCenterPoint(random, tank.getCurCenterPoint());
+				if(target!=null && target.isVehicleCanOn()) {
+					tank.moveToTarget(target);
+				}
+			}
+		}
+		for(Soldier soldier:soldiers) {
+			if(!soldier.isMoving()) {
+				CenterPoint target = nearbyCenterPoint(random, soldier.getCurCenterPoint());
+				if(target!=null && target.isSoldierCanOn()) {
+					soldier.moveToTarget(target);
+				}
+			}
+		}
+	}
+
+	static CenterPoint nearbyCenterPoint(Random random,CenterPoint from) {
+		int dx = (random.nextInt(ORDER_RADIUS*2+1)-ORDER_RADIUS)*60;
+		int dy = (random.nextInt(ORDER_RADIUS*2+1)-ORDER_RADIUS)*30;
+		CenterPoint cp = PointUtil.fetchCenterPoint(from.getX()+dx, from.getY()+dy);
+		return cp!=null && isInner(cp) ? cp : null;
+	}
+
+	/**
+	 * 离地图边缘两格以上  边缘上的坐标换算不出中心点
+	 */
+	static boolean isInner(CenterPoint cp) {
+		return cp.getX()>=120 && cp.getX()<=2820 && cp.getY()>=60 && cp.getY()<=1410;
+	}
+
+	static LittleCenterPoint littleCenterPointOf(CenterPoint cp,int k) {
+		switch (k) {
+		case 0:
+			return cp.getLeftLittleCenterPoint();
+		case 1:
+			return cp.getRightLittleCenterPoint();
+		case 2:
+			return cp.getUpLittleCenterPoint();
+		default:
+			return cp.getDownLittleCenterPoint();
+		}
+	}
+
+	/**
+	 * 地图上所有中心点  次序与PointUtil初始化时相同
+	 */
+	static List<CenterPoint> allCenterPoints() {
+		List<CenterPoint> cps = new ArrayList<>();
+		for(int m=0;m<SysConfig.getMapRows();m++) {
+			for(int n=0;n<SysConfig.getMapColumns();n++) {
+				cps.add(PointUtil.fetchCenterPoint(30+60*n, 15+30*m));
+				cps.add(PointUtil.fetchCenterPoint(60*n, 30*m));
+			}
+		}
+		return cps;
+	}
+
+	/**
+	 * 所有单位的位置和格子占用的指纹
+	 */
+	static long fingerprint(List<Vehicle> tanks,List<Soldier> soldiers) {
+		long hash = 17;
+		for(Vehicle tank:tanks) {
+			hash = hash*31+tank.getPositionX();
+			hash = hash*31+tank.getPositionY();
+		}
+		for(Soldier soldier:soldiers) {
+			hash = hash*31+soldier.getPositionX();
+			hash = hash*31+soldier.getPositionY();
+		}
+		for(CenterPoint cp:allCenterPoints()) {
+			hash = hash*31+(cp.vehicle==null ? -1 : cp.vehicle.getUnitNo());
+			hash = hash*31+cp.getSoldierCount();
+			hash = hash*31+(cp.getBooker()==null ? -1 : cp.getBooker().getUnitNo());
+		}
+		return hash;
+	}
+}
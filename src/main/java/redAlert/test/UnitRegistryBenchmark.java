@@ -0,0 +1,167 @@
+package redAlert.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utilBean.UnitRegistry;
+
+/**
+ * 单位登记表测试
+ *
+ * 1 随机添加、移除、查找若干轮(部分单位编号相同),每轮检查UnitRegistry与按引用比较的参照集合一致,类型索引的数量正确
+ * 2 按指定单位数(默认10000)比较UnitRegistry与原来"ArrayList+contains"的添加、移除、contains、遍历耗时
+ *
+ * 参数(都可省略)：
+ *   单位数 轮数
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.UnitRegistryBenchmark 10000 20
+ */
+public class UnitRegistryBenchmark {
+
+	private static class Unit extends ShapeUnit {
+		@Override
+		public void calculateNextFrame() {}
+	}
+	private static class OtherUnit extends Unit {}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int count = args.length>0 ? Integer.parseInt(args[0]) : 10000;
+		int rounds = args.length>1 ? Integer.parseInt(args[1]) : 20;
+
+		Random random = new Random(22);
+		List<Unit> units = new ArrayList<>();
+		for(int i=0;i<count;i++) {
+			Unit unit = random.nextInt(4)==0 ? new OtherUnit() : new Unit();
+			//少量单位与前面的单位编号相同
+			if(!units.isEmpty() && random.nextInt(20)==0) {
+				unit.setUnitNo(units.get(random.nextInt(units.size())).getUnitNo());
+			}
+			units.add(unit);
+		}
+
+		//正确性
+		UnitRegistry<Unit> registry = new UnitRegistry<>(true);
+		IdentityHashMap<Unit,Boolean> reference = new IdentityHashMap<>();
+		int errors = 0;
+		for(int op=0;op<count*20;op++) {
+			Unit unit = units.get(random.nextInt(count));
+			switch(random.nextInt(3)) {
+			case 0:
+				if(registry.add(unit)!=(reference.put(unit, Boolean.TRUE)==null)) {
+					errors++;
+				}
+				break;
+			case 1:
+				if(registry.remove(unit)!=(reference.remove(unit)!=null)) {
+					errors++;
+				}
+				break;
+			default:
+				if(registry.contains(unit)!=reference.containsKey(unit)) {
+					errors++;
+				}
+				Unit found = registry.getByUnitNo(unit.getUnitNo());
+				if(reference.containsKey(unit) ? (found==null || found.getUnitNo()!=unit.getUnitNo()) : (found!=null && found.getUnitNo()!=unit.getUnitNo())) {
+					errors++;
+				}
+			}
+			if(op%count==0) {
+				errors += check(registry, reference);
+			}
+		}
+		errors += check(registry, reference);
+		//遍历时移除
+		for(Iterator<Unit> iterator = registry.iterator();iterator.hasNext();) {
+			Unit unit = iterator.next();
+			if(unit instanceof OtherUnit) {
+				iterator.remove();
+				reference.remove(unit);
+			}
+		}
+		errors += check(registry, reference);
+		System.out.printf("随机操作 %d 次, 登记 %d 个, 与参照集合不一致 %d%n", count*20, registry.size(), errors);
+
+		//耗时
+		List<Unit> shuffled = new ArrayList<>(units);
+		Collections.shuffle(shuffled, random);
+		for(int round=0;round<rounds;round++) {
+			long[] registryNanos = time(new UnitRegistry<Unit>(true), units, shuffled, true);
+			long[] listNanos = time(new ArrayList<Unit>(), units, shuffled, false);
+			if(round==rounds-1) {
+				System.out.printf("%d个单位, 每个操作的耗时(ns)  添加/contains/遍历/移除%n", count);
+				System.out.printf("  UnitRegistry:         %8.1f %8.1f %8.2f %8.1f%n", (double)registryNanos[0]/count, (double)registryNanos[1]/count, (double)registryNanos[2]/count, (double)registryNanos[3]/count);
+				System.out.printf("  ArrayList+contains:   %8.1f %8.1f %8.2f %8.1f%n", (double)listNanos[0]/count, (double)listNanos[1]/count, (double)listNanos[2]/count, (double)listNanos[3]/count);
+			}
+		}
+	}
+
+	private static int check(UnitRegistry<Unit> registry,IdentityHashMap<Unit,Boolean> reference) {
+		int errors = 0;
+		if(registry.size()!=reference.size()) {
+			errors++;
+		}
+		int others = 0;
+		for(int i=0;i<registry.size();i++) {
+			Unit unit = registry.get(i);
+			if(!reference.containsKey(unit) || registry.indexOf(unit)!=i) {
+				errors++;
+			}
+			if(unit.getClass()==OtherUnit.class) {
+				others++;
+			}
+		}
+		if(registry.ofType(OtherUnit.class).size()!=others || registry.ofType(Unit.class).size()!=registry.size()-others) {
+			errors++;
+		}
+		return errors;
+	}
+
+	/**
+	 * 全部添加、全部contains、遍历、按打乱的顺序全部移除
+	 * @param registry 是否是UnitRegistry  不是时添加、移除前先用contains判断(原来的写法)
+	 */
+	private static long[] time(List<Unit> list,List<Unit> units,List<Unit> shuffled,boolean registry) {
+		long[] nanos = new long[4];
+		long start = System.nanoTime();
+		for(Unit unit:units) {
+			if(registry || !list.contains(unit)) {
+				list.add(unit);
+			}
+		}
+		nanos[0] = System.nanoTime()-start;
+		int hits = 0;
+		start = System.nanoTime();
+		for(Unit unit:shuffled) {
+			if(list.contains(unit)) {
+				hits++;
+			}
+		}
+		nanos[1] = System.nanoTime()-start;
+		long sum = 0;
+		start = System.nanoTime();
+		for(int r=0;r<100;r++) {
+			for(Unit unit:list) {
+				sum += unit.positionX;
+			}
+		}
+		nanos[2] = (System.nanoTime()-start)/100;
+		start = System.nanoTime();
+		for(Unit unit:shuffled) {
+			if(registry || list.contains(unit)) {
+				list.remove(unit);
+			}
+		}
+		nanos[3] = System.nanoTime()-start;
+		if(hits+sum<0 || !list.isEmpty()) {
+			System.out.println("结果异常");
+		}
+		return nanos;
+	}
+}
@@ -0,0 +1,131 @@
+package redAlert.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.XunLuBean2;
+import redAlert.utilBean.XunLuBean3;
+
+/**
+ * 载具寻路的对比测试
+ *
+ * 在地图上随机放置岩石,取一批随机的起点终点,分别用XunLuBean2(字符串HashMap+PriorityQueue)和XunLuBean3(数组+索引堆)寻路,
+ * 检查两者的路径和代价完全相同,再分别计时,并统计XunLuBean3寻路时当前线程分配的内存
+ *
+ * 参数(都可省略)：
+ *   寻路次数 岩石比例(百分比)
+ * 例如：
+ *   java -Djava.awt.headless=true redAlert.test.XunLuBenchmark 2000 20
+ */
+public class XunLuBenchmark {
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int queries = args.length>0 ? Integer.parseInt(args[0]) : 2000;
+		int rockPercent = args.length>1 ? Integer.parseInt(args[1]) : 20;
+
+		Random random = new Random(11);
+		List<CenterPoint> open = new ArrayList<>();
+		for(CenterPoint cp:TickScalingBenchmark.allCenterPoints()) {
+			if(random.nextInt(100)<rockPercent) {
+				cp.setTerrainType(TerrainType.Rock);
+			}else {
+				open.add(cp);
+			}
+		}
+		CenterPoint[] starts = new CenterPoint[queries];
+		CenterPoint[] ends = new CenterPoint[queries];
+		for(int i=0;i<queries;i++) {
+			starts[i] = open.get(random.nextInt(open.size()));
+			ends[i] = open.get(random.nextInt(open.size()));
+		}
+		System.out.printf("寻路次数: %d, 岩石比例: %d%%, 可通行中心点: %d%n", queries, rockPercent, open.size());
+
+		Reference reference = new Reference();
+		XunLuBean3 bean3 = new XunLuBean3();
+
+		//比较结果
+		int mismatched = 0;
+		int found = 0;
+		for(int i=0;i<queries;i++) {
+			List<CenterPoint> expected = reference.search(starts[i], ends[i]);
+			List<CenterPoint> actual = bean3.xunlu(starts[i], ends[i]);
+			if(expected!=null) {
+				found++;
+			}
+			boolean same = expected==null ? actual==null : expected.equals(actual) && pathCost(expected)==bean3.getLastCost();
+			if(!same) {
+				mismatched++;
+				if(mismatched<=5) {
+					System.out.println("结果不同: "+starts[i]+" -> "+ends[i]+" XunLuBean2="+expected+" XunLuBean3="+actual);
+				}
+			}
+		}
+		System.out.printf("找到路径: %d, 结果不同: %d%n", found, mismatched);
+
+		//计时  先各跑一遍预热
+		for(int round=0;round<3;round++) {
+			long start = System.nanoTime();
+			for(int i=0;i<queries;i++) {
+				reference.search(starts[i], ends[i]);
+			}
+			long nanos2 = System.nanoTime()-start;
+
+			long allocated = allocatedBytes();
+			start = System.nanoTime();
+			for(int i=0;i<queries;i++) {
+				bean3.xunlu(starts[i], ends[i]);
+			}
+			long nanos3 = System.nanoTime()-start;
+			allocated = allocatedBytes()-allocated;
+
+			System.out.printf("第%d轮  XunLuBean2: %8.2f us/次, XunLuBean3: %8.2f us/次, 加速 %.1fx, XunLuBean3分配 %d 字节/次(含返回的路径)%n",
+					round+1, nanos2/1000.0/queries, nanos3/1000.0/queries, (double)nanos2/nanos3, allocated/queries);
+		}
+	}
+
+	/**
+	 * 路径代价  与寻路时的算法相同
+	 */
+	static int pathCost(List<CenterPoint> path) {
+		int cost = 0;
+		for(int i=1;i<path.size();i++) {
+			CenterPoint a = path.get(i-1);
+			CenterPoint b = path.get(i);
+			cost += a.getX()!=b.getX() && a.getY()!=b.getY() ? 1750 : 3600;
+		}
+		return cost;
+	}
+
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * 作为对照的XunLuBean2  每次寻路后重置,和原来的XunLuBeanAdapter一样
+	 */
+	static class Reference extends XunLuBean2 {
+		List<CenterPoint> search(CenterPoint startCp,CenterPoint endCp) {
+			List<CenterPoint> path = xunlu(startCp, endCp);
+			for(RaPoint rp:getHaveGetSet()) {
+				rp.setCurPrice(0);
+				rp.setEuDistance(9999);
+				rp.setLastPoint(null);
+				rp.setTotalPrice(Integer.MAX_VALUE);
+			}
+			getHaveGetSet().clear();
+			setFoundWay(false);
+			getRest().clear();
+			return path;
+		}
+	}
+}
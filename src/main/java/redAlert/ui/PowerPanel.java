@@ -13,7 +13,7 @@ import javax.swing.JPanel;
 
 import redAlert.OptionsPanel;
 import redAlert.ShapeUnitFrame;
-import redAlert.resourceCenter.ShapeUnitResourceCenter;
+import redAlert.resourceCenter.PowerGrid;
 import redAlert.resourceCenter.ShpResourceCenter;
 import redAlert.utils.CanvasPainter;
 
@@ -148,9 +148,8 @@ public class PowerPanel extends JPanel{
 		
 		//假设红色表示负载
 		//黄和绿表示剩余  黄色最少有3根
-		ShapeUnitResourceCenter.calculatePowerInfo();
-		int powerLoad = ShapeUnitResourceCenter.powerLoad;
-		int powerGeneration = ShapeUnitResourceCenter.powerGeneration;
+		int powerLoad = PowerGrid.getInstance().getLoad();
+		int powerGeneration = PowerGrid.getInstance().getGeneration();
 		
 		//计算电力线总个数
 		int total = powerGeneration/10;
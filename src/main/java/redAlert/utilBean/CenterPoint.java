@@ -3,7 +3,6 @@ package redAlert.utilBean;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.locks.ReentrantLock;
 
 import redAlert.enums.BuildingAreaType;
 import redAlert.enums.OverlayType;
@@ -13,7 +12,6 @@ import redAlert.shapeObjects.Building;
 import redAlert.shapeObjects.ShapeUnit;
 import redAlert.shapeObjects.Soldier;
 import redAlert.shapeObjects.Vehicle;
-import redAlert.shapeObjects.Vehicle.EngineStatus;
 import redAlert.utils.PointUtil;
 
 /**
@@ -35,14 +33,11 @@ public class CenterPoint {
 	 * 这个块是否在其他物体的遮挡区域中
 	 */
 	public boolean isInShadow = false;
-	/**
-	 * 并发处理锁
-	 * 增删改查载具、修改地块类型等都需要上锁 避免冲突
-	 */
-	public ReentrantLock lock = new ReentrantLock();
 	
 	/**
 	 * 坡地类型,默认是平地
+	 * 坡地类型、地形类型、覆盖物类型、建筑区域类型决定OccupancyGrid中的通行标记
+	 * 修改时要用setXxx方法,才会更新通行标记
 	 */
 	public RampType rampType = RampType.Flat;
 	/**
@@ -60,16 +55,19 @@ public class CenterPoint {
 	/**
 	 * 中心点上的建筑引用
 	 */
-	public Building building;
+	public volatile Building building;
 	/**
 	 * 中心点上的载具对象
 	 * 只有当载具的中心位于中心点坐标上,才会赋予载具引用
 	 */
-	public Vehicle vehicle;
+	public volatile Vehicle vehicle;
 	/**
-	 * 中心点所在菱形块上的步兵引用
+	 * 中心点编号(见DiamondGrid)
+	 * 有无建筑、有无载具、预约、步兵等占用状态按编号存放在OccupancyGrid中
+	 * 由DiamondGrid建立网格时填入,自己new出来的中心点为-1,这时按坐标使用网格中同一位置的占用状态
+	 * 相邻的中心点(次序见DiamondGrid的方向常量)和四个小中心点(左右上下)也按编号查表,自己new出来的中心点按坐标查找
 	 */
-	public List<Soldier> soldiers = new ArrayList<>();
+	int id = -1;
 	
 	
 	
@@ -94,25 +92,6 @@ public class CenterPoint {
 	 * 该坐标为地图坐标
 	 */
 	public int y;
-	/**
-	 * 
-	 * 
-	 * 预约占用标志
-	 * 当一个中心点被载具占用，且位于此中心点上载具正在移动中,其他载具不可以继续占领此中心点，需要阻塞等待其他载具释放占领标志
-	 * 当一个中心点被载具占用，且此中心点上没有载具，则其他载具不可以继续占领此中心点，其他载具需要阻塞等待至其他载具释放占领标志
-	 * 当一个中心点被载具占用，且此中心点上的载具不在移动中(实际上应该表述为即将结束移动),则其他载具不能占领此中心点，需要重新寻路
-	 * 
-	 * 当一个中心点未被载具占领，且此中心点上没有载具，其他载具可以申请占用,申请通过可以驶向此中心点
-	 * 当一个中心点未被载具占领，且此中心点上有移动中载具，其他载具可以申请占用
-	 * 当一个中心点未被载具占领，且此中心点上有静止载具，其他载具不可以申请占用
-	 * 
-	 * 不允许对一个中心点重复占用  这个值最大会变成1
-	 */
-	public volatile boolean bookedFlag = false;
-	/**
-	 * 预约占用者
-	 */
-	public volatile Vehicle booker = null;
 	
 	
 	
@@ -122,62 +101,76 @@ public class CenterPoint {
 	 */
 	public int tileIndex = 0;//地图标志
 	
+	/**
+	 * 占用状态所在的编号
+	 */
+	private int cellId() {
+		return id>=0 ? id : DiamondGrid.cellId(x, y);
+	}
+	
+	/**
+	 * 按坡地类型、地形类型、覆盖物类型、建筑区域类型计算通行标记
+	 */
+	private int terrainFlags() {
+		int flags = 0;
+		if(rampType.vehicleCondition() && terrainType.vehicleCondition() && overlayType.vehicleCondition()) {
+			if(buildingAreaType.vehicleCondition()) {
+				flags |= OccupancyGrid.VEHICLE_TERRAIN;
+			}
+			if(buildingAreaType.in(BuildingAreaType.None,BuildingAreaType.WeighBridge,BuildingAreaType.Vehicle_MBuilding)) {
+				flags |= OccupancyGrid.VEHICLE_PASS;
+			}
+		}
+		if(rampType.soldierCondition() && terrainType.soldierCondition() && overlayType.soldierCondition() && buildingAreaType.soldierCondition()) {
+			flags |= OccupancyGrid.SOLDIER_TERRAIN;
+		}
+		if(rampType.buildingCondition() && terrainType.buildingCondition() && overlayType.buildingCondition() && buildingAreaType.buildingCondition()) {
+			flags |= OccupancyGrid.BUILDING_TERRAIN;
+		}
+		return flags;
+	}
+	
+	/**
+	 * 更新通行标记  只有网格中的中心点才更新
+	 */
+	void refreshTerrainFlags() {
+		if(id>=0) {
+			OccupancyGrid.setTerrain(id, terrainFlags());
+		}
+	}
 	
 	/**
 	 * 申请占用
-	 * 占用成功的条件是booker=null 并且bookedFlag=0
+	 * 占用成功的条件是当前没有预约者  用CAS,不上锁
+	 * 
+	 * 预约占用规则:
+	 * 当一个中心点被载具占用，且位于此中心点上载具正在移动中,其他载具不可以继续占领此中心点，需要阻塞等待其他载具释放占领标志
+	 * 当一个中心点被载具占用，且此中心点上没有载具，则其他载具不可以继续占领此中心点，其他载具需要阻塞等待至其他载具释放占领标志
+	 * 当一个中心点被载具占用，且此中心点上的载具不在移动中(实际上应该表述为即将结束移动),则其他载具不能占领此中心点，需要重新寻路
+	 * 
+	 * 当一个中心点未被载具占领，且此中心点上没有载具，其他载具可以申请占用,申请通过可以驶向此中心点
+	 * 当一个中心点未被载具占领，且此中心点上有移动中载具，其他载具可以申请占用
+	 * 当一个中心点未被载具占领，且此中心点上有静止载具，其他载具不可以申请占用
+	 * 
+	 * 不允许对一个中心点重复占用
 	 * @return true表示申请通过
 	 */
 	public boolean addBook(Vehicle vehicle) {
-		synchronized (this) {
-			boolean getLock = lock.tryLock();
-			if(getLock) {
-				if(booker==null) {
-					bookedFlag = true;
-					booker = vehicle;
-					lock.unlock();
-					return true;
-				}else {
-					lock.unlock();
-					return false;
-				}
-			}else {
-				return false;
-			}
-		
-		}
+		return OccupancyGrid.addBook(cellId(), vehicle);
 	}
 	/**
 	 * 释放占用   防止把别人的占用的给释放了,所以传个参
 	 * @return
 	 */
 	public boolean exitBook(Vehicle vehicle) {
-		try {
-			lock.lock();
-			if(vehicle.equals(booker)) {//身份核验一致才行
-				bookedFlag = false;
-				booker = null;
-				return true;
-			}else {
-				return false;
-			}
-		}catch (Exception e) {
-			
-		}finally {
-			lock.unlock();
-		}
-		return false;
+		return OccupancyGrid.exitBook(cellId(), vehicle);
 	}
 	/**
 	 * 是否被某个载具占用
 	 * @return
 	 */
 	public boolean isBookedBy(Vehicle vehicle) {
-		if(vehicle.equals(booker) && bookedFlag) {
-			return true;
-		}else {
-			return false;
-		}
+		return vehicle.equals(OccupancyGrid.getBooker(cellId()));
 	}
 	
 	/**
@@ -185,79 +178,29 @@ public class CenterPoint {
 	 * @return
 	 */
 	public boolean isBooked() {
-		return bookedFlag;
+		return (OccupancyGrid.getState(cellId())&OccupancyGrid.BOOKED)!=0;
+	}
+	
+	/**
+	 * 预约占用者  没有时返回null
+	 */
+	public Vehicle getBooker() {
+		return OccupancyGrid.getBooker(cellId());
 	}
 	
 	/**
 	 * 是否满足建筑安放条件
+	 * 是平地、无特殊地形、无特殊覆盖物,无建筑、无载具、无士兵、无载具的预约占用
 	 */
 	public boolean isBuildingCanPutOn() {
-		try {
-			lock.lock();
-			if(!rampType.buildingCondition()) {//是平地
-				return false;
-			}
-			if(!terrainType.buildingCondition()) {//无特殊地形
-				return false;
-			}
-			if(!overlayType.buildingCondition()) {//无特殊覆盖物
-				return false;
-			}
-			if(!buildingAreaType.buildingCondition()) {//无建筑
-				return false;
-			}
-			if(building!=null) {//无建筑
-				return false;
-			}
-			if(vehicle!=null) {//无载具
-				return false;
-			}
-			if(!soldiers.isEmpty()) {//无士兵
-				return false;
-			}
-			if(bookedFlag) {//无载具的预约占用
-				return false;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return true;
+		return OccupancyGrid.isBuildingCanPutOn(cellId());
 	}
 	/**
 	 * 普通载具是否能进入
+	 * 地形满足载具进入条件,无载具、无士兵、无载具的预约占用
 	 */
 	public boolean isVehicleCanOn() {
-		try {
-			lock.lock();
-			if(!rampType.vehicleCondition()) {
-				return false;
-			}
-			if(!terrainType.vehicleCondition()) {
-				return false;
-			}
-			if(!overlayType.vehicleCondition()) {
-				return false;
-			}
-			if(!buildingAreaType.vehicleCondition()) {
-				return false;
-			}
-			if(vehicle!=null) {//无载具
-				return false;
-			}
-			if(!soldiers.isEmpty()) {//无士兵
-				return false;
-			}
-			if(bookedFlag) {//无载具的预约占用
-				return false;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return true;
+		return OccupancyGrid.isVehicleCanOn(cellId());
 	}
 	
 	/**
@@ -269,35 +212,21 @@ public class CenterPoint {
 	 * 
 	 */
 	public boolean isVehicleCanOnXunLuFirst() {
-		try {
-			lock.lock();
-			if(!rampType.vehicleCondition()) {
-				return false;
-			}
-			if(!terrainType.vehicleCondition()) {
-				return false;
-			}
-			if(!overlayType.vehicleCondition()) {
-				return false;
-			}
-			if(!buildingAreaType.vehicleCondition()) {
-				return false;
-			}
-			if(!soldiers.isEmpty()) {//无士兵
-				return false;
-			}
-			//移动中的载具也可以作为寻路节点
-			if(vehicle!=null) {
-				if(vehicle.getEngineStatus()==EngineStatus.Stopped) {//存在停止的载具
-					return false;
-				}
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return true;
+		return OccupancyGrid.isVehicleCanOnXunLuFirst(cellId());
+	}
+	/**
+	 * 只看地形和建筑   载具能否通过这个中心点
+	 * 不考虑单位,分层寻路用;磅秤上有载具时仍然算能通过
+	 */
+	public boolean isVehicleCanPass() {
+		return OccupancyGrid.isVehicleCanPass(cellId());
+	}
+	/**
+	 * 只看地形和建筑   步兵能否通过这个中心点
+	 * 不考虑单位,连通区域索引用
+	 */
+	public boolean isSoldierCanPass() {
+		return OccupancyGrid.isSoldierCanPass(cellId());
 	}
 	/**
 	 * 载具二次寻路时   载具是否可入这个中心点
@@ -308,29 +237,7 @@ public class CenterPoint {
 	 * 
 	 */
 	public boolean isVehicleCanOnXunLuSecond() {
-		try {
-			lock.lock();
-			if(!rampType.vehicleCondition()) {
-				return false;
-			}
-			if(!terrainType.vehicleCondition()) {
-				return false;
-			}
-			if(!overlayType.vehicleCondition()) {
-				return false;
-			}
-			if(!buildingAreaType.vehicleCondition()) {
-				return false;
-			}
-			if(!soldiers.isEmpty()) {//无士兵
-				return false;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return true;
+		return OccupancyGrid.isVehicleCanOnXunLuSecond(cellId());
 	}
 	
 	/**
@@ -344,34 +251,16 @@ public class CenterPoint {
 	 * 是否存在正在旋转车身的载具
 	 */
 	public boolean isExistTurningVehicle() {
-		try {
-			lock.lock();
-			if(vehicle.targetTurn!=vehicle.curTurn) {
-				return true;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return false;
+		Vehicle vehicle = this.vehicle;
+		return vehicle!=null && vehicle.targetTurn!=vehicle.curTurn;
 	}
 	
 	/**
 	 * 是否存在速度大于0的载具
 	 */
 	public boolean isExistSpeedVehicle() {
-		lock.lock();
-		try {
-			if(vehicle.speed>0) {
-				return true;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return false;
+		Vehicle vehicle = this.vehicle;
+		return vehicle!=null && vehicle.speed>0;
 	}
 	
 	/**
@@ -384,7 +273,7 @@ public class CenterPoint {
 		if(vehicle!=null) {
 			return true;
 		}
-		if(!soldiers.isEmpty()) {
+		if(getSoldierCount()>0) {
 			return true;
 		}
 		return false;
@@ -394,12 +283,17 @@ public class CenterPoint {
 	 * 鼠标单击获取此地单位
 	 */
 	public ShapeUnit mouseClickGetUnit() {
+		Vehicle vehicle = this.vehicle;
+		Building building = this.building;
 		if(vehicle!=null) {
 			return vehicle;
 		}else if(building!=null) {
 			return building;
-		}else if(!soldiers.isEmpty()) {
-			return soldiers.get(0);
+		}else {
+			List<Soldier> soldiers = getSoldiers();
+			if(!soldiers.isEmpty()) {
+				return soldiers.get(0);
+			}
 		}
 		
 		return null;
@@ -410,40 +304,7 @@ public class CenterPoint {
 	 * 有三个步兵的格子不能进入
 	 */
 	public boolean isSoldierCanOn() {
-		try {
-			lock.lock();
-			if(!rampType.soldierCondition()) {
-				return false;
-			}
-			if(!terrainType.soldierCondition()) {
-				return false;
-			}
-			if(!overlayType.soldierCondition()) {
-				return false;
-			}
-			if(!buildingAreaType.soldierCondition()) {//无建筑
-				return false;
-			}
-			if(building!=null) {//无建筑
-				return false;
-			}
-			if(vehicle!=null) {//无载具
-				return false;
-			}
-			if(bookedFlag) {//无载具的预约占用
-				return false;
-			}
-			if(!soldiers.isEmpty()) {//士兵数<3
-				if(soldiers.size()>=3) {
-					return false;
-				}
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
-		return true;
+		return OccupancyGrid.isSoldierCanOn(cellId());
 	}
 	
 	
@@ -452,70 +313,48 @@ public class CenterPoint {
 	 * 添加建筑
 	 */
 	public void addBuilding(Building building,BuildingAreaType buildingAreaType) {
-		try {
-			lock.lock();
-			this.building = building;
-			this.buildingAreaType = buildingAreaType;
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
+		this.building = building;
+		this.buildingAreaType = buildingAreaType;
+		OccupancyGrid.update(cellId(), 0, OccupancyGrid.BUILDING);
+		refreshTerrainFlags();
 	}
 	/**
 	 * 添加载具  需要考虑是在空白地面  还是在建筑面
 	 */
 	public void addVehicle(Vehicle vehicle) {
-		try {
-			lock.lock();
-			this.vehicle = vehicle;
-			if(buildingAreaType==BuildingAreaType.WeighBridge) {
-				buildingAreaType = BuildingAreaType.Vehicle_MBuilding;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
+		this.vehicle = vehicle;
+		OccupancyGrid.update(cellId(), 0, OccupancyGrid.VEHICLE);
+		if(buildingAreaType==BuildingAreaType.WeighBridge) {
+			buildingAreaType = BuildingAreaType.Vehicle_MBuilding;
+			refreshTerrainFlags();
 		}
 	}
 	/**
-	 * 添加步兵
+	 * 添加步兵  不能进入时不添加
+	 * @return 添加成功返回true
 	 */
-	public void addSoldier(Soldier soldier) {
-		try {
-			lock.lock();
-			if(isSoldierCanOn()) {
-				soldiers.add(soldier);
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
-		}
+	public boolean addSoldier(Soldier soldier) {
+		return OccupancyGrid.addSoldier(cellId(), soldier);
 	}
 	
 	/**
 	 * 移除单位   需要考虑是在空白地面  还是在建筑面
 	 */
 	public void removeUnit(ShapeUnit shapeUnit) {
-		try {
-			lock.lock();
-			if(shapeUnit instanceof Vehicle) {
-				vehicle = null;
-				if(buildingAreaType==BuildingAreaType.Vehicle_MBuilding) {
-					buildingAreaType = BuildingAreaType.WeighBridge;
-				}
+		if(shapeUnit instanceof Vehicle) {
+			vehicle = null;
+			OccupancyGrid.update(cellId(), OccupancyGrid.VEHICLE, 0);
+			if(buildingAreaType==BuildingAreaType.Vehicle_MBuilding) {
+				buildingAreaType = BuildingAreaType.WeighBridge;
+				refreshTerrainFlags();
 			}
-			if(shapeUnit instanceof Soldier) {
-				soldiers.remove(shapeUnit);
-			}
-			if(shapeUnit instanceof Building) {
-				building = null;
-			}
-		}catch (Exception e) {
-			e.printStackTrace();
-		}finally {
-			lock.unlock();
+		}
+		if(shapeUnit instanceof Soldier) {
+			OccupancyGrid.removeSoldier(cellId(), (Soldier)shapeUnit);
+		}
+		if(shapeUnit instanceof Building) {
+			building = null;
+			OccupancyGrid.update(cellId(), OccupancyGrid.BUILDING, 0);
 		}
 	}
 	
@@ -549,6 +388,9 @@ public class CenterPoint {
 	 * 获取一个中心点的左上中心点
 	 */
 	public CenterPoint getLeftUp() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.LEFT_UP);
+		}
 		int x1 = x - ox;
 		int y1 = y - oy;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -557,6 +399,9 @@ public class CenterPoint {
 	 * 获取一个中心点的左中心点
 	 */
 	public CenterPoint getLeft() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.LEFT);
+		}
 		int x1 = x - ox*2;
 		int y1 = y;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -565,6 +410,9 @@ public class CenterPoint {
 	 * 获取一个中心点的左下中心点
 	 */
 	public CenterPoint getLeftDn() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.LEFT_DOWN);
+		}
 		int x1 = x - ox;
 		int y1 = y + oy;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -573,6 +421,9 @@ public class CenterPoint {
 	 * 获取一个中心点的下中心点
 	 */
 	public CenterPoint getDn() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.DOWN);
+		}
 		int x1 = x;
 		int y1 = y + oy*2;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -581,6 +432,9 @@ public class CenterPoint {
 	 * 获取一个中心点的右下中心点
 	 */
 	public CenterPoint getRightDn() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.RIGHT_DOWN);
+		}
 		int x1 = x + ox;
 		int y1 = y + oy;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -589,6 +443,9 @@ public class CenterPoint {
 	 * 获取一个中心点的右中心点
 	 */
 	public CenterPoint getRight() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.RIGHT);
+		}
 		int x1 = x + ox*2;
 		int y1 = y;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -597,6 +454,9 @@ public class CenterPoint {
 	 * 获取一个中心点的右上中心点
 	 */
 	public CenterPoint getRightUp() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.RIGHT_UP);
+		}
 		int x1 = x + ox;
 		int y1 = y - oy;
 		return PointUtil.fetchCenterPoint(x1, y1);
@@ -605,24 +465,39 @@ public class CenterPoint {
 	 * 获取一个中心点的上中心点
 	 */
 	public CenterPoint getUp() {
+		if(id>=0) {
+			return DiamondGrid.neighborCell(id, DiamondGrid.UP);
+		}
 		int x1 = x;
 		int y1 = y - oy*2;
 		return PointUtil.fetchCenterPoint(x1, y1);
 	}
 	
 	public LittleCenterPoint getLeftLittleCenterPoint() {
+		if(id>=0) {
+			return DiamondGrid.getLittleCell(id*4+DiamondGrid.SIDE_LEFT);
+		}
 		int x1 = x - 16;
 		return PointUtil.fetchLittleCenterPoint(x1, y);
 	}
 	public LittleCenterPoint getRightLittleCenterPoint() {
+		if(id>=0) {
+			return DiamondGrid.getLittleCell(id*4+DiamondGrid.SIDE_RIGHT);
+		}
 		int x1 = x + 16;
 		return PointUtil.fetchLittleCenterPoint(x1, y);
 	}
 	public LittleCenterPoint getUpLittleCenterPoint() {
+		if(id>=0) {
+			return DiamondGrid.getLittleCell(id*4+DiamondGrid.SIDE_UP);
+		}
 		int y1 = y - 8;
 		return PointUtil.fetchLittleCenterPoint(x, y1);
 	}
 	public LittleCenterPoint getDownLittleCenterPoint() {
+		if(id>=0) {
+			return DiamondGrid.getLittleCell(id*4+DiamondGrid.SIDE_DOWN);
+		}
 		int y1 = y + 8;
 		return PointUtil.fetchLittleCenterPoint(x, y1);
 	}
@@ -656,42 +531,70 @@ public class CenterPoint {
 	}
 	public void setBuilding(Building building) {
 		this.building = building;
+		if(building==null) {
+			OccupancyGrid.update(cellId(), OccupancyGrid.BUILDING, 0);
+		}else {
+			OccupancyGrid.update(cellId(), 0, OccupancyGrid.BUILDING);
+		}
 	}
 	public Vehicle getVehicle() {
 		return vehicle;
 	}
 	public void setVehicle(Vehicle vehicle) {
 		this.vehicle = vehicle;
+		if(vehicle==null) {
+			OccupancyGrid.update(cellId(), OccupancyGrid.VEHICLE, 0);
+		}else {
+			OccupancyGrid.update(cellId(), 0, OccupancyGrid.VEHICLE);
+		}
 	}
+	/**
+	 * 中心点上的步兵  返回的是当时的副本
+	 */
 	public List<Soldier> getSoldiers() {
+		int id = cellId();
+		List<Soldier> soldiers = new ArrayList<>(OccupancyGrid.MAX_SOLDIERS);
+		for(int i=0;i<OccupancyGrid.MAX_SOLDIERS;i++) {
+			Soldier soldier = OccupancyGrid.getSoldier(id, i);
+			if(soldier!=null) {
+				soldiers.add(soldier);
+			}
+		}
 		return soldiers;
 	}
-	public void setSoldiers(List<Soldier> soldiers) {
-		this.soldiers = soldiers;
+	/**
+	 * 中心点上的步兵个数
+	 */
+	public int getSoldierCount() {
+		return OccupancyGrid.getSoldierCount(cellId());
 	}
 	public RampType getRampType() {
 		return rampType;
 	}
 	public void setRampType(RampType rampType) {
 		this.rampType = rampType;
+		refreshTerrainFlags();
 	}
 	public TerrainType getTerrainType() {
 		return terrainType;
 	}
 	public void setTerrainType(TerrainType terrainType) {
 		this.terrainType = terrainType;
+		refreshTerrainFlags();
 	}
 	public OverlayType getOverlayType() {
 		return overlayType;
 	}
 	public void setOverlayType(OverlayType overlayType) {
 		this.overlayType = overlayType;
+		refreshTerrainFlags();
 	}
 	public BuildingAreaType getBuildingAreaType() {
 		return buildingAreaType;
 	}
 	public void setBuildingAreaType(BuildingAreaType buildingAreaType) {
 		this.buildingAreaType = buildingAreaType;
+		refreshTerrainFlags();
 	}
 	
 	
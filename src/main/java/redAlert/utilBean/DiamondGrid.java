@@ -0,0 +1,262 @@
+package redAlert.utilBean;
+
+import redAlert.SysConfig;
+import redAlert.enums.Direction;
+import redAlert.utils.PointUtil;
+
+/**
+ * 菱形网格
+ *
+ * 中心点和小中心点都按坐标换算成连续的整数编号,存放在数组里,按坐标查找只是几次整数运算
+ * 以前中心点放在以long为键的HashMap里,小中心点放在以"x,y"字符串为键的HashMap里,每次查找都要装箱或拼字符串
+ * 相邻点按编号存在相邻点编号表里,CenterPoint.getLeft()等方法查表得到,不再按坐标查找
+ *
+ * 类初始化时只建立中心点,相邻点编号表和小中心点第一次用到时才建立,大地图上加载地图时不用先建好全部网格
+ * 网格按初始化时的地图大小建立,之后SysConfig.setMapSize不能再改变地图大小
+ *
+ * 中心点坐标都是(30的倍数,15的倍数),列号x/30与行号y/15的奇偶相同,一行只有一半的列有中心点
+ * 中心点编号 = 行号*每行中心点数 + 列号/2
+ * 小中心点编号 = 所在中心点编号*4 + 方位(左0 右1 上2 下3)
+ */
+public class DiamondGrid {
+
+	/**
+	 * 网格的列数、行数(按x/30、y/15计)
+	 */
+	public static final int COLUMNS = SysConfig.gameMapWidth/30;
+	public static final int ROWS = SysConfig.gameMapHeight/15;
+	public static final int ROW_STRIDE = (COLUMNS+1)/2;
+	public static final int CELL_COUNT = ROWS*ROW_STRIDE;
+	public static final int LITTLE_CELL_COUNT = CELL_COUNT*4;
+
+	/**
+	 * 相邻点的方向  右上 右下 左下 左上 左 右 上 下
+	 * 与寻路(XunLuBean2._xunlu、XunLuBean3)中的次序相同
+	 */
+	public static final int DIRECTIONS = 8;
+	public static final int RIGHT_UP = 0;
+	public static final int RIGHT_DOWN = 1;
+	public static final int LEFT_DOWN = 2;
+	public static final int LEFT_UP = 3;
+	public static final int LEFT = 4;
+	public static final int RIGHT = 5;
+	public static final int UP = 6;
+	public static final int DOWN = 7;
+
+	/**
+	 * 小中心点的方位
+	 */
+	public static final int SIDE_LEFT = 0;
+	public static final int SIDE_RIGHT = 1;
+	public static final int SIDE_UP = 2;
+	public static final int SIDE_DOWN = 3;
+
+	/**
+	 * 中心点的相邻点偏移
+	 */
+	private static final int[] STEP_X = {30, 30, -30, -30, -60, 60, 0, 0};
+	private static final int[] STEP_Y = {-15, 15, 15, -15, 0, 0, -30, 30};
+	/**
+	 * 小中心点的相邻点偏移  [方位][方向]{dx,dy}  与LittleCenterPoint、SoldierXunLuBean2.RaPoint的getXxx方法相同
+	 */
+	private static final int[][][] LITTLE_STEPS = {
+		//左
+		{{16,-8}, {16,8}, {-14,7}, {-14,-7}, {-28,0}, {32,0}, {2,-15}, {2,15}},
+		//右
+		{{14,-7}, {14,7}, {-16,8}, {-16,-8}, {-32,0}, {28,0}, {-2,-15}, {-2,15}},
+		//上
+		{{14,-7}, {16,8}, {-16,8}, {-14,-7}, {-30,1}, {30,1}, {0,-14}, {0,16}},
+		//下
+		{{16,-8}, {14,7}, {-14,7}, {-16,-8}, {-30,-1}, {30,-1}, {0,-16}, {0,14}},
+	};
+
+	/**
+	 * 编号对应的中心点  没有点的编号为null
+	 */
+	static final CenterPoint[] cells = new CenterPoint[CELL_COUNT];
+
+	static {
+		//网格按这时的地图大小建立,之后不能再改变地图大小
+		SysConfig.lockMapSize();
+		//一类中心点(行号为奇数)和二类中心点(行号为偶数)
+		for(int row=0;row<ROWS;row++) {
+			for(int col=row&1;col<COLUMNS;col+=2) {
+				int id = row*ROW_STRIDE+col/2;
+				cells[id] = new CenterPoint(col*30, row*15);
+				cells[id].id = id;
+			}
+		}
+		for(int id=0;id<CELL_COUNT;id++) {
+			if(cells[id]!=null) {
+				//默认地形的通行标记
+				cells[id].refreshTerrainFlags();
+			}
+		}
+	}
+
+	/**
+	 * 中心点的相邻点编号表  编号*8+方向,没有相邻点时为-1
+	 * 第一次用到时(寻路、CenterPoint.getLeft()等)才建立
+	 */
+	private static final class CellTables {
+		static final int[] neighbors = new int[CELL_COUNT*DIRECTIONS];
+
+		static {
+			for(int id=0;id<CELL_COUNT;id++) {
+				CenterPoint cp = cells[id];
+				for(int d=0;d<DIRECTIONS;d++) {
+					neighbors[id*DIRECTIONS+d] = cp==null ? -1 : cellId(cp.getX()+STEP_X[d], cp.getY()+STEP_Y[d]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 小中心点和小中心点的相邻点编号表(编号*8+方向,没有相邻点时为-1)
+	 * 小中心点是中心点的4倍,只有步兵用到,第一次用到时才建立
+	 */
+	private static final class LittleTables {
+		static final LittleCenterPoint[] cells = new LittleCenterPoint[LITTLE_CELL_COUNT];
+		static final int[] neighbors = new int[LITTLE_CELL_COUNT*DIRECTIONS];
+
+		static {
+			for(int id=0;id<CELL_COUNT;id++) {
+				CenterPoint cp = DiamondGrid.cells[id];
+				if(cp==null) {
+					continue;
+				}
+				int x = cp.getX();
+				int y = cp.getY();
+				cells[id*4+SIDE_LEFT] = new LittleCenterPoint(x-16, y, Direction.Left);
+				cells[id*4+SIDE_RIGHT] = new LittleCenterPoint(x+16, y, Direction.Right);
+				cells[id*4+SIDE_UP] = new LittleCenterPoint(x, y-8, Direction.Up);
+				cells[id*4+SIDE_DOWN] = new LittleCenterPoint(x, y+8, Direction.Down);
+			}
+			for(int id=0;id<LITTLE_CELL_COUNT;id++) {
+				LittleCenterPoint lcp = cells[id];
+				for(int d=0;d<DIRECTIONS;d++) {
+					int[] step = LITTLE_STEPS[id&3][d];
+					neighbors[id*DIRECTIONS+d] = lcp==null ? -1 : littleCellId(lcp.getX()+step[0], lcp.getY()+step[1]);
+				}
+				if(lcp!=null) {
+					//与以前按坐标找中心点的结果相同  地图边缘伸出去的小中心点不在任何中心点的菱形里,为null
+					lcp.centerPoint = PointUtil.getCenterPoint(lcp.getX(), lcp.getY());
+					lcp.id = id;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 中心点的相邻点编号表  编号*8+方向,没有相邻点时为-1
+	 */
+	public static int[] cellNeighbors() {
+		return CellTables.neighbors;
+	}
+
+	/**
+	 * 编号对应的小中心点  没有点的编号为null
+	 */
+	public static LittleCenterPoint[] littleCells() {
+		return LittleTables.cells;
+	}
+
+	/**
+	 * 小中心点的相邻点编号表  编号*8+方向,没有相邻点时为-1
+	 */
+	public static int[] littleNeighbors() {
+		return LittleTables.neighbors;
+	}
+
+	/**
+	 * 坐标对应的中心点编号  不是中心点时返回-1
+	 */
+	public static int cellId(int x,int y) {
+		if(x<0 || y<0 || x%30!=0 || y%15!=0) {
+			return -1;
+		}
+		int col = x/30;
+		int row = y/15;
+		if(col>=COLUMNS || row>=ROWS || ((col^row)&1)!=0) {
+			return -1;
+		}
+		int id = row*ROW_STRIDE+col/2;
+		return cells[id]==null ? -1 : id;
+	}
+
+	/**
+	 * 坐标对应的小中心点编号  不是小中心点时返回-1
+	 * 左、右小中心点在中心点左右16像素,上、下小中心点在中心点上下8像素,由坐标除以30、15的余数就能确定方位
+	 */
+	public static int littleCellId(int x,int y) {
+		int modX = Math.floorMod(x, 30);
+		int modY = Math.floorMod(y, 15);
+		int id;
+		int side;
+		if(modY==0 && modX==14) {
+			id = cellId(x+16, y);
+			side = SIDE_LEFT;
+		}else if(modY==0 && modX==16) {
+			id = cellId(x-16, y);
+			side = SIDE_RIGHT;
+		}else if(modX==0 && modY==7) {
+			id = cellId(x, y+8);
+			side = SIDE_UP;
+		}else if(modX==0 && modY==8) {
+			id = cellId(x, y-8);
+			side = SIDE_DOWN;
+		}else {
+			return -1;
+		}
+		return id<0 ? -1 : id*4+side;
+	}
+
+	/**
+	 * 获取中心点  不是中心点坐标时返回null
+	 */
+	public static CenterPoint getCenterPoint(int x,int y) {
+		int id = cellId(x, y);
+		return id<0 ? null : cells[id];
+	}
+
+	/**
+	 * 获取小中心点  不是小中心点坐标时返回null
+	 */
+	public static LittleCenterPoint getLittleCenterPoint(int x,int y) {
+		int id = littleCellId(x, y);
+		return id<0 ? null : LittleTables.cells[id];
+	}
+
+	/**
+	 * 按编号获取中心点、小中心点
+	 */
+	public static CenterPoint getCell(int id) {
+		return cells[id];
+	}
+	public static LittleCenterPoint getLittleCell(int id) {
+		return LittleTables.cells[id];
+	}
+
+	/**
+	 * 相邻点的编号  没有时返回-1
+	 * @param direction 方向常量RIGHT_UP等
+	 */
+	public static int neighborId(int id,int direction) {
+		return CellTables.neighbors[id*DIRECTIONS+direction];
+	}
+	public static int littleNeighborId(int id,int direction) {
+		return LittleTables.neighbors[id*DIRECTIONS+direction];
+	}
+
+	/**
+	 * 相邻的中心点、小中心点  没有时返回null
+	 */
+	static CenterPoint neighborCell(int id,int direction) {
+		int next = CellTables.neighbors[id*DIRECTIONS+direction];
+		return next<0 ? null : cells[next];
+	}
+	static LittleCenterPoint neighborLittleCell(int id,int direction) {
+		int next = LittleTables.neighbors[id*DIRECTIONS+direction];
+		return next<0 ? null : LittleTables.cells[next];
+	}
+}
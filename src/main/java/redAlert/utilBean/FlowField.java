@@ -0,0 +1,460 @@
+package redAlert.utilBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import redAlert.SysConfig;
+import redAlert.utils.IndexedMinHeap;
+
+/**
+ * 流场  群体移动命令用的寻路方法
+ *
+ * 以移动命令的所有目标点(目标区域)为起点做一次Dijkstra,得到每个点到目标区域的最小代价(积分场)和下一步该走的相邻点,
+ * 命令中的每个单位从自己所在的点顺着代价下降的方向走,就得到一条到目标区域的路径,不用每个单位做一次A*
+ * 每个单位走到的目标点记为已占用,后到的单位走到已占用的目标点时,再就近走到一个还没人占用的目标点
+ *
+ * 载具在中心点网格上计算,相邻点和代价与XunLuBean3相同,静止的载具不算障碍(和二次寻路一样,移动时让它让路)
+ * 步兵在小中心点网格上计算,相邻点和代价与SoldierXunLuBean2相同
+ *
+ * 同一组目标点的流场会缓存一小段时间(SysConfig.flowFieldCacheMillis),反复对同一个地方下命令时直接复用
+ * 地图通行情况改变时缓存清空(见PointUtil.notifyPassabilityChanged)
+ *
+ * 流场由寻路线程建立(见PathService.requestVehicleFlowPaths),不占用下达命令的线程和逻辑线程
+ */
+public class FlowField {
+
+	/**
+	 * 走不到目标区域的点的代价
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	private static final int DIRECTIONS = XunLuBean3.DIRECTIONS;
+	/**
+	 * 缓存的流场个数
+	 */
+	private static final int CACHE_SIZE = 8;
+
+	/**
+	 * 小中心点编号 = 所在中心点编号*4 + 方位(左0 右1 上2 下3)  见DiamondGrid
+	 */
+	public static final int LITTLE_CELL_COUNT = DiamondGrid.LITTLE_CELL_COUNT;
+	/**
+	 * 步兵走一步的代价  次序：右上 右下 左下 左上 左 右 上 下
+	 */
+	private static final int[] LITTLE_STEP_COST = {450, 450, 450, 450, 31*31, 31*31, 31*31, 31*31};
+	/**
+	 * 小中心点编号  不在地图上时返回-1
+	 */
+	public static int littleCellId(LittleCenterPoint lcp) {
+		return DiamondGrid.littleCellId(lcp.getX(), lcp.getY());
+	}
+
+	/**
+	 * 载具流场还是步兵流场
+	 */
+	private final boolean vehicle;
+	/**
+	 * 目标点编号  升序
+	 */
+	private final int[] goals;
+	/**
+	 * 积分场  每个点到目标区域的最小代价
+	 */
+	private final int[] cost;
+	/**
+	 * 每个点下一步该走的相邻点  目标点和走不到的点为-1
+	 */
+	private final int[] next;
+	private final long createdMillis;
+	/**
+	 * toFreeGoal用  第一次用到时创建
+	 */
+	private int[] parent;
+	private int[] seen;
+	private int[] queue;
+	private int stamp = 0;
+
+	/**
+	 * 建流场时用的堆和可进入标记  每个线程一份,大地图上不用每次建流场都新建这些与地图一样大的数组
+	 */
+	private static final class Scratch {
+		final boolean[] usable;
+		final IndexedMinHeap open;
+
+		Scratch(int count) {
+			usable = new boolean[count];
+			open = new IndexedMinHeap(count);
+		}
+	}
+	private static final ThreadLocal<Scratch> VEHICLE_SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch(XunLuBean3.CELL_COUNT);
+		}
+	};
+	private static final ThreadLocal<Scratch> SOLDIER_SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch(LITTLE_CELL_COUNT);
+		}
+	};
+
+	private FlowField(boolean vehicle,int[] goals) {
+		int n = vehicle ? XunLuBean3.CELL_COUNT : LITTLE_CELL_COUNT;
+		this.vehicle = vehicle;
+		this.goals = goals;
+		this.cost = new int[n];
+		this.next = new int[n];
+		this.createdMillis = System.currentTimeMillis();
+		integrate();
+	}
+
+	/**
+	 * 从目标点出发的Dijkstra
+	 * 相邻关系是对称的,从目标点往外扩展得到的就是每个点走到目标区域的代价
+	 */
+	private void integrate() {
+		Arrays.fill(cost, UNREACHABLE);
+		Arrays.fill(next, -1);
+		int[] neighbors = vehicle ? XunLuBean3.neighbors : DiamondGrid.littleNeighbors();
+		int[] stepCost = vehicle ? XunLuBean3.STEP_COST : LITTLE_STEP_COST;
+		//每个点能否进入只判断一次
+		Scratch scratch = (vehicle ? VEHICLE_SCRATCH : SOLDIER_SCRATCH).get();
+		boolean[] usable = scratch.usable;
+		for(int id=0;id<usable.length;id++) {
+			usable[id] = (vehicle ? XunLuBean3.cells[id]!=null : DiamondGrid.getLittleCell(id)!=null) && canUse(id);
+		}
+		IndexedMinHeap open = scratch.open;
+		open.clear();
+		for(int goal:goals) {
+			if(usable[goal]) {
+				cost[goal] = 0;
+				open.push(goal, 0);
+			}
+		}
+		while(!open.isEmpty()) {
+			int cur = open.pop();
+			int price = cost[cur];
+			int base = cur*DIRECTIONS;
+			for(int d=0;d<DIRECTIONS;d++) {
+				int nb = neighbors[base+d];
+				if(nb<0) {
+					continue;
+				}
+				int newPrice = price+stepCost[d];
+				if(newPrice>=cost[nb] || !usable[nb]) {
+					continue;
+				}
+				if(open.contains(nb)) {
+					open.decreaseKey(nb, newPrice);
+				}else {
+					open.push(nb, newPrice);
+				}
+				cost[nb] = newPrice;
+				next[nb] = cur;
+			}
+		}
+	}
+
+	private boolean canUse(int id) {
+		if(vehicle) {
+			return OccupancyGrid.isVehicleCanOnXunLuSecond(id);
+		}else {
+			return DiamondGrid.getLittleCell(id).isSoldierCanOn();
+		}
+	}
+
+	/**
+	 * 获取流场  缓存里有同样的目标点且没过期时直接复用
+	 * @param vehicle true载具  false步兵
+	 * @param goalIds 目标点编号(载具用XunLuBean3.cellId,步兵用littleCellId)
+	 */
+	public static FlowField obtain(boolean vehicle,int[] goalIds) {
+		int[] goals = goalIds.clone();
+		Arrays.sort(goals);
+		//去掉重复的目标点
+		int count = 0;
+		for(int i=0;i<goals.length;i++) {
+			if(i==0 || goals[i]!=goals[i-1]) {
+				goals[count++] = goals[i];
+			}
+		}
+		goals = Arrays.copyOf(goals, count);
+		long now = System.currentTimeMillis();
+		synchronized (cache) {
+			Iterator<FlowField> it = cache.iterator();
+			while(it.hasNext()) {
+				FlowField field = it.next();
+				if(now-field.createdMillis>SysConfig.flowFieldCacheMillis) {
+					it.remove();
+				}else if(field.vehicle==vehicle && Arrays.equals(field.goals, goals)) {
+					cacheHits++;
+					return field;
+				}
+			}
+		}
+		FlowField field = new FlowField(vehicle, goals);
+		synchronized (cache) {
+			if(cache.size()>=CACHE_SIZE) {
+				cache.remove(0);
+			}
+			cache.add(field);
+			cacheMisses++;
+		}
+		return field;
+	}
+
+	private static final List<FlowField> cache = new ArrayList<>();
+	private static long cacheHits = 0;
+	private static long cacheMisses = 0;
+
+	/**
+	 * 清空缓存  建筑建成或被摧毁时由PointUtil.notifyPassabilityChanged调用
+	 */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * 从start出发顺着流场走到目标区域
+	 * start本身可以不能进入(例如单位自己站着的点)
+	 * @param claimed 本次命令中已经有单位去的目标点  走到的目标点会加进去;传null表示不分配目标点
+	 * @return 点的编号序列(包括start和终点)  走不到时返回null
+	 */
+	int[] descend(int start,boolean[] claimed) {
+		if(start<0) {
+			return null;
+		}
+		int first = start;
+		if(cost[start]==UNREACHABLE) {
+			//起点不在积分场里  从相邻点中选代价最小的一个
+			int[] neighbors = vehicle ? XunLuBean3.neighbors : DiamondGrid.littleNeighbors();
+			int[] stepCost = vehicle ? XunLuBean3.STEP_COST : LITTLE_STEP_COST;
+			long best = UNREACHABLE;
+			first = -1;
+			for(int d=0;d<DIRECTIONS;d++) {
+				int nb = neighbors[start*DIRECTIONS+d];
+				if(nb>=0 && cost[nb]!=UNREACHABLE && (long)cost[nb]+stepCost[d]<best) {
+					best = (long)cost[nb]+stepCost[d];
+					first = nb;
+				}
+			}
+			if(first<0) {
+				return null;
+			}
+		}
+		int length = first==start ? 1 : 2;
+		for(int id=first;next[id]>=0;id=next[id]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int k = 0;
+		if(first!=start) {
+			path[k++] = start;
+		}
+		for(int id=first;;id=next[id]) {
+			path[k++] = id;
+			if(next[id]<0) {
+				break;
+			}
+		}
+		int goal = path[path.length-1];
+		if(claimed==null) {
+			return path;
+		}
+		int goalIndex = Arrays.binarySearch(goals, goal);
+		if(!claimed[goalIndex]) {
+			claimed[goalIndex] = true;
+			return path;
+		}
+		int[] tail = toFreeGoal(goal, claimed);
+		if(tail==null) {
+			return path;
+		}
+		int[] result = Arrays.copyOf(path, path.length+tail.length);
+		System.arraycopy(tail, 0, result, path.length, tail.length);
+		return result;
+	}
+
+	/**
+	 * 目标点已被占用时,从它出发广度优先找最近的没人占用的目标点
+	 * 搜索用的数组每个流场一份,用代数标记是否访问过
+	 * @return 不含from的后续点  所有目标点都被占用时返回null
+	 */
+	private synchronized int[] toFreeGoal(int from,boolean[] claimed) {
+		int[] neighbors = vehicle ? XunLuBean3.neighbors : DiamondGrid.littleNeighbors();
+		if(parent==null) {
+			parent = new int[cost.length];
+			seen = new int[cost.length];
+			queue = new int[cost.length];
+		}
+		if(++stamp==Integer.MAX_VALUE) {
+			Arrays.fill(seen, 0);
+			stamp = 1;
+		}
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		seen[from] = stamp;
+		parent[from] = -1;
+		while(head<tail) {
+			int cur = queue[head++];
+			int goalIndex = Arrays.binarySearch(goals, cur);
+			if(goalIndex>=0 && !claimed[goalIndex]) {
+				claimed[goalIndex] = true;
+				int length = 0;
+				for(int id=cur;id!=from;id=parent[id]) {
+					length++;
+				}
+				int[] result = new int[length];
+				for(int id=cur;id!=from;id=parent[id]) {
+					result[--length] = id;
+				}
+				return result;
+			}
+			for(int d=0;d<DIRECTIONS;d++) {
+				int nb = neighbors[cur*DIRECTIONS+d];
+				if(nb>=0 && seen[nb]!=stamp && cost[nb]!=UNREACHABLE) {
+					seen[nb] = stamp;
+					parent[nb] = cur;
+					queue[tail++] = nb;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 载具路径  第一个元素是start,最后一个元素是分到的目标点
+	 * 只有一个元素时表示已经在分到的目标点上  走不到目标区域时返回null
+	 * @param claimed 见descend
+	 */
+	public List<CenterPoint> vehiclePath(CenterPoint start,boolean[] claimed) {
+		int[] ids = descend(XunLuBean3.cellId(start.getX(), start.getY()), claimed);
+		if(ids==null) {
+			return null;
+		}
+		List<CenterPoint> path = new ArrayList<>(ids.length);
+		for(int id:ids) {
+			path.add(XunLuBean3.cells[id]);
+		}
+		return path;
+	}
+
+	/**
+	 * 步兵路径  第一个元素是start,最后一个元素是分到的目标点
+	 * 只有一个元素时表示已经在分到的目标点上  走不到目标区域时返回null
+	 * @param claimed 见descend
+	 */
+	public List<LittleCenterPoint> soldierPath(LittleCenterPoint start,boolean[] claimed) {
+		int[] ids = descend(littleCellId(start), claimed);
+		if(ids==null) {
+			return null;
+		}
+		List<LittleCenterPoint> path = new ArrayList<>(ids.length);
+		for(int id:ids) {
+			path.add(DiamondGrid.getLittleCell(id));
+		}
+		return path;
+	}
+
+	/**
+	 * 给一组载具分配路径  离目标区域近的载具先分目标点
+	 * @param starts 各载具所在的中心点
+	 * @return 与starts一一对应的路径(见vehiclePath)
+	 */
+	public List<List<CenterPoint>> vehiclePaths(List<CenterPoint> starts) {
+		int[] startIds = new int[starts.size()];
+		for(int i=0;i<startIds.length;i++) {
+			startIds[i] = XunLuBean3.cellId(starts.get(i).getX(), starts.get(i).getY());
+		}
+		int[][] idPaths = descendAll(startIds);
+		List<List<CenterPoint>> paths = new ArrayList<>(idPaths.length);
+		for(int[] ids:idPaths) {
+			List<CenterPoint> path = null;
+			if(ids!=null) {
+				path = new ArrayList<>(ids.length);
+				for(int id:ids) {
+					path.add(XunLuBean3.cells[id]);
+				}
+			}
+			paths.add(path);
+		}
+		return paths;
+	}
+
+	/**
+	 * 给一组步兵分配路径  同vehiclePaths
+	 * @param starts 各步兵新路径的起点(Soldier.getPathStart)
+	 * @return 与starts一一对应的路径(见soldierPath)
+	 */
+	public List<List<LittleCenterPoint>> soldierPaths(List<LittleCenterPoint> starts) {
+		int[] startIds = new int[starts.size()];
+		for(int i=0;i<startIds.length;i++) {
+			startIds[i] = littleCellId(starts.get(i));
+		}
+		int[][] idPaths = descendAll(startIds);
+		List<List<LittleCenterPoint>> paths = new ArrayList<>(idPaths.length);
+		for(int[] ids:idPaths) {
+			List<LittleCenterPoint> path = null;
+			if(ids!=null) {
+				path = new ArrayList<>(ids.length);
+				for(int id:ids) {
+					path.add(DiamondGrid.getLittleCell(id));
+				}
+			}
+			paths.add(path);
+		}
+		return paths;
+	}
+
+	/**
+	 * 按到目标区域的代价从小到大依次顺着流场走,代价相同的按原有次序
+	 * @return 与startIds一一对应的点编号序列  走不到时为null
+	 */
+	private int[][] descendAll(int[] startIds) {
+		Integer[] order = new Integer[startIds.length];
+		for(int i=0;i<order.length;i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingInt(i -> startIds[i]<0 ? UNREACHABLE : cost[startIds[i]]));
+		boolean[] claimed = newClaimTable();
+		int[][] result = new int[startIds.length][];
+		for(int i:order) {
+			result[i] = descend(startIds[i], claimed);
+		}
+		return result;
+	}
+
+	/**
+	 * 点到目标区域的代价  走不到时为UNREACHABLE
+	 */
+	public int getCost(int id) {
+		return cost[id];
+	}
+
+	/**
+	 * 新建一个本次命令用的目标点占用表
+	 */
+	public boolean[] newClaimTable() {
+		return new boolean[goals.length];
+	}
+
+	public int getGoalCount() {
+		return goals.length;
+	}
+	public boolean isVehicle() {
+		return vehicle;
+	}
+
+	public static long getCacheHits() {
+		return cacheHits;
+	}
+	public static long getCacheMisses() {
+		return cacheMisses;
+	}
+}
@@ -0,0 +1,40 @@
+package redAlert.utilBean;
+
+import redAlert.ShapeUnitFrame;
+
+/**
+ * 分层画面中的一层
+ * 
+ * 建筑的工作动画由多个shp帧序列叠加而成,以前每帧都要把各层画进curFrame的图片里再上阵营色
+ * 现在只记录各层用哪一帧、相对单位位置的偏移,渲染时逐层绘制,每一层都是纹理缓存里的常驻纹理
+ * 
+ * 层对象创建后不再修改
+ */
+public class FrameLayer {
+
+	private final ShapeUnitFrame frame;
+	/**
+	 * 相对单位positionX/positionY的偏移
+	 */
+	private final int offsetX;
+	private final int offsetY;
+	
+	public FrameLayer(ShapeUnitFrame frame) {
+		this(frame,0,0);
+	}
+	public FrameLayer(ShapeUnitFrame frame,int offsetX,int offsetY) {
+		this.frame = frame;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+	}
+	
+	public ShapeUnitFrame getFrame() {
+		return frame;
+	}
+	public int getOffsetX() {
+		return offsetX;
+	}
+	public int getOffsetY() {
+		return offsetY;
+	}
+}
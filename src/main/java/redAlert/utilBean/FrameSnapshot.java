@@ -0,0 +1,273 @@
+package redAlert.utilBean;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import redAlert.ShapeUnitFrame;
+import redAlert.militaryBuildings.AfWeap;
+import redAlert.other.MoveLine;
+import redAlert.shapeObjects.ShapeUnit;
+import redAlert.utils.DrawList;
+
+/**
+ * 一帧画面的绘制快照
+ *
+ * 帧计算线程每算完一轮就把要画的单位按绘制次序抄一份：当前帧、分层画面、位置,移动线则抄成线段端点
+ * 渲染线程只读快照,不再碰单位本身,也不再把单位放回计算队列
+ *
+ * 快照由FrameSnapshotBuffer轮换使用,数组复用不重复分配
+ * 写入方(帧计算线程)发布后就不再修改,直到渲染线程换走它之后才会被重新填写
+ *
+ * 坦克车身+炮塔合成图、步兵上色图、血条这类帧是单位自己的图片,每个逻辑帧都在原地重画(ShapeUnitFrame.isRecomposed)
+ * 快照只抄引用的话,渲染线程可能画到重画了一半的图片,所以快照为这类帧各存一份拷贝,渲染线程只画拷贝
+ * 拷贝按原帧(对象身份)保留在快照里,原帧版本号没变时不重新拷贝,拷贝对象不变,纹理缓存也不用重新上传
+ * 本轮没有用到的拷贝(单位已移除)在填写时丢掉
+ */
+public class FrameSnapshot {
+
+	/**
+	 * 快照对应的计算轮次  0表示还没有发布过
+	 */
+	private long tick = 0;
+	/**
+	 * 发布时间  System.nanoTime()
+	 */
+	private long publishNanos = 0;
+
+	private int count = 0;
+	private ShapeUnit[] units;
+	private ShapeUnitFrame[] frames;
+	private List<?>[] frameLayers;
+	private int[] positionX;
+	private int[] positionY;
+	/**
+	 * 每个单位的线段在lines中的范围 [lineFrom,lineTo)  以线段为单位
+	 */
+	private int[] lineFrom;
+	private int[] lineTo;
+	/**
+	 * 线段端点的地图坐标  每条线段4个值 x1,y1,x2,y2
+	 */
+	private int[] lines = new int[64];
+	private int lineCount = 0;
+
+	/**
+	 * 排绘制次序用
+	 */
+	private final DrawList drawList = new DrawList(150);
+
+	/**
+	 * 原地重画的帧在本快照中的拷贝  键为原帧
+	 * 填写时两个表轮换：上一轮的拷贝从previousCopies取出复用,本轮用到的放入copies
+	 */
+	private IdentityHashMap<ShapeUnitFrame,FrameCopy> copies = new IdentityHashMap<>();
+	private IdentityHashMap<ShapeUnitFrame,FrameCopy> previousCopies = new IdentityHashMap<>();
+
+	/**
+	 * 一帧的拷贝和拷贝时原帧的版本号
+	 */
+	private static class FrameCopy {
+		final ShapeUnitFrame frame = new ShapeUnitFrame();
+		int sourceVersion = -1;
+	}
+
+	public FrameSnapshot() {
+		allocate(150);
+	}
+
+	/**
+	 * 用本轮的单位生成快照  只能在帧计算线程中调用
+	 *
+	 * 战车工厂正在出车时主建筑不画,由拆分出的子建筑代替;其他单位不可见时不画
+	 */
+	public void fill(List<ShapeUnit> shapeUnits,long tick) {
+		drawList.clear();
+		for(ShapeUnit shp:shapeUnits) {
+			if(shp instanceof AfWeap) {
+				AfWeap afweap = (AfWeap)shp;
+				if(!afweap.isPartOfWeap() && afweap.isPutChildIn() && (afweap.isMakingVehicle() || afweap.isMakingFly())) {
+					continue;
+				}
+			}else if(!shp.isVisible()) {
+				continue;
+			}
+			if(shp.getCurFrame()==null && shp.getFrameLayers()==null) {
+				continue;//还没算出第一帧
+			}
+			drawList.add(shp);
+		}
+		drawList.sort();
+
+		Arrays.fill(units, 0, count, null);
+		Arrays.fill(frames, 0, count, null);
+		Arrays.fill(frameLayers, 0, count, null);
+		int size = drawList.size();
+		if(size>units.length) {
+			allocate(Math.max(size, units.length*2));
+		}
+		IdentityHashMap<ShapeUnitFrame,FrameCopy> swap = previousCopies;
+		previousCopies = copies;
+		copies = swap;
+		lineCount = 0;
+		for(int i=0;i<size;i++) {
+			ShapeUnit shp = drawList.get(i);
+			units[i] = shp;
+			frames[i] = stableFrame(shp.getCurFrame());
+			frameLayers[i] = stableLayers(shp.getFrameLayers());
+			positionX[i] = shp.getPositionX();
+			positionY[i] = shp.getPositionY();
+			lineFrom[i] = lineCount;
+			if(shp instanceof MoveLine) {
+				for(MovePlan plan:((MoveLine)shp).getMovePlans()) {
+					addLine(plan.getUnit().getPositionX()+plan.getUnit().getCenterOffX(),
+							plan.getUnit().getPositionY()+plan.getUnit().getCenterOffY(),
+							plan.getTargetCp().getX(),
+							plan.getTargetCp().getY());
+				}
+			}
+			lineTo[i] = lineCount;
+		}
+		drawList.clear();
+		previousCopies.clear();//单位已移除,不再需要的拷贝
+		this.count = size;
+		this.tick = tick;
+		this.publishNanos = System.nanoTime();
+	}
+
+	/**
+	 * 原地重画的帧换成本快照中的拷贝  其他帧加载后不再修改,直接使用
+	 */
+	private ShapeUnitFrame stableFrame(ShapeUnitFrame frame) {
+		if(frame==null || !frame.isRecomposed() || frame.getImg()==null) {
+			return frame;
+		}
+		FrameCopy copy = copies.get(frame);
+		if(copy!=null) {
+			return copy.frame;//本轮已经拷贝过
+		}
+		copy = previousCopies.remove(frame);
+		if(copy==null) {
+			copy = new FrameCopy();
+		}
+		copies.put(frame, copy);
+		int version = frame.getImgVersion();
+		if(copy.sourceVersion!=version) {
+			copyPixels(frame.getImg(), copy.frame);
+			copy.sourceVersion = version;
+		}
+		copy.frame.setMinX(frame.getMinX());
+		copy.frame.setMinY(frame.getMinY());
+		copy.frame.setMaxX(frame.getMaxX());
+		copy.frame.setMaxY(frame.getMaxY());
+		return copy.frame;
+	}
+
+	/**
+	 * 分层画面中有原地重画的帧时,换成用拷贝组成的新列表  分层列表本身创建后不再修改
+	 */
+	private List<FrameLayer> stableLayers(List<FrameLayer> layers) {
+		if(layers==null) {
+			return null;
+		}
+		List<FrameLayer> stable = null;
+		for(int i=0;i<layers.size();i++) {
+			FrameLayer layer = layers.get(i);
+			if(layer.getFrame()!=null && layer.getFrame().isRecomposed()) {
+				if(stable==null) {
+					stable = new ArrayList<>(layers.subList(0, i));
+				}
+				stable.add(new FrameLayer(stableFrame(layer.getFrame()), layer.getOffsetX(), layer.getOffsetY()));
+			}else if(stable!=null) {
+				stable.add(layer);
+			}
+		}
+		return stable==null ? layers : stable;
+	}
+
+	/**
+	 * 把图片拷贝到目标帧的图片里  尺寸不同时目标换一张新图片
+	 */
+	private static void copyPixels(BufferedImage source,ShapeUnitFrame target) {
+		BufferedImage image = target.getImg();
+		if(image==null || image.getWidth()!=source.getWidth() || image.getHeight()!=source.getHeight()) {
+			image = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+			target.setImg(image);
+		}else {
+			target.markImgChanged();
+		}
+		int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		if(source.getType()==BufferedImage.TYPE_INT_ARGB && source.getRaster().getDataBuffer() instanceof DataBufferInt) {
+			int[] sourcePixels = ((DataBufferInt)source.getRaster().getDataBuffer()).getData();
+			System.arraycopy(sourcePixels, 0, pixels, 0, pixels.length);
+		}else {
+			source.getRGB(0, 0, source.getWidth(), source.getHeight(), pixels, 0, source.getWidth());
+		}
+	}
+
+	private void addLine(int x1,int y1,int x2,int y2) {
+		int p = lineCount*4;
+		if(p+4>lines.length) {
+			lines = Arrays.copyOf(lines, lines.length*2);
+		}
+		lines[p] = x1;
+		lines[p+1] = y1;
+		lines[p+2] = x2;
+		lines[p+3] = y2;
+		lineCount++;
+	}
+
+	private void allocate(int capacity) {
+		units = new ShapeUnit[capacity];
+		frames = new ShapeUnitFrame[capacity];
+		frameLayers = new List<?>[capacity];
+		positionX = new int[capacity];
+		positionY = new int[capacity];
+		lineFrom = new int[capacity];
+		lineTo = new int[capacity];
+	}
+
+	public long getTick() {
+		return tick;
+	}
+	public long getPublishNanos() {
+		return publishNanos;
+	}
+	public int size() {
+		return count;
+	}
+	public ShapeUnit getUnit(int index) {
+		return units[index];
+	}
+	public ShapeUnitFrame getFrame(int index) {
+		return frames[index];
+	}
+	/**
+	 * 分层画面  为null时画getFrame(index)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<FrameLayer> getFrameLayers(int index) {
+		return (List<FrameLayer>) frameLayers[index];
+	}
+	public int getPositionX(int index) {
+		return positionX[index];
+	}
+	public int getPositionY(int index) {
+		return positionY[index];
+	}
+	public int getLineFrom(int index) {
+		return lineFrom[index];
+	}
+	public int getLineTo(int index) {
+		return lineTo[index];
+	}
+	/**
+	 * 第line条线段的第k个坐标  k为0~3,依次是 x1,y1,x2,y2
+	 */
+	public int getLineCoord(int line,int k) {
+		return lines[line*4+k];
+	}
+}
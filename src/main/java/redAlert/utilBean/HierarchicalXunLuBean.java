@@ -0,0 +1,815 @@
+package redAlert.utilBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+import redAlert.SysConfig;
+import redAlert.utils.IndexedMinHeap;
+
+/**
+ * 分层寻路(HPA*)
+ *
+ * 把菱形网格按行列切成若干区块,相邻区块的交界处选出入口点,预先算好同一区块内入口点之间的代价,
+ * 寻路时先在入口点组成的抽象图上做A*,再把抽象路径的每一段在所在区块内细化成中心点路径
+ * 抽象图的规模与区块数有关,与地图总点数无关,地图越大越省
+ *
+ * 只考虑地形和建筑(见CenterPoint.isVehicleCanPass),不考虑单位,与二次寻路一样遇到单位时让它让路或重新寻路
+ * 建筑建成或被摧毁时调用update,只重算这些点所在的区块和相邻区块
+ *
+ * 中心点编号与XunLuBean3相同：编号 = 行号*每行中心点数 + 列号/2,列号与行号奇偶相同
+ * 相邻点的方向和代价也与XunLuBean3相同
+ *
+ * 查询可以在多个线程同时进行,update与查询互斥
+ */
+public class HierarchicalXunLuBean {
+
+	/**
+	 * 走不到时的代价
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * 相邻点的方向  次序与XunLuBean3相同：右上 右下 左下 左上 左 右 上 下
+	 */
+	private static final int DIRECTIONS = 8;
+	private static final int[] STEP_COL = {1, 1, -1, -1, -2, 2, 0, 0};
+	private static final int[] STEP_ROW = {-1, 1, 1, -1, 0, 0, -2, 2};
+	private static final int[] STEP_COST = XunLuBean3.STEP_COST;
+	/**
+	 * 反方向
+	 */
+	private static final int[] OPPOSITE = {2, 3, 0, 1, 5, 4, 7, 6};
+	/**
+	 * 交界处连续可通行的边超过这个数时,除了中间再在两端各选一个入口,路径绕得少一些
+	 */
+	private static final int LONG_ENTRANCE = 8;
+
+	private static volatile HierarchicalXunLuBean instance;
+
+	/**
+	 * 获取游戏地图的分层寻路  第一次使用时按当前地图建立
+	 */
+	public static HierarchicalXunLuBean getInstance() {
+		if(instance==null) {
+			synchronized (HierarchicalXunLuBean.class) {
+				if(instance==null) {
+					instance = new HierarchicalXunLuBean(XunLuBean3.COLUMNS, XunLuBean3.ROWS, SysConfig.hierarchicalPathClusterSize,
+							OccupancyGrid::isVehicleCanPass);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * 地图上的建筑发生变化  已建立分层寻路时重算涉及的区块
+	 */
+	public static void onMapChanged(List<CenterPoint> cps) {
+		HierarchicalXunLuBean hpa = instance;
+		if(hpa==null || cps==null || cps.isEmpty()) {
+			return;
+		}
+		int[] ids = new int[cps.size()];
+		int count = 0;
+		for(CenterPoint cp:cps) {
+			int id = XunLuBean3.cellId(cp.getX(), cp.getY());
+			if(id>=0) {
+				ids[count++] = id;
+			}
+		}
+		hpa.update(Arrays.copyOf(ids, count));
+	}
+
+	/**
+	 * 两个中心点是否远到值得用分层寻路  见SysConfig.hierarchicalPathMinDistance
+	 */
+	public static boolean isFar(CenterPoint start,CenterPoint end) {
+		int minDistance = SysConfig.hierarchicalPathMinDistance;
+		if(minDistance<=0) {
+			return false;
+		}
+		int dc = Math.abs(start.getX()-end.getX())/30;
+		int dr = Math.abs(start.getY()-end.getY())/15;
+		return Math.max(dc, dr)>=minDistance;
+	}
+
+	private final int columns;
+	private final int rows;
+	private final int rowStride;
+	private final int cellCount;
+	private final int clusterSize;
+	private final int clusterColumns;
+	private final int clusterRows;
+	private final IntPredicate passableTest;
+
+	/**
+	 * 每个点能否通行、相邻点编号(编号*8+方向,没有时为-1)、所在区块
+	 */
+	private final boolean[] passable;
+	private final int[] neighbors;
+	private final int[] clusterOf;
+	/**
+	 * 每个区块的点
+	 */
+	private final int[][] clusterCells;
+	/**
+	 * 每个区块的入口点(升序)和入口点之间的代价(入口数*入口数)
+	 */
+	private final int[][] entrances;
+	private final int[][] intraCost;
+	/**
+	 * 点在所在区块入口点中的下标  不是入口点时为-1
+	 */
+	private final int[] entranceIndex;
+	/**
+	 * 点的哪些方向是选作入口的跨区块边  按位记录
+	 */
+	private final byte[] interMask;
+
+	private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+	private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+		@Override
+		protected Search initialValue() {
+			return new Search();
+		}
+	};
+
+	/**
+	 * 上次update重算的区块数、耗时
+	 */
+	private volatile int lastRebuiltClusters = 0;
+	private volatile long lastUpdateNanos = 0;
+
+	/**
+	 * @param columns 列数(像素宽/30)
+	 * @param rows 行数(像素高/15)
+	 * @param clusterSize 区块的行列数
+	 * @param passableTest 编号对应的点能否通行
+	 */
+	public HierarchicalXunLuBean(int columns,int rows,int clusterSize,IntPredicate passableTest) {
+		this.columns = columns;
+		this.rows = rows;
+		this.rowStride = (columns+1)/2;
+		this.cellCount = rows*rowStride;
+		this.clusterSize = Math.max(2, clusterSize);
+		this.clusterColumns = (columns+this.clusterSize-1)/this.clusterSize;
+		this.clusterRows = (rows+this.clusterSize-1)/this.clusterSize;
+		this.passableTest = passableTest;
+
+		passable = new boolean[cellCount];
+		neighbors = new int[cellCount*DIRECTIONS];
+		clusterOf = new int[cellCount];
+		entranceIndex = new int[cellCount];
+		interMask = new byte[cellCount];
+		int clusterCount = clusterColumns*clusterRows;
+		clusterCells = new int[clusterCount][];
+		entrances = new int[clusterCount][];
+		intraCost = new int[clusterCount][];
+
+		int[] sizes = new int[clusterCount];
+		for(int id=0;id<cellCount;id++) {
+			int col = colOf(id);
+			int row = id/rowStride;
+			if(col>=columns) {
+				clusterOf[id] = -1;
+				Arrays.fill(neighbors, id*DIRECTIONS, id*DIRECTIONS+DIRECTIONS, -1);
+				continue;
+			}
+			clusterOf[id] = (row/this.clusterSize)*clusterColumns+col/this.clusterSize;
+			sizes[clusterOf[id]]++;
+			passable[id] = passableTest.test(id);
+			for(int d=0;d<DIRECTIONS;d++) {
+				neighbors[id*DIRECTIONS+d] = cellId(col+STEP_COL[d], row+STEP_ROW[d]);
+			}
+		}
+		for(int c=0;c<clusterCount;c++) {
+			clusterCells[c] = new int[sizes[c]];
+			sizes[c] = 0;
+		}
+		for(int id=0;id<cellCount;id++) {
+			if(clusterOf[id]>=0) {
+				clusterCells[clusterOf[id]][sizes[clusterOf[id]]++] = id;
+			}
+		}
+
+		Search search = new Search();
+		for(int c=0;c<clusterCount;c++) {
+			for(int nc:adjacentClusters(c)) {
+				if(c<nc) {
+					selectEntrances(c, nc);
+				}
+			}
+		}
+		for(int c=0;c<clusterCount;c++) {
+			buildCluster(c, search);
+		}
+	}
+
+	/**
+	 * 列号行号对应的编号  不在地图上或奇偶不同时返回-1
+	 */
+	public int cellId(int col,int row) {
+		if(col<0 || row<0 || col>=columns || row>=rows || ((col^row)&1)!=0) {
+			return -1;
+		}
+		return row*rowStride+col/2;
+	}
+
+	private int colOf(int id) {
+		int row = id/rowStride;
+		return (id%rowStride)*2+(row&1);
+	}
+
+	/**
+	 * 周围的区块(最多8个)
+	 */
+	private int[] adjacentClusters(int c) {
+		int cr = c/clusterColumns;
+		int cc = c%clusterColumns;
+		int[] result = new int[8];
+		int count = 0;
+		for(int r=cr-1;r<=cr+1;r++) {
+			for(int k=cc-1;k<=cc+1;k++) {
+				if((r!=cr || k!=cc) && r>=0 && k>=0 && r<clusterRows && k<clusterColumns) {
+					result[count++] = r*clusterColumns+k;
+				}
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * 选出区块a、b交界处的入口
+	 * 两边都能通行的跨区块边按在交界线上的位置排序,连在一起的一段取中间一条,很长的一段再加上两端
+	 */
+	private void selectEntrances(int a,int b) {
+		boolean sameRow = a/clusterColumns==b/clusterColumns;
+		List<int[]> edges = new ArrayList<>();
+		for(int u:clusterCells[a]) {
+			for(int d=0;d<DIRECTIONS;d++) {
+				int v = neighbors[u*DIRECTIONS+d];
+				if(v<0 || clusterOf[v]!=b) {
+					continue;
+				}
+				interMask[u] &= ~(1<<d);
+				interMask[v] &= ~(1<<OPPOSITE[d]);
+				if(passable[u] && passable[v]) {
+					//左右相邻的区块按行排,上下相邻的按列排
+					int position = sameRow ? u/rowStride+v/rowStride : colOf(u)+colOf(v);
+					edges.add(new int[] {position, u, d});
+				}
+			}
+		}
+		edges.sort((e1, e2) -> e1[0]!=e2[0] ? Integer.compare(e1[0], e2[0]) : e1[1]!=e2[1] ? Integer.compare(e1[1], e2[1]) : Integer.compare(e1[2], e2[2]));
+		//两条边的两端在各自区块里分别相同或相邻时属于同一段  只比较位置相近的边
+		int n = edges.size();
+		int[] group = new int[n];
+		for(int i=0;i<n;i++) {
+			group[i] = i;
+			for(int j=i-1;j>=0 && edges.get(i)[0]-edges.get(j)[0]<=4;j--) {
+				if(touches(edges.get(i), edges.get(j))) {
+					int gi = root(group, i);
+					int gj = root(group, j);
+					group[Math.max(gi, gj)] = Math.min(gi, gj);
+				}
+			}
+		}
+		List<int[]> run = new ArrayList<>();
+		for(int i=0;i<n;i++) {
+			if(root(group, i)!=i) {
+				continue;
+			}
+			run.clear();
+			for(int j=i;j<n;j++) {
+				if(root(group, j)==i) {
+					run.add(edges.get(j));
+				}
+			}
+			markEdge(run.get(run.size()/2));
+			if(run.size()>LONG_ENTRANCE) {
+				markEdge(run.get(0));
+				markEdge(run.get(run.size()-1));
+			}
+		}
+	}
+
+	private static int root(int[] group,int i) {
+		while(group[i]!=i) {
+			group[i] = group[group[i]];
+			i = group[i];
+		}
+		return i;
+	}
+
+	/**
+	 * 两条跨区块边是否连在一起  两端分别相同或相邻
+	 */
+	private boolean touches(int[] e1,int[] e2) {
+		int u1 = e1[1];
+		int u2 = e2[1];
+		int v1 = neighbors[u1*DIRECTIONS+e1[2]];
+		int v2 = neighbors[u2*DIRECTIONS+e2[2]];
+		return isAdjacent(u1, u2) && isAdjacent(v1, v2);
+	}
+
+	private boolean isAdjacent(int a,int b) {
+		if(a==b) {
+			return true;
+		}
+		for(int d=0;d<DIRECTIONS;d++) {
+			if(neighbors[a*DIRECTIONS+d]==b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void markEdge(int[] edge) {
+		int u = edge[1];
+		int d = edge[2];
+		interMask[u] |= 1<<d;
+		interMask[neighbors[u*DIRECTIONS+d]] |= 1<<OPPOSITE[d];
+	}
+
+	/**
+	 * 重建区块的入口点列表和入口点之间的代价
+	 */
+	private void buildCluster(int c,Search search) {
+		if(entrances[c]!=null) {
+			for(int e:entrances[c]) {
+				entranceIndex[e] = -1;
+			}
+		}
+		int count = 0;
+		for(int u:clusterCells[c]) {
+			entranceIndex[u] = -1;
+			if(interMask[u]!=0) {
+				count++;
+			}
+		}
+		int[] list = new int[count];
+		count = 0;
+		for(int u:clusterCells[c]) {
+			if(interMask[u]!=0) {
+				entranceIndex[u] = count;
+				list[count++] = u;
+			}
+		}
+		int[] cost = new int[count*count];
+		for(int i=0;i<count;i++) {
+			search.local(list[i], c, -1);
+			for(int j=0;j<count;j++) {
+				cost[i*count+j] = search.localCostOf(list[j]);
+			}
+		}
+		entrances[c] = list;
+		intraCost[c] = cost;
+	}
+
+	/**
+	 * 这些点的通行情况可能变了  重新读取,只重算有变化的点所在的区块和相邻区块
+	 */
+	public void update(int[] ids) {
+		rwLock.writeLock().lock();
+		try {
+			long start = System.nanoTime();
+			boolean[] dirty = new boolean[clusterCells.length];
+			boolean changed = false;
+			for(int id:ids) {
+				if(id<0 || id>=cellCount || clusterOf[id]<0) {
+					continue;
+				}
+				boolean now = passableTest.test(id);
+				if(now!=passable[id]) {
+					passable[id] = now;
+					dirty[clusterOf[id]] = true;
+					changed = true;
+				}
+			}
+			if(!changed) {
+				lastRebuiltClusters = 0;
+				lastUpdateNanos = System.nanoTime()-start;
+				return;
+			}
+			boolean[] rebuild = dirty.clone();
+			for(int c=0;c<dirty.length;c++) {
+				if(dirty[c]) {
+					for(int nc:adjacentClusters(c)) {
+						//两边都脏的交界只选一次
+						if(!dirty[nc] || c<nc) {
+							selectEntrances(Math.min(c, nc), Math.max(c, nc));
+						}
+						rebuild[nc] = true;
+					}
+				}
+			}
+			Search search = searches.get();
+			int rebuilt = 0;
+			for(int c=0;c<rebuild.length;c++) {
+				if(rebuild[c]) {
+					buildCluster(c, search);
+					rebuilt++;
+				}
+			}
+			lastRebuiltClusters = rebuilt;
+			lastUpdateNanos = System.nanoTime()-start;
+		}finally {
+			rwLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 分层寻路
+	 * @return 点的编号序列(包括起点和终点)  走不到时返回null
+	 */
+	public int[] findPath(int start,int goal) {
+		rwLock.readLock().lock();
+		try {
+			return searches.get().hierarchical(start, goal);
+		}finally {
+			rwLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 不分层的A*  与findPath得到的代价对比用
+	 * @return 点的编号序列(包括起点和终点)  走不到时返回null
+	 */
+	public int[] findFlatPath(int start,int goal) {
+		rwLock.readLock().lock();
+		try {
+			return searches.get().flat(start, goal);
+		}finally {
+			rwLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 游戏地图上的分层寻路  返回路径中心点列表(包括起点和终点)  找不到路时返回null
+	 */
+	public List<CenterPoint> xunlu(CenterPoint startCp,CenterPoint endCp) {
+		int start = XunLuBean3.cellId(startCp.getX(), startCp.getY());
+		int end = XunLuBean3.cellId(endCp.getX(), endCp.getY());
+		if(start<0 || end<0) {
+			return null;
+		}
+		int[] ids = findPath(start, end);
+		if(ids==null) {
+			return null;
+		}
+		List<CenterPoint> path = new ArrayList<>(ids.length);
+		for(int id:ids) {
+			path.add(XunLuBean3.cells[id]);
+		}
+		return path;
+	}
+
+	/**
+	 * 当前线程上次寻路的路径代价  没找到路时为-1
+	 */
+	public int getLastCost() {
+		return searches.get().lastCost;
+	}
+
+	/**
+	 * 当前线程上次寻路从边界方块取出的次数(抽象图和细化合计)
+	 */
+	public int getLastExpanded() {
+		return searches.get().lastExpanded;
+	}
+
+	/**
+	 * 路径的代价
+	 */
+	public int pathCost(int[] path) {
+		int cost = 0;
+		for(int i=1;i<path.length;i++) {
+			for(int d=0;d<DIRECTIONS;d++) {
+				if(neighbors[path[i-1]*DIRECTIONS+d]==path[i]) {
+					cost += STEP_COST[d];
+					break;
+				}
+			}
+		}
+		return cost;
+	}
+
+	public boolean isPassable(int id) {
+		return passable[id];
+	}
+	public int getCellCount() {
+		return cellCount;
+	}
+	public int getClusterCount() {
+		return clusterCells.length;
+	}
+	public int getEntranceCount() {
+		int count = 0;
+		for(int[] list:entrances) {
+			count += list.length;
+		}
+		return count;
+	}
+	public int getLastRebuiltClusters() {
+		return lastRebuiltClusters;
+	}
+	public long getLastUpdateNanos() {
+		return lastUpdateNanos;
+	}
+
+	/**
+	 * 预估代价  斜着走一步1750能让行列各变1,横竖走一步3600只让一个变2,所以不会高估
+	 */
+	private int heuristic(int from,int to) {
+		int dc = Math.abs(colOf(from)-colOf(to));
+		int dr = Math.abs(from/rowStride-to/rowStride);
+		return 1750*Math.max(dc, dr);
+	}
+
+	/**
+	 * 一个线程的寻路数据  数组按编号索引,用代数标记本次是否访问过
+	 */
+	private class Search {
+		final int[] cost = new int[cellCount];
+		final int[] parent = new int[cellCount];
+		final int[] seen = new int[cellCount];
+		int stamp = 0;
+		final IndexedMinHeap open = new IndexedMinHeap(cellCount);
+
+		final int[] localCost = new int[cellCount];
+		final int[] localParent = new int[cellCount];
+		final int[] localSeen = new int[cellCount];
+		int localStamp = 0;
+		final IndexedMinHeap localOpen = new IndexedMinHeap(cellCount);
+
+		int[] startCost = new int[16];
+		int[] goalCost = new int[16];
+		int lastCost = -1;
+		int lastExpanded = 0;
+
+		/**
+		 * 区块内的Dijkstra(target>=0时为A*,取出target即停止)
+		 * 起点本身可以不能通行
+		 */
+		void local(int from,int cluster,int target) {
+			if(++localStamp==Integer.MAX_VALUE) {
+				Arrays.fill(localSeen, 0);
+				localStamp = 1;
+			}
+			localOpen.clear();
+			localCost[from] = 0;
+			localParent[from] = -1;
+			localSeen[from] = localStamp;
+			localOpen.push(from, target>=0 ? heuristic(from, target) : 0);
+			while(!localOpen.isEmpty()) {
+				int cur = localOpen.pop();
+				lastExpanded++;
+				if(cur==target) {
+					return;
+				}
+				int price = localCost[cur];
+				for(int d=0;d<DIRECTIONS;d++) {
+					int next = neighbors[cur*DIRECTIONS+d];
+					if(next<0 || clusterOf[next]!=cluster || !passable[next]) {
+						continue;
+					}
+					int newPrice = price+STEP_COST[d];
+					if(localSeen[next]==localStamp && newPrice>=localCost[next]) {
+						continue;
+					}
+					int key = newPrice+(target>=0 ? heuristic(next, target) : 0);
+					if(localSeen[next]==localStamp && localOpen.contains(next)) {
+						localOpen.decreaseKey(next, key);
+					}else if(localSeen[next]!=localStamp) {
+						localOpen.push(next, key);
+					}else {
+						continue;
+					}
+					localSeen[next] = localStamp;
+					localCost[next] = newPrice;
+					localParent[next] = cur;
+				}
+			}
+		}
+
+		int localCostOf(int id) {
+			return localSeen[id]==localStamp ? localCost[id] : UNREACHABLE;
+		}
+
+		int[] hierarchical(int start,int goal) {
+			lastCost = -1;
+			lastExpanded = 0;
+			if(start<0 || goal<0 || clusterOf[start]<0 || clusterOf[goal]<0 || !passable[goal]) {
+				return null;
+			}
+			if(start==goal) {
+				lastCost = 0;
+				return new int[] {start};
+			}
+			if(passable[start]) {
+				return hierarchicalFrom(start, goal);
+			}
+			//起点不能通行(例如单位站在建筑上)  它跨区块的边不是入口,从每个能通行的相邻点出发各找一次,取代价最小的
+			int[] best = null;
+			int bestCost = UNREACHABLE;
+			int expanded = 0;
+			for(int d=0;d<DIRECTIONS;d++) {
+				int next = neighbors[start*DIRECTIONS+d];
+				if(next<0 || !passable[next]) {
+					continue;
+				}
+				int[] path = next==goal ? new int[] {goal} : hierarchicalFrom(next, goal);
+				int pathCost = next==goal ? 0 : lastCost;
+				expanded += lastExpanded;
+				if(path!=null && pathCost+STEP_COST[d]<bestCost) {
+					bestCost = pathCost+STEP_COST[d];
+					best = new int[path.length+1];
+					best[0] = start;
+					System.arraycopy(path, 0, best, 1, path.length);
+				}
+			}
+			lastCost = best==null ? -1 : bestCost;
+			lastExpanded = expanded;
+			return best;
+		}
+
+		private int[] hierarchicalFrom(int start,int goal) {
+			lastCost = -1;
+			lastExpanded = 0;
+			int cs = clusterOf[start];
+			int cg = clusterOf[goal];
+
+			//起点、终点接入抽象图  分别在所在区块内算到各入口点的代价
+			int[] startEntrances = entrances[cs];
+			if(startCost.length<startEntrances.length) {
+				startCost = new int[startEntrances.length];
+			}
+			local(start, cs, -1);
+			for(int i=0;i<startEntrances.length;i++) {
+				startCost[i] = localCostOf(startEntrances[i]);
+			}
+			int direct = cs==cg ? localCostOf(goal) : UNREACHABLE;
+			int[] goalEntrances = entrances[cg];
+			if(goalCost.length<goalEntrances.length) {
+				goalCost = new int[goalEntrances.length];
+			}
+			local(goal, cg, -1);
+			for(int i=0;i<goalEntrances.length;i++) {
+				goalCost[i] = localCostOf(goalEntrances[i]);
+			}
+
+			//抽象图上的A*
+			if(++stamp==Integer.MAX_VALUE) {
+				Arrays.fill(seen, 0);
+				stamp = 1;
+			}
+			open.clear();
+			cost[start] = 0;
+			parent[start] = -1;
+			seen[start] = stamp;
+			open.push(start, heuristic(start, goal));
+			boolean found = false;
+			while(!open.isEmpty()) {
+				int cur = open.pop();
+				lastExpanded++;
+				if(cur==goal) {
+					found = true;
+					break;
+				}
+				int price = cost[cur];
+				if(cur==start) {
+					for(int i=0;i<startEntrances.length;i++) {
+						relax(cur, startEntrances[i], price, startCost[i], goal);
+					}
+					relax(cur, goal, price, direct, goal);
+				}
+				int index = entranceIndex[cur];
+				if(index<0) {
+					continue;
+				}
+				int c = clusterOf[cur];
+				int[] list = entrances[c];
+				int[] costs = intraCost[c];
+				for(int j=0;j<list.length;j++) {
+					relax(cur, list[j], price, costs[index*list.length+j], goal);
+				}
+				int mask = interMask[cur];
+				for(int d=0;d<DIRECTIONS;d++) {
+					if((mask&(1<<d))!=0) {
+						relax(cur, neighbors[cur*DIRECTIONS+d], price, STEP_COST[d], goal);
+					}
+				}
+				if(c==cg) {
+					relax(cur, goal, price, goalCost[index], goal);
+				}
+			}
+			if(!found) {
+				return null;
+			}
+			lastCost = cost[goal];
+
+			//细化  跨区块的一段是一步,区块内的一段在区块内寻路
+			int abstractLength = 0;
+			for(int id=goal;id>=0;id=parent[id]) {
+				abstractLength++;
+			}
+			int[] nodes = new int[abstractLength];
+			for(int id=goal,k=abstractLength-1;id>=0;id=parent[id],k--) {
+				nodes[k] = id;
+			}
+			int[] path = new int[64];
+			int length = 0;
+			path[length++] = start;
+			for(int k=1;k<nodes.length;k++) {
+				int from = nodes[k-1];
+				int to = nodes[k];
+				if(clusterOf[from]!=clusterOf[to]) {
+					if(length==path.length) {
+						path = Arrays.copyOf(path, length*2);
+					}
+					path[length++] = to;
+					continue;
+				}
+				local(from, clusterOf[from], to);
+				int segment = 0;
+				for(int id=to;id!=from;id=localParent[id]) {
+					segment++;
+				}
+				if(length+segment>path.length) {
+					path = Arrays.copyOf(path, Math.max(path.length*2, length+segment));
+				}
+				int k2 = length+segment-1;
+				for(int id=to;id!=from;id=localParent[id]) {
+					path[k2--] = id;
+				}
+				length += segment;
+			}
+			return Arrays.copyOf(path, length);
+		}
+
+		private void relax(int from,int to,int price,int step,int goal) {
+			if(step==UNREACHABLE) {
+				return;
+			}
+			int newPrice = price+step;
+			if(seen[to]==stamp && newPrice>=cost[to]) {
+				return;
+			}
+			int key = newPrice+heuristic(to, goal);
+			if(seen[to]!=stamp) {
+				open.push(to, key);
+			}else if(open.contains(to)) {
+				open.decreaseKey(to, key);
+			}else {
+				//已经取出的点  一致的预估代价下不会出现
+				return;
+			}
+			seen[to] = stamp;
+			cost[to] = newPrice;
+			parent[to] = from;
+		}
+
+		int[] flat(int start,int goal) {
+			lastCost = -1;
+			lastExpanded = 0;
+			if(start<0 || goal<0 || clusterOf[start]<0 || clusterOf[goal]<0 || !passable[goal]) {
+				return null;
+			}
+			if(++stamp==Integer.MAX_VALUE) {
+				Arrays.fill(seen, 0);
+				stamp = 1;
+			}
+			open.clear();
+			cost[start] = 0;
+			parent[start] = -1;
+			seen[start] = stamp;
+			open.push(start, heuristic(start, goal));
+			while(!open.isEmpty()) {
+				int cur = open.pop();
+				lastExpanded++;
+				if(cur==goal) {
+					lastCost = cost[goal];
+					int length = 0;
+					for(int id=goal;id>=0;id=parent[id]) {
+						length++;
+					}
+					int[] path = new int[length];
+					for(int id=goal;id>=0;id=parent[id]) {
+						path[--length] = id;
+					}
+					return path;
+				}
+				for(int d=0;d<DIRECTIONS;d++) {
+					int next = neighbors[cur*DIRECTIONS+d];
+					if(next>=0 && passable[next]) {
+						relax(cur, next, cost[cur], STEP_COST[d], goal);
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -57,6 +57,12 @@ public class LittleCenterPoint {
 	 * 被提前预定
 	 */
 	public volatile AtomicBoolean preBooked = new AtomicBoolean(false);
+	/**
+	 * 小中心点编号和所在的中心点  相邻的小中心点(次序见DiamondGrid的方向常量)按编号查表
+	 * 由DiamondGrid建立网格时填入,自己new出来的小中心点编号为-1,这时按坐标查找
+	 */
+	int id = -1;
+	CenterPoint centerPoint;
 	
 	public LittleCenterPoint(int x, int y,Direction direction) {
 		this.x = x;
@@ -68,7 +74,7 @@ public class LittleCenterPoint {
 	 * 步兵是否可进入此LCP
 	 */
 	public boolean isSoldierCanOn(){
-		CenterPoint cp = PointUtil.getCenterPoint(x, y);
+		CenterPoint cp = getCenterPoint();
 		if(cp!=null) {
 			boolean flag = cp.isSoldierCanOn();
 			if(flag) {
@@ -83,10 +89,21 @@ public class LittleCenterPoint {
 		return false;
 	}
 
+	/**
+	 * 只看地形和建筑   步兵能否通过此LCP
+	 */
+	public boolean isSoldierCanPass() {
+		CenterPoint cp = getCenterPoint();
+		return cp!=null && cp.isSoldierCanPass();
+	}
+
 	/**
 	 * 获取此小中心点所在的中心点
 	 */
 	public CenterPoint getCenterPoint() {
+		if(id>=0) {
+			return centerPoint;
+		}
 		return PointUtil.getCenterPoint(x, y);
 	}
 	
@@ -94,6 +111,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的左上小中心点
 	 */
 	public LittleCenterPoint getLeftUp() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.LEFT_UP);
+		}
 		int x1,y1;
 		if(direction==Direction.Up || direction==Direction.Left) {
 			x1 = x - 14;
@@ -108,6 +128,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的左小中心点
 	 */
 	public LittleCenterPoint getLeft() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.LEFT);
+		}
 		int x1,y1;
 		if(direction==Direction.Up) {
 			x1 = x - 30;
@@ -128,6 +151,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的左下小中心点
 	 */
 	public LittleCenterPoint getLeftDn() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.LEFT_DOWN);
+		}
 		int x1,y1;
 		if(direction==Direction.Up || direction==Direction.Right) {
 			x1 = x - 16;
@@ -142,6 +168,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的下小中心点
 	 */
 	public LittleCenterPoint getDn() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.DOWN);
+		}
 		int x1,y1;
 		if(direction==Direction.Up) {
 			x1 = x;
@@ -162,6 +191,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的右下小中心点
 	 */
 	public LittleCenterPoint getRightDn() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.RIGHT_DOWN);
+		}
 		int x1,y1;
 		if(direction==Direction.Down || direction==Direction.Right) {
 			x1 = x + 14;
@@ -176,6 +208,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的右小中心点
 	 */
 	public LittleCenterPoint getRight() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.RIGHT);
+		}
 		int x1,y1;
 		if(direction==Direction.Up) {
 			x1 = x + 30;
@@ -196,6 +231,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的右上小中心点
 	 */
 	public LittleCenterPoint getRightUp() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.RIGHT_UP);
+		}
 		int x1,y1;
 		if(direction==Direction.Up || direction==Direction.Right) {
 			x1 = x + 14;
@@ -211,6 +249,9 @@ public class LittleCenterPoint {
 	 * 获取一个小中心点的上小中心点
 	 */
 	public LittleCenterPoint getUp() {
+		if(id>=0) {
+			return DiamondGrid.neighborLittleCell(id, DiamondGrid.UP);
+		}
 		int x1,y1;
 		if(direction==Direction.Up) {
 			x1 = x;
@@ -0,0 +1,174 @@
+package redAlert.utilBean;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import redAlert.utils.PerformanceMonitor;
+
+/**
+ * 对象池
+ *
+ * 炮弹、伤害、移动线、核弹尾焰等寿命很短的对象以前每次都new一个,用完交给GC;
+ * 交火时几十辆坦克一起开火,每秒产生大量垃圾
+ * 现在用完放回池中,下次取出时由使用者重新初始化
+ *
+ * 放回时调用重置钩子,去掉对其他单位的引用(不让已摧毁的单位因为池中的对象而不能回收)
+ * 池中最多保留maxIdle个对象,多出来的直接丢弃
+ * acquire/release可以在任意线程调用(意图阶段各计算线程都会开火),用池对象自身加锁,临界区只有一次数组读写
+ *
+ * 每个池记录命中(从池中取到)、新建、放回、丢弃的次数,所有池登记在一起,可以打印或记入PerformanceMonitor
+ */
+public class ObjectPool<T> {
+
+	/**
+	 * 所有的池  按创建先后
+	 */
+	private static final List<ObjectPool<?>> POOLS = new CopyOnWriteArrayList<ObjectPool<?>>();
+
+	private final String name;
+	private final Supplier<T> factory;
+	/**
+	 * 放回时的重置钩子  可以为null
+	 */
+	private final Consumer<T> resetHook;
+	private final int maxIdle;
+	private Object[] idle = new Object[16];
+	private int idleCount = 0;
+
+	/** 统计数据 */
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong allocations = new AtomicLong();
+	private final AtomicLong releases = new AtomicLong();
+	private final AtomicLong discards = new AtomicLong();
+
+	/**
+	 * @param name 名称  统计时使用
+	 * @param maxIdle 池中最多保留的对象数
+	 * @param factory 池空时新建对象
+	 * @param resetHook 放回时重置对象  可以为null
+	 */
+	public ObjectPool(String name,int maxIdle,Supplier<T> factory,Consumer<T> resetHook) {
+		this.name = name;
+		this.maxIdle = maxIdle;
+		this.factory = factory;
+		this.resetHook = resetHook;
+		POOLS.add(this);
+	}
+
+	/**
+	 * 取出一个对象  池空时新建
+	 */
+	@SuppressWarnings("unchecked")
+	public T acquire() {
+		T obj = null;
+		synchronized (this) {
+			if(idleCount>0) {
+				obj = (T)idle[--idleCount];
+				idle[idleCount] = null;
+			}
+		}
+		if(obj!=null) {
+			hits.incrementAndGet();
+			return obj;
+		}
+		allocations.incrementAndGet();
+		return factory.get();
+	}
+
+	/**
+	 * 放回一个对象  放回后使用者不能再使用它
+	 */
+	public void release(T obj) {
+		if(obj==null) {
+			return;
+		}
+		if(resetHook!=null) {
+			resetHook.accept(obj);
+		}
+		releases.incrementAndGet();
+		synchronized (this) {
+			if(idleCount<maxIdle) {
+				if(idleCount==idle.length) {
+					idle = Arrays.copyOf(idle, Math.min(maxIdle, idle.length*2));
+				}
+				idle[idleCount++] = obj;
+				return;
+			}
+		}
+		discards.incrementAndGet();
+	}
+
+	/**
+	 * 清空池中的对象  统计数据不变
+	 */
+	public synchronized void clear() {
+		Arrays.fill(idle, 0, idleCount, null);
+		idleCount = 0;
+	}
+
+	public String getName() {
+		return name;
+	}
+	public synchronized int getIdleCount() {
+		return idleCount;
+	}
+	public long getHits() {
+		return hits.get();
+	}
+	public long getAllocations() {
+		return allocations.get();
+	}
+	public long getReleases() {
+		return releases.get();
+	}
+	public long getDiscards() {
+		return discards.get();
+	}
+
+	/**
+	 * 命中率  还没有取过对象时为0
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h+allocations.get();
+		return total==0 ? 0 : (double)h/total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[%s池] 命中: %d, 新建: %d, 放回: %d, 丢弃: %d, 池中: %d, 命中率: %.1f%%",
+				name, getHits(), getAllocations(), getReleases(), getDiscards(), getIdleCount(), getHitRate()*100);
+	}
+
+	/**
+	 * 所有的池
+	 */
+	public static List<ObjectPool<?>> getPools() {
+		return POOLS;
+	}
+
+	/**
+	 * 所有池的统计  每个池一行
+	 */
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		for(ObjectPool<?> pool:POOLS) {
+			sb.append(pool).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 把所有池的命中、新建次数记入PerformanceMonitor
+	 */
+	public static void recordCounters() {
+		for(ObjectPool<?> pool:POOLS) {
+			PerformanceMonitor.recordCounter(pool.name+"池命中", pool.getHits());
+			PerformanceMonitor.recordCounter(pool.name+"池新建", pool.getAllocations());
+		}
+	}
+}
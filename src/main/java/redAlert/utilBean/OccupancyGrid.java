@@ -0,0 +1,245 @@
+package redAlert.utilBean;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import redAlert.shapeObjects.Soldier;
+import redAlert.shapeObjects.Vehicle;
+import redAlert.shapeObjects.Vehicle.EngineStatus;
+
+/**
+ * 中心点占用网格
+ *
+ * 每个中心点的通行标记和占用状态压在一个int里,按中心点编号(DiamondGrid)存放在AtomicIntegerArray中:
+ *   通行标记  由坡面、地形、覆盖物、建筑区域类型决定,修改这些属性时由CenterPoint的setXxx方法更新
+ *   占用状态  有无建筑、有无载具、是否被载具预约、步兵个数(最多3个)
+ * 以前每个中心点带一个ReentrantLock,判断能否进入、预约都要上锁,寻路时每个相邻点都要加锁解锁一次
+ * 现在判断只读一次数组,预约、添加步兵用CAS,不再上锁
+ *
+ * 预约者、步兵也按编号存放在AtomicReferenceArray中,每个中心点3个步兵位置
+ * 载具、建筑的引用仍在CenterPoint上,这里只记有无
+ */
+public class OccupancyGrid {
+
+	/**
+	 * 通行标记
+	 * VEHICLE_TERRAIN  满足载具进入的必要条件(各类型的vehicleCondition)
+	 * VEHICLE_PASS     只看地形和建筑载具能否通过(磅秤上有载具时仍然算能通过)
+	 * SOLDIER_TERRAIN  满足步兵进入的必要条件(各类型的soldierCondition)
+	 * BUILDING_TERRAIN 满足建筑摆放的必要条件(各类型的buildingCondition)
+	 */
+	public static final int VEHICLE_TERRAIN = 1;
+	public static final int VEHICLE_PASS = 1<<1;
+	public static final int SOLDIER_TERRAIN = 1<<2;
+	public static final int BUILDING_TERRAIN = 1<<3;
+	public static final int TERRAIN_MASK = VEHICLE_TERRAIN|VEHICLE_PASS|SOLDIER_TERRAIN|BUILDING_TERRAIN;
+	/**
+	 * 占用状态
+	 */
+	public static final int VEHICLE = 1<<4;
+	public static final int BUILDING = 1<<5;
+	public static final int BOOKED = 1<<6;
+	/**
+	 * 步兵个数  占两位
+	 */
+	public static final int SOLDIER_SHIFT = 8;
+	public static final int SOLDIER_ONE = 1<<SOLDIER_SHIFT;
+	public static final int SOLDIER_MASK = 3<<SOLDIER_SHIFT;
+	public static final int MAX_SOLDIERS = 3;
+
+	static final AtomicIntegerArray states = new AtomicIntegerArray(DiamondGrid.CELL_COUNT);
+	static final AtomicReferenceArray<Vehicle> bookers = new AtomicReferenceArray<>(DiamondGrid.CELL_COUNT);
+	static final AtomicReferenceArray<Soldier> soldiers = new AtomicReferenceArray<>(DiamondGrid.CELL_COUNT*MAX_SOLDIERS);
+
+	/**
+	 * 中心点的状态  没有中心点的编号为0
+	 */
+	public static int getState(int id) {
+		return states.get(id);
+	}
+
+	/**
+	 * 清除一些标志位、设置一些标志位
+	 */
+	static void update(int id,int clear,int set) {
+		for(;;) {
+			int state = states.get(id);
+			int next = (state&~clear)|set;
+			if(state==next || states.compareAndSet(id, state, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 更新通行标记
+	 */
+	static void setTerrain(int id,int terrain) {
+		update(id, TERRAIN_MASK, terrain&TERRAIN_MASK);
+	}
+
+	/**
+	 * 普通载具是否能进入  无载具、无步兵、未被预约
+	 */
+	public static boolean isVehicleCanOn(int id) {
+		return (states.get(id)&(VEHICLE_TERRAIN|VEHICLE|BOOKED|SOLDIER_MASK))==VEHICLE_TERRAIN;
+	}
+
+	/**
+	 * 载具一次寻路时能否作为寻路点  无步兵,有载具时载具在移动中
+	 */
+	public static boolean isVehicleCanOnXunLuFirst(int id) {
+		int state = states.get(id);
+		if((state&(VEHICLE_TERRAIN|SOLDIER_MASK))!=VEHICLE_TERRAIN) {
+			return false;
+		}
+		if((state&VEHICLE)!=0) {
+			Vehicle vehicle = DiamondGrid.cells[id].vehicle;
+			if(vehicle!=null && vehicle.getEngineStatus()==EngineStatus.Stopped) {//存在停止的载具
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 载具二次寻路时能否作为寻路点  无步兵
+	 */
+	public static boolean isVehicleCanOnXunLuSecond(int id) {
+		return (states.get(id)&(VEHICLE_TERRAIN|SOLDIER_MASK))==VEHICLE_TERRAIN;
+	}
+
+	/**
+	 * 只看地形和建筑  载具能否通过  没有中心点的编号返回false
+	 */
+	public static boolean isVehicleCanPass(int id) {
+		return (states.get(id)&VEHICLE_PASS)!=0;
+	}
+
+	/**
+	 * 只看地形和建筑  步兵能否通过  没有中心点的编号返回false
+	 */
+	public static boolean isSoldierCanPass(int id) {
+		return (states.get(id)&(SOLDIER_TERRAIN|BUILDING))==SOLDIER_TERRAIN;
+	}
+
+	/**
+	 * 步兵是否能进入  无建筑、无载具、未被预约、步兵少于3个
+	 */
+	public static boolean isSoldierCanOn(int id) {
+		return isSoldierCanOnState(states.get(id));
+	}
+
+	private static boolean isSoldierCanOnState(int state) {
+		return (state&(SOLDIER_TERRAIN|BUILDING|VEHICLE|BOOKED))==SOLDIER_TERRAIN && (state&SOLDIER_MASK)<MAX_SOLDIERS*SOLDIER_ONE;
+	}
+
+	/**
+	 * 是否满足建筑安放条件  无建筑、无载具、无步兵、未被预约
+	 */
+	public static boolean isBuildingCanPutOn(int id) {
+		return (states.get(id)&(BUILDING_TERRAIN|BUILDING|VEHICLE|BOOKED|SOLDIER_MASK))==BUILDING_TERRAIN;
+	}
+
+	/**
+	 * 申请预约  未被预约且没有步兵时才能成功
+	 * 一次CAS同时检查步兵个数并置上BOOKED,与addSoldier(检查BOOKED并加步兵个数)改的是同一个int,
+	 * 两者同时进行时只有一个成功,预约上的格子里不会再进步兵
+	 * 置上BOOKED后再放入预约者  BOOKED在谁手里,预约者就只由谁写
+	 */
+	static boolean addBook(int id,Vehicle vehicle) {
+		for(;;) {
+			int state = states.get(id);
+			if((state&(BOOKED|SOLDIER_MASK))!=0) {
+				return false;
+			}
+			if(states.compareAndSet(id, state, state|BOOKED)) {
+				break;
+			}
+		}
+		bookers.set(id, vehicle);
+		return true;
+	}
+
+	/**
+	 * 释放预约  只能释放自己的预约
+	 * 先清预约者再清标志位:反过来的话,清标志位之后别的载具可能马上预约成功,随后它的预约者被这里清掉
+	 */
+	static boolean exitBook(int id,Vehicle vehicle) {
+		if(vehicle==null || !bookers.compareAndSet(id, vehicle, null)) {
+			return false;
+		}
+		//BOOKED还在,别的载具这时预约不上
+		update(id, BOOKED, 0);
+		return true;
+	}
+
+	static Vehicle getBooker(int id) {
+		return bookers.get(id);
+	}
+
+	/**
+	 * 添加步兵  先用CAS占一个名额,再放到空的步兵位置上
+	 * @return 不能进入时返回false
+	 */
+	static boolean addSoldier(int id,Soldier soldier) {
+		for(;;) {
+			int state = states.get(id);
+			if(!isSoldierCanOnState(state)) {
+				return false;
+			}
+			if(states.compareAndSet(id, state, state+SOLDIER_ONE)) {
+				break;
+			}
+		}
+		//占到名额后一定有空位
+		for(;;) {
+			for(int i=0;i<MAX_SOLDIERS;i++) {
+				if(soldiers.compareAndSet(id*MAX_SOLDIERS+i, null, soldier)) {
+					return true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 移除步兵
+	 * @return 步兵不在这个中心点上时返回false
+	 */
+	static boolean removeSoldier(int id,Soldier soldier) {
+		for(int i=0;i<MAX_SOLDIERS;i++) {
+			int index = id*MAX_SOLDIERS+i;
+			Soldier cur = soldiers.get(index);
+			if(cur!=null && cur.equals(soldier) && soldiers.compareAndSet(index, cur, null)) {
+				states.addAndGet(id, -SOLDIER_ONE);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static int getSoldierCount(int id) {
+		return (states.get(id)&SOLDIER_MASK)>>>SOLDIER_SHIFT;
+	}
+
+	static Soldier getSoldier(int id,int slot) {
+		return soldiers.get(id*MAX_SOLDIERS+slot);
+	}
+
+	/**
+	 * 清除所有载具、步兵和预约  保留通行标记和建筑  测试时从空地图重新开始用
+	 */
+	public static void clearUnits() {
+		for(int id=0;id<DiamondGrid.CELL_COUNT;id++) {
+			CenterPoint cp = DiamondGrid.cells[id];
+			if(cp!=null) {
+				cp.vehicle = null;
+			}
+			bookers.set(id, null);
+			for(int i=0;i<MAX_SOLDIERS;i++) {
+				soldiers.set(id*MAX_SOLDIERS+i, null);
+			}
+			update(id, VEHICLE|BOOKED|SOLDIER_MASK, 0);
+		}
+	}
+}
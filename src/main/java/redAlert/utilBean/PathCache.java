@@ -0,0 +1,257 @@
+package redAlert.utilBean;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import redAlert.SysConfig;
+
+/**
+ * 路径缓存
+ *
+ * 玩家经常重复下达同样的命令(例如从战车工厂集结到前线),起点终点相同时直接复用算过的路径,不再寻路
+ * 以(起点编号,终点编号,载具或步兵)为键,路径存成编号数组,超过容量时按最近最少使用的顺序淘汰
+ * 建筑建成或被摧毁时(见PointUtil.notifyPassabilityChanged),经过这些点的路径作废
+ *
+ * 缓存的路径是当时寻路的结果,不考虑之后单位位置的变化,单位走到被挡住的地方时和平时一样重新寻路
+ * 由寻路服务在提交和交付请求时使用(见PathService),方法都是同步的
+ */
+public class PathCache {
+
+	private static volatile PathCache instance;
+
+	/**
+	 * 获取游戏使用的路径缓存  容量见SysConfig.pathCacheSize
+	 */
+	public static PathCache getInstance() {
+		if(instance==null) {
+			synchronized (PathCache.class) {
+				if(instance==null) {
+					instance = new PathCache(SysConfig.pathCacheSize);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * 地图上的建筑发生变化  经过这些点的路径作废
+	 */
+	public static void onMapChanged(List<CenterPoint> cps) {
+		PathCache cache = instance;
+		if(cache==null || cps==null || cps.isEmpty()) {
+			return;
+		}
+		cache.invalidate(cps);
+	}
+
+	private final int capacity;
+	/**
+	 * 键见key()  值为路径上的点的编号(载具用XunLuBean3.cellId,步兵用FlowField.littleCellId)
+	 */
+	private final LinkedHashMap<Long,int[]> entries;
+	/**
+	 * 地图版本  每次建筑变化加1
+	 * 每个点最后一次变化时的版本  寻路期间地图变了的路径不放进缓存
+	 */
+	private int version = 0;
+	private final int[] vehicleChanged = new int[XunLuBean3.CELL_COUNT];
+	private final int[] soldierChanged = new int[FlowField.LITTLE_CELL_COUNT];
+
+	/** 统计数据 */
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictCount = 0;
+	private long invalidateCount = 0;
+	private long rejectCount = 0;
+
+	/**
+	 * @param capacity 最多缓存多少条路径  不大于0时不缓存
+	 */
+	public PathCache(int capacity) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Long,int[]>(Math.max(16, capacity*4/3+1), 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long,int[]> eldest) {
+				if(size()>PathCache.this.capacity) {
+					evictCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	private static long key(int start,int end,boolean vehicle) {
+		return ((long)start<<32) | ((long)end<<1) | (vehicle ? 1 : 0);
+	}
+
+	/**
+	 * 当前的地图版本  寻路开始前取得,放入缓存时传回
+	 */
+	public synchronized int getVersion() {
+		return version;
+	}
+
+	/**
+	 * 查找载具路径  没有时返回null
+	 * 每次返回新的列表,单位可以修改
+	 */
+	public synchronized List<CenterPoint> getVehiclePath(CenterPoint start,CenterPoint end) {
+		int[] ids = get(XunLuBean3.cellId(start.getX(), start.getY()), XunLuBean3.cellId(end.getX(), end.getY()), true);
+		if(ids==null) {
+			return null;
+		}
+		List<CenterPoint> path = new ArrayList<>(ids.length);
+		for(int id:ids) {
+			path.add(XunLuBean3.cells[id]);
+		}
+		return path;
+	}
+
+	/**
+	 * 查找步兵路径  没有时返回null
+	 * 每次返回新的列表,单位可以修改
+	 */
+	public synchronized List<LittleCenterPoint> getSoldierPath(LittleCenterPoint start,LittleCenterPoint end) {
+		int[] ids = get(FlowField.littleCellId(start), FlowField.littleCellId(end), false);
+		if(ids==null) {
+			return null;
+		}
+		List<LittleCenterPoint> path = new ArrayList<>(ids.length);
+		for(int id:ids) {
+			path.add(DiamondGrid.getLittleCell(id));
+		}
+		return path;
+	}
+
+	/**
+	 * 放入载具路径
+	 * @param mapVersion 寻路开始前的地图版本(getVersion)
+	 */
+	public synchronized void putVehiclePath(CenterPoint start,CenterPoint end,List<CenterPoint> path,int mapVersion) {
+		if(capacity<=0 || path==null || path.isEmpty()) {
+			return;
+		}
+		int[] ids = new int[path.size()];
+		for(int i=0;i<ids.length;i++) {
+			ids[i] = XunLuBean3.cellId(path.get(i).getX(), path.get(i).getY());
+		}
+		put(XunLuBean3.cellId(start.getX(), start.getY()), XunLuBean3.cellId(end.getX(), end.getY()), true, ids, vehicleChanged, mapVersion);
+	}
+
+	/**
+	 * 放入步兵路径
+	 * @param mapVersion 寻路开始前的地图版本(getVersion)
+	 */
+	public synchronized void putSoldierPath(LittleCenterPoint start,LittleCenterPoint end,List<LittleCenterPoint> path,int mapVersion) {
+		if(capacity<=0 || path==null || path.isEmpty()) {
+			return;
+		}
+		int[] ids = new int[path.size()];
+		for(int i=0;i<ids.length;i++) {
+			ids[i] = FlowField.littleCellId(path.get(i));
+		}
+		put(FlowField.littleCellId(start), FlowField.littleCellId(end), false, ids, soldierChanged, mapVersion);
+	}
+
+	private int[] get(int start,int end,boolean vehicle) {
+		if(capacity<=0 || start<0 || end<0) {
+			return null;
+		}
+		int[] ids = entries.get(key(start, end, vehicle));
+		if(ids==null) {
+			missCount++;
+		}else {
+			hitCount++;
+		}
+		return ids;
+	}
+
+	private void put(int start,int end,boolean vehicle,int[] ids,int[] changed,int mapVersion) {
+		if(start<0 || end<0) {
+			return;
+		}
+		for(int id:ids) {
+			//路径上有点在寻路开始后变了
+			if(id<0 || changed[id]>mapVersion) {
+				rejectCount++;
+				return;
+			}
+		}
+		entries.put(key(start, end, vehicle), ids);
+	}
+
+	/**
+	 * 这些中心点的通行情况变了  经过它们(或它们的小中心点)的路径作废
+	 */
+	public synchronized void invalidate(List<CenterPoint> cps) {
+		version++;
+		for(CenterPoint cp:cps) {
+			int id = XunLuBean3.cellId(cp.getX(), cp.getY());
+			if(id>=0) {
+				vehicleChanged[id] = version;
+				for(int side=0;side<4;side++) {
+					soldierChanged[id*4+side] = version;
+				}
+			}
+		}
+		Iterator<Map.Entry<Long,int[]>> it = entries.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<Long,int[]> entry = it.next();
+			int[] changed = (entry.getKey()&1)!=0 ? vehicleChanged : soldierChanged;
+			for(int id:entry.getValue()) {
+				if(changed[id]==version) {
+					it.remove();
+					invalidateCount++;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 清空缓存和统计数据
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		hitCount = 0;
+		missCount = 0;
+		evictCount = 0;
+		invalidateCount = 0;
+		rejectCount = 0;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	public synchronized long getEvictCount() {
+		return evictCount;
+	}
+	public synchronized long getInvalidateCount() {
+		return invalidateCount;
+	}
+	public synchronized int size() {
+		return entries.size();
+	}
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public synchronized String getStatistics() {
+		long total = hitCount+missCount;
+		double hitRatio = total==0 ? 0.0 : (double)hitCount/total*100;
+		return String.format("路径缓存: 条目=%d/%d, 命中=%d (%.1f%%), 未命中=%d, 淘汰=%d, 作废=%d, 过期未放入=%d",
+				entries.size(), capacity, hitCount, hitRatio, missCount, evictCount, invalidateCount, rejectCount);
+	}
+}
@@ -0,0 +1,437 @@
+package redAlert.utilBean;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 连通区域索引
+ *
+ * 按地形和建筑(不考虑单位)把载具能通过的中心点、步兵能通过的小中心点分别划分成连通区域,每个点记一个区域编号
+ * 两个点编号不同就一定走不到,不用寻路就能知道移动命令的目标不可达,也能在目标附近只找能走到的点
+ * 编号相同不代表一定能走到(单位可能挡路),仍然需要寻路
+ *
+ * 建筑建成或被摧毁时调用update,只重新标记涉及的区域
+ * 查询可以在多个线程同时进行,update与查询互斥
+ */
+public class ReachabilityIndex {
+
+	private static final int DIRECTIONS = XunLuBean3.DIRECTIONS;
+
+	private static volatile ReachabilityIndex instance;
+
+	/**
+	 * 获取游戏地图的连通区域索引  第一次使用时按当前地图建立
+	 */
+	public static ReachabilityIndex getInstance() {
+		if(instance==null) {
+			synchronized (ReachabilityIndex.class) {
+				if(instance==null) {
+					instance = new ReachabilityIndex();
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * 地图上的建筑发生变化  已建立索引时重新标记涉及的区域
+	 */
+	public static void onMapChanged(List<CenterPoint> cps) {
+		ReachabilityIndex index = instance;
+		if(index==null || cps==null || cps.isEmpty()) {
+			return;
+		}
+		int[] ids = new int[cps.size()];
+		int[] littleIds = new int[cps.size()*4];
+		int count = 0;
+		for(CenterPoint cp:cps) {
+			int id = XunLuBean3.cellId(cp.getX(), cp.getY());
+			if(id>=0) {
+				littleIds[count*4] = id*4;
+				littleIds[count*4+1] = id*4+1;
+				littleIds[count*4+2] = id*4+2;
+				littleIds[count*4+3] = id*4+3;
+				ids[count++] = id;
+			}
+		}
+		index.update(Arrays.copyOf(ids, count), Arrays.copyOf(littleIds, count*4));
+	}
+
+	/**
+	 * 一种网格上的区域编号
+	 */
+	private static class Layer {
+		/**
+		 * 标记过程中还没有区域编号的能通过的点
+		 */
+		private static final int UNLABELED = Integer.MAX_VALUE;
+
+		final int[] neighbors;
+		final IntPredicate passableTest;
+		/**
+		 * 区域编号  不能通过的点为-1
+		 */
+		final int[] label;
+		/**
+		 * 每个区域的点数  按区域编号索引
+		 */
+		int[] sizes = new int[64];
+		int nextLabel = 0;
+		final int[] queue;
+		final int[] seen;
+		/**
+		 * 拆分检查时点属于哪一路搜索
+		 */
+		final int[] owner;
+		int stamp = 0;
+		/**
+		 * 上次update重新标记(或检查)的点数
+		 */
+		int lastRelabeled = 0;
+
+		Layer(int[] neighbors,int count,IntPredicate passableTest) {
+			this.neighbors = neighbors;
+			this.passableTest = passableTest;
+			this.label = new int[count];
+			this.queue = new int[count];
+			this.seen = new int[count];
+			this.owner = new int[count];
+			for(int id=0;id<count;id++) {
+				label[id] = passableTest.test(id) ? UNLABELED : -1;
+			}
+			for(int id=0;id<count;id++) {
+				if(label[id]==UNLABELED) {
+					relabel(id, newLabel());
+				}
+			}
+		}
+
+		void nextStamp() {
+			if(++stamp==Integer.MAX_VALUE) {
+				Arrays.fill(seen, 0);
+				stamp = 1;
+			}
+		}
+
+		int newLabel() {
+			if(nextLabel==sizes.length) {
+				sizes = Arrays.copyOf(sizes, sizes.length*2);
+			}
+			sizes[nextLabel] = 0;
+			return nextLabel++;
+		}
+
+		/**
+		 * 从id出发,把连在一起的、编号不是target的能通过的点都改为target
+		 * @return 改动的点数
+		 */
+		int relabel(int id,int target) {
+			nextStamp();
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = id;
+			seen[id] = stamp;
+			while(head<tail) {
+				int cur = queue[head++];
+				if(label[cur]!=UNLABELED) {
+					sizes[label[cur]]--;
+				}
+				label[cur] = target;
+				sizes[target]++;
+				for(int d=0;d<DIRECTIONS;d++) {
+					int next = neighbors[cur*DIRECTIONS+d];
+					if(next>=0 && seen[next]!=stamp && label[next]>=0 && label[next]!=target) {
+						seen[next] = stamp;
+						queue[tail++] = next;
+					}
+				}
+			}
+			return tail;
+		}
+
+		/**
+		 * 这些点的通行情况可能变了
+		 * 变得能通过的点：把相邻的几个区域并入其中最大的一个,只改动较小的区域
+		 * 变得不能通过的点：区域被挡断时,断开的每一块都与这些点相邻,从它们的相邻点同时搜索,
+		 *   相遇的搜索合为一路,只剩一路还没搜完时停止,搜完的各路就是断开的小块,改为新编号,大块保持原编号
+		 */
+		void update(int[] ids) {
+			lastRelabeled = 0;
+			int[] opened = new int[ids.length];
+			int[] closed = new int[ids.length];
+			int openedCount = 0;
+			int closedCount = 0;
+			for(int id:ids) {
+				boolean now = passableTest.test(id);
+				boolean was = label[id]>=0;
+				if(now && !was) {
+					label[id] = UNLABELED;
+					opened[openedCount++] = id;
+				}else if(!now && was) {
+					sizes[label[id]]--;
+					label[id] = -1;
+					closed[closedCount++] = id;
+				}
+			}
+
+			//合并
+			for(int i=0;i<openedCount;i++) {
+				int id = opened[i];
+				if(label[id]!=UNLABELED) {
+					continue;
+				}
+				int target = -1;
+				for(int d=0;d<DIRECTIONS;d++) {
+					int next = neighbors[id*DIRECTIONS+d];
+					if(next>=0 && label[next]>=0 && label[next]!=UNLABELED && (target<0 || sizes[label[next]]>sizes[target])) {
+						target = label[next];
+					}
+				}
+				lastRelabeled += relabel(id, target<0 ? newLabel() : target);
+			}
+
+			//拆分
+			if(closedCount==0) {
+				return;
+			}
+			nextStamp();
+			int[] seeds = new int[closedCount*DIRECTIONS];
+			int seedCount = 0;
+			for(int i=0;i<closedCount;i++) {
+				for(int d=0;d<DIRECTIONS;d++) {
+					int next = neighbors[closed[i]*DIRECTIONS+d];
+					if(next>=0 && label[next]>=0 && seen[next]!=stamp) {
+						seen[next] = stamp;
+						seeds[seedCount++] = next;
+					}
+				}
+			}
+			//按原编号分组  不同区域的搜索不会相遇
+			Integer[] order = new Integer[seedCount];
+			for(int i=0;i<seedCount;i++) {
+				order[i] = seeds[i];
+			}
+			Arrays.sort(order, (a, b) -> Integer.compare(label[a], label[b]));
+			int from = 0;
+			for(int i=1;i<=seedCount;i++) {
+				if(i==seedCount || label[order[i]]!=label[order[from]]) {
+					if(i-from>1) {
+						split(order, from, i);
+					}
+					from = i;
+				}
+			}
+		}
+
+		/**
+		 * 从同一区域的几个点同时搜索,检查区域是否被拆开
+		 */
+		private void split(Integer[] order,int from,int to) {
+			int oldLabel = label[order[from]];
+			int groups = to-from;
+			int[][] queues = new int[groups][];
+			int[] heads = new int[groups];
+			int[] tails = new int[groups];
+			int[] parent = new int[groups];
+			nextStamp();
+			for(int g=0;g<groups;g++) {
+				int seed = order[from+g];
+				queues[g] = new int[16];
+				queues[g][tails[g]++] = seed;
+				seen[seed] = stamp;
+				owner[seed] = g;
+				parent[g] = g;
+			}
+			while(true) {
+				//还没搜完的有几路
+				if(activeRoots(parent, heads, tails)<=1) {
+					break;
+				}
+				for(int g=0;g<groups;g++) {
+					if(heads[g]>=tails[g]) {
+						continue;
+					}
+					int cur = queues[g][heads[g]++];
+					lastRelabeled++;
+					for(int d=0;d<DIRECTIONS;d++) {
+						int next = neighbors[cur*DIRECTIONS+d];
+						if(next<0 || label[next]!=oldLabel) {
+							continue;
+						}
+						if(seen[next]!=stamp) {
+							seen[next] = stamp;
+							owner[next] = g;
+							if(tails[g]==queues[g].length) {
+								queues[g] = Arrays.copyOf(queues[g], tails[g]*2);
+							}
+							queues[g][tails[g]++] = next;
+						}else {
+							int r1 = root(parent, g);
+							int r2 = root(parent, owner[next]);
+							if(r1!=r2) {
+								parent[Math.max(r1, r2)] = Math.min(r1, r2);
+							}
+						}
+					}
+				}
+			}
+			//搜完的各路改为新编号  还有一路没搜完时它保持原编号,都搜完时最大的一块保持原编号
+			int[] rootSize = new int[groups];
+			int keep = -1;
+			for(int g=0;g<groups;g++) {
+				int r = root(parent, g);
+				rootSize[r] += tails[g];
+				if(heads[g]<tails[g]) {
+					keep = r;
+				}
+			}
+			if(keep<0) {
+				for(int g=0;g<groups;g++) {
+					if(root(parent, g)==g && (keep<0 || rootSize[g]>rootSize[keep])) {
+						keep = g;
+					}
+				}
+			}
+			int[] newLabels = new int[groups];
+			for(int g=0;g<groups;g++) {
+				if(root(parent, g)==g && g!=keep) {
+					newLabels[g] = newLabel();
+				}
+			}
+			for(int g=0;g<groups;g++) {
+				int r = root(parent, g);
+				if(r==keep) {
+					continue;
+				}
+				for(int k=0;k<tails[g];k++) {
+					int id = queues[g][k];
+					sizes[oldLabel]--;
+					label[id] = newLabels[r];
+					sizes[newLabels[r]]++;
+				}
+			}
+		}
+
+		/**
+		 * 从from能否走到to  from本身不能通过时(例如单位站在建筑上)看它的相邻点
+		 */
+		boolean reachable(int from,int to) {
+			if(from<0 || to<0 || label[to]<0) {
+				return false;
+			}
+			if(label[from]>=0) {
+				return label[from]==label[to];
+			}
+			for(int d=0;d<DIRECTIONS;d++) {
+				int next = neighbors[from*DIRECTIONS+d];
+				if(next>=0 && label[next]==label[to]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static int root(int[] parent,int g) {
+			while(parent[g]!=g) {
+				parent[g] = parent[parent[g]];
+				g = parent[g];
+			}
+			return g;
+		}
+
+		private static int activeRoots(int[] parent,int[] heads,int[] tails) {
+			int first = -1;
+			for(int g=0;g<heads.length;g++) {
+				if(heads[g]<tails[g]) {
+					int r = root(parent, g);
+					if(first<0) {
+						first = r;
+					}else if(r!=first) {
+						return 2;
+					}
+				}
+			}
+			return first<0 ? 0 : 1;
+		}
+	}
+
+	private final Layer vehicleLayer;
+	private final Layer soldierLayer;
+	private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+	/**
+	 * 按当前地图建立索引  游戏中使用getInstance()
+	 */
+	public ReachabilityIndex() {
+		vehicleLayer = new Layer(XunLuBean3.neighbors, XunLuBean3.CELL_COUNT, OccupancyGrid::isVehicleCanPass);
+		soldierLayer = new Layer(DiamondGrid.littleNeighbors(), FlowField.LITTLE_CELL_COUNT,
+				id -> DiamondGrid.getLittleCell(id)!=null && DiamondGrid.getLittleCell(id).isSoldierCanPass());
+	}
+
+	/**
+	 * 重新读取这些点的通行情况
+	 * @param ids 中心点编号(XunLuBean3.cellId)
+	 * @param littleIds 小中心点编号(FlowField.littleCellId)
+	 */
+	public void update(int[] ids,int[] littleIds) {
+		rwLock.writeLock().lock();
+		try {
+			vehicleLayer.update(ids);
+			soldierLayer.update(littleIds);
+		}finally {
+			rwLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 载具从from能否开到to  false表示一定开不到
+	 */
+	public boolean isVehicleReachable(CenterPoint from,CenterPoint to) {
+		rwLock.readLock().lock();
+		try {
+			return vehicleLayer.reachable(XunLuBean3.cellId(from.getX(), from.getY()), XunLuBean3.cellId(to.getX(), to.getY()));
+		}finally {
+			rwLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 步兵从from能否走到to  false表示一定走不到
+	 */
+	public boolean isSoldierReachable(LittleCenterPoint from,LittleCenterPoint to) {
+		rwLock.readLock().lock();
+		try {
+			return soldierLayer.reachable(FlowField.littleCellId(from), FlowField.littleCellId(to));
+		}finally {
+			rwLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 中心点所在的载具区域编号  载具不能通过时为-1
+	 */
+	public int getVehicleComponent(CenterPoint cp) {
+		int id = XunLuBean3.cellId(cp.getX(), cp.getY());
+		return id<0 ? -1 : vehicleLayer.label[id];
+	}
+
+	/**
+	 * 小中心点所在的步兵区域编号  步兵不能通过时为-1
+	 */
+	public int getSoldierComponent(LittleCenterPoint lcp) {
+		int id = FlowField.littleCellId(lcp);
+		return id<0 ? -1 : soldierLayer.label[id];
+	}
+
+	/**
+	 * 上次update重新标记的中心点、小中心点数
+	 */
+	public int getLastVehicleRelabeled() {
+		return vehicleLayer.lastRelabeled;
+	}
+	public int getLastSoldierRelabeled() {
+		return soldierLayer.lastRelabeled;
+	}
+}
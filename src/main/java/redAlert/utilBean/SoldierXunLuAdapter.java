@@ -56,6 +56,11 @@ public class SoldierXunLuAdapter extends SoldierXunLuBean2{
 	 */
 	@Override
 	public List<LittleCenterPoint> xunlu(LittleCenterPoint startCp,LittleCenterPoint endCp) {
+		//不在一个连通区域里,一定走不到  不用搜索到寻路次数用完
+		if(!ReachabilityIndex.getInstance().isSoldierReachable(startCp, endCp)) {
+			reInit();
+			return null;
+		}
 		List<LittleCenterPoint> path = super.xunlu(startCp, endCp);
 		
 		reInit();
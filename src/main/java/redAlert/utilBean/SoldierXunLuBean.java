@@ -7,6 +7,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 
+import redAlert.SysConfig;
 import redAlert.enums.Direction;
 import redAlert.utilBean.XunLuBean.RaPoint;
 import redAlert.utils.PointUtil;
@@ -270,9 +271,9 @@ public class SoldierXunLuBean {
 	 * 初始化方法  应该考虑到地图的占用情况  适当设置一些不可使用的点
 	 */
 	public SoldierXunLuBean(){
-		for(int m=0;m<50;m++) {//一类
+		for(int m=0;m<SysConfig.getMapRows();m++) {//一类
 			int y = oy*2*m;
-			for(int n=0;n<50;n++) {
+			for(int n=0;n<SysConfig.getMapColumns();n++) {
 				int x = ox*2*n;
 				
 				CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
@@ -312,9 +313,9 @@ public class SoldierXunLuBean {
 			}
 		}
 		
-		for(int m=0;m<50;m++) {//二类
+		for(int m=0;m<SysConfig.getMapRows();m++) {//二类
 			int y = oy+oy*2*m;
-			for(int n=0;n<50;n++) {
+			for(int n=0;n<SysConfig.getMapColumns();n++) {
 				int x = ox+ox*2*n;
 				
 				CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
@@ -1,6 +1,5 @@
 package redAlert.utilBean;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -19,9 +18,10 @@ public class SoldierXunLuBean2 {
 	protected final int oy = 15;//菱形的短半径
 	
 	/**
-	 * 所有中心点的集合
+	 * 寻路用到的点  按小中心点编号(DiamondGrid.littleCellId)存放
+	 * 第一次用到时才创建,大地图上一次寻路只会碰到很少一部分小中心点
 	 */
-	private HashMap<String,RaPoint> myPointMap = new HashMap<>();
+	private RaPoint[] myPoints = new RaPoint[DiamondGrid.LITTLE_CELL_COUNT];
 	
 	/**
 	 * 仅在寻路算法中使用
@@ -109,7 +109,7 @@ public class SoldierXunLuBean2 {
 				x1 = x - 32;
 				y1 = y;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getRight(){
@@ -127,7 +127,7 @@ public class SoldierXunLuBean2 {
 				x1 = x + 28;
 				y1 = y;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getUp(){
@@ -145,7 +145,7 @@ public class SoldierXunLuBean2 {
 				x1 = x - 2;
 				y1 = y - 15;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getDown(){
@@ -163,7 +163,7 @@ public class SoldierXunLuBean2 {
 				x1 = x - 2;
 				y1 = y + 15;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getLeftUp(){
@@ -175,7 +175,7 @@ public class SoldierXunLuBean2 {
 				x1 = x - 16;
 				y1 = y - 8;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getLeftDown(){
@@ -187,7 +187,7 @@ public class SoldierXunLuBean2 {
 				x1 = x -14;
 				y1 = y + 7;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getRightDown(){
@@ -199,7 +199,7 @@ public class SoldierXunLuBean2 {
 				x1 = x + 16;
 				y1 = y + 8;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 		
 		public RaPoint getRightUp(){
@@ -211,7 +211,7 @@ public class SoldierXunLuBean2 {
 				x1 = x + 16;
 				y1 = y - 8;
 			}
-			return myPointMap.get(x1+","+y1);
+			return getRaPoint(x1, y1);
 		}
 
 		@Override
@@ -257,68 +257,19 @@ public class SoldierXunLuBean2 {
 	}
 	
 	/**
-	 * 初始化方法  应该考虑到地图的占用情况  适当设置一些不可使用的点
+	 * 坐标对应的寻路点  不是小中心点时返回null
 	 */
-	public SoldierXunLuBean2(){
-		for(int m=0;m<50;m++) {//一类
-			int y = oy*2*m;
-			for(int n=0;n<50;n++) {
-				int x = ox*2*n;
-				
-				CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
-				LittleCenterPoint leftLCP =  PointUtil.fetchLittleCenterPoint(x-16,y);
-				LittleCenterPoint rightLCP =  PointUtil.fetchLittleCenterPoint(x+16,y);
-				LittleCenterPoint upLCP =  PointUtil.fetchLittleCenterPoint(x,y-8);
-				LittleCenterPoint downLCP =  PointUtil.fetchLittleCenterPoint(x,y+8);
-				
-				if(leftLCP!=null) {
-					RaPoint rp = new RaPoint(x-16,y,Direction.Left);
-					myPointMap.put( (x-16)+","+y, rp);
-				}
-				if(rightLCP!=null) {
-					RaPoint rp = new RaPoint(x+16,y,Direction.Right);
-					myPointMap.put( (x+16)+","+y, rp);
-				}
-				if(upLCP!=null) {
-					RaPoint rp = new RaPoint(x,y-8,Direction.Up);
-					myPointMap.put( x+","+(y-8), rp);
-				}
-				if(downLCP!=null) {
-					RaPoint rp = new RaPoint(x,y+8,Direction.Down);
-					myPointMap.put( x+","+(y+8), rp);
-				}
-			}
+	private RaPoint getRaPoint(int x,int y) {
+		int id = DiamondGrid.littleCellId(x, y);
+		if(id<0) {
+			return null;
 		}
-		
-		for(int m=0;m<50;m++) {//二类
-			int y = oy+oy*2*m;
-			for(int n=0;n<50;n++) {
-				int x = ox+ox*2*n;
-				
-				CenterPoint cp = PointUtil.fetchCenterPoint(x, y);
-				LittleCenterPoint leftLCP =  PointUtil.fetchLittleCenterPoint(x-16,y);
-				LittleCenterPoint rightLCP =  PointUtil.fetchLittleCenterPoint(x+16,y);
-				LittleCenterPoint upLCP =  PointUtil.fetchLittleCenterPoint(x,y-8);
-				LittleCenterPoint downLCP =  PointUtil.fetchLittleCenterPoint(x,y+8);
-				
-				if(leftLCP!=null) {
-					RaPoint rp = new RaPoint(x-16,y,Direction.Left);
-					myPointMap.put( (x-16)+","+y, rp);
-				}
-				if(rightLCP!=null) {
-					RaPoint rp = new RaPoint(x+16,y,Direction.Right);
-					myPointMap.put( (x+16)+","+y, rp);
-				}
-				if(upLCP!=null) {
-					RaPoint rp = new RaPoint(x,y-8,Direction.Up);
-					myPointMap.put( x+","+(y-8), rp);
-				}
-				if(downLCP!=null) {
-					RaPoint rp = new RaPoint(x,y+8,Direction.Down);
-					myPointMap.put( x+","+(y+8), rp);
-				}
-			}
+		RaPoint rp = myPoints[id];
+		if(rp==null) {
+			rp = new RaPoint(x,y,DiamondGrid.getLittleCell(id).getDirection());
+			myPoints[id] = rp;
 		}
+		return rp;
 	}
 	
 	private int maxRecNum = 0;//允许的最大递归次数  也就是路径搜索次数
@@ -343,8 +294,8 @@ public class SoldierXunLuBean2 {
 	 * 
 	 */
 	public List<LittleCenterPoint> xunlu(LittleCenterPoint startCp,LittleCenterPoint endCp) {
-		RaPoint start = myPointMap.get(startCp.getX()+","+startCp.getY());
-		RaPoint end = myPointMap.get(endCp.getX()+","+endCp.getY());
+		RaPoint start = getRaPoint(startCp.getX(), startCp.getY());
+		RaPoint end = getRaPoint(endCp.getX(), endCp.getY());
 		
 		//计算起始点和结束点的曼哈顿距离  以此来估计一个数,不宜太大或太小,限制递归次数,防止内存溢出
 		maxRecNum = (Math.abs(startCp.getX() - endCp.getX())/16+Math.abs(startCp.getY() - endCp.getY())/8)*10 ;
@@ -0,0 +1,329 @@
+package redAlert.utilBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import redAlert.SysConfig;
+import redAlert.shapeObjects.ShapeUnit;
+
+/**
+ * 单位的空间哈希
+ *
+ * 把地图按格子(60x30像素,与一个中心点的菱形外接矩形一样大)均匀划分,每个格子记录中心(positionX+centerOffX,positionY+centerOffY)落在其中的单位和建筑
+ * 框选、按范围找目标、范围伤害只检查涉及的格子,不再遍历所有单位
+ * 地图外的单位按最近的边缘格子存放,查询时仍按实际坐标判断
+ *
+ * ShapeUnitResourceCenter添加、移除单位和建筑时加入、移出;
+ * 逻辑帧结束时GameLoop对每个方块调用update,只有中心换了格子的单位才移动
+ * 查询可以在多个线程同时进行,修改与查询互斥
+ */
+public class SpatialHash {
+
+	public static final int CELL_WIDTH = 60;
+	public static final int CELL_HEIGHT = 30;
+
+	private static volatile SpatialHash instance;
+
+	/**
+	 * 获取游戏地图的空间哈希  第一次使用时按当前地图大小建立
+	 */
+	public static SpatialHash getInstance() {
+		if(instance==null) {
+			synchronized (SpatialHash.class) {
+				if(instance==null) {
+					instance = new SpatialHash(SysConfig.gameMapWidth, SysConfig.gameMapHeight);
+				}
+			}
+		}
+		return instance;
+	}
+
+	private final int columns;
+	private final int rows;
+	/**
+	 * 每个格子里的单位  第一次用到时创建
+	 */
+	private final List<ShapeUnit>[] buckets;
+	private int size = 0;
+	private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SpatialHash(int mapWidth,int mapHeight) {
+		columns = Math.max(1, (mapWidth+CELL_WIDTH-1)/CELL_WIDTH);
+		rows = Math.max(1, (mapHeight+CELL_HEIGHT-1)/CELL_HEIGHT);
+		buckets = new List[columns*rows];
+	}
+
+	private static int centerX(ShapeUnit unit) {
+		return unit.positionX+unit.centerOffX;
+	}
+	private static int centerY(ShapeUnit unit) {
+		return unit.positionY+unit.centerOffY;
+	}
+	private int column(int x) {
+		return Math.min(columns-1, Math.max(0, Math.floorDiv(x, CELL_WIDTH)));
+	}
+	private int row(int y) {
+		return Math.min(rows-1, Math.max(0, Math.floorDiv(y, CELL_HEIGHT)));
+	}
+	private int cellOf(ShapeUnit unit) {
+		return row(centerY(unit))*columns+column(centerX(unit));
+	}
+
+	/**
+	 * 加入一个单位  已经加入的不重复加入
+	 */
+	public void add(ShapeUnit unit) {
+		rwLock.writeLock().lock();
+		try {
+			if(unit.spatialCell>=0) {
+				return;
+			}
+			int cell = cellOf(unit);
+			bucket(cell).add(unit);
+			unit.spatialCell = cell;
+			size++;
+		}finally {
+			rwLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 移出一个单位
+	 */
+	public void remove(ShapeUnit unit) {
+		rwLock.writeLock().lock();
+		try {
+			if(unit.spatialCell<0) {
+				return;
+			}
+			removeFrom(unit.spatialCell, unit);
+			unit.spatialCell = -1;
+			size--;
+		}finally {
+			rwLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 单位移动后更新所在的格子  不在空间哈希中的单位、没有换格子的单位直接返回,不加锁
+	 */
+	public void update(ShapeUnit unit) {
+		int cell = unit.spatialCell;
+		if(cell<0 || cellOf(unit)==cell) {
+			return;
+		}
+		rwLock.writeLock().lock();
+		try {
+			cell = unit.spatialCell;
+			if(cell<0) {
+				return;
+			}
+			int next = cellOf(unit);
+			if(next!=cell) {
+				removeFrom(cell, unit);
+				bucket(next).add(unit);
+				unit.spatialCell = next;
+			}
+		}finally {
+			rwLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 清空  测试时从空地图重新开始用
+	 */
+	public void clear() {
+		rwLock.writeLock().lock();
+		try {
+			for(List<ShapeUnit> bucket:buckets) {
+				if(bucket!=null) {
+					for(ShapeUnit unit:bucket) {
+						unit.spatialCell = -1;
+					}
+					bucket.clear();
+				}
+			}
+			size = 0;
+		}finally {
+			rwLock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private List<ShapeUnit> bucket(int cell) {
+		List<ShapeUnit> bucket = buckets[cell];
+		if(bucket==null) {
+			bucket = new ArrayList<>(4);
+			buckets[cell] = bucket;
+		}
+		return bucket;
+	}
+
+	/**
+	 * 按引用(==)移除  找到后把最后一个单位换到它的位置再删掉末尾,不挪动后面的元素,删除本身是O(1)
+	 * 格子内的次序因此会变,查询结果的次序仍只取决于加入、移出的次序
+	 */
+	private void removeFrom(int cell,ShapeUnit unit) {
+		List<ShapeUnit> bucket = buckets[cell];
+		int last = bucket.size()-1;
+		for(int i=last;i>=0;i--) {
+			if(bucket.get(i)==unit) {
+				bucket.set(i, bucket.get(last));
+				bucket.remove(last);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 中心在矩形内(含边界)的某类单位  两个角的次序不限
+	 * @return out
+	 */
+	public <T extends ShapeUnit> List<T> queryRect(int startX,int startY,int endX,int endY,Class<? extends T> type,List<T> out) {
+		int x1 = Math.min(startX, endX);
+		int x2 = Math.max(startX, endX);
+		int y1 = Math.min(startY, endY);
+		int y2 = Math.max(startY, endY);
+		rwLock.readLock().lock();
+		try {
+			int colEnd = column(x2);
+			int rowEnd = row(y2);
+			for(int row=row(y1);row<=rowEnd;row++) {
+				for(int col=column(x1);col<=colEnd;col++) {
+					List<ShapeUnit> bucket = buckets[row*columns+col];
+					if(bucket==null) {
+						continue;
+					}
+					for(int i=0;i<bucket.size();i++) {
+						ShapeUnit unit = bucket.get(i);
+						int x = centerX(unit);
+						int y = centerY(unit);
+						if(x>=x1 && x<=x2 && y>=y1 && y<=y2 && type.isInstance(unit)) {
+							out.add(type.cast(unit));
+						}
+					}
+				}
+			}
+		}finally {
+			rwLock.readLock().unlock();
+		}
+		return out;
+	}
+
+	/**
+	 * 中心与(x,y)的距离不超过radius的某类单位
+	 * @return out
+	 */
+	public <T extends ShapeUnit> List<T> queryRadius(int x,int y,int radius,Class<? extends T> type,List<T> out) {
+		long limit = (long)radius*radius;
+		rwLock.readLock().lock();
+		try {
+			int colEnd = column(x+radius);
+			int rowEnd = row(y+radius);
+			for(int row=row(y-radius);row<=rowEnd;row++) {
+				for(int col=column(x-radius);col<=colEnd;col++) {
+					List<ShapeUnit> bucket = buckets[row*columns+col];
+					if(bucket==null) {
+						continue;
+					}
+					for(int i=0;i<bucket.size();i++) {
+						ShapeUnit unit = bucket.get(i);
+						if(distanceSquared(unit, x, y)<=limit && type.isInstance(unit)) {
+							out.add(type.cast(unit));
+						}
+					}
+				}
+			}
+		}finally {
+			rwLock.readLock().unlock();
+		}
+		return out;
+	}
+
+	/**
+	 * 离(x,y)最近的至多k个某类单位  按距离由近到远,距离相同时先找到的在前
+	 * 从所在格子向外一圈一圈地找,已找到k个且外圈不可能更近时停止
+	 * @param maxRadius 只找这个距离以内的  小于0表示不限
+	 */
+	public <T extends ShapeUnit> List<T> nearest(final int x,final int y,int k,int maxRadius,Class<T> type) {
+		List<T> found = new ArrayList<>();
+		if(k<=0) {
+			return found;
+		}
+		long limit = maxRadius<0 ? Long.MAX_VALUE : (long)maxRadius*maxRadius;
+		rwLock.readLock().lock();
+		try {
+			int col0 = column(x);
+			int row0 = row(y);
+			int maxRing = Math.max(Math.max(col0, columns-1-col0), Math.max(row0, rows-1-row0));
+			long kth = Long.MAX_VALUE;
+			for(int ring=0;ring<=maxRing;ring++) {
+				//第ring圈中的点离(x,y)至少(ring-1)个格子的边长(地图外的点按边缘格子存放,实际只会更远)
+				long bound = (long)Math.max(0, ring-1)*Math.min(CELL_WIDTH, CELL_HEIGHT);
+				if(bound*bound>limit || (found.size()>=k && bound*bound>kth)) {
+					break;
+				}
+				for(int row=row0-ring;row<=row0+ring;row++) {
+					if(row<0 || row>=rows) {
+						continue;
+					}
+					boolean edgeRow = row==row0-ring || row==row0+ring;
+					int step = edgeRow ? 1 : ring*2;
+					for(int col=col0-ring;col<=col0+ring;col+=step) {
+						if(col<0 || col>=columns) {
+							continue;
+						}
+						List<ShapeUnit> bucket = buckets[row*columns+col];
+						if(bucket==null) {
+							continue;
+						}
+						for(int i=0;i<bucket.size();i++) {
+							ShapeUnit unit = bucket.get(i);
+							if(distanceSquared(unit, x, y)<=limit && type.isInstance(unit)) {
+								found.add(type.cast(unit));
+							}
+						}
+					}
+				}
+				if(found.size()>=k) {
+					kth = kthDistance(found, k, x, y);
+				}
+			}
+		}finally {
+			rwLock.readLock().unlock();
+		}
+		Collections.sort(found, new Comparator<ShapeUnit>() {
+			@Override
+			public int compare(ShapeUnit a, ShapeUnit b) {
+				return Long.compare(distanceSquared(a, x, y), distanceSquared(b, x, y));
+			}
+		});
+		return found.size()>k ? new ArrayList<>(found.subList(0, k)) : found;
+	}
+
+	private static long kthDistance(List<? extends ShapeUnit> units,int k,int x,int y) {
+		long[] distances = new long[units.size()];
+		for(int i=0;i<distances.length;i++) {
+			distances[i] = distanceSquared(units.get(i), x, y);
+		}
+		Arrays.sort(distances);
+		return distances[k-1];
+	}
+
+	/**
+	 * 单位中心到(x,y)距离的平方
+	 */
+	public static long distanceSquared(ShapeUnit unit,int x,int y) {
+		long dx = centerX(unit)-x;
+		long dy = centerY(unit)-y;
+		return dx*dx+dy*dy;
+	}
+}
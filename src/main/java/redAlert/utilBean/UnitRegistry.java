@@ -0,0 +1,275 @@
+package redAlert.utilBean;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import redAlert.shapeObjects.ShapeUnit;
+
+/**
+ * 单位登记表
+ *
+ * 代替ShapeUnitResourceCenter中"ArrayList+contains"的单位列表:
+ *   单位紧凑地存放在数组中,遍历与ArrayList一样快
+ *   另有一张按unitNo散列的开放寻址表记录每个单位在数组中的下标,添加、移除、contains都是O(1)
+ *   是否是同一个单位按引用判断,不依赖equals/hashCode(以前ShapeUnit的equals比较的是画面和坐标,单位一动就变了)
+ *   移除时用最后一个单位填补空位,不保证顺序
+ * 可以按具体类型建立索引,判断是否有某种建筑、遍历某种单位不用遍历全部
+ *
+ * 实现了List接口,原来直接使用列表的代码不用改;add时已存在的单位不重复添加
+ * 单位加入后不要修改unitNo
+ * 不是线程安全的,由使用者加锁
+ */
+public class UnitRegistry<T extends ShapeUnit> extends AbstractList<T> implements RandomAccess {
+
+	private T[] units;
+	private int size = 0;
+	/**
+	 * 散列表  存放下标+1,0表示空位  线性探测
+	 */
+	private int[] table;
+	private int mask;
+	/**
+	 * 按具体类型的索引  不建索引时为null
+	 */
+	private final Map<Class<?>, UnitRegistry<T>> typeIndex;
+
+	public UnitRegistry() {
+		this(false);
+	}
+
+	/**
+	 * @param indexByType 是否按具体类型建立索引
+	 */
+	@SuppressWarnings("unchecked")
+	public UnitRegistry(boolean indexByType) {
+		units = (T[])new ShapeUnit[16];
+		table = new int[32];
+		mask = table.length-1;
+		typeIndex = indexByType ? new HashMap<Class<?>, UnitRegistry<T>>() : null;
+	}
+
+	private static int hash(int unitNo) {
+		int h = unitNo*0x9E3779B9;
+		return h^(h>>>16);
+	}
+
+	/**
+	 * 单位在散列表中的位置  不存在时返回-1
+	 */
+	private int slotOf(Object unit) {
+		int slot = hash(((ShapeUnit)unit).unitNo)&mask;
+		for(;;) {
+			int v = table[slot];
+			if(v==0) {
+				return -1;
+			}
+			if(units[v-1]==unit) {
+				return slot;
+			}
+			slot = (slot+1)&mask;
+		}
+	}
+
+	private void put(int index) {
+		int slot = hash(units[index].unitNo)&mask;
+		while(table[slot]!=0) {
+			slot = (slot+1)&mask;
+		}
+		table[slot] = index+1;
+	}
+
+	/**
+	 * 删除散列表中的一个位置  把后面同一段的项往前移,不留删除标记
+	 */
+	private void deleteSlot(int slot) {
+		int hole = slot;
+		int next = slot;
+		for(;;) {
+			next = (next+1)&mask;
+			int v = table[next];
+			if(v==0) {
+				break;
+			}
+			int home = hash(units[v-1].unitNo)&mask;
+			//home不在(hole,next]之间时,这一项可以移到hole
+			if(hole<=next ? (home<=hole || home>next) : (home<=hole && home>next)) {
+				table[hole] = v;
+				hole = next;
+			}
+		}
+		table[hole] = 0;
+	}
+
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		mask = capacity-1;
+		for(int i=0;i<size;i++) {
+			put(i);
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof ShapeUnit && slotOf(o)>=0;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if(!(o instanceof ShapeUnit)) {
+			return -1;
+		}
+		int slot = slotOf(o);
+		return slot<0 ? -1 : table[slot]-1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+	/**
+	 * 添加单位  已存在时返回false
+	 */
+	@Override
+	public boolean add(T unit) {
+		if(unit==null || slotOf(unit)>=0) {
+			return false;
+		}
+		if(size==units.length) {
+			units = Arrays.copyOf(units, size*2);
+		}
+		units[size] = unit;
+		if((size+1)*2>table.length) {
+			size++;
+			rehash(table.length*2);
+		}else {
+			put(size);
+			size++;
+		}
+		modCount++;
+		if(typeIndex!=null) {
+			UnitRegistry<T> sub = typeIndex.get(unit.getClass());
+			if(sub==null) {
+				sub = new UnitRegistry<T>(false);
+				typeIndex.put(unit.getClass(), sub);
+			}
+			sub.add(unit);
+		}
+		return true;
+	}
+
+	/**
+	 * 移除单位  不存在时返回false
+	 */
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if(index<0) {
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+	/**
+	 * 移除下标处的单位  最后一个单位移到这个下标
+	 */
+	@Override
+	public T remove(int index) {
+		if(index<0 || index>=size) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		}
+		T unit = units[index];
+		deleteSlot(slotOf(unit));
+		int last = size-1;
+		if(index!=last) {
+			T moved = units[last];
+			int slot = slotOf(moved);
+			units[index] = moved;
+			table[slot] = index+1;
+		}
+		units[last] = null;
+		size = last;
+		modCount++;
+		if(typeIndex!=null) {
+			UnitRegistry<T> sub = typeIndex.get(unit.getClass());
+			if(sub!=null) {
+				sub.remove(unit);
+			}
+		}
+		return unit;
+	}
+
+	@Override
+	public T get(int index) {
+		if(index>=size) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		}
+		return units[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(units, 0, size, null);
+		Arrays.fill(table, 0);
+		size = 0;
+		modCount++;
+		if(typeIndex!=null) {
+			typeIndex.clear();
+		}
+	}
+
+	/**
+	 * 按unitNo查找  没有时返回null
+	 */
+	public T getByUnitNo(int unitNo) {
+		int slot = hash(unitNo)&mask;
+		for(;;) {
+			int v = table[slot];
+			if(v==0) {
+				return null;
+			}
+			T unit = units[v-1];
+			if(unit.unitNo==unitNo) {
+				return unit;
+			}
+			slot = (slot+1)&mask;
+		}
+	}
+
+	/**
+	 * 某种具体类型(不含子类)的全部单位  只读  需要在构造时建立类型索引
+	 */
+	@SuppressWarnings("unchecked")
+	public <S extends T> List<S> ofType(Class<S> type) {
+		if(typeIndex==null) {
+			throw new IllegalStateException("没有建立类型索引");
+		}
+		UnitRegistry<T> sub = typeIndex.get(type);
+		if(sub==null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList((List<S>)sub);
+	}
+
+	/**
+	 * 是否有某种具体类型(不含子类)的单位  需要在构造时建立类型索引
+	 */
+	public boolean containsType(Class<?> type) {
+		if(typeIndex==null) {
+			throw new IllegalStateException("没有建立类型索引");
+		}
+		UnitRegistry<T> sub = typeIndex.get(type);
+		return sub!=null && sub.size>0;
+	}
+}
@@ -0,0 +1,192 @@
+package redAlert.utilBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import redAlert.utils.IndexedMinHeap;
+
+/**
+ * 数组版A*寻路
+ *
+ * 中心点按坐标换算成连续的整数编号,8个相邻点的编号在类加载时算好放在一张表里,
+ * 寻路用到的已走代价、上一个点都放在int数组里,用代数标记是否在本次寻路中访问过,寻路前不用逐个重置
+ * 边界方块放在按编号索引的二叉堆里  除了返回的路径,一次寻路不创建对象
+ *
+ * 搜索过程与XunLuBean2完全相同：相邻点的次序、代价、预估代价、最大寻路次数、两次寻路都一样,
+ * 得到的路径和代价也相同
+ *
+ * 不是线程安全的,每个线程使用自己的实例(见XunLuBeanAdapter)
+ */
+public class XunLuBean3 {
+
+	/**
+	 * 中心点编号  见DiamondGrid
+	 */
+	static final int COLUMNS = DiamondGrid.COLUMNS;
+	static final int ROWS = DiamondGrid.ROWS;
+	static final int ROW_STRIDE = DiamondGrid.ROW_STRIDE;
+	public static final int CELL_COUNT = DiamondGrid.CELL_COUNT;
+
+	/**
+	 * 相邻点的方向  次序与XunLuBean2._xunlu中相同：右上 右下 左下 左上 左 右 上 下
+	 */
+	static final int DIRECTIONS = DiamondGrid.DIRECTIONS;
+	/**
+	 * 走一步的代价  斜着走1750,横竖走3600
+	 */
+	static final int[] STEP_COST = {1750, 1750, 1750, 1750, 3600, 3600, 3600, 3600};
+
+	/**
+	 * 编号对应的中心点和坐标  没有中心点的编号为null
+	 */
+	static final CenterPoint[] cells = DiamondGrid.cells;
+	static final int[] cellX = new int[CELL_COUNT];
+	static final int[] cellY = new int[CELL_COUNT];
+	/**
+	 * 相邻点编号表  编号*8+方向,没有相邻点时为-1
+	 */
+	static final int[] neighbors = DiamondGrid.cellNeighbors();
+
+	static {
+		for(int id=0;id<CELL_COUNT;id++) {
+			if(cells[id]!=null) {
+				cellX[id] = cells[id].getX();
+				cellY[id] = cells[id].getY();
+			}
+		}
+	}
+
+	/**
+	 * 坐标对应的中心点编号  不是中心点时返回-1
+	 */
+	public static int cellId(int x,int y) {
+		return DiamondGrid.cellId(x, y);
+	}
+
+	public static CenterPoint getCell(int id) {
+		return cells[id];
+	}
+
+	public final int FIRST_XUNLU = 1;
+	public final int SECOND_XUNLU = 2;
+
+	/**
+	 * 已走代价、上一个点  只有visited等于本次代数的编号才有效
+	 */
+	private final int[] curPrice = new int[CELL_COUNT];
+	private final int[] lastPoint = new int[CELL_COUNT];
+	private final int[] visited = new int[CELL_COUNT];
+	private int stamp = 0;
+	/**
+	 * 边界方块
+	 */
+	private final IndexedMinHeap rest = new IndexedMinHeap(CELL_COUNT);
+
+	/**
+	 * 上次寻路的结果  路径代价(没找到路时为-1)、从边界方块取出的次数
+	 */
+	private int lastCost = -1;
+	private int lastExpanded = 0;
+
+	/**
+	 * 寻路  返回路径中心点列表(包括起点和终点)  找不到路时返回null
+	 */
+	public List<CenterPoint> xunlu(CenterPoint startCp,CenterPoint endCp) {
+		lastCost = -1;
+		lastExpanded = 0;
+		int start = cellId(startCp.getX(), startCp.getY());
+		int end = cellId(endCp.getX(), endCp.getY());
+		if(start<0 || end<0) {
+			return null;
+		}
+		//限制寻路次数  与XunLuBean2相同
+		int maxRecNum = (Math.abs(startCp.getX() - endCp.getX())/30+Math.abs(startCp.getY() - endCp.getY())/15)*10 ;
+
+		//第一次寻路不经过有静止单位的中心块,未果再进行第二次寻路
+		if(search(start, end, maxRecNum, FIRST_XUNLU) || search(start, end, maxRecNum, SECOND_XUNLU)) {
+			lastCost = curPrice[end];
+			return buildPath(start, end);
+		}
+		return null;
+	}
+
+	private boolean search(int start,int end,int maxRecNum,int xunluType) {
+		if(++stamp==Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			stamp = 1;
+		}
+		rest.clear();
+
+		int endX = cellX[end];
+		int endY = cellY[end];
+		curPrice[start] = 0;
+		visited[start] = stamp;
+		rest.push(start, 0);
+
+		int curRecNum = 0;
+		while(!rest.isEmpty() && curRecNum<=maxRecNum) {
+			int cur = rest.pop();
+			int price = curPrice[cur];
+			int base = cur*DIRECTIONS;
+			for(int d=0;d<DIRECTIONS;d++) {
+				int next = neighbors[base+d];
+				if(next<0 || visited[next]==stamp || !canUse(next, xunluType)) {
+					continue;
+				}
+				visited[next] = stamp;
+				curPrice[next] = price+STEP_COST[d];
+				lastPoint[next] = cur;
+				if(next==end) {
+					return true;
+				}
+				//欧式距离的平方作为预估代价  垂直距离加倍
+				int depX = endX-cellX[next];
+				int depY = (endY-cellY[next])*2;
+				rest.push(next, depX*depX+depY*depY+curPrice[next]);
+			}
+			curRecNum++;
+			lastExpanded++;
+		}
+		return false;
+	}
+
+	private boolean canUse(int id,int xunluType) {
+		if(xunluType==FIRST_XUNLU) {
+			return OccupancyGrid.isVehicleCanOnXunLuFirst(id);
+		}else {
+			return OccupancyGrid.isVehicleCanOnXunLuSecond(id);
+		}
+	}
+
+	private List<CenterPoint> buildPath(int start,int end) {
+		int length = 1;
+		for(int id=end;id!=start;id=lastPoint[id]) {
+			length++;
+		}
+		ArrayList<CenterPoint> result = new ArrayList<>(length);
+		for(int id=end;;id=lastPoint[id]) {
+			result.add(cells[id]);
+			if(id==start) {
+				break;
+			}
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * 上次找到的路径的代价  没找到路时为-1
+	 */
+	public int getLastCost() {
+		return lastCost;
+	}
+
+	/**
+	 * 上次寻路从边界方块取出的次数(两次寻路合计)
+	 */
+	public int getLastExpanded() {
+		return lastExpanded;
+	}
+}
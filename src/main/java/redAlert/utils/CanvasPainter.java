@@ -70,10 +70,15 @@ public class CanvasPainter {
 		
 		int viewportWidth = SysConfig.viewportWidth;
 		int viewportHeight = SysConfig.viewportHeight;
+		//只遍历视口附近的行列  大地图上不用每帧检查所有中心点
+		int mStart = Math.max(0, (viewportOffY-100)/30-1);
+		int mEnd = Math.min(SysConfig.getMapRows(), (viewportOffY+viewportHeight+100)/30+1);
+		int nStart = Math.max(0, (viewportOffX-100)/60-1);
+		int nEnd = Math.min(SysConfig.getMapColumns(), (viewportOffX+viewportWidth+100)/60+1);
 		//一类中心点
-		for(int m=0;m<50;m++) {
+		for(int m=mStart;m<mEnd;m++) {
 			int y = 15+30*m;
-			for(int n=0;n<50;n++) {
+			for(int n=nStart;n<nEnd;n++) {
 				int x = 30+60*n;
 				CenterPoint centerPoint = PointUtil.fetchCenterPoint(x, y);
 				int centerX = centerPoint.getX();
@@ -95,9 +100,9 @@ public class CanvasPainter {
 		}
 		
 		//二类中心点
-		for(int m=0;m<50;m++) {
+		for(int m=mStart;m<mEnd;m++) {
 			int y = 30*m;
-			for(int n=0;n<50;n++) {
+			for(int n=nStart;n<nEnd;n++) {
 				int x = 60*n;
 				CenterPoint centerPoint = PointUtil.fetchCenterPoint(x, y);
 				int centerX = centerPoint.getX();
@@ -0,0 +1,341 @@
+package redAlert.utils;
+
+import java.util.Arrays;
+
+import redAlert.shapeObjects.ShapeUnit;
+
+/**
+ * 每帧的绘制列表
+ *
+ * 原先用PriorityQueue<ShapeUnit>排绘制次序,每个单位入队出队都要走一遍ShapeUnit.compareTo的多层分支,
+ * 堆在内存中跳着访问,单位多时很慢
+ * 现在单位加入列表时把参与比较的6个字段(优先级、是否隐藏、中心点Y、中心点X、positionMinY、positionMinX)记到int数组里,
+ * 排序时按本帧各字段的实际取值范围压缩成一个64位无符号排序键,再做稳定的LSD基数排序(每趟8位),
+ * 单位数不到256时把下标拼进排序键低位,直接排long数组
+ *
+ * 排序键从高位到低位依次是上面6个字段,各字段都减去本帧的最小值,所以 键的大小关系 与 compareTo 完全一致
+ * 各字段取值范围所需位数之和超过64位时(地图极大),退回按同样的字段顺序做稳定归并排序
+ * compareTo相等的单位保持加入顺序
+ *
+ * 所有数组都复用,扩容只在单位数超过历史最大值时发生
+ * 此对象不做同步  每个FrameSnapshot持有一个,只在帧计算线程填写快照(FrameSnapshot.fill)时使用
+ */
+public class DrawList {
+
+	/**
+	 * 参与排序的字段个数
+	 */
+	private static final int FIELD_COUNT = 6;
+	/**
+	 * 每趟基数排序处理的位数
+	 */
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1<<RADIX_BITS;
+	/**
+	 * 归并排序中不超过这个长度的区间直接插入排序
+	 */
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	private ShapeUnit[] units;
+	/**
+	 * 单位加入时的排序字段  第i个单位的字段在 i*FIELD_COUNT ~ i*FIELD_COUNT+5
+	 */
+	private int[] fields;
+	private int size = 0;
+
+	/** 排序用的缓冲 */
+	private long[] keys;
+	private long[] keysTmp;
+	private int[] order;
+	private int[] orderTmp;
+	private ShapeUnit[] unitsTmp;
+	private int[] fieldsTmp;
+	private final int[] bucketCounts = new int[RADIX];
+	private final int[] fieldMin = new int[FIELD_COUNT];
+	private final int[] fieldMax = new int[FIELD_COUNT];
+	private final int[] fieldBits = new int[FIELD_COUNT];
+	private final int[] fieldShift = new int[FIELD_COUNT];
+
+	/**
+	 * 上次排序是否因位数不够退回了归并排序
+	 */
+	private boolean lastSortFallback = false;
+
+	public DrawList(int initialCapacity) {
+		int capacity = Math.max(initialCapacity, 16);
+		units = new ShapeUnit[capacity];
+		fields = new int[capacity*FIELD_COUNT];
+		keys = new long[capacity];
+		keysTmp = new long[capacity];
+		order = new int[capacity];
+		orderTmp = new int[capacity];
+		unitsTmp = new ShapeUnit[capacity];
+		fieldsTmp = new int[capacity*FIELD_COUNT];
+	}
+
+	/**
+	 * 加入一个单位  此时记下它的排序字段
+	 */
+	public void add(ShapeUnit unit) {
+		if(size==units.length) {
+			grow();
+		}
+		units[size] = unit;
+		writeFields(unit, fields, size*FIELD_COUNT);
+		size++;
+	}
+
+	/**
+	 * 按绘制次序排序  排序后用get(0)~get(size()-1)依次绘制
+	 */
+	public void sort() {
+		if(size<2) {
+			lastSortFallback = false;
+			return;
+		}
+		int[] sorted;
+		if(buildKeys()) {
+			lastSortFallback = false;
+			if(isKeysSorted()) {
+				return;//帧计算线程按上一帧的绘制次序放回单位,单位没怎么动时本来就是有序的
+			}
+			for(int i=0;i<size;i++) {
+				order[i] = i;
+			}
+			int totalBits = 0;
+			for(int bits:fieldBits) {
+				totalBits += bits;
+			}
+			if(size<RADIX && totalBits<64-RADIX_BITS) {
+				//单位少时每趟清空、累加256个桶的开销比排序本身还大
+				//把下标放进排序键的低8位(最高位留0,按有符号long排序也对),键互不相同,直接排long数组也是稳定的
+				for(int i=0;i<size;i++) {
+					keys[i] = keys[i]<<RADIX_BITS | i;
+				}
+				Arrays.sort(keys, 0, size);
+				for(int i=0;i<size;i++) {
+					order[i] = (int)keys[i] & (RADIX-1);
+				}
+				sorted = order;
+			}else if(size<RADIX) {
+				mergeSort(order, orderTmp, 0, size, true);
+				sorted = order;
+			}else {
+				long[] srcKeys = keys, dstKeys = keysTmp;
+				int[] srcOrder = order, dstOrder = orderTmp;
+				for(int shift=0;shift<totalBits;shift+=RADIX_BITS) {
+					if(radixPass(srcKeys, srcOrder, dstKeys, dstOrder, shift)) {
+						long[] k = srcKeys; srcKeys = dstKeys; dstKeys = k;
+						int[] o = srcOrder; srcOrder = dstOrder; dstOrder = o;
+					}
+				}
+				sorted = srcOrder;
+			}
+		}else {
+			lastSortFallback = true;
+			for(int i=0;i<size;i++) {
+				order[i] = i;
+			}
+			mergeSort(order, orderTmp, 0, size, false);
+			sorted = order;
+		}
+
+		//按排好的下标重排单位和字段
+		for(int i=0,p=0;i<size;i++) {
+			int from = sorted[i];
+			unitsTmp[i] = units[from];
+			for(int q=from*FIELD_COUNT,end=q+FIELD_COUNT;q<end;q++,p++) {
+				fieldsTmp[p] = fields[q];
+			}
+		}
+		ShapeUnit[] u = units; units = unitsTmp; unitsTmp = u;
+		int[] f = fields; fields = fieldsTmp; fieldsTmp = f;
+		Arrays.fill(unitsTmp, 0, size, null);
+	}
+
+	private boolean isKeysSorted() {
+		for(int i=1;i<size;i++) {
+			if(Long.compareUnsigned(keys[i-1], keys[i])>0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 一趟计数排序  所有键在这8位上都相同时什么也不做并返回false
+	 */
+	private boolean radixPass(long[] srcKeys,int[] srcOrder,long[] dstKeys,int[] dstOrder,int shift) {
+		int[] counts = bucketCounts;
+		Arrays.fill(counts, 0);
+		for(int i=0;i<size;i++) {
+			counts[(int)(srcKeys[i]>>>shift) & (RADIX-1)]++;
+		}
+		if(counts[(int)(srcKeys[0]>>>shift) & (RADIX-1)]==size) {
+			return false;
+		}
+		int sum = 0;
+		for(int b=0;b<RADIX;b++) {
+			int count = counts[b];
+			counts[b] = sum;
+			sum += count;
+		}
+		for(int i=0;i<size;i++) {
+			long key = srcKeys[i];
+			int pos = counts[(int)(key>>>shift) & (RADIX-1)]++;
+			dstKeys[pos] = key;
+			dstOrder[pos] = srcOrder[i];
+		}
+		return true;
+	}
+
+	/**
+	 * 稳定的归并排序  单位较少或位数不够时使用
+	 * byKey为true时比较排序键,否则逐个比较字段,两者结果相同
+	 */
+	private void mergeSort(int[] a,int[] tmp,int from,int to,boolean byKey) {
+		if(to-from<=INSERTION_SORT_SIZE) {
+			for(int i=from+1;i<to;i++) {
+				int value = a[i];
+				int j = i-1;
+				while(j>=from && compare(a[j], value, byKey)>0) {
+					a[j+1] = a[j];
+					j--;
+				}
+				a[j+1] = value;
+			}
+			return;
+		}
+		int mid = (from+to)>>>1;
+		mergeSort(a, tmp, from, mid, byKey);
+		mergeSort(a, tmp, mid, to, byKey);
+		if(compare(a[mid-1], a[mid], byKey)<=0) {
+			return;//已经有序  绘制列表大多按上一帧的次序加入,这里很常见
+		}
+		System.arraycopy(a, from, tmp, from, to-from);
+		int i = from, j = mid, k = from;
+		while(i<mid && j<to) {
+			a[k++] = compare(tmp[j], tmp[i], byKey)<0 ? tmp[j++] : tmp[i++];
+		}
+		while(i<mid) {
+			a[k++] = tmp[i++];
+		}
+		while(j<to) {
+			a[k++] = tmp[j++];
+		}
+	}
+
+	/**
+	 * 比较第a个和第b个单位
+	 */
+	private int compare(int a,int b,boolean byKey) {
+		if(byKey) {
+			return Long.compareUnsigned(keys[a], keys[b]);
+		}
+		int pa = a*FIELD_COUNT, pb = b*FIELD_COUNT;
+		for(int f=0;f<FIELD_COUNT;f++) {
+			int result = Integer.compare(fields[pa+f], fields[pb+f]);
+			if(result!=0) {
+				return result;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * 根据本帧各字段的取值范围生成排序键
+	 * 位数不够时返回false
+	 */
+	private boolean buildKeys() {
+		int[] min = fieldMin, max = fieldMax;
+		for(int f=0;f<FIELD_COUNT;f++) {
+			min[f] = fields[f];
+			max[f] = fields[f];
+		}
+		for(int p=FIELD_COUNT,end=size*FIELD_COUNT;p<end;p+=FIELD_COUNT) {
+			for(int f=0;f<FIELD_COUNT;f++) {
+				int value = fields[p+f];
+				if(value<min[f]) {
+					min[f] = value;
+				}else if(value>max[f]) {
+					max[f] = value;
+				}
+			}
+		}
+		int totalBits = 0;
+		for(int f=0;f<FIELD_COUNT;f++) {
+			long range = (long)max[f]-min[f];
+			fieldBits[f] = 64-Long.numberOfLeadingZeros(range);
+			totalBits += fieldBits[f];
+		}
+		if(totalBits>64) {
+			return false;
+		}
+		//各字段在排序键中的位置  字段0在最高位
+		int shift = totalBits;
+		for(int f=0;f<FIELD_COUNT;f++) {
+			shift -= fieldBits[f];
+			fieldShift[f] = shift;
+		}
+		int s0 = fieldShift[0], s1 = fieldShift[1], s2 = fieldShift[2], s3 = fieldShift[3], s4 = fieldShift[4], s5 = fieldShift[5];
+		long m0 = min[0], m1 = min[1], m2 = min[2], m3 = min[3], m4 = min[4], m5 = min[5];
+		for(int i=0,p=0;i<size;i++,p+=FIELD_COUNT) {
+			keys[i] = (fields[p]-m0)<<s0
+					| (fields[p+1]-m1)<<s1
+					| (fields[p+2]-m2)<<s2
+					| (fields[p+3]-m3)<<s3
+					| (fields[p+4]-m4)<<s4
+					| (fields[p+5]-m5)<<s5;
+		}
+		return true;
+	}
+
+	/**
+	 * 排序字段  顺序与ShapeUnit.compareTo的比较顺序一致
+	 * 隐藏的单位先绘制,所以隐藏记为0
+	 */
+	private static void writeFields(ShapeUnit unit,int[] fields,int offset) {
+		fields[offset] = unit.priority;
+		fields[offset+1] = unit.isHided ? 0 : 1;
+		fields[offset+2] = unit.positionY+unit.centerOffY;
+		fields[offset+3] = unit.positionX+unit.centerOffX;
+		fields[offset+4] = unit.positionMinY;
+		fields[offset+5] = unit.positionMinX;
+	}
+
+	private void grow() {
+		int capacity = units.length*2;
+		units = Arrays.copyOf(units, capacity);
+		fields = Arrays.copyOf(fields, capacity*FIELD_COUNT);
+		keys = new long[capacity];
+		keysTmp = new long[capacity];
+		order = new int[capacity];
+		orderTmp = new int[capacity];
+		unitsTmp = new ShapeUnit[capacity];
+		fieldsTmp = new int[capacity*FIELD_COUNT];
+	}
+
+	public ShapeUnit get(int index) {
+		return units[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	/**
+	 * 清空  不释放数组
+	 */
+	public void clear() {
+		Arrays.fill(units, 0, size, null);
+		size = 0;
+	}
+
+	public boolean isLastSortFallback() {
+		return lastSortFallback;
+	}
+}
@@ -1,5 +1,6 @@
 package redAlert.utils;
 
+import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.WritableRaster;
@@ -9,81 +10,45 @@ import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLAutoDrawable;
 
 import redAlert.ShapeUnitFrame;
-import redAlert.shapeObjects.ShapeUnit;
 
 /**
  * JOGL工具类  负责绘图
  */
 public class DrawableUtil {
 	/**
-	 * 在指定位置画一幅帧图
+	 * 显存纹理缓存
+	 * 由OpenGL上下文(PanelGlListener)创建和销毁
 	 */
-	public static void drawOneSufAtPosition(GLAutoDrawable drawable,ShapeUnitFrame frame,int positionX,int positionY,int viewportOffX,int viewportOffY) {
-		GL2 gl = drawable.getGL().getGL2();
-		
-        BufferedImage image = frame.getImg();
-        int imageWidth = image.getWidth();
-        int imageHeight = image.getHeight();
-        
-        int textureId = 0;
-        if(frame.isAlreadyInitTexId()) {//图像已缓存在显存
-        	textureId = frame.getTextureId();
-        	
-        	gl.glBindTexture(GL2.GL_TEXTURE_2D, textureId);
-        	//设置滤波
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR);
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
-    		
-        }else {
-        	textureId = newTextureId(gl);
-        	gl.glBindTexture(GL2.GL_TEXTURE_2D, textureId);
-        	//设置滤波
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR);
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
-            
-            WritableRaster raster = image.getRaster();
-        	DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
-        	int [] pixels = dataBuffer.getData();
-        	gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, 4, imageWidth, imageHeight, 0,
-        			GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, IntBuffer.wrap(pixels));
-        }
-       
-        int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
-		int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
-        
-        gl.glBegin(GL2.GL_QUADS);
-        gl.glTexCoord2f(0.0f, 0.0f); gl.glVertex2f( viewX, viewY);
-        gl.glTexCoord2f(1.0f, 0.0f); gl.glVertex2f( viewX+imageWidth, viewY);
-        gl.glTexCoord2f(1.0f, 1.0f); gl.glVertex2f( viewX+imageWidth, viewY+imageHeight);
-        gl.glTexCoord2f(0.0f, 1.0f); gl.glVertex2f( viewX, viewY+imageHeight);
-        gl.glEnd();
-        gl.glFlush();//不调用就会内存占用飙升
-        
-        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);//解绑纹理
-        
-        if(!frame.isShouldBeLoadedToGpu()) {
-        	int[] textures = new int[]{textureId};
-        	gl.glDeleteTextures(1, textures, 0);
-        }else {
-        	frame.setTextureId(textureId);
-        	frame.setAlreadyInitTexId(true);
-        }
+	private static TextureCache textureCache;
+	
+	public static TextureCache getTextureCache() {
+		return textureCache;
+	}
+	public static void setTextureCache(TextureCache textureCache) {
+		DrawableUtil.textureCache = textureCache;
+	}
+	/**
+	 * 精灵批量绘制器
+	 * 由OpenGL上下文(PanelGlListener)创建,每帧开始时begin,结束时end
+	 */
+	private static SpriteBatch spriteBatch;
+	
+	public static SpriteBatch getSpriteBatch() {
+		return spriteBatch;
+	}
+	public static void setSpriteBatch(SpriteBatch spriteBatch) {
+		DrawableUtil.spriteBatch = spriteBatch;
 	}
 	
 	/**
-	 * 在指定位置画一个方块单位
+	 * 在指定位置画一幅帧图
+	 * 帧图通过纹理缓存取得纹理,四边形写入批量绘制器,由批量绘制器统一提交
 	 */
-	public static void drawOneShpAtPosition(GLAutoDrawable drawable,ShapeUnit shapeUnit,int viewportOffX,int viewportOffY) {
-	    
-		ShapeUnitFrame frame = shapeUnit.getCurFrame();
-		if(frame.getImg()==null) {
-			System.out.println("观察到空图片,类型:"+shapeUnit.getClass());
-		}
-		
-		int positionX = shapeUnit.getPositionX();
-	    int positionY = shapeUnit.getPositionY();
-		drawOneSufAtPosition(drawable,frame,positionX,positionY,viewportOffX,viewportOffY);
+	public static void drawOneSufAtPosition(GLAutoDrawable drawable,ShapeUnitFrame frame,int positionX,int positionY,int viewportOffX,int viewportOffY) {
+        int viewX = CoordinateUtil.getViewportX(positionX, viewportOffX);
+		int viewY = CoordinateUtil.getViewportY(positionY, viewportOffY);
         
+		spriteBatch.draw(frame, viewX, viewY);
 	}
 	
 	/**
@@ -92,6 +57,7 @@ public class DrawableUtil {
 	public static void drawOneImgAtPosition(GLAutoDrawable drawable,BufferedImage image,int positionX,int positionY,int viewportOffX,int viewportOffY) {
 		
 		GL2 gl = drawable.getGL().getGL2();
+		spriteBatch.flush();//保证绘制顺序
 		
         int textureId = newTextureId(gl);
         
@@ -116,12 +82,12 @@ public class DrawableUtil {
         gl.glTexCoord2f(1.0f, 1.0f); gl.glVertex2f( viewX+image.getWidth(), viewY+image.getHeight());
         gl.glTexCoord2f(0.0f, 1.0f); gl.glVertex2f( viewX, viewY+image.getHeight());
         gl.glEnd();
-        gl.glFlush();//不调用就会内存占用飙升
+        spriteBatch.countExternalDraw(4);
         
         gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);//解绑纹理
         
         int[] textures = new int[]{textureId};
-        gl.glDeleteTextures(1, textures, 0);
+        gl.glDeleteTextures(1, textures, 0);//驱动会等使用它的绘制完成后再真正释放
 	}
 	
 	
@@ -140,47 +106,35 @@ public class DrawableUtil {
 	/**
 	 * 画直线
 	 */
-	public static void drawLine(GLAutoDrawable drawable,int x1,int y1,int x2,int y2) {
+	public static void drawLine(GLAutoDrawable drawable,int x1,int y1,int x2,int y2,Color color) {
 		GL2 gl = drawable.getGL().getGL2();
+		spriteBatch.flush();//先提交之前的精灵,保证线画在它们上面
 		
 		gl.glBegin(GL2.GL_LINES);
-		gl.glColor3f(1f, 1f, 1f);
+		gl.glColor3f(color.getRed()/255f, color.getGreen()/255f, color.getBlue()/255f);
 		gl.glVertex2i(x1, y1);
 		gl.glVertex2i(x2, y2);
 		gl.glEnd();
-	    gl.glFlush();
+		gl.glColor3f(1f, 1f, 1f);//设置的颜色还原回去
+		spriteBatch.countExternalDraw(2);
 	}
 	
 	/**
-	 * 画绿色移动线
+	 * 填充矩形
 	 */
-	public static void drawMoveLine(GLAutoDrawable drawable,int startx,int starty,int endx,int endy) {
+	public static void fillRect(GLAutoDrawable drawable,int x,int y,int width,int height,Color color) {
 		GL2 gl = drawable.getGL().getGL2();
+		spriteBatch.flush();//先提交之前的精灵,保证矩形画在它们上面
 		
-		gl.glBegin(GL2.GL_LINES);
-		gl.glColor3f(0f, 0.753f, 0f);
-		gl.glVertex2i(startx, starty);
-		gl.glVertex2i(endx, endy);
+		gl.glBegin(GL2.GL_QUADS);
+		gl.glColor3f(color.getRed()/255f, color.getGreen()/255f, color.getBlue()/255f);
+		gl.glVertex2i(x, y);
+		gl.glVertex2i(x+width, y);
+		gl.glVertex2i(x+width, y+height);
+		gl.glVertex2i(x, y+height);
 		gl.glEnd();
-	    gl.glFlush();
-	    
-	    gl.glBegin(GL2.GL_QUADS);
-	    gl.glVertex2i(startx-1, starty-1);
-	    gl.glVertex2i(startx+1, starty-1);
-	    gl.glVertex2i(startx+1, starty+1);
-	    gl.glVertex2i(startx-1, starty+1);
-	    gl.glEnd();
-	    gl.glFlush();
-	    
-	    gl.glBegin(GL2.GL_QUADS);
-	    gl.glVertex2i(endx-1, endy-1);
-	    gl.glVertex2i(endx+1, endy-1);
-	    gl.glVertex2i(endx+1, endy+1);
-	    gl.glVertex2i(endx-1, endy+1);
-	    gl.glEnd();
-	    gl.glColor3f(1f, 1f, 1f);//设置的颜色还原回去
-	    gl.glFlush();
-	    
+		gl.glColor3f(1f, 1f, 1f);//设置的颜色还原回去
+		spriteBatch.countExternalDraw(4);
 	}
 	
 }
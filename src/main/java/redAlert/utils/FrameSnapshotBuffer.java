@@ -0,0 +1,89 @@
+package redAlert.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import redAlert.utilBean.FrameSnapshot;
+
+/**
+ * 绘制快照的三缓冲
+ *
+ * 以前帧计算线程和渲染线程通过casLock交换两个绘制队列,双方都在while(true)里自旋抢锁
+ * 现在有三份快照：
+ *   写入份  只有帧计算线程使用,在上面填写下一份快照
+ *   中间份  最近一次发布的快照,等着渲染线程来取
+ *   读取份  只有渲染线程使用,正在绘制
+ * 发布和获取都只是一次原子交换(getAndSet),谁也不用等谁:
+ * 计算快时渲染线程直接拿最新的一份,中间没被取走的旧快照被覆盖;渲染快时没有新快照就继续画上一份
+ *
+ * 只支持一个写入线程和一个读取线程
+ */
+public class FrameSnapshotBuffer {
+
+	/**
+	 * 中间份是否还没被渲染线程取走
+	 */
+	private static final int FRESH = 4;
+	private static final int INDEX_MASK = 3;
+
+	private final FrameSnapshot[] snapshots = {new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot()};
+	/**
+	 * 中间份的下标 | FRESH
+	 */
+	private final AtomicInteger middle = new AtomicInteger(1);
+	/**
+	 * 写入份的下标  只有帧计算线程访问
+	 */
+	private int back = 0;
+	/**
+	 * 读取份的下标  只有渲染线程访问
+	 */
+	private int front = 2;
+
+	/** 统计数据 */
+	private final AtomicLong publishCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private long acquireCount = 0;
+	private long reusedCount = 0;
+
+	/**
+	 * 获取写入份  由帧计算线程填写后调用publish()
+	 */
+	public FrameSnapshot getWriteSnapshot() {
+		return snapshots[back];
+	}
+
+	/**
+	 * 发布写入份  原来的中间份变成新的写入份
+	 */
+	public void publish() {
+		int previous = middle.getAndSet(back | FRESH);
+		if((previous & FRESH)!=0) {
+			droppedCount.incrementAndGet();//上一份还没画就被新的覆盖了
+		}
+		back = previous & INDEX_MASK;
+		publishCount.incrementAndGet();
+	}
+
+	/**
+	 * 获取最新发布的快照  没有新快照时返回上次的快照
+	 * 返回的快照在下次调用此方法之前不会被修改
+	 */
+	public FrameSnapshot acquireLatest() {
+		acquireCount++;
+		if((middle.get() & FRESH)!=0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}else {
+			reusedCount++;
+		}
+		return snapshots[front];
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public String getStatistics() {
+		return String.format("绘制快照: 发布=%d, 未绘制被覆盖=%d, 获取=%d, 重复绘制=%d",
+				publishCount.get(), droppedCount.get(), acquireCount, reusedCount);
+	}
+}
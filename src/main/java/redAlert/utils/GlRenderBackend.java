@@ -0,0 +1,94 @@
+package redAlert.utils;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLAutoDrawable;
+
+import redAlert.ShapeUnitFrame;
+import redAlert.SysConfig;
+
+/**
+ * OpenGL渲染后端
+ *
+ * 精灵经纹理缓存和批量绘制器提交,地形由静态地形层直接绘制
+ * 每遍绘制的耗时记录到PerformanceMonitor
+ *
+ * 此对象属于OpenGL上下文,只能在渲染线程中使用
+ * 每帧调用前通过setDrawable设置本帧的GLAutoDrawable
+ */
+public class GlRenderBackend implements RenderBackend {
+
+	private GLAutoDrawable drawable;
+	private final TextureCache textureCache;
+	private final SpriteBatch spriteBatch;
+
+	public GlRenderBackend(TextureCache textureCache,SpriteBatch spriteBatch) {
+		this.textureCache = textureCache;
+		this.spriteBatch = spriteBatch;
+	}
+
+	public void setDrawable(GLAutoDrawable drawable) {
+		this.drawable = drawable;
+	}
+
+	@Override
+	public void beginFrame() {
+		GL2 gl = drawable.getGL().getGL2();
+		gl.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);//设置glClear函数调用时覆盖颜色缓冲区的颜色值
+		gl.glClear(GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT);//清除颜色缓冲区和深度缓冲区
+		textureCache.beginFrame(gl);//释放长时间没用过的纹理
+		spriteBatch.begin(gl);
+	}
+
+	/**
+	 * 提交剩余的精灵并报告绘制调用次数
+	 * glFlush由调用方在整帧结束时统一调用一次
+	 */
+	@Override
+	public void endFrame() {
+		spriteBatch.end();
+		PerformanceMonitor.recordCounter("图集页", textureCache.getPageCount());
+	}
+
+	@Override
+	public void drawTerrain(TerrainLayer terrainLayer,int viewportOffX,int viewportOffY) {
+		GL2 gl = drawable.getGL().getGL2();
+		spriteBatch.flush();//保证绘制顺序
+		//地形已在显存中,视口滚动只改变平移,只画与视口相交的区块
+		terrainLayer.draw(gl, viewportOffX, viewportOffY, SysConfig.viewportWidth, SysConfig.viewportHeight);
+		spriteBatch.countExternalDraws(terrainLayer.getDrawCalls(), terrainLayer.getVertexCount());
+		PerformanceMonitor.recordCounter("可见地形区块", terrainLayer.getVisibleChunks());
+	}
+
+	@Override
+	public void drawFrame(ShapeUnitFrame frame,int viewX,int viewY) {
+		spriteBatch.draw(frame, viewX, viewY);
+	}
+
+	@Override
+	public void drawImage(BufferedImage image,int viewX,int viewY) {
+		DrawableUtil.drawOneImgAtPosition(drawable, image, viewX, viewY, 0, 0);
+	}
+
+	@Override
+	public void drawLine(int x1,int y1,int x2,int y2,Color color) {
+		DrawableUtil.drawLine(drawable, x1, y1, x2, y2, color);
+	}
+
+	@Override
+	public void fillRect(int x,int y,int width,int height,Color color) {
+		DrawableUtil.fillRect(drawable, x, y, width, height, color);
+	}
+
+	@Override
+	public long beginPass(String passName) {
+		return PerformanceMonitor.startOperation(passName);
+	}
+
+	@Override
+	public void endPass(String passName,long startTimeNano) {
+		PerformanceMonitor.endOperation(passName, startTimeNano);
+	}
+}
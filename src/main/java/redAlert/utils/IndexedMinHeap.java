@@ -0,0 +1,141 @@
+package redAlert.utils;
+
+/**
+ * 按整数编号索引的最小二叉堆
+ *
+ * 堆里存的是节点编号(0~capacity-1),每个编号带一个int优先值,同一编号最多在堆中出现一次
+ * 记录了每个编号在堆中的位置,可以直接查询是否在堆中、降低优先值后原地上浮
+ *
+ * 清空只是把代数加一,位置数组不用逐个重置;入队出队都不分配对象
+ * 上浮、下沉的比较方式与java.util.PriorityQueue相同,同样的入队次序得到同样的出队次序(包括优先值相同时)
+ *
+ * 不是线程安全的
+ */
+public class IndexedMinHeap {
+
+	private final int[] heap;
+	private final int[] keys;
+	/**
+	 * 编号在堆中的位置  posStamp与代数相同时有效
+	 */
+	private final int[] pos;
+	private final int[] posStamp;
+	private int stamp = 1;
+	private int size = 0;
+
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		keys = new int[capacity];
+		pos = new int[capacity];
+		posStamp = new int[capacity];
+	}
+
+	/**
+	 * 清空
+	 */
+	public void clear() {
+		size = 0;
+		stamp++;
+		if(stamp==Integer.MAX_VALUE) {
+			java.util.Arrays.fill(posStamp, 0);
+			stamp = 1;
+		}
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 编号是否在堆中
+	 */
+	public boolean contains(int id) {
+		return posStamp[id]==stamp && pos[id]>=0;
+	}
+
+	public int getKey(int id) {
+		return keys[id];
+	}
+
+	/**
+	 * 入队  编号已在堆中时改为调用decreaseKey
+	 */
+	public void push(int id,int key) {
+		keys[id] = key;
+		posStamp[id] = stamp;
+		siftUp(size++, id);
+	}
+
+	/**
+	 * 降低已在堆中的编号的优先值
+	 */
+	public void decreaseKey(int id,int key) {
+		keys[id] = key;
+		siftUp(pos[id], id);
+	}
+
+	/**
+	 * 看堆顶编号  堆为空时返回-1
+	 */
+	public int peek() {
+		return size==0 ? -1 : heap[0];
+	}
+
+	/**
+	 * 取出优先值最小的编号  堆为空时返回-1
+	 */
+	public int pop() {
+		if(size==0) {
+			return -1;
+		}
+		int result = heap[0];
+		pos[result] = -1;
+		int n = --size;
+		if(n>0) {
+			siftDown(0, heap[n]);
+		}
+		return result;
+	}
+
+	private void siftUp(int k,int id) {
+		int key = keys[id];
+		while(k>0) {
+			int parent = (k-1)>>>1;
+			int p = heap[parent];
+			if(key>=keys[p]) {
+				break;
+			}
+			heap[k] = p;
+			pos[p] = k;
+			k = parent;
+		}
+		heap[k] = id;
+		pos[id] = k;
+	}
+
+	private void siftDown(int k,int id) {
+		int key = keys[id];
+		int half = size>>>1;
+		while(k<half) {
+			int child = (k<<1)+1;
+			int c = heap[child];
+			int right = child+1;
+			if(right<size && keys[c]>keys[heap[right]]) {
+				child = right;
+				c = heap[child];
+			}
+			if(key<=keys[c]) {
+				break;
+			}
+			heap[k] = c;
+			pos[c] = k;
+			k = child;
+		}
+		heap[k] = id;
+		pos[id] = k;
+	}
+}
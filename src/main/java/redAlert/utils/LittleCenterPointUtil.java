@@ -3,7 +3,6 @@ package redAlert.utils;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -13,7 +12,9 @@ import java.util.Set;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.FlowField;
 import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.ReachabilityIndex;
 
 /**
  * 小中心点工具类
@@ -28,16 +29,27 @@ public class LittleCenterPointUtil {
 	 * 性能优化：添加搜索深度限制，防止在密集障碍物区域无限搜索导致卡顿
 	 */
 	public static LittleCenterPoint findSoldierCanOnLcpNearBy(LittleCenterPoint lcp,Set<LittleCenterPoint> exceptLs) {
+		return findSoldierCanOnLcpNearBy(lcp, exceptLs, null);
+	}
+	/**
+	 * 找到一个小中心点周围一个步兵可进入的点   逐渐向外围搜索
+	 * 找到的这个点不能是exceptLs中的点
+	 * from不为null时只找从from能走到的点(与from在同一个连通区域,见ReachabilityIndex)
+	 * 这时from本身就在区域里,一定能在它与lcp的距离内找到,不受搜索深度限制
+	 * 已访问的点按小中心点编号记在数组里,不用HashSet
+	 */
+	public static LittleCenterPoint findSoldierCanOnLcpNearBy(LittleCenterPoint lcp,Set<LittleCenterPoint> exceptLs,LittleCenterPoint from) {
 		// 性能监控：开始寻路计时
 		long pathfindStart = PerformanceMonitor.startOperation("寻路");
 
+		ReachabilityIndex index = from==null ? null : ReachabilityIndex.getInstance();
 		ArrayDeque<LittleCenterPoint> rest = new ArrayDeque<>();
 		rest.add(lcp);
-		Set<LittleCenterPoint> haveGet = new HashSet<>();
-		haveGet.add(lcp);
+		VisitMarks haveGet = VISITED.get().begin();
+		markGot(haveGet, lcp);
 
 		LittleCenterPoint result = null;
-		int maxSearchDepth = 50;  // 最大搜索深度，防止树木密集区域卡顿
+		int maxSearchDepth = from==null ? 50 : Integer.MAX_VALUE;  // 最大搜索深度，防止树木密集区域卡顿
 		int currentDepth = 0;
 		int nodesInCurrentLevel = 1;
 		int nodesInNextLevel = 0;
@@ -48,14 +60,13 @@ public class LittleCenterPointUtil {
 
 			List<LittleCenterPoint> neighbors = LittleCenterPointUtil.getNeighbors(start);
 			for(LittleCenterPoint neighbor:neighbors) {
-				if(neighbor.isSoldierCanOn() && !exceptLs.contains(neighbor)) {
+				if(neighbor.isSoldierCanOn() && !exceptLs.contains(neighbor) && (index==null || index.isSoldierReachable(from, neighbor))) {
 					// 性能监控：结束寻路计时
 					PerformanceMonitor.endOperation("寻路", pathfindStart);
 					return neighbor;
 				}
 
-				if(!haveGet.contains(neighbor)) {
-					haveGet.add(neighbor);
+				if(markGot(haveGet, neighbor)) {
 					rest.add(neighbor);
 					nodesInNextLevel++;
 				}
@@ -87,8 +98,8 @@ public class LittleCenterPointUtil {
 	public static LittleCenterPoint findSoldierCanOnLcpNearBy(LittleCenterPoint lcp) {
 		ArrayDeque<LittleCenterPoint> rest = new ArrayDeque<>();
 		rest.add(lcp);
-		Set<LittleCenterPoint> haveGet = new HashSet<>();
-		haveGet.add(lcp);
+		VisitMarks haveGet = VISITED.get().begin();
+		markGot(haveGet, lcp);
 		
 		LittleCenterPoint result = null;
 		while(!rest.isEmpty()) {
@@ -99,8 +110,7 @@ public class LittleCenterPointUtil {
 					return neighbor;
 				}
 				
-				if(!haveGet.contains(neighbor)) {
-					haveGet.add(neighbor);
+				if(markGot(haveGet, neighbor)) {
 					rest.add(neighbor);
 				}
 			}
@@ -109,6 +119,18 @@ public class LittleCenterPointUtil {
 		return result;
 	}
 	
+	/**
+	 * 就近搜索用的已访问标记  按小中心点编号记录
+	 */
+	private static final ThreadLocal<VisitMarks> VISITED = VisitMarks.forThread(FlowField.LITTLE_CELL_COUNT);
+	
+	/**
+	 * 记为已访问  之前没访问过时返回true
+	 */
+	private static boolean markGot(VisitMarks haveGet,LittleCenterPoint lcp) {
+		return haveGet.mark(FlowField.littleCellId(lcp));
+	}
+	
 	/**
 	 * 找到一个小中心点的周围   哪个点是与目标点最近的点
 	 * @return
@@ -0,0 +1,355 @@
+package redAlert.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import redAlert.GlobalConfig;
+import redAlert.SysConfig;
+import redAlert.enums.OverlayType;
+import redAlert.enums.RampType;
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+
+/**
+ * 读取地图文件
+ *
+ * 地图文件有两种格式：
+ * 文本格式  以$分隔的若干项,每项为 x,y,瓦片名[,地形类型,覆盖物]
+ *           第一项可以是 size,列数,行数 声明地图大小(每行的一类中心点个数、一类中心点的行数)
+ *           没有声明时按文件中最大的中心点坐标推算,以前生成的地图都是50x50
+ * 二进制格式  文件头、名称表和每个中心点一条定长记录(见MapFileWriter),用FileChannel.map映射后直接按编号读取,
+ *           不用拆分字符串、逐个查找瓦片名,256x256的地图几毫秒就能读完
+ * 二进制地图存在且不比文本地图旧时优先使用(见currentMapFile),文本地图可以用convertToBinary转换
+ *
+ * 中心点网格(DiamondGrid)按SysConfig中的地图大小建立,建立后不能再改变
+ * 所以启动时要先调用applyMapSize,再读取地形、使用中心点
+ */
+public class MapFileReader {
+
+	/**
+	 * 地图大小声明项的名称
+	 */
+	public static final String SIZE_HEADER = "size";
+
+	/**
+	 * 文本格式中的一项
+	 */
+	private interface EntryHandler {
+		/**
+		 * @param terrainName 没有时为null
+		 * @param overlayName 没有时为null
+		 */
+		void handle(int x,int y,String tileName,String terrainName,String overlayName);
+	}
+
+	/**
+	 * 当前使用的地图文件
+	 * 二进制地图存在且不比文本地图旧时用二进制地图,否则用文本地图
+	 */
+	public static File currentMapFile() {
+		File textFile = new File(GlobalConfig.mapFilePath);
+		File binaryFile = new File(GlobalConfig.binaryMapFilePath);
+		if(binaryFile.exists() && (!textFile.exists() || binaryFile.lastModified()>=textFile.lastModified())) {
+			return binaryFile;
+		}
+		return textFile;
+	}
+
+	/**
+	 * 读取地图文件,按文件中的地图大小设置SysConfig
+	 * 文件不存在或读取失败时保持默认大小
+	 */
+	public static void applyMapSize(String mapFilePath) {
+		File mapFile = new File(mapFilePath);
+		if(!mapFile.exists()) {
+			return;
+		}
+		try {
+			int [] size = isBinary(mapFile) ? readBinaryMapSize(mapFile) : readMapSize(FileUtils.readFileToString(mapFile, "UTF-8"));
+			if(size!=null) {
+				SysConfig.setMapSize(size[0], size[1]);
+				System.out.println("地图大小: "+size[0]+"x"+size[1]);
+			}
+		}catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * 地图大小  {列数,行数}  没有地块时返回null
+	 */
+	public static int [] readMapSize(String mapText) {
+		final int [] max = {-1, -1};
+		int [] declared = parseText(mapText, new EntryHandler() {
+			@Override
+			public void handle(int x, int y, String tileName, String terrainName, String overlayName) {
+				//一类中心点(30+60n,15+30m)、二类中心点(60n,30m)都在第n列第m行
+				max[0] = Math.max(max[0], x/60);
+				max[1] = Math.max(max[1], y/30);
+			}
+		});
+		if(declared!=null) {
+			return declared;
+		}
+		if(max[0]<0 || max[1]<0) {
+			return null;
+		}
+		return new int[] {max[0]+1, max[1]+1};
+	}
+
+	/**
+	 * 是否是二进制地图文件  按文件开头的魔数判断
+	 */
+	public static boolean isBinary(File mapFile) throws IOException {
+		try(FileChannel channel = FileChannel.open(mapFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(4);
+			while(buffer.hasRemaining() && channel.read(buffer)>=0) {
+			}
+			return !buffer.hasRemaining() && buffer.getInt(0)==MapFileWriter.MAGIC;
+		}
+	}
+
+	/**
+	 * 二进制地图的大小  {列数,行数}  只读文件头
+	 */
+	public static int [] readBinaryMapSize(File mapFile) throws IOException {
+		try(FileChannel channel = FileChannel.open(mapFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(16);
+			while(buffer.hasRemaining() && channel.read(buffer)>=0) {
+			}
+			buffer.flip();
+			checkHeader(buffer);
+			return new int[] {buffer.getInt(), buffer.getInt()};
+		}
+	}
+
+	private static void checkHeader(ByteBuffer buffer) throws IOException {
+		if(buffer.remaining()<16 || buffer.getInt()!=MapFileWriter.MAGIC) {
+			throw new IOException("不是二进制地图文件");
+		}
+		int version = buffer.getInt();
+		if(version!=MapFileWriter.VERSION) {
+			throw new IOException("不支持的二进制地图版本: "+version);
+		}
+	}
+
+	/**
+	 * 读取地图,设置中心点的瓦片序号、地形类型、覆盖物、坡面类型
+	 * 地图大小必须与中心点网格相同(启动时已用applyMapSize设置)
+	 * @param tileNames 瓦片名列表  瓦片序号是瓦片名在列表中的下标,不在列表中的瓦片所在的中心点跳过
+	 * @return 设置了的中心点个数
+	 */
+	public static int loadMap(File mapFile,List<String> tileNames) throws IOException {
+		Map<String,Integer> tileIndexes = new HashMap<>();
+		for(int i=tileNames.size()-1;i>=0;i--) {
+			tileIndexes.put(tileNames.get(i), i);
+		}
+		if(isBinary(mapFile)) {
+			return loadBinaryMap(mapFile, tileIndexes);
+		}else {
+			return loadTextMap(FileUtils.readFileToString(mapFile, "UTF-8"), tileIndexes);
+		}
+	}
+
+	private static int loadTextMap(String mapText,final Map<String,Integer> tileIndexes) {
+		final int [] loaded = {0};
+		parseText(mapText, new EntryHandler() {
+			@Override
+			public void handle(int x, int y, String tileName, String terrainName, String overlayName) {
+				Integer index = tileIndexes.get(tileName);
+				CenterPoint cp = DiamondGrid.getCenterPoint(x, y);
+				if(index==null || cp==null) {
+					return;
+				}
+				cp.setTileIndex(index);
+				loaded[0]++;
+				if(terrainName!=null) {
+					try {
+						cp.setTerrainType(TerrainType.valueOf(terrainName));
+						cp.setOverlayType(OverlayType.valueOf(overlayName));
+					} catch (IllegalArgumentException e) {
+						// 如果地形类型解析失败，使用默认值
+						System.err.println("解析地形类型失败: " + terrainName + ", " + overlayName);
+					}
+				}
+			}
+		});
+		return loaded[0];
+	}
+
+	private static int loadBinaryMap(File mapFile,Map<String,Integer> tileIndexes) throws IOException {
+		try(FileChannel channel = FileChannel.open(mapFile.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			checkHeader(buffer);
+			int columns = buffer.getInt();
+			int rows = buffer.getInt();
+			if(columns!=SysConfig.getMapColumns() || rows!=SysConfig.getMapRows()) {
+				throw new IOException("地图大小"+columns+"x"+rows+"与中心点网格"+SysConfig.getMapColumns()+"x"+SysConfig.getMapRows()+"不同");
+			}
+			//名称表换算成瓦片序号、枚举  文件中有而现在没有的名称为-1、null
+			String [] names = readNames(buffer);
+			int [] tiles = new int[names.length];
+			for(int i=0;i<names.length;i++) {
+				Integer index = tileIndexes.get(names[i]);
+				tiles[i] = index==null ? -1 : index;
+			}
+			TerrainType [] terrains = resolve(readNames(buffer), TerrainType.class);
+			OverlayType [] overlays = resolve(readNames(buffer), OverlayType.class);
+			RampType [] ramps = resolve(readNames(buffer), RampType.class);
+
+			int count = buffer.getInt();
+			if(count!=DiamondGrid.CELL_COUNT) {
+				throw new IOException("地图记录个数"+count+"与中心点个数"+DiamondGrid.CELL_COUNT+"不同");
+			}
+			int loaded = 0;
+			for(int id=0;id<count;id++) {
+				//序号按无符号读  全1(写入时的-1)表示文件中没有
+				int tile = checkIndex(buffer.getShort() & 0xFFFF, 0xFFFF, tiles.length, "瓦片名", id);
+				int terrain = checkIndex(buffer.get() & 0xFF, 0xFF, terrains.length, "地形类型", id);
+				int overlay = checkIndex(buffer.get() & 0xFF, 0xFF, overlays.length, "覆盖物", id);
+				int ramp = checkIndex(buffer.get() & 0xFF, 0xFF, ramps.length, "坡面类型", id);
+				CenterPoint cp = DiamondGrid.getCell(id);
+				if(tile<0 || tiles[tile]<0 || cp==null) {
+					continue;
+				}
+				cp.setTileIndex(tiles[tile]);
+				loaded++;
+				if(terrain>=0 && terrains[terrain]!=null) {
+					cp.setTerrainType(terrains[terrain]);
+				}
+				if(overlay>=0 && overlays[overlay]!=null) {
+					cp.setOverlayType(overlays[overlay]);
+				}
+				if(ramp>=0 && ramps[ramp]!=null) {
+					cp.setRampType(ramps[ramp]);
+				}
+			}
+			return loaded;
+		}
+	}
+
+	/**
+	 * 检查记录中的序号  等于none时返回-1,超出名称表时抛IOException
+	 */
+	private static int checkIndex(int index,int none,int tableSize,String tableName,int id) throws IOException {
+		if(index==none) {
+			return -1;
+		}
+		if(index>=tableSize) {
+			throw new IOException("第"+id+"条记录的"+tableName+"序号"+index+"超出名称表("+tableSize+"个)");
+		}
+		return index;
+	}
+
+	private static String [] readNames(ByteBuffer buffer) {
+		String [] names = new String[buffer.getShort() & 0xFFFF];
+		for(int i=0;i<names.length;i++) {
+			byte [] bytes = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(bytes);
+			names[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return names;
+	}
+
+	private static <E extends Enum<E>> E [] resolve(String [] names,Class<E> type) {
+		@SuppressWarnings("unchecked")
+		E [] values = (E[])java.lang.reflect.Array.newInstance(type, names.length);
+		for(int i=0;i<names.length;i++) {
+			try {
+				values[i] = Enum.valueOf(type, names[i]);
+			}catch (IllegalArgumentException e) {
+				System.err.println("地图中的"+type.getSimpleName()+"不存在: "+names[i]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * 文本地图转换成二进制地图
+	 */
+	public static void convertToBinary(File textFile,File binaryFile) throws IOException {
+		String mapText = FileUtils.readFileToString(textFile, "UTF-8");
+		int [] size = readMapSize(mapText);
+		if(size==null) {
+			throw new IOException("地图文件中没有地块: "+textFile);
+		}
+		final MapFileWriter writer = new MapFileWriter(size[0], size[1]);
+		parseText(mapText, new EntryHandler() {
+			@Override
+			public void handle(int x, int y, String tileName, String terrainName, String overlayName) {
+				TerrainType terrainType = null;
+				OverlayType overlayType = null;
+				if(terrainName!=null) {
+					try {
+						terrainType = TerrainType.valueOf(terrainName);
+						overlayType = OverlayType.valueOf(overlayName);
+					} catch (IllegalArgumentException e) {
+						System.err.println("解析地形类型失败: " + terrainName + ", " + overlayName);
+					}
+				}
+				writer.set(x, y, tileName, terrainType, overlayType, null);
+			}
+		});
+		writer.write(binaryFile);
+	}
+
+	/**
+	 * 逐项解析文本地图  跳过空项、格式不正确的项
+	 * @return 地图大小声明  没有时返回null
+	 */
+	private static int [] parseText(String mapText,EntryHandler handler) {
+		String [] strs = StringUtils.split(mapText,"$");
+		int [] declared = null;
+		for(int i=0;i<strs.length;i++) {
+			String info = strs[i];
+			// 跳过空字符串(可能由文件末尾换行符导致)
+			if(StringUtils.isBlank(info)) {
+				continue;
+			}
+			String [] infos = StringUtils.split(info,",");
+			if(infos.length < 3) {
+				continue; // 跳过格式不正确的行
+			}
+			try {
+				if(isSizeHeader(infos)) {
+					declared = new int[] {Integer.parseInt(infos[1].trim()), Integer.parseInt(infos[2].trim())};
+					continue;
+				}
+				int x = Integer.parseInt(infos[0].trim());
+				int y = Integer.parseInt(infos[1].trim());
+				String terrainName = infos.length>=5 ? infos[3].trim() : null;
+				String overlayName = infos.length>=5 ? infos[4].trim() : null;
+				handler.handle(x, y, infos[2].trim(), terrainName, overlayName);
+			}catch (NumberFormatException e) {
+				System.err.println("解析地图数据失败: " + info);
+			}
+		}
+		return declared;
+	}
+
+	/**
+	 * 是否是地图大小声明项  读取地块时跳过
+	 */
+	public static boolean isSizeHeader(String [] infos) {
+		return infos.length>0 && SIZE_HEADER.equals(infos[0].trim());
+	}
+
+	/**
+	 * 当前地图大小的声明项  写在地图文件开头
+	 */
+	public static String sizeHeader() {
+		return SIZE_HEADER+","+SysConfig.getMapColumns()+","+SysConfig.getMapRows()+"$";
+	}
+}
@@ -0,0 +1,165 @@
+package redAlert.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import redAlert.enums.OverlayType;
+import redAlert.enums.RampType;
+import redAlert.enums.TerrainType;
+
+/**
+ * 写二进制地图文件
+ *
+ * 文件格式(大端):
+ *   文件头  魔数"RAMP" 版本号 列数 行数
+ *   名称表  瓦片名、地形类型、覆盖物、坡面类型各一张,每张是 个数(short) + 若干个 字节数(short)+UTF-8字节
+ *   记录    记录个数(int),然后每个中心点一条定长记录,次序与中心点编号(DiamondGrid)相同:
+ *           瓦片名序号(short) 地形类型序号(byte) 覆盖物序号(byte) 坡面类型序号(byte)
+ *           序号是名称表中的下标,按无符号读;-1(全1)表示文件中没有(保持中心点的默认值)
+ *
+ * 枚举按名称表存名字,枚举增删、调换次序后旧文件仍能正确读取
+ * 读取见MapFileReader
+ */
+public class MapFileWriter {
+
+	public static final int MAGIC = 0x52414D50;
+	public static final int VERSION = 1;
+	public static final int RECORD_SIZE = 5;
+
+	private final int columns;
+	private final int rows;
+	/**
+	 * 瓦片名表  按第一次出现的次序
+	 */
+	private final List<String> tileNames = new ArrayList<>();
+	private final Map<String,Integer> tileIndexes = new HashMap<>();
+	private final short[] tiles;
+	private final byte[] terrains;
+	private final byte[] overlays;
+	private final byte[] ramps;
+
+	/**
+	 * @param columns 每行的一类(二类)中心点个数
+	 * @param rows 一类(二类)中心点的行数
+	 */
+	public MapFileWriter(int columns,int rows) {
+		this.columns = columns;
+		this.rows = rows;
+		int count = recordCount(columns, rows);
+		tiles = new short[count];
+		terrains = new byte[count];
+		overlays = new byte[count];
+		ramps = new byte[count];
+		Arrays.fill(tiles, (short)-1);
+		Arrays.fill(terrains, (byte)-1);
+		Arrays.fill(overlays, (byte)-1);
+		Arrays.fill(ramps, (byte)-1);
+	}
+
+	/**
+	 * 记录个数  与DiamondGrid.CELL_COUNT相同
+	 */
+	static int recordCount(int columns,int rows) {
+		return rows*2*columns;
+	}
+
+	/**
+	 * 中心点坐标对应的记录序号  与DiamondGrid.cellId相同  不是地图内的中心点时返回-1
+	 */
+	static int recordId(int x,int y,int columns,int rows) {
+		if(x<0 || y<0 || x%30!=0 || y%15!=0) {
+			return -1;
+		}
+		int col = x/30;
+		int row = y/15;
+		if(col>=columns*2 || row>=rows*2 || ((col^row)&1)!=0) {
+			return -1;
+		}
+		return row*columns+col/2;
+	}
+
+	/**
+	 * 设置一个中心点  参数为null的项不写,读取时保持中心点的默认值
+	 * @return 坐标不是地图内的中心点时返回false
+	 */
+	public boolean set(int x,int y,String tileName,TerrainType terrainType,OverlayType overlayType,RampType rampType) {
+		int id = recordId(x, y, columns, rows);
+		if(id<0) {
+			return false;
+		}
+		if(tileName!=null) {
+			Integer index = tileIndexes.get(tileName);
+			if(index==null) {
+				index = tileNames.size();
+				tileNames.add(tileName);
+				tileIndexes.put(tileName, index);
+			}
+			tiles[id] = index.shortValue();
+		}
+		terrains[id] = (byte)(terrainType==null ? -1 : terrainType.ordinal());
+		overlays[id] = (byte)(overlayType==null ? -1 : overlayType.ordinal());
+		ramps[id] = (byte)(rampType==null ? -1 : rampType.ordinal());
+		return true;
+	}
+
+	/**
+	 * 写入文件
+	 */
+	public void write(File file) throws IOException {
+		List<byte[]> names = new ArrayList<>();
+		int headerSize = 16;
+		for(String name:tileNames) {
+			names.add(name.getBytes(StandardCharsets.UTF_8));
+		}
+		for(TerrainType type:TerrainType.values()) {
+			names.add(type.name().getBytes(StandardCharsets.UTF_8));
+		}
+		for(OverlayType type:OverlayType.values()) {
+			names.add(type.name().getBytes(StandardCharsets.UTF_8));
+		}
+		for(RampType type:RampType.values()) {
+			names.add(type.name().getBytes(StandardCharsets.UTF_8));
+		}
+		headerSize += 2*4;
+		for(byte[] name:names) {
+			headerSize += 2+name.length;
+		}
+		int count = tiles.length;
+		ByteBuffer buffer = ByteBuffer.allocate(headerSize+4+count*RECORD_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(columns);
+		buffer.putInt(rows);
+		int next = 0;
+		for(int size:new int[] {tileNames.size(), TerrainType.values().length, OverlayType.values().length, RampType.values().length}) {
+			buffer.putShort((short)size);
+			for(int i=0;i<size;i++) {
+				byte[] name = names.get(next++);
+				buffer.putShort((short)name.length);
+				buffer.put(name);
+			}
+		}
+		buffer.putInt(count);
+		for(int id=0;id<count;id++) {
+			buffer.putShort(tiles[id]);
+			buffer.put(terrains[id]);
+			buffer.put(overlays[id]);
+			buffer.put(ramps[id]);
+		}
+		buffer.flip();
+		try(FileOutputStream out = new FileOutputStream(file); FileChannel channel = out.getChannel()) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+}
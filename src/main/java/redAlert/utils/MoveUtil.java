@@ -1,20 +1,27 @@
 package redAlert.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import redAlert.Constructor;
+import redAlert.SysConfig;
 import redAlert.other.MoveLine;
 import redAlert.resourceCenter.ShapeUnitResourceCenter;
 import redAlert.shapeObjects.MovableUnit;
 import redAlert.shapeObjects.Soldier;
 import redAlert.shapeObjects.Vehicle;
 import redAlert.shapeObjects.Vehicle.EngineStatus;
+import redAlert.task.PathService;
 import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.FlowField;
 import redAlert.utilBean.LittleCenterPoint;
 import redAlert.utilBean.MovePlan;
+import redAlert.utilBean.ReachabilityIndex;
+import redAlert.utilBean.XunLuBean3;
 
 /**
  * 有关单位移动的工具类
@@ -51,6 +58,7 @@ public class MoveUtil {
 		List<MovePlan> movePlanLs = new ArrayList<>();
 		Set <LittleCenterPoint> exceptLcps = new HashSet<>();//步兵不能将这些点作为平移点
 		Set<CenterPoint> exceptCps = new HashSet<>();//载具不能将这些点作为平移点
+		ReachabilityIndex reachability = ReachabilityIndex.getInstance();
 		for(MovableUnit unit: movableUnits) {
 			//根据实验结果,红警2中用的是中心点平移 而不是位于靠近中心的单位的平移
 			int deltaX = unit.getCenterOffX()+unit.getPositionX()-center.getX();
@@ -67,15 +75,22 @@ public class MoveUtil {
 			}
 
 			if(unit instanceof Soldier) {
-				if(!transLcp.isSoldierCanOn()) {
-					transLcp = LittleCenterPointUtil.findSoldierCanOnLcpNearBy(transLcp,exceptLcps);//如果平移到的目标点有单位,那就在附近找一个可用的点
+				//平移到的目标点走不到时(不在一个连通区域里),也在附近找一个能走到的点
+				LittleCenterPoint from = ((Soldier)unit).getPathStart();
+				if(!transLcp.isSoldierCanOn() || !reachability.isSoldierReachable(from, transLcp)) {
+					transLcp = LittleCenterPointUtil.findSoldierCanOnLcpNearBy(transLcp,exceptLcps,from);//如果平移到的目标点有单位,那就在附近找一个可用的点
+					if(transLcp == null) {
+						System.err.println("警告: 无法为步兵找到可用的目标点，跳过该单位");
+						continue;
+					}
 					exceptLcps.add(transLcp);
 					exceptCps.add(transLcp.getCenterPoint());
 				}
 			}
 			if(unit instanceof Vehicle) {
-				if(!transCp.isVehicleCanOn()) {
-					transCp = PointUtil.findVehicleCanOnCpNearBy(transCp,exceptCps);//如果平移到的目标点有单位,那就在附近找一个可用的点
+				CenterPoint from = unit.getCurCenterPoint();
+				if(!transCp.isVehicleCanOn() || !reachability.isVehicleReachable(from, transCp)) {
+					transCp = PointUtil.findVehicleCanOnCpNearBy(transCp,exceptCps,from);//如果平移到的目标点有单位,那就在附近找一个可用的点
 					if(transCp == null) {
 						System.err.println("警告: 无法为载具找到可用的目标点，跳过该单位");
 						continue;
@@ -194,24 +209,78 @@ public class MoveUtil {
 			}
 		}
 		
-		//发出移动命令
+		//发出移动命令  同类单位较多时用流场,整组只算一次
+		List<MovePlan> vehiclePlans = new ArrayList<>();
+		List<MovePlan> soldierPlans = new ArrayList<>();
 		for(MovePlan plan:movePlanLs) {
-			MovableUnit unit = plan.getUnit();
-			CenterPoint cp = plan.getTargetCp();
-			
-			if(unit instanceof Vehicle) {
-				unit.moveToTarget(cp);
+			if(plan.getUnit() instanceof Vehicle) {
+				vehiclePlans.add(plan);
 			}
-			if(unit instanceof Soldier) {
-				LittleCenterPoint lcp = plan.getTargetLCP();
-				Soldier s = (Soldier)unit;
-				s.moveToTarget(lcp);
+			if(plan.getUnit() instanceof Soldier) {
+				soldierPlans.add(plan);
+			}
+		}
+		if(vehiclePlans.size()>=SysConfig.flowFieldMinUnits) {
+			moveVehiclesByFlowField(vehiclePlans);
+		}else {
+			for(MovePlan plan:vehiclePlans) {
+				plan.getUnit().moveToTarget(plan.getTargetCp());
+			}
+		}
+		if(soldierPlans.size()>=SysConfig.flowFieldMinSoldiers) {
+			moveSoldiersByFlowField(soldierPlans);
+		}else {
+			for(MovePlan plan:soldierPlans) {
+				Soldier s = (Soldier)plan.getUnit();
+				s.moveToTarget(plan.getTargetLCP());
 			}
 		}
 		
 		
 		
 		
+	}
+	
+	/**
+	 * 载具按流场移动
+	 * 以所有载具的目标点为目标区域算一个流场,离目标区域近的载具先分目标点
+	 * 流场交给寻路线程在逻辑帧之间建立,下一个逻辑帧各载具拿到自己的路径;走不到目标区域的载具单独寻路
+	 */
+	public static void moveVehiclesByFlowField(List<MovePlan> plans) {
+		int[] goals = new int[plans.size()];
+		int count = 0;
+		List<CenterPoint> starts = new ArrayList<>(plans.size());
+		List<Consumer<List<CenterPoint>>> callbacks = new ArrayList<>(plans.size());
+		for(MovePlan plan:plans) {
+			int id = XunLuBean3.cellId(plan.getTargetCp().getX(), plan.getTargetCp().getY());
+			if(id>=0) {
+				goals[count++] = id;
+			}
+			Vehicle vehicle = (Vehicle)plan.getUnit();
+			starts.add(vehicle.getCurCenterPoint());
+			callbacks.add(vehicle.flowPathCallback(plan.getTargetCp()));
+		}
+		PathService.getInstance().requestVehicleFlowPaths(starts, Arrays.copyOf(goals, count), PathService.Priority.High, callbacks);
+	}
+	
+	/**
+	 * 步兵按流场移动  同moveVehiclesByFlowField,在小中心点网格上计算
+	 */
+	public static void moveSoldiersByFlowField(List<MovePlan> plans) {
+		int[] goals = new int[plans.size()];
+		int count = 0;
+		List<LittleCenterPoint> starts = new ArrayList<>(plans.size());
+		List<Consumer<List<LittleCenterPoint>>> callbacks = new ArrayList<>(plans.size());
+		for(MovePlan plan:plans) {
+			int id = FlowField.littleCellId(plan.getTargetLCP());
+			if(id>=0) {
+				goals[count++] = id;
+			}
+			Soldier soldier = (Soldier)plan.getUnit();
+			callbacks.add(soldier.flowPathCallback(plan.getTargetLCP()));
+			starts.add(soldier.getPathStart());
+		}
+		PathService.getInstance().requestSoldierFlowPaths(starts, Arrays.copyOf(goals, count), PathService.Priority.High, callbacks);
 	}
 	
 	/**
@@ -274,7 +343,7 @@ public class MoveUtil {
 		ArrayList<MovePlan> planList = new ArrayList<>();
 		planList.add(plan);
 		ShapeUnitResourceCenter.removeAllMoveLine();
-		MoveLine moveLine = new MoveLine(planList);
+		MoveLine moveLine = MoveLine.obtain(planList);
 		Constructor.putOneShapeUnit(moveLine);
 	}
 	/**
@@ -282,7 +351,7 @@ public class MoveUtil {
 	 */
 	public static void createManyMoveLine(List<MovePlan> movePlans) {
 		ShapeUnitResourceCenter.removeAllMoveLine();
-		MoveLine moveLine = new MoveLine(movePlans);
+		MoveLine moveLine = MoveLine.obtain(movePlans);
 		Constructor.putOneShapeUnit(moveLine);
 	}
 	
@@ -3,6 +3,8 @@ package redAlert.utils;
 import java.io.File;
 import java.io.RandomAccessFile;
 import java.net.URLDecoder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import redAlert.enums.UnitColor;
 import redAlert.resourceCenter.ShpResourceCenter;
@@ -38,6 +40,34 @@ public class PalFileReader {
 		return null;
 	}
 	
+	/**
+	 * 调色盘缓存  键为 pal前缀 或 pal前缀__阵营色
+	 * 调色盘索引帧在展开像素、生成调色盘纹理时反复用到,只读一次文件
+	 */
+	private static final Map<String,int[]> paletteCache = new ConcurrentHashMap<>();
+	
+	/**
+	 * 获取指定阵营颜色的调色盘(带缓存)
+	 * 下标16~31是阵营色,换算方式与CanvasPainter.transColor逐像素上色完全相同
+	 * unitColor为null表示不换阵营色
+	 * 返回的数组是共享的,不要修改
+	 */
+	public static int [] getTeamColorArray(String palPrefix,UnitColor unitColor) {
+		String key = unitColor==null ? palPrefix : palPrefix+"__"+unitColor.name();
+		return paletteCache.computeIfAbsent(key, k->{
+			int [] base = getColorArrayByPrefix(palPrefix);
+			if(base==null) {
+				return new int[256];
+			}
+			if(unitColor!=null) {
+				for(int i=16;i<32;i++) {
+					base[i] = CanvasPainter.transColor(base[i], unitColor);
+				}
+			}
+			return base;
+		});
+	}
+	
 	
 	/**
 	 * pal文件全都是768字节
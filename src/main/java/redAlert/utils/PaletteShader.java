@@ -0,0 +1,198 @@
+package redAlert.utils;
+
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.jogamp.opengl.GL2;
+
+import redAlert.enums.UnitColor;
+
+/**
+ * 调色盘着色器
+ *
+ * 调色盘索引帧的纹理里存的是调色盘下标,片元着色器用下标去查256色的调色盘纹理得到真正的颜色
+ * 每个场景(SceneType的pal文件)和阵营色(UnitColor)组合对应调色盘纹理中的一行,阵营色在写入这一行时就换好了,
+ * 所以同一组下标换阵营色只需要换一行,不需要在CPU上逐像素上色
+ * 所有调色盘放在同一张纹理里,用哪一行由顶点颜色的红色分量传入(见rowCoord),换阵营色不用换纹理,批量绘制器不必为此提交
+ *
+ * 下标纹理绑定在0号纹理单元,调色盘纹理绑定在1号纹理单元
+ * 显卡不支持着色器时isAvailable()返回false,调用方应退回ARGB纹理
+ *
+ * 此对象属于OpenGL上下文,只能在渲染线程中使用
+ */
+public class PaletteShader {
+
+	private static final String VERTEX_SHADER =
+		"void main() {\n" +
+		"	gl_TexCoord[0] = gl_MultiTexCoord0;\n" +
+		"	gl_FrontColor = gl_Color;\n" +
+		"	gl_Position = ftransform();\n" +
+		"}\n";
+
+	/**
+	 * 下标纹理是单通道的,取出来的值是 下标/255
+	 * 换算回0~255后取调色盘纹理中对应像素的中心,行由顶点颜色的红色分量给出
+	 */
+	private static final String FRAGMENT_SHADER =
+		"uniform sampler2D indexTexture;\n" +
+		"uniform sampler2D paletteTexture;\n" +
+		"void main() {\n" +
+		"	float index = texture2D(indexTexture, gl_TexCoord[0].st).r * 255.0;\n" +
+		"	gl_FragColor = texture2D(paletteTexture, vec2((index + 0.5) / 256.0, gl_Color.r));\n" +
+		"}\n";
+
+	/**
+	 * 调色盘纹理的行数  即最多容纳的 pal文件x阵营色 组合数
+	 * 顶点颜色在老显卡上可能只有8位精度,行距1/128大于8位量化误差的两倍,不会取错行
+	 */
+	private static final int PALETTE_ROWS = 128;
+
+	private int programId = 0;
+	private boolean available = false;
+	/**
+	 * 调色盘纹理  256xPALETTE_ROWS  第一次用到时生成
+	 */
+	private int paletteTexture = 0;
+	/**
+	 * 调色盘所在的行  键为 pal前缀__阵营色
+	 */
+	private final Map<String,Integer> paletteRows = new HashMap<>();
+
+	/**
+	 * 编译着色器  在OpenGL上下文初始化时调用
+	 */
+	public void init(GL2 gl) {
+		try {
+			int vertexShader = compile(gl, GL2.GL_VERTEX_SHADER, VERTEX_SHADER);
+			int fragmentShader = compile(gl, GL2.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+			if(vertexShader==0 || fragmentShader==0) {
+				return;
+			}
+			programId = gl.glCreateProgram();
+			gl.glAttachShader(programId, vertexShader);
+			gl.glAttachShader(programId, fragmentShader);
+			gl.glLinkProgram(programId);
+			gl.glDeleteShader(vertexShader);
+			gl.glDeleteShader(fragmentShader);
+			int[] status = new int[1];
+			gl.glGetProgramiv(programId, GL2.GL_LINK_STATUS, status, 0);
+			if(status[0]==0) {
+				System.err.println("调色盘着色器链接失败,改用ARGB纹理");
+				gl.glDeleteProgram(programId);
+				programId = 0;
+				return;
+			}
+			gl.glUseProgram(programId);
+			gl.glUniform1i(gl.glGetUniformLocation(programId, "indexTexture"), 0);
+			gl.glUniform1i(gl.glGetUniformLocation(programId, "paletteTexture"), 1);
+			gl.glUseProgram(0);
+			available = true;
+		}catch (Exception e) {
+			//旧显卡或驱动不支持GLSL
+			System.err.println("调色盘着色器不可用,改用ARGB纹理: "+e.getMessage());
+			available = false;
+		}
+	}
+
+	private int compile(GL2 gl,int type,String source) {
+		int shader = gl.glCreateShader(type);
+		gl.glShaderSource(shader, 1, new String[] {source}, new int[] {source.length()}, 0);
+		gl.glCompileShader(shader);
+		int[] status = new int[1];
+		gl.glGetShaderiv(shader, GL2.GL_COMPILE_STATUS, status, 0);
+		if(status[0]==0) {
+			byte[] log = new byte[1024];
+			int[] length = new int[1];
+			gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+			System.err.println("调色盘着色器编译失败: "+new String(log, 0, length[0]));
+			gl.glDeleteShader(shader);
+			return 0;
+		}
+		return shader;
+	}
+
+	public boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * 获取调色盘在调色盘纹理中的行  不存在则写入新的一行
+	 * 每行256像素,下标16~31已换成阵营色
+	 * @return 行号  调色盘纹理已满时返回-1,调用方应退回ARGB纹理
+	 */
+	public int paletteRowOf(GL2 gl,String palPrefix,UnitColor unitColor) {
+		String key = unitColor==null ? palPrefix : palPrefix+"__"+unitColor.name();
+		Integer row = paletteRows.get(key);
+		if(row!=null) {
+			return row;
+		}
+		if(paletteRows.size()==PALETTE_ROWS) {
+			return -1;
+		}
+		if(paletteTexture==0) {
+			int[] ids = new int[1];
+			gl.glGenTextures(1, ids, 0);
+			paletteTexture = ids[0];
+			gl.glBindTexture(GL2.GL_TEXTURE_2D, paletteTexture);
+			gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_NEAREST);
+			gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_NEAREST);
+			gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP_TO_EDGE);
+			gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+			gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, 4, 256, PALETTE_ROWS, 0,
+					GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, null);
+		}
+		row = paletteRows.size();
+		int[] colorArray = PalFileReader.getTeamColorArray(palPrefix, unitColor);
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, paletteTexture);
+		gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, 0, row, 256, 1,
+				GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, IntBuffer.wrap(colorArray));
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+		paletteRows.put(key, row);
+		return row;
+	}
+
+	/**
+	 * 行号换算成调色盘纹理的纵向纹理坐标(行的中心)  作为顶点颜色的红色分量传给着色器
+	 */
+	public static float rowCoord(int row) {
+		return (row+0.5f)/PALETTE_ROWS;
+	}
+
+	/**
+	 * 启用着色器并把调色盘纹理绑定到1号纹理单元
+	 * 之后在0号纹理单元绑定下标纹理即可绘制
+	 */
+	public void begin(GL2 gl) {
+		gl.glUseProgram(programId);
+		gl.glActiveTexture(GL2.GL_TEXTURE1);
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, paletteTexture);
+		gl.glActiveTexture(GL2.GL_TEXTURE0);
+	}
+
+	/**
+	 * 恢复固定管线
+	 */
+	public void end(GL2 gl) {
+		gl.glActiveTexture(GL2.GL_TEXTURE1);
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+		gl.glActiveTexture(GL2.GL_TEXTURE0);
+		gl.glUseProgram(0);
+	}
+
+	/**
+	 * 释放着色器和调色盘纹理  OpenGL上下文销毁时调用
+	 */
+	public void release(GL2 gl) {
+		if(paletteTexture!=0) {
+			gl.glDeleteTextures(1, new int[] {paletteTexture}, 0);
+			paletteTexture = 0;
+		}
+		paletteRows.clear();
+		if(programId!=0) {
+			gl.glDeleteProgram(programId);
+			programId = 0;
+		}
+		available = false;
+	}
+}
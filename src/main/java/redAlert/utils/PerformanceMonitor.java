@@ -32,6 +32,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * // ... 执行寻路操作 ...
  * PerformanceMonitor.endOperation("寻路", startTime);
  *
+ * // 记录每帧计数（绘制调用次数、顶点数等）
+ * PerformanceMonitor.recordCounter("绘制调用", drawCalls);
+ *
  * // 输出统计信息（每秒）
  * PerformanceMonitor.printStatistics();
  *
@@ -67,6 +70,9 @@ public class PerformanceMonitor {
 	/** 操作耗时统计（操作名 -> 总耗时、调用次数） */
 	private static Map<String, OperationStats> operationStats = new ConcurrentHashMap<>();
 
+	/** 每帧计数统计（计数名 -> 最近值、平均值、最大值） */
+	private static Map<String, CounterStats> counterStats = new ConcurrentHashMap<>();
+
 	/** 性能警告阈值（毫秒） */
 	private static final Map<String, Long> warningThresholds = new HashMap<>();
 
@@ -125,6 +131,39 @@ public class PerformanceMonitor {
 		}
 	}
 
+	/**
+	 * 计数统计数据结构
+	 */
+	private static class CounterStats {
+		private volatile long lastValue = 0;                        // 最近一次的值
+		private final AtomicLong total = new AtomicLong(0);         // 累计值
+		private final AtomicLong samples = new AtomicLong(0);       // 记录次数
+		private volatile long maxValue = 0;                         // 最大值
+
+		public synchronized void add(long value) {
+			lastValue = value;
+			total.addAndGet(value);
+			samples.incrementAndGet();
+
+			if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		public long getAverage() {
+			long count = samples.get();
+			return count > 0 ? total.get() / count : 0;
+		}
+
+		public long getLastValue() {
+			return lastValue;
+		}
+
+		public long getMaxValue() {
+			return maxValue;
+		}
+	}
+
 	/**
 	 * 初始化性能监控
 	 */
@@ -270,6 +309,26 @@ public class PerformanceMonitor {
 		}
 	}
 
+	/**
+	 * 记录一个计数值（如每帧的绘制调用次数、顶点数）
+	 * @param counterName 计数名称
+	 * @param value 本次的值
+	 */
+	public static void recordCounter(String counterName, long value) {
+		if (!enabled) {
+			return;
+		}
+		counterStats.computeIfAbsent(counterName, k -> new CounterStats()).add(value);
+	}
+
+	/**
+	 * 获取计数最近一次的值
+	 */
+	public static long getLastCounter(String counterName) {
+		CounterStats stats = counterStats.get(counterName);
+		return stats == null ? 0 : stats.getLastValue();
+	}
+
 	/**
 	 * 打印统计信息到控制台
 	 */
@@ -296,6 +355,15 @@ public class PerformanceMonitor {
 				stats.getMinTimeMs());
 		}
 
+		for (Map.Entry<String, CounterStats> entry : counterStats.entrySet()) {
+			CounterStats stats = entry.getValue();
+			System.out.printf("[%s] 最近: %d, 平均: %d, 最大: %d%n",
+				entry.getKey(),
+				stats.getLastValue(),
+				stats.getAverage(),
+				stats.getMaxValue());
+		}
+
 		System.out.println("==================================\n");
 	}
 
@@ -326,6 +394,15 @@ public class PerformanceMonitor {
 					stats.getMinTimeMs()));
 			}
 
+			for (Map.Entry<String, CounterStats> entry : counterStats.entrySet()) {
+				CounterStats stats = entry.getValue();
+				logWriter.write(String.format("[%s] 最近: %d, 平均: %d, 最大: %d%n",
+					entry.getKey(),
+					stats.getLastValue(),
+					stats.getAverage(),
+					stats.getMaxValue()));
+			}
+
 			logWriter.write("==================================\n\n");
 			logWriter.flush();
 
@@ -363,6 +440,7 @@ public class PerformanceMonitor {
 		minFPS = Double.MAX_VALUE;
 		maxFPS = 0.0;
 		operationStats.clear();
+		counterStats.clear();
 
 		System.out.println("[性能监控] 统计数据已重置");
 		logToDisk("[性能监控] 统计数据已重置");
@@ -2,101 +2,40 @@ package redAlert.utils;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
 import org.apache.commons.lang3.math.NumberUtils;
 
-import redAlert.enums.Direction;
 import redAlert.shapeObjects.Building;
 import redAlert.utilBean.CenterPoint;
+import redAlert.utilBean.DiamondGrid;
+import redAlert.utilBean.FlowField;
+import redAlert.utilBean.HierarchicalXunLuBean;
 import redAlert.utilBean.LittleCenterPoint;
+import redAlert.utilBean.PathCache;
+import redAlert.utilBean.ReachabilityIndex;
+import redAlert.utilBean.XunLuBean3;
 
 /**
  * 新的菱形格算法
  */
 public class PointUtil {
 	
-	/**
-	 * 中心点坐标缓存
-	 * 所有的中心点,原则上应该从缓存中获取,避免新建
-	 */
-	private static Map<Long,CenterPoint> centerPointMap = new HashMap<>();
-	
-	/**
-	 * 小中心点缓存
-	 */
-	public static Map<String,LittleCenterPoint> littleCenterPointMap = new HashMap<>();
-	
-	static {
-		initCenterPointCache();
-	}
-	/**
-	 * 获取中心点坐标集合
-	 * 中心点用的是右中心点
-	 */
-	public static void initCenterPointCache() {
-		//一类中心点
-		for(int m=0;m<50;m++) {
-			int y = 15+30*m;
-			for(int n=0;n<50;n++) {
-				int x = 30+60*n;
-				
-				long key = getKey(x,y);
-				
-				centerPointMap.put(key, new CenterPoint(x,y));
-				
-				littleCenterPointMap.put( (x-16)+","+y, new LittleCenterPoint(x-16,y,Direction.Left));
-				littleCenterPointMap.put( (x+16)+","+y, new LittleCenterPoint(x+16,y,Direction.Right));
-				littleCenterPointMap.put( x+","+(y-8), new LittleCenterPoint(x,y-8,Direction.Up));
-				littleCenterPointMap.put( x+","+(y+8), new LittleCenterPoint(x,y+8,Direction.Down));
-				
-			}
-		}
-		
-		//二类中心点
-		for(int m=0;m<50;m++) {
-			int y = 30*m;
-			for(int n=0;n<50;n++) {
-				int x = 60*n;
-				
-				long key = getKey(x,y);
-				
-				centerPointMap.put(key, new CenterPoint(x,y));
-				
-				littleCenterPointMap.put( (x-16)+","+y, new LittleCenterPoint(x-16,y,Direction.Left));
-				littleCenterPointMap.put( (x+16)+","+y, new LittleCenterPoint(x+16,y,Direction.Right));
-				littleCenterPointMap.put( x+","+(y-8), new LittleCenterPoint(x,y-8,Direction.Up));
-				littleCenterPointMap.put( x+","+(y+8), new LittleCenterPoint(x,y+8,Direction.Down));
-			}
-		}
-	}
-	
-	/**
-	 * 获取中心点缓存的key
-	 */
-	private static long getKey(int x,int y) {
-		long xl = x;
-		long yl = y;
-		return (xl<<32) | yl;
-	}
-	
 	/**
 	 * 是否包含某个点
+	 * 中心点和小中心点都存放在DiamondGrid的数组里,以下几个查找方法都是按坐标计算编号
 	 */
 	public static boolean contains(CenterPoint p) {
-		return centerPointMap.containsKey(getKey(p.getX(),p.getY()));
+		return DiamondGrid.cellId(p.getX(),p.getY())>=0;
 	}
 	/**
 	 * 判断一个坐标点是否是菱形中心点
 	 */
 	public static boolean isCenterPoint(int x,int y) {
-		return centerPointMap.containsKey(getKey(x,y));
+		return DiamondGrid.cellId(x,y)>=0;
 	}
 	
 	/**
@@ -104,7 +43,7 @@ public class PointUtil {
 	 * 需要确认参数是小中心点坐标后才能使用
 	 */
 	public static LittleCenterPoint fetchLittleCenterPoint(int littleCenterX,int littleCenterY) {
-		return littleCenterPointMap.get(littleCenterX+","+littleCenterY);
+		return DiamondGrid.getLittleCenterPoint(littleCenterX,littleCenterY);
 	}
 	
 	
@@ -114,12 +53,13 @@ public class PointUtil {
 	 * 这个点上不能有别的载具  这个是出兵用的
 	 *
 	 * 性能优化：添加搜索深度限制，防止在密集障碍物区域无限搜索导致卡顿
+	 * 已访问的点按中心点编号记在数组里,不用HashSet
 	 */
 	public static CenterPoint findVehicleCanOnCpNearBy(CenterPoint cp) {
 		ArrayDeque<CenterPoint> rest = new ArrayDeque<>();
 		rest.add(cp);
-		Set<CenterPoint> haveGet = new HashSet<>();
-		haveGet.add(cp);
+		VisitMarks haveGet = VISITED.get().begin();
+		markGot(haveGet, cp);
 
 		CenterPoint result = null;
 		int maxSearchDepth = 50;  // 最大搜索深度，防止树木密集区域卡顿
@@ -141,8 +81,7 @@ public class PointUtil {
 					return neighbor;
 				}
 
-				if(!haveGet.contains(neighbor)) {
-					haveGet.add(neighbor);
+				if(markGot(haveGet, neighbor)) {
 					rest.add(neighbor);
 					nodesInNextLevel++;
 				}
@@ -164,6 +103,18 @@ public class PointUtil {
 		return result;
 	}
 	
+	/**
+	 * 就近搜索用的已访问标记  按中心点编号记录
+	 */
+	private static final ThreadLocal<VisitMarks> VISITED = VisitMarks.forThread(XunLuBean3.CELL_COUNT);
+	
+	/**
+	 * 记为已访问  之前没访问过时返回true
+	 */
+	private static boolean markGot(VisitMarks haveGet,CenterPoint cp) {
+		return haveGet.mark(XunLuBean3.cellId(cp.getX(), cp.getY()));
+	}
+	
 	/**
 	 * 从指定中心点的4个小中心点里找到与目标点(x1,y1)距离最近的一个
 	 */
@@ -328,13 +279,23 @@ public class PointUtil {
 	 * 性能优化：添加搜索深度限制，防止在密集障碍物区域无限搜索导致卡顿
 	 */
 	public static CenterPoint findVehicleCanOnCpNearBy(CenterPoint cp,Set<CenterPoint> exceptLs) {
+		return findVehicleCanOnCpNearBy(cp, exceptLs, null);
+	}
+	/**
+	 * 找到一个中心点周围一个载具可进入的点   逐渐向外围搜索
+	 * 找到的这个点不能是exceptLs中的点
+	 * from不为null时只找从from能开到的点(与from在同一个连通区域,见ReachabilityIndex)
+	 * 这时from本身就在区域里,一定能在它与cp的距离内找到,不受搜索深度限制
+	 */
+	public static CenterPoint findVehicleCanOnCpNearBy(CenterPoint cp,Set<CenterPoint> exceptLs,CenterPoint from) {
+		ReachabilityIndex index = from==null ? null : ReachabilityIndex.getInstance();
 		ArrayDeque<CenterPoint> rest = new ArrayDeque<>();
 		rest.add(cp);
-		Set<CenterPoint> haveGet = new HashSet<>();
-		haveGet.add(cp);
+		VisitMarks haveGet = VISITED.get().begin();
+		markGot(haveGet, cp);
 
 		CenterPoint result = null;
-		int maxSearchDepth = 50;  // 最大搜索深度，防止树木密集区域卡顿
+		int maxSearchDepth = from==null ? 50 : Integer.MAX_VALUE;  // 最大搜索深度，防止树木密集区域卡顿
 		int currentDepth = 0;
 		int nodesInCurrentLevel = 1;
 		int nodesInNextLevel = 0;
@@ -345,12 +306,11 @@ public class PointUtil {
 
 			List<CenterPoint> neighbors = PointUtil.getNeighbors(start);
 			for(CenterPoint neighbor:neighbors) {
-				if(neighbor.isVehicleCanOn() && !exceptLs.contains(neighbor)) {
+				if(neighbor.isVehicleCanOn() && !exceptLs.contains(neighbor) && (index==null || index.isVehicleReachable(from, neighbor))) {
 					return neighbor;
 				}
 
-				if(!haveGet.contains(neighbor)) {
-					haveGet.add(neighbor);
+				if(markGot(haveGet, neighbor)) {
 					rest.add(neighbor);
 					nodesInNextLevel++;
 				}
@@ -372,12 +332,23 @@ public class PointUtil {
 		return result;
 	}
 	
+	/**
+	 * 建筑占地发生变化(建成或被摧毁)后调用
+	 * 通知依赖地图通行情况的寻路数据
+	 */
+	public static void notifyPassabilityChanged(List<CenterPoint> cps) {
+		HierarchicalXunLuBean.onMapChanged(cps);
+		ReachabilityIndex.onMapChanged(cps);
+		PathCache.onMapChanged(cps);
+		FlowField.clearCache();
+	}
+	
 	/**
 	 * 获取中心点
 	 * 需要确认参数是中心点坐标后才能使用
 	 */
 	public static CenterPoint fetchCenterPoint(int centerX,int centerY) {
-		return centerPointMap.get(getKey(centerX,centerY));
+		return DiamondGrid.getCenterPoint(centerX,centerY);
 	}
 	/**
 	 * 查询一个建筑是否在阴影中
@@ -1,6 +1,7 @@
 package redAlert.utils;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 随机数工具类
@@ -26,10 +27,16 @@ public class RandomUtil {
 	}
 	
 	/**
-	 * 获取单位的随机编号
+	 * 单位编号计数器
+	 */
+	private static final AtomicInteger unitNoCounter = new AtomicInteger();
+	
+	/**
+	 * 获取单位的编号  按创建顺序递增,不会重复
+	 * 以前是随机数,可能重复,不能作为UnitRegistry的键
 	 */
 	public static int newUnitNo() {
-		return random.nextInt();
+		return unitNoCounter.incrementAndGet();
 	}
 	
 	/**
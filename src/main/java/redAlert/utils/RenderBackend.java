@@ -0,0 +1,65 @@
+package redAlert.utils;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import redAlert.ShapeUnitFrame;
+
+/**
+ * 渲染后端
+ *
+ * 场景绘制(SceneRenderer)只描述画什么,由渲染后端决定怎么画
+ * 目前有两种实现：
+ * 1. GlRenderBackend  游戏中使用,基于JOGL
+ * 2. SoftwareRenderBackend  纯Java软件光栅化,不需要显卡和显示器,用于性能测试和画面比对
+ *
+ * 所有坐标都是视口坐标(地形除外,地形传入视口偏移)
+ */
+public interface RenderBackend {
+
+	/**
+	 * 一帧开始  清空画面
+	 */
+	public void beginFrame();
+
+	/**
+	 * 一帧结束  提交剩余内容
+	 */
+	public void endFrame();
+
+	/**
+	 * 画静态地形层中与视口相交的部分
+	 */
+	public void drawTerrain(TerrainLayer terrainLayer,int viewportOffX,int viewportOffY);
+
+	/**
+	 * 在视口坐标(viewX,viewY)画一帧
+	 */
+	public void drawFrame(ShapeUnitFrame frame,int viewX,int viewY);
+
+	/**
+	 * 在视口坐标(viewX,viewY)画一张每帧都可能变化的图片
+	 */
+	public void drawImage(BufferedImage image,int viewX,int viewY);
+
+	/**
+	 * 画直线
+	 */
+	public void drawLine(int x1,int y1,int x2,int y2,Color color);
+
+	/**
+	 * 填充矩形  包含(x,y)  不包含(x+width,y+height)
+	 */
+	public void fillRect(int x,int y,int width,int height,Color color);
+
+	/**
+	 * 开始一遍绘制(地形、单位等)的计时
+	 * @return 开始时间(纳秒)
+	 */
+	public long beginPass(String passName);
+
+	/**
+	 * 结束一遍绘制的计时
+	 */
+	public void endPass(String passName,long startTimeNano);
+}
@@ -10,8 +10,8 @@ import java.util.List;
 import javax.imageio.ImageIO;
 
 import redAlert.ShapeUnitFrame;
+import redAlert.SysConfig;
 import redAlert.resourceCenter.ShpResourceCenter;
-import redAlert.shapeObjects.Building.SceneType;
 import redAlert.utilBean.ColorPoint;
 
 /**
@@ -190,8 +190,10 @@ public class ShpFileReader {
 		}
 		List<ShapeUnitFrame> resultObjectBuildingList = new ArrayList<ShapeUnitFrame>(readSize);
 		for(int i=0;i<readSize;i++) {
-			//一帧一图
-			BufferedImage targetImage = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
+			//一帧一图  调色盘索引模式下只保存调色盘下标,图片等到真正需要时再展开
+			boolean indexed = SysConfig.paletteIndexedSprites;
+			BufferedImage targetImage = indexed ? null : new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
+			byte [] indices = indexed ? new byte [width*height] : null;
 			
 			FrameHeadInfo head = list.get(i);
 			/**
@@ -206,7 +208,11 @@ public class ShpFileReader {
 			int frameType = head.frameType;//帧类型
 			
 			ShapeUnitFrame shapeUnitFrame = new ShapeUnitFrame();
-			shapeUnitFrame.setImg(targetImage);
+			if(indexed) {
+				shapeUnitFrame.setPaletteIndices(indices, width, height, palPrefix);
+			}else {
+				shapeUnitFrame.setImg(targetImage);
+			}
 			shapeUnitFrame.setMinX(minX);
 			shapeUnitFrame.setMinY(minY);
 			shapeUnitFrame.setMaxX(maxX);
@@ -216,7 +222,7 @@ public class ShpFileReader {
 			List<ColorPoint> colorPointList = null;
 			
 			boolean isUseUnitColor = false;
-			if(SceneType.SNOW.getPalPrefix().equals(palPrefix) || SceneType.TEM.getPalPrefix().equals(palPrefix) || SceneType.URBAN.getPalPrefix().equals(palPrefix)) {
+			if(!indexed && ShapeUnitFrame.isUnitPalette(palPrefix)) {//调色盘索引帧的阵营色像素由下标数据推出,不用预先记录
 				isUseUnitColor = true;
 				colorPointList = new ArrayList<>();
 				shapeUnitFrame.setColorPointList(colorPointList);
@@ -237,7 +243,11 @@ public class ShpFileReader {
 						raf.read(rowBytes);
 						for(int b=0;b<rowBytes.length;b++) {
 							int colorIndex = rowBytes[b] & 0xFF;
-							targetImage.setRGB(curX, curY, colorArray[colorIndex]);
+							if(indexed) {
+								indices[curY*width+curX] = rowBytes[b];
+							}else {
+								targetImage.setRGB(curX, curY, colorArray[colorIndex]);
+							}
 							if(isUseUnitColor) {
 								if(colorIndex>15 && colorIndex<32) {
 									ColorPoint colorPoint = new ColorPoint(curX,curY);
@@ -289,14 +299,20 @@ public class ShpFileReader {
 								if(pixelBytes[b]==0 && (b+1)<pixelBytes.length && (pixelBytes[b+1] & 0xFF)>0) {
 									int ntime0 = pixelBytes[b+1] & 0xFF;
 									for(int b1=0;b1<ntime0;b1++) {
-										targetImage.setRGB(curX, curY, colorArray[0]);
+										if(!indexed) {//下标数组默认就是0
+											targetImage.setRGB(curX, curY, colorArray[0]);
+										}
 										curX++;
 									}
 									b++;
 								}else {
 									int colorIndex = pixelBytes[b] & 0xFF;
 									
-									targetImage.setRGB(curX, curY, colorArray[colorIndex]);
+									if(indexed) {
+										indices[curY*width+curX] = pixelBytes[b];
+									}else {
+										targetImage.setRGB(curX, curY, colorArray[colorIndex]);
+									}
 									
 									if(isUseUnitColor) {
 										if(colorIndex>15 && colorIndex<32) {
@@ -0,0 +1,290 @@
+package redAlert.utils;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import redAlert.ShapeUnitFrame;
+
+/**
+ * 软件光栅化渲染后端
+ *
+ * 不依赖OpenGL和显示设备,可以在java.awt.headless=true下运行
+ * 画面直接写入一个TYPE_INT_ARGB的BufferedImage的像素数组,混合方式与OpenGL的
+ * glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA)相同,精灵按整像素1:1绘制
+ *
+ * 功能：
+ * 1. 按遍(地形、单位等)统计耗时,精确到纳秒
+ * 2. 可选把每一帧写成PNG文件,用于和基准画面逐像素比对
+ *
+ * 此对象不是线程安全的,只能在一个线程中使用
+ */
+public class SoftwareRenderBackend implements RenderBackend {
+
+	/**
+	 * 一遍绘制的耗时统计
+	 */
+	private static class PassTiming {
+		long totalNanos;
+		long maxNanos;
+		long count;
+	}
+
+	private final int width;
+	private final int height;
+	private final BufferedImage target;
+	private final int[] pixels;
+
+	/**
+	 * 遍名 -> 耗时统计  按第一次出现的顺序排列
+	 */
+	private final Map<String,PassTiming> passTimings = new LinkedHashMap<>();
+
+	/**
+	 * PNG输出目录  为null时不输出
+	 */
+	private File dumpDirectory = null;
+	private long frameNo = 0;
+
+	/** 本帧统计 */
+	private int spriteCount = 0;
+	private long pixelCount = 0;
+
+	public SoftwareRenderBackend(int width,int height) {
+		this.width = width;
+		this.height = height;
+		this.target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		this.pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+	}
+
+	@Override
+	public void beginFrame() {
+		Arrays.fill(pixels, 0xFF000000);//与OpenGL的glClearColor(0,0,0,1)一致
+		spriteCount = 0;
+		pixelCount = 0;
+	}
+
+	@Override
+	public void endFrame() {
+		frameNo++;
+		if(dumpDirectory!=null) {
+			try {
+				writePng(new File(dumpDirectory, frameFileName(frameNo)));
+			}catch (IOException e) {
+				System.err.println("写入画面失败: "+e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public void drawTerrain(TerrainLayer terrainLayer,int viewportOffX,int viewportOffY) {
+		final int[] atlasPixels = pixelsOf(terrainLayer.getAtlasImage());
+		final int atlasWidth = terrainLayer.getAtlasImage().getWidth();
+		terrainLayer.visitVisibleQuads(viewportOffX, viewportOffY, width, height,
+			(atlasX, atlasY, quadWidth, quadHeight, x, y) -> {
+				blend(atlasPixels, atlasWidth, atlasX, atlasY, quadWidth, quadHeight, x-viewportOffX, y-viewportOffY);
+			});
+	}
+
+	@Override
+	public void drawFrame(ShapeUnitFrame frame,int viewX,int viewY) {
+		drawImage(frame.getImg(), viewX, viewY);//调色盘索引帧在这里展开成ARGB
+	}
+
+	@Override
+	public void drawImage(BufferedImage image,int viewX,int viewY) {
+		blend(pixelsOf(image), image.getWidth(), 0, 0, image.getWidth(), image.getHeight(), viewX, viewY);
+		spriteCount++;
+	}
+
+	/**
+	 * Bresenham画线  两个端点都画
+	 */
+	@Override
+	public void drawLine(int x1,int y1,int x2,int y2,Color color) {
+		int argb = color.getRGB();
+		int dx = Math.abs(x2-x1);
+		int dy = -Math.abs(y2-y1);
+		int sx = x1<x2 ? 1 : -1;
+		int sy = y1<y2 ? 1 : -1;
+		int err = dx+dy;
+		int x = x1;
+		int y = y1;
+		while(true) {
+			if(x>=0 && x<width && y>=0 && y<height) {
+				pixels[y*width+x] = blendPixel(argb, pixels[y*width+x]);
+			}
+			if(x==x2 && y==y2) {
+				break;
+			}
+			int e2 = 2*err;
+			if(e2>=dy) {
+				err += dy;
+				x += sx;
+			}
+			if(e2<=dx) {
+				err += dx;
+				y += sy;
+			}
+		}
+	}
+
+	@Override
+	public void fillRect(int x,int y,int width,int height,Color color) {
+		int argb = color.getRGB();
+		int x1 = Math.max(0, x);
+		int y1 = Math.max(0, y);
+		int x2 = Math.min(this.width, x+width);
+		int y2 = Math.min(this.height, y+height);
+		for(int j=y1;j<y2;j++) {
+			int row = j*this.width;
+			for(int i=x1;i<x2;i++) {
+				pixels[row+i] = blendPixel(argb, pixels[row+i]);
+			}
+		}
+	}
+
+	@Override
+	public long beginPass(String passName) {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void endPass(String passName,long startTimeNano) {
+		long nanos = System.nanoTime()-startTimeNano;
+		PassTiming timing = passTimings.get(passName);
+		if(timing==null) {
+			timing = new PassTiming();
+			passTimings.put(passName, timing);
+		}
+		timing.totalNanos += nanos;
+		timing.count++;
+		if(nanos>timing.maxNanos) {
+			timing.maxNanos = nanos;
+		}
+	}
+
+	/**
+	 * 把源像素数组中(srcX,srcY)起宽w高h的区域混合到画面的(dstX,dstY)处
+	 * 超出画面的部分裁掉
+	 */
+	private void blend(int[] src,int srcScan,int srcX,int srcY,int w,int h,int dstX,int dstY) {
+		int x1 = Math.max(0, dstX);
+		int y1 = Math.max(0, dstY);
+		int x2 = Math.min(width, dstX+w);
+		int y2 = Math.min(height, dstY+h);
+		for(int y=y1;y<y2;y++) {
+			int srcRow = (srcY+y-dstY)*srcScan+srcX-dstX;
+			int dstRow = y*width;
+			for(int x=x1;x<x2;x++) {
+				int argb = src[srcRow+x];
+				int alpha = argb>>>24;
+				if(alpha==0) {
+					continue;
+				}
+				pixels[dstRow+x] = alpha==255 ? argb : blendPixel(argb, pixels[dstRow+x]);
+			}
+		}
+		if(x2>x1 && y2>y1) {
+			pixelCount += (long)(x2-x1)*(y2-y1);
+		}
+	}
+
+	/**
+	 * 源颜色*源alpha + 目标颜色*(1-源alpha)
+	 */
+	private static int blendPixel(int src,int dst) {
+		int alpha = src>>>24;
+		if(alpha==255) {
+			return src;
+		}
+		int inverse = 255-alpha;
+		int r = (((src>>16)&0xFF)*alpha+((dst>>16)&0xFF)*inverse)/255;
+		int g = (((src>>8)&0xFF)*alpha+((dst>>8)&0xFF)*inverse)/255;
+		int b = ((src&0xFF)*alpha+(dst&0xFF)*inverse)/255;
+		int a = alpha+((dst>>>24)*inverse)/255;
+		return (a<<24)|(r<<16)|(g<<8)|b;
+	}
+
+	/**
+	 * 取图片的ARGB像素数组
+	 * TYPE_INT_ARGB且不是子图片时直接使用图片自己的数组,否则复制一份
+	 */
+	private static int[] pixelsOf(BufferedImage image) {
+		if(image.getType()==BufferedImage.TYPE_INT_ARGB && image.getRaster().getParent()==null
+				&& image.getRaster().getSampleModelTranslateX()==0 && image.getRaster().getSampleModelTranslateY()==0) {
+			return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		}
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+
+	/**
+	 * 把当前画面写成PNG
+	 */
+	public void writePng(File file) throws IOException {
+		ImageIO.write(target, "png", file);
+	}
+
+	/**
+	 * 第frameNo帧的PNG文件名  从1开始
+	 */
+	public static String frameFileName(long frameNo) {
+		return String.format("frame_%05d.png", frameNo);
+	}
+
+	/**
+	 * 设置PNG输出目录  为null时不输出
+	 */
+	public void setDumpDirectory(File dumpDirectory) {
+		if(dumpDirectory!=null) {
+			dumpDirectory.mkdirs();
+		}
+		this.dumpDirectory = dumpDirectory;
+	}
+
+	public BufferedImage getImage() {
+		return target;
+	}
+	public long getFrameNo() {
+		return frameNo;
+	}
+	public int getSpriteCount() {
+		return spriteCount;
+	}
+	public long getPixelCount() {
+		return pixelCount;
+	}
+
+	/**
+	 * 获取每遍绘制的耗时统计
+	 */
+	public String getPassStatistics() {
+		StringBuilder sb = new StringBuilder();
+		long frameTotal = 0;
+		for(Map.Entry<String,PassTiming> entry:passTimings.entrySet()) {
+			PassTiming timing = entry.getValue();
+			frameTotal += timing.count==0 ? 0 : timing.totalNanos/timing.count;
+			sb.append(String.format("[%s] 次数: %d, 平均: %.3f ms, 最大: %.3f ms%n",
+				entry.getKey(),
+				timing.count,
+				timing.count==0 ? 0.0 : timing.totalNanos/1_000_000.0/timing.count,
+				timing.maxNanos/1_000_000.0));
+		}
+		sb.append(String.format("[合计] 平均每帧: %.3f ms", frameTotal/1_000_000.0));
+		return sb.toString();
+	}
+
+	/**
+	 * 重置耗时统计
+	 */
+	public void resetStatistics() {
+		passTimings.clear();
+	}
+}
@@ -0,0 +1,208 @@
+package redAlert.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import com.jogamp.opengl.GL2;
+
+import redAlert.ShapeUnitFrame;
+
+/**
+ * 精灵批量绘制器
+ *
+ * 原先每画一个单位都要 glBegin/glEnd + glFlush + 解绑纹理,每个单位都是一次驱动往返
+ * 现在一帧内所有精灵的四边形先写入客户端顶点数组,纹理不变时持续累积,
+ * 纹理切换、缓冲写满或需要插入其他图元(线条等)时才提交一次 glDrawArrays
+ *
+ * 注意：精灵之间有遮挡关系,必须按绘制顺序提交,所以只合并连续使用同一纹理的四边形,
+ * 不能跨越其他纹理重新排序
+ * 纹理缓存把帧排进图集页,四边形用帧在页上的纹理坐标,连续的精灵只要在同一页上就合并成一次提交
+ *
+ * 调色盘索引帧用调色盘着色器绘制,与ARGB帧之间切换时要分开提交
+ * 调色盘都在同一张纹理里,每个顶点用颜色的红色分量带上调色盘所在的行,换阵营色不需要提交
+ *
+ * 此对象属于OpenGL上下文,只能在渲染线程中使用
+ */
+public class SpriteBatch {
+
+	/**
+	 * 每个四边形4个顶点
+	 */
+	private static final int VERTICES_PER_QUAD = 4;
+	/**
+	 * 单次提交最多容纳的四边形个数
+	 */
+	private final int maxQuads;
+	/**
+	 * 顶点坐标  每个顶点(x,y)
+	 */
+	private final FloatBuffer vertexBuffer;
+	/**
+	 * 纹理坐标  每个顶点(s,t)
+	 */
+	private final FloatBuffer texCoordBuffer;
+	/**
+	 * 顶点颜色  每个顶点(r,g,b)  只有调色盘索引帧使用,r是调色盘所在行的纹理坐标
+	 */
+	private final FloatBuffer colorBuffer;
+	/**
+	 * 当前累积的四边形个数
+	 */
+	private int quadCount = 0;
+	/**
+	 * 当前累积的四边形使用的纹理
+	 */
+	private int currentTexture = 0;
+	/**
+	 * 当前累积的四边形是否是调色盘索引帧  是则用调色盘着色器提交
+	 */
+	private boolean currentIndexed = false;
+
+	private GL2 gl;
+	private TextureCache textureCache;
+	private PaletteShader paletteShader;
+
+	/** 本帧统计 */
+	private int drawCalls = 0;
+	private int vertexCount = 0;
+
+	public SpriteBatch(TextureCache textureCache,int maxQuads) {
+		this.textureCache = textureCache;
+		this.maxQuads = maxQuads;
+		this.vertexBuffer = newFloatBuffer(maxQuads*VERTICES_PER_QUAD*2);
+		this.texCoordBuffer = newFloatBuffer(maxQuads*VERTICES_PER_QUAD*2);
+		this.colorBuffer = newFloatBuffer(maxQuads*VERTICES_PER_QUAD*3);
+	}
+
+	/**
+	 * 一帧开始
+	 */
+	public void begin(GL2 gl) {
+		this.gl = gl;
+		this.quadCount = 0;
+		this.currentTexture = 0;
+		this.currentIndexed = false;
+		this.drawCalls = 0;
+		this.vertexCount = 0;
+		vertexBuffer.clear();
+		texCoordBuffer.clear();
+		colorBuffer.clear();
+	}
+
+	/**
+	 * 在视口坐标(viewX,viewY)画一帧
+	 */
+	public void draw(ShapeUnitFrame frame,int viewX,int viewY) {
+		int width = frame.getWidth();
+		int height = frame.getHeight();
+
+		int paletteRow = -1;
+		if(frame.isDrawnIndexed() && paletteShader!=null && paletteShader.isAvailable()) {
+			paletteRow = paletteShader.paletteRowOf(gl, frame.getPalPrefix(), frame.getUnitColor());
+		}
+		boolean indexed = paletteRow>=0;
+		//不支持着色器或调色盘纹理已满时,调色盘索引帧在这里展开成ARGB
+		TextureCache.TextureEntry region = indexed ? textureCache.indexRegionOf(gl, frame) : textureCache.regionOf(gl, frame);
+		if(region.textureId!=currentTexture || indexed!=currentIndexed || quadCount==maxQuads) {
+			flush();
+			currentTexture = region.textureId;
+			currentIndexed = indexed;
+		}
+
+		float x1 = viewX;
+		float y1 = viewY;
+		float x2 = viewX+width;
+		float y2 = viewY+height;
+		vertexBuffer.put(x1).put(y1).put(x2).put(y1).put(x2).put(y2).put(x1).put(y2);
+		texCoordBuffer.put(region.u1).put(region.v1).put(region.u2).put(region.v1)
+			.put(region.u2).put(region.v2).put(region.u1).put(region.v2);
+		if(indexed) {
+			float row = PaletteShader.rowCoord(paletteRow);
+			for(int i=0;i<VERTICES_PER_QUAD;i++) {
+				colorBuffer.put(row).put(0f).put(0f);
+			}
+		}
+		quadCount++;
+	}
+
+	/**
+	 * 提交当前累积的四边形
+	 * 在画线等非纹理图元之前也需要调用,以保证绘制顺序
+	 */
+	public void flush() {
+		if(quadCount==0) {
+			return;
+		}
+		vertexBuffer.flip();
+		texCoordBuffer.flip();
+		colorBuffer.flip();
+
+		if(currentIndexed) {
+			paletteShader.begin(gl);
+			gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+			gl.glColorPointer(3, GL2.GL_FLOAT, 0, colorBuffer);
+		}
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, currentTexture);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+		gl.glVertexPointer(2, GL2.GL_FLOAT, 0, vertexBuffer);
+		gl.glTexCoordPointer(2, GL2.GL_FLOAT, 0, texCoordBuffer);
+		gl.glDrawArrays(GL2.GL_QUADS, 0, quadCount*VERTICES_PER_QUAD);
+		gl.glDisableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);//解绑纹理,后面画线时不受纹理影响
+		if(currentIndexed) {
+			gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+			gl.glColor3f(1f, 1f, 1f);//颜色数组会改变当前颜色,还原回去
+			paletteShader.end(gl);
+		}
+
+		drawCalls++;
+		vertexCount += quadCount*VERTICES_PER_QUAD;
+		quadCount = 0;
+		vertexBuffer.clear();
+		texCoordBuffer.clear();
+		colorBuffer.clear();
+	}
+
+	/**
+	 * 一帧结束  提交剩余内容并把本帧的绘制调用次数和顶点数报告给性能监控
+	 * glFlush由调用方在整帧结束时统一调用一次
+	 */
+	public void end() {
+		flush();
+		PerformanceMonitor.recordCounter("绘制调用", drawCalls);
+		PerformanceMonitor.recordCounter("顶点数", vertexCount);
+	}
+
+	/**
+	 * 记录一次不经过批处理的绘制调用(线条、整图等)
+	 */
+	public void countExternalDraw(int vertices) {
+		drawCalls++;
+		vertexCount += vertices;
+	}
+	/**
+	 * 记录多次不经过批处理的绘制调用(地形区块等)
+	 */
+	public void countExternalDraws(int calls,int vertices) {
+		drawCalls += calls;
+		vertexCount += vertices;
+	}
+
+	public void setPaletteShader(PaletteShader paletteShader) {
+		this.paletteShader = paletteShader;
+	}
+
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	private static FloatBuffer newFloatBuffer(int floats) {
+		return ByteBuffer.allocateDirect(floats*4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+}
@@ -0,0 +1,497 @@
+package redAlert.utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.jogamp.opengl.GL2;
+
+import redAlert.enums.OverlayType;
+import redAlert.enums.TerrainType;
+import redAlert.utilBean.CenterPoint;
+
+/**
+ * 静态地形层
+ *
+ * 原先每帧用Java2D把可见瓦片重画到视口大小的BufferedImage,再整张上传成纹理,上传一次就要约2毫秒
+ * 地形在一局游戏中不会变化,所以改为：
+ * 1. 把所有地形瓦片、地形类型色块、覆盖物图案拼成一张图集纹理,只上传一次
+ * 2. 地图按中心点行列划分成若干区块,每个区块的四边形顶点一次性写入显存(VBO)
+ * 3. 每帧只绘制与视口相交的区块,视口滚动只是改变一次平移变换
+ *
+ * 绘制顺序与原来保持一致：一类中心点瓦片 → 二类中心点瓦片 → 地形类型色块 → 覆盖物
+ * 每一层都先画完所有可见区块再画下一层
+ *
+ * CPU侧数据(图集图片、顶点数组)在地图加载时构建,显存资源在渲染线程第一次绘制时创建
+ * OpenGL上下文重建(释放后再绘制)时从CPU侧数据重新上传
+ * 软件渲染直接读取CPU侧数据(visitVisibleQuads)
+ */
+public class TerrainLayer {
+
+	/**
+	 * 地形颜色常量
+	 */
+	private static final class TerrainColors {
+		// 地形类型颜色
+		static final Color WATER = new Color(0, 100, 255, 102);
+		static final Color ROAD = new Color(128, 128, 128, 76);
+		static final Color ROCK_GROUND = new Color(80, 80, 80, 127);
+		static final Color BEACH = new Color(240, 220, 140, 102);
+		static final Color CLEAR = new Color(144, 238, 144, 51);
+
+		// 覆盖物颜色
+		static final Color TREE = new Color(34, 139, 34, 204);
+		static final Color TREE_TRUNK = new Color(101, 67, 33, 255);
+		static final Color TIBERIUM = new Color(0, 255, 127, 229);
+		static final Color TIBERIUM_HIGHLIGHT = new Color(200, 255, 200, 255);
+		static final Color ROCK = new Color(105, 105, 105, 216);
+		static final Color ROCK_DARK = new Color(80, 80, 80, 255);
+		static final Color CRATE = new Color(205, 133, 63, 229);
+		static final Color CRATE_BORDER = new Color(139, 90, 43, 255);
+	}
+
+	/**
+	 * 瓦片尺寸
+	 */
+	public static final int TILE_WIDTH = 60;
+	public static final int TILE_HEIGHT = 30;
+	/**
+	 * 图集中每格四周留1像素透明边,防止采样到相邻格子
+	 */
+	private static final int CELL_WIDTH = TILE_WIDTH+2;
+	private static final int CELL_HEIGHT = TILE_HEIGHT+2;
+	private static final int ATLAS_COLUMNS = 8;
+
+	/**
+	 * 层编号  按绘制顺序
+	 */
+	private static final int LAYER_TILE_1 = 0;
+	private static final int LAYER_TILE_2 = 1;
+	private static final int LAYER_TINT = 2;
+	private static final int LAYER_OVERLAY = 3;
+	private static final int LAYER_COUNT = 4;
+
+	/**
+	 * 每个顶点 x,y,s,t 四个float
+	 */
+	private static final int FLOATS_PER_VERTEX = 4;
+	private static final int STRIDE = FLOATS_PER_VERTEX*4;
+
+	/**
+	 * 地图区块
+	 */
+	private static class Chunk {
+		/** 区块像素范围(地图坐标) 用于视口剔除 */
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		/** 每层的四边形 */
+		List<List<float[]>> layerQuads;
+		/** 每层在VBO中的起始顶点与顶点数 */
+		int[] first = new int[LAYER_COUNT];
+		int[] count = new int[LAYER_COUNT];
+		FloatBuffer vertices;
+		int vboId;
+	}
+
+	private final BufferedImage atlasImage;
+	private final int atlasWidth;
+	private final int atlasHeight;
+	private final int tileCount;
+	/**
+	 * 地形类型、覆盖物在图集中的格子编号  按枚举序号索引  -1表示不绘制
+	 */
+	private final int[] tintCell = new int[TerrainType.values().length];
+	private final int[] overlayCell = new int[OverlayType.values().length];
+
+	private final List<Chunk> chunks = new ArrayList<>();
+	/**
+	 * 与视口相交的区块  每帧重新计算,复用同一个列表
+	 */
+	private final List<Chunk> visible = new ArrayList<>();
+
+	private int atlasTextureId = 0;
+	private boolean uploaded = false;
+
+	/** 上一帧统计 */
+	private int visibleChunks = 0;
+	private int drawCalls = 0;
+	private int vertexCount = 0;
+
+	/**
+	 * 根据已经加载好地形的中心点构建地形层
+	 * @param terrainImageList 地形瓦片列表  下标即中心点的tileIndex
+	 * @param mapRows 中心点行数
+	 * @param mapColumns 中心点列数
+	 * @param chunkTiles 区块边长(中心点个数)
+	 */
+	public TerrainLayer(List<BufferedImage> terrainImageList,int mapRows,int mapColumns,int chunkTiles) {
+		this.tileCount = terrainImageList.size();
+
+		List<BufferedImage> cells = new ArrayList<>(terrainImageList);
+		Arrays.fill(tintCell, -1);
+		Arrays.fill(overlayCell, -1);
+		for(TerrainType terrainType:TerrainType.values()) {
+			BufferedImage tint = createTintImage(terrainType);
+			if(tint!=null) {
+				tintCell[terrainType.ordinal()] = cells.size();
+				cells.add(tint);
+			}
+		}
+		for(OverlayType overlayType:OverlayType.values()) {
+			BufferedImage overlay = createOverlayImage(overlayType);
+			if(overlay!=null) {
+				overlayCell[overlayType.ordinal()] = cells.size();
+				cells.add(overlay);
+			}
+		}
+
+		int rows = (cells.size()+ATLAS_COLUMNS-1)/ATLAS_COLUMNS;
+		this.atlasWidth = ATLAS_COLUMNS*CELL_WIDTH;
+		this.atlasHeight = Math.max(1, rows)*CELL_HEIGHT;
+		this.atlasImage = new BufferedImage(atlasWidth, atlasHeight, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = atlasImage.createGraphics();
+		for(int i=0;i<cells.size();i++) {
+			g2d.drawImage(cells.get(i), cellX(i)+1, cellY(i)+1, null);
+		}
+		g2d.dispose();
+
+		buildChunks(mapRows, mapColumns, chunkTiles);
+	}
+
+	/**
+	 * 把中心点按行列划分进区块
+	 * 一类中心点(30+60n,15+30m)与二类中心点(60n,30m)共用同一个(m,n)区块划分
+	 */
+	private void buildChunks(int mapRows,int mapColumns,int chunkTiles) {
+		int chunkRows = (mapRows+chunkTiles-1)/chunkTiles;
+		int chunkColumns = (mapColumns+chunkTiles-1)/chunkTiles;
+		for(int cr=0;cr<chunkRows;cr++) {
+			for(int cc=0;cc<chunkColumns;cc++) {
+				Chunk chunk = new Chunk();
+				chunk.layerQuads = new ArrayList<>(LAYER_COUNT);
+				for(int layer=0;layer<LAYER_COUNT;layer++) {
+					chunk.layerQuads.add(new ArrayList<float[]>());
+				}
+				int mEnd = Math.min(mapRows, (cr+1)*chunkTiles);
+				int nEnd = Math.min(mapColumns, (cc+1)*chunkTiles);
+				for(int m=cr*chunkTiles;m<mEnd;m++) {
+					for(int n=cc*chunkTiles;n<nEnd;n++) {
+						addCenterPoint(chunk, LAYER_TILE_1, PointUtil.fetchCenterPoint(30+60*n, 15+30*m));
+						addCenterPoint(chunk, LAYER_TILE_2, PointUtil.fetchCenterPoint(60*n, 30*m));
+					}
+				}
+				finishChunk(chunk);
+				if(chunk.vertices!=null) {
+					chunks.add(chunk);
+				}
+			}
+		}
+	}
+
+	private void addCenterPoint(Chunk chunk,int tileLayer,CenterPoint cp) {
+		if(cp==null || cp.getTileIndex()<0 || cp.getTileIndex()>=tileCount) {
+			return;
+		}
+		int x = cp.getX()-TILE_WIDTH/2;
+		int y = cp.getY()-TILE_HEIGHT/2;
+		chunk.layerQuads.get(tileLayer).add(quad(x, y, cp.getTileIndex()));
+		if(cp.terrainType!=null && tintCell[cp.terrainType.ordinal()]>=0) {
+			chunk.layerQuads.get(LAYER_TINT).add(quad(x, y, tintCell[cp.terrainType.ordinal()]));
+		}
+		if(cp.overlayType!=null && overlayCell[cp.overlayType.ordinal()]>=0) {
+			chunk.layerQuads.get(LAYER_OVERLAY).add(quad(x, y, overlayCell[cp.overlayType.ordinal()]));
+		}
+		chunk.minX = Math.min(chunk.minX, x);
+		chunk.minY = Math.min(chunk.minY, y);
+		chunk.maxX = Math.max(chunk.maxX, x+TILE_WIDTH);
+		chunk.maxY = Math.max(chunk.maxY, y+TILE_HEIGHT);
+	}
+
+	/**
+	 * 把区块各层的四边形依次写入一个顶点数组
+	 */
+	private void finishChunk(Chunk chunk) {
+		int quadTotal = 0;
+		for(int layer=0;layer<LAYER_COUNT;layer++) {
+			quadTotal += chunk.layerQuads.get(layer).size();
+		}
+		if(quadTotal==0) {
+			return;
+		}
+		chunk.vertices = ByteBuffer.allocateDirect(quadTotal*4*STRIDE).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		int vertex = 0;
+		for(int layer=0;layer<LAYER_COUNT;layer++) {
+			chunk.first[layer] = vertex;
+			for(float[] quad:chunk.layerQuads.get(layer)) {
+				chunk.vertices.put(quad);
+			}
+			chunk.count[layer] = chunk.layerQuads.get(layer).size()*4;
+			vertex += chunk.count[layer];
+		}
+		chunk.vertices.flip();
+		chunk.layerQuads = null;
+	}
+
+	/**
+	 * 生成一个四边形的4个顶点 (x,y,s,t)
+	 */
+	private float[] quad(int x,int y,int cell) {
+		float s1 = (float)(cellX(cell)+1)/atlasWidth;
+		float t1 = (float)(cellY(cell)+1)/atlasHeight;
+		float s2 = (float)(cellX(cell)+1+TILE_WIDTH)/atlasWidth;
+		float t2 = (float)(cellY(cell)+1+TILE_HEIGHT)/atlasHeight;
+		float x2 = x+TILE_WIDTH;
+		float y2 = y+TILE_HEIGHT;
+		return new float[] {
+			x, y, s1, t1,
+			x2, y, s2, t1,
+			x2, y2, s2, t2,
+			x, y2, s1, t2
+		};
+	}
+
+	private static int cellX(int cell) {
+		return (cell%ATLAS_COLUMNS)*CELL_WIDTH;
+	}
+	private static int cellY(int cell) {
+		return (cell/ATLAS_COLUMNS)*CELL_HEIGHT;
+	}
+
+	/**
+	 * 把图集和区块顶点上传到显存  只执行一次
+	 */
+	private void upload(GL2 gl) {
+		int[] ids = new int[1];
+		gl.glGenTextures(1, ids, 0);
+		atlasTextureId = ids[0];
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, atlasTextureId);
+		//瓦片按整像素1:1绘制  用最近点采样避免相邻格子的颜色渗进来
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_NEAREST);
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_NEAREST);
+		DataBufferInt dataBuffer = (DataBufferInt) atlasImage.getRaster().getDataBuffer();
+		gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, 4, atlasWidth, atlasHeight, 0,
+				GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, IntBuffer.wrap(dataBuffer.getData()));
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+
+		for(Chunk chunk:chunks) {
+			gl.glGenBuffers(1, ids, 0);
+			chunk.vboId = ids[0];
+			gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, chunk.vboId);
+			gl.glBufferData(GL2.GL_ARRAY_BUFFER, (long)chunk.vertices.limit()*4, chunk.vertices, GL2.GL_STATIC_DRAW);
+		}
+		gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+		uploaded = true;
+	}
+
+	/**
+	 * 绘制与视口相交的区块
+	 */
+	public void draw(GL2 gl,int viewportOffX,int viewportOffY,int viewportWidth,int viewportHeight) {
+		if(!uploaded) {
+			upload(gl);
+		}
+		drawCalls = 0;
+		vertexCount = 0;
+		findVisibleChunks(viewportOffX, viewportOffY, viewportWidth, viewportHeight);
+		if(visible.isEmpty()) {
+			return;
+		}
+
+		gl.glPushMatrix();
+		gl.glTranslatef(-viewportOffX, -viewportOffY, 0);//地图坐标→视口坐标
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, atlasTextureId);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+		for(int layer=0;layer<LAYER_COUNT;layer++) {
+			for(Chunk chunk:visible) {
+				if(chunk.count[layer]==0) {
+					continue;
+				}
+				gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, chunk.vboId);
+				gl.glVertexPointer(2, GL2.GL_FLOAT, STRIDE, 0);
+				gl.glTexCoordPointer(2, GL2.GL_FLOAT, STRIDE, 2*4);
+				gl.glDrawArrays(GL2.GL_QUADS, chunk.first[layer], chunk.count[layer]);
+				drawCalls++;
+				vertexCount += chunk.count[layer];
+			}
+		}
+		gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+		gl.glDisableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+		gl.glPopMatrix();
+	}
+
+	/**
+	 * 不经过OpenGL,把与视口相交区块的四边形按绘制顺序依次交给visitor  供软件渲染使用
+	 * 与draw一样,每一层都先访问完所有可见区块再访问下一层
+	 */
+	public void visitVisibleQuads(int viewportOffX,int viewportOffY,int viewportWidth,int viewportHeight,QuadVisitor visitor) {
+		drawCalls = 0;
+		vertexCount = 0;
+		findVisibleChunks(viewportOffX, viewportOffY, viewportWidth, viewportHeight);
+		for(int layer=0;layer<LAYER_COUNT;layer++) {
+			for(Chunk chunk:visible) {
+				int end = chunk.first[layer]+chunk.count[layer];
+				for(int vertex=chunk.first[layer];vertex<end;vertex+=4) {
+					int base = vertex*FLOATS_PER_VERTEX;//四边形第一个顶点是左上角
+					int x = (int)chunk.vertices.get(base);
+					int y = (int)chunk.vertices.get(base+1);
+					int atlasX = Math.round(chunk.vertices.get(base+2)*atlasWidth);
+					int atlasY = Math.round(chunk.vertices.get(base+3)*atlasHeight);
+					visitor.visit(atlasX, atlasY, TILE_WIDTH, TILE_HEIGHT, x, y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 软件渲染时访问地形四边形
+	 */
+	public interface QuadVisitor {
+		/**
+		 * @param atlasX 四边形在图集中的左上角
+		 * @param atlasY 四边形在图集中的左上角
+		 * @param width 四边形宽
+		 * @param height 四边形高
+		 * @param x 四边形左上角的地图坐标
+		 * @param y 四边形左上角的地图坐标
+		 */
+		public void visit(int atlasX,int atlasY,int width,int height,int x,int y);
+	}
+
+	/**
+	 * 找出与视口相交的区块  结果放在visible里
+	 */
+	private void findVisibleChunks(int viewportOffX,int viewportOffY,int viewportWidth,int viewportHeight) {
+		int viewMaxX = viewportOffX+viewportWidth;
+		int viewMaxY = viewportOffY+viewportHeight;
+		visible.clear();
+		for(Chunk chunk:chunks) {
+			if(chunk.maxX>viewportOffX && chunk.minX<viewMaxX && chunk.maxY>viewportOffY && chunk.minY<viewMaxY) {
+				visible.add(chunk);
+			}
+		}
+		visibleChunks = visible.size();
+	}
+
+	/**
+	 * 释放显存资源  OpenGL上下文销毁时调用
+	 */
+	public void release(GL2 gl) {
+		if(!uploaded) {
+			return;
+		}
+		gl.glDeleteTextures(1, new int[] {atlasTextureId}, 0);
+		for(Chunk chunk:chunks) {
+			gl.glDeleteBuffers(1, new int[] {chunk.vboId}, 0);
+		}
+		uploaded = false;//顶点数据仍保留在内存中,上下文重建后会重新上传
+	}
+
+	/**
+	 * 地形类型对应的半透明色块  野地不加色块
+	 */
+	private static BufferedImage createTintImage(TerrainType terrainType) {
+		Color color;
+		switch(terrainType) {
+			case Water: color = TerrainColors.WATER; break;
+			case Road: color = TerrainColors.ROAD; break;
+			case Rock: color = TerrainColors.ROCK_GROUND; break;
+			case Beach: color = TerrainColors.BEACH; break;
+			case Clear: color = TerrainColors.CLEAR; break;
+			default: return null;
+		}
+		BufferedImage image = new BufferedImage(TILE_WIDTH, TILE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = image.createGraphics();
+		g2d.setComposite(AlphaComposite.Src);//直接写入带alpha的颜色,由OpenGL混合
+		g2d.setColor(color);
+		g2d.fillRect(0, 0, TILE_WIDTH, TILE_HEIGHT);
+		g2d.dispose();
+		return image;
+	}
+
+	/**
+	 * 覆盖物图案  图形与原先逐帧用Java2D画的完全相同
+	 */
+	private static BufferedImage createOverlayImage(OverlayType overlayType) {
+		if(overlayType==null || overlayType==OverlayType.None) {
+			return null;
+		}
+		BufferedImage image = new BufferedImage(TILE_WIDTH, TILE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = image.createGraphics();
+		g2d.setComposite(AlphaComposite.SrcOver);
+		switch(overlayType) {
+			case Tree:
+				// 树冠
+				g2d.setColor(TerrainColors.TREE);
+				g2d.fillPolygon(new int[] {30, 15, 45}, new int[] {5, 28, 28}, 3);
+				// 树干
+				g2d.setColor(TerrainColors.TREE_TRUNK);
+				g2d.fillRect(28, 25, 4, 5);
+				break;
+			case Tiberium:
+				// 矿石本体
+				g2d.setColor(TerrainColors.TIBERIUM);
+				g2d.fillPolygon(new int[] {30, 20, 30, 40}, new int[] {8, 15, 22, 15}, 4);
+				// 闪烁效果
+				g2d.setColor(TerrainColors.TIBERIUM_HIGHLIGHT);
+				g2d.fillRect(28, 13, 4, 4);
+				break;
+			case Rock:
+				// 岩石本体
+				g2d.setColor(TerrainColors.ROCK);
+				g2d.fillOval(15, 8, 30, 18);
+				// 岩石纹理
+				g2d.setColor(TerrainColors.ROCK_DARK);
+				g2d.fillOval(20, 10, 8, 6);
+				g2d.fillOval(32, 14, 6, 5);
+				break;
+			case Crate:
+				// 箱子本体
+				g2d.setColor(TerrainColors.CRATE);
+				g2d.fillRect(22, 10, 16, 12);
+				// 箱子边框
+				g2d.setColor(TerrainColors.CRATE_BORDER);
+				g2d.drawRect(22, 10, 16, 12);
+				g2d.drawLine(22, 10, 38, 22);
+				g2d.drawLine(38, 10, 22, 22);
+				break;
+			default:
+				g2d.dispose();
+				return null;
+		}
+		g2d.dispose();
+		return image;
+	}
+
+	/**
+	 * 地形图集  每格四周有1像素透明边
+	 */
+	public BufferedImage getAtlasImage() {
+		return atlasImage;
+	}
+	public int getVisibleChunks() {
+		return visibleChunks;
+	}
+	public int getChunkCount() {
+		return chunks.size();
+	}
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+	public int getVertexCount() {
+		return vertexCount;
+	}
+}
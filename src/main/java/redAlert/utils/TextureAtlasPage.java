@@ -0,0 +1,116 @@
+package redAlert.utils;
+
+import java.util.Arrays;
+
+/**
+ * 纹理图集的一页
+ *
+ * 一张边长为size的正方形纹理,帧按行(货架)排进去：
+ * 每一行的高度由这一行第一帧决定,后面的帧只要不比行高、剩余宽度够就接着往右放
+ * 放不下时在最下面开一行新的,页满了就分配失败,由TextureCache换一页或回收最久没用的一页
+ *
+ * 单个帧被淘汰后它占的位置不再复用(行内空洞),页上的帧全部淘汰后整页清空重新排放
+ *
+ * 只记录位置,不做OpenGL调用  属于TextureCache,只能在渲染线程中使用
+ */
+class TextureAtlasPage {
+
+	/**
+	 * 纹理id
+	 */
+	final int textureId;
+	/**
+	 * 边长(像素)
+	 */
+	final int size;
+	/**
+	 * 是否是调色盘下标页  下标页每像素1字节,ARGB页每像素4字节
+	 */
+	final boolean indexed;
+
+	/**
+	 * 每一行的起始Y、行高、下一帧的起始X
+	 */
+	private int[] shelfY = new int[16];
+	private int[] shelfHeight = new int[16];
+	private int[] shelfNextX = new int[16];
+	private int shelfCount = 0;
+
+	/**
+	 * 最近一次分配到的位置
+	 */
+	int allocX;
+	int allocY;
+
+	/**
+	 * 页上的帧数、常驻帧数
+	 */
+	int liveCount = 0;
+	int pinnedCount = 0;
+	/**
+	 * 页上的帧最近一次被使用的渲染帧
+	 */
+	long lastUsedFrame = 0;
+
+	TextureAtlasPage(int textureId,int size,boolean indexed) {
+		this.textureId = textureId;
+		this.size = size;
+		this.indexed = indexed;
+	}
+
+	/**
+	 * 显存占用(字节)
+	 */
+	long bytes() {
+		return (long)size*size*(indexed ? 1 : 4);
+	}
+
+	/**
+	 * 分配一块width*height的区域  成功时位置在allocX/allocY
+	 * 优先放进高度最接近的已有行,行高比帧高出一半以上时宁可开新行,免得矮帧占掉高行
+	 */
+	boolean allocate(int width,int height) {
+		if(width>size || height>size) {
+			return false;
+		}
+		int best = -1;
+		for(int i=0;i<shelfCount;i++) {
+			if(shelfHeight[i]<height || shelfNextX[i]+width>size) {
+				continue;
+			}
+			if(best<0 || shelfHeight[i]<shelfHeight[best]) {
+				best = i;
+			}
+		}
+		int top = shelfCount==0 ? 0 : shelfY[shelfCount-1]+shelfHeight[shelfCount-1];
+		boolean canOpen = top+height<=size;
+		if(best<0 || (canOpen && shelfHeight[best]>height+height/2)) {
+			if(!canOpen) {
+				return false;
+			}
+			if(shelfCount==shelfY.length) {
+				shelfY = Arrays.copyOf(shelfY, shelfCount*2);
+				shelfHeight = Arrays.copyOf(shelfHeight, shelfCount*2);
+				shelfNextX = Arrays.copyOf(shelfNextX, shelfCount*2);
+			}
+			best = shelfCount++;
+			shelfY[best] = top;
+			shelfHeight[best] = height;
+			shelfNextX[best] = 0;
+		}
+		allocX = shelfNextX[best];
+		allocY = shelfY[best];
+		shelfNextX[best] += width;
+		liveCount++;
+		return true;
+	}
+
+	/**
+	 * 清空整页  页上的帧都已淘汰后调用
+	 */
+	void reset() {
+		shelfCount = 0;
+		liveCount = 0;
+		pinnedCount = 0;
+	}
+}
@@ -0,0 +1,601 @@
+package redAlert.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jogamp.opengl.GL2;
+
+import redAlert.ShapeUnitFrame;
+
+/**
+ * 显存纹理缓存
+ *
+ * 功能：
+ * 1. 每个ShapeUnitFrame只上传一次显存,之后直接使用已有纹理
+ * 2. 以帧对象本身(对象身份)为键,ShapeUnitFrame没有重写equals/hashCode,所以LinkedHashMap天然按身份比较
+ * 3. 按LRU顺序淘汰,保证显存占用不超过预算
+ * 4. 帧图片被原地重绘(建筑工作帧、坦克车身+炮塔合成图、血条)后版本号会变化,此时用glTexSubImage2D覆盖原来的区域
+ * 5. 统计命中、未命中、上传字节数、淘汰次数(超出预算的淘汰和长时间不用的释放分开统计)
+ * 6. 调色盘索引帧上传为单通道下标纹理,以下标数组为键,同一组下标的各阵营色视图共用一块区域
+ * 7. 帧排进图集页(TextureAtlasPage),不再每帧一张纹理,连续绘制的精灵大多在同一页上,批量绘制器不必频繁切换纹理
+ *    ARGB帧和下标帧分别排进各自的页,太大的帧(超过页边长的一半)仍然单独一张纹理
+ *    每块区域四周留1像素透明边,线性采样不会取到相邻帧的像素
+ *
+ * 超出预算时先按LRU淘汰单独的纹理,再整页回收最久没用的图集页;新开一页会超出预算时也先回收最久没用的一页
+ *
+ * 此对象属于OpenGL上下文,只能在渲染线程(GLEventListener回调)中使用,因此不做同步
+ */
+public class TextureCache {
+
+	/**
+	 * 缓存条目  帧在显存中的位置
+	 * 批量绘制器按纹理id和纹理坐标画四边形
+	 */
+	static class TextureEntry {
+		int textureId;
+		/**
+		 * 所在图集页  单独一张纹理时为null
+		 */
+		TextureAtlasPage page;
+		/**
+		 * 在图集页上的位置(不含透明边)  单独一张纹理时为0
+		 */
+		int x,y;
+		/**
+		 * 纹理坐标  左上角(u1,v1) 右下角(u2,v2)
+		 */
+		float u1,v1,u2,v2;
+		int width;
+		int height;
+		int imgVersion;
+		long bytes;
+		long lastUsedFrame;
+		boolean pinned;
+	}
+
+	/**
+	 * 显存预算(字节)
+	 */
+	private long budgetBytes;
+	/**
+	 * 多少帧没有使用过的纹理会被主动释放
+	 * 单位死亡后它的帧不会再被绘制,不主动释放会一直占着显存和堆内存直到被LRU挤掉
+	 */
+	private int maxIdleFrames;
+	/**
+	 * 图集页边长(像素)  为0时不用图集,每帧单独一张纹理
+	 */
+	private final int pageSize;
+	/**
+	 * 当前占用的显存(字节)  图集页按整页计算
+	 */
+	private long residentBytes = 0;
+	/**
+	 * 渲染帧计数
+	 */
+	private long frameNo = 0;
+	/**
+	 * accessOrder=true 即LRU顺序,最久未使用的在最前面
+	 */
+	private final LinkedHashMap<Object, TextureEntry> entries = new LinkedHashMap<>(512, 0.75f, true);
+	/**
+	 * 图集页  ARGB页和下标页
+	 */
+	private final List<TextureAtlasPage> argbPages = new ArrayList<>();
+	private final List<TextureAtlasPage> indexPages = new ArrayList<>();
+	/**
+	 * 上传时拼带透明边的像素  复用,避免每次上传分配数组
+	 */
+	private int[] paddedPixels = new int[0];
+	private byte[] paddedIndices = new byte[0];
+
+	/** 统计数据 */
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long reuploadCount = 0;
+	private long uploadBytes = 0;
+	private long evictCount = 0;
+	/**
+	 * 长时间不用而释放的纹理数  evictCount只统计超出预算的淘汰
+	 */
+	private long idleEvictCount = 0;
+	/**
+	 * 整页回收的次数
+	 */
+	private long pageReclaimCount = 0;
+
+	public TextureCache(long budgetBytes,int maxIdleFrames) {
+		this(budgetBytes, maxIdleFrames, 0);
+	}
+
+	/**
+	 * @param pageSize 图集页边长(像素)  为0时不用图集
+	 */
+	public TextureCache(long budgetBytes,int maxIdleFrames,int pageSize) {
+		this.budgetBytes = budgetBytes;
+		this.maxIdleFrames = maxIdleFrames;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * 每帧开始时调用
+	 * 推进帧计数并释放长时间不用的纹理
+	 */
+	public void beginFrame(GL2 gl) {
+		frameNo++;
+		Iterator<Map.Entry<Object, TextureEntry>> it = entries.entrySet().iterator();
+		while(it.hasNext()) {
+			TextureEntry entry = it.next().getValue();
+			if(frameNo-entry.lastUsedFrame<=maxIdleFrames) {
+				break;//后面的都是更近使用过的
+			}
+			if(!entry.pinned) {
+				it.remove();
+				deleteTexture(gl, entry);
+				idleEvictCount++;
+			}
+		}
+	}
+
+	/**
+	 * 获取帧在显存中的位置,不在显存中或已过期则上传
+	 * 发生上传时当前绑定的纹理会被改变,命中时不会产生任何OpenGL调用
+	 * 批量绘制时由调用方在提交前自行绑定纹理
+	 */
+	TextureEntry regionOf(GL2 gl,ShapeUnitFrame frame) {
+		BufferedImage image = frame.getImg();
+		int version = frame.getImgVersion();
+		TextureEntry entry = entries.get(frame);
+
+		if(entry!=null) {
+			if(entry.imgVersion!=version) {//图片被原地重绘过
+				if(entry.width==image.getWidth() && entry.height==image.getHeight()) {
+					gl.glBindTexture(GL2.GL_TEXTURE_2D, entry.textureId);
+					gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, entry.x, entry.y, entry.width, entry.height,
+							GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, pixelsOf(image));
+				}else {
+					deleteTexture(gl, entry);
+					placeImage(gl, entry, image);
+				}
+				entry.imgVersion = version;
+				uploadBytes += entry.bytes;
+				reuploadCount++;
+			}else {
+				hitCount++;
+			}
+			touch(entry, frame.isShouldBeLoadedToGpu());
+			return entry;
+		}
+
+		missCount++;
+		entry = new TextureEntry();
+		placeImage(gl, entry, image);
+		entry.imgVersion = version;
+		touch(entry, frame.isShouldBeLoadedToGpu());
+		uploadBytes += entry.bytes;
+		entries.put(frame, entry);
+
+		evictOverBudget(gl);
+		return entry;
+	}
+
+	/**
+	 * 获取调色盘索引帧的下标纹理在显存中的位置,不在显存中则上传
+	 * 下标纹理每像素1字节,必须用最近点采样,线性插值会把相邻的调色盘下标混在一起
+	 * 下标数组加载后不会改变,所以不需要版本检查
+	 */
+	TextureEntry indexRegionOf(GL2 gl,ShapeUnitFrame frame) {
+		byte[] indices = frame.getPaletteIndices();
+		TextureEntry entry = entries.get(indices);
+		if(entry!=null) {
+			hitCount++;
+			touch(entry, frame.isShouldBeLoadedToGpu());
+			return entry;
+		}
+
+		missCount++;
+		entry = new TextureEntry();
+		placeIndices(gl, entry, indices, frame.getWidth(), frame.getHeight());
+		touch(entry, frame.isShouldBeLoadedToGpu());
+		uploadBytes += entry.bytes;
+		entries.put(indices, entry);
+
+		evictOverBudget(gl);
+		return entry;
+	}
+
+	/**
+	 * 获取帧对应的纹理id,不在显存中或已过期则上传
+	 * 帧在图集页上时返回的是整页的纹理,纹理坐标见regionOf
+	 */
+	public int textureOf(GL2 gl,ShapeUnitFrame frame) {
+		return regionOf(gl, frame).textureId;
+	}
+
+	/**
+	 * 记录本帧使用过  常驻标记只会从无到有
+	 */
+	private void touch(TextureEntry entry,boolean pinned) {
+		entry.lastUsedFrame = frameNo;
+		if(pinned && !entry.pinned) {
+			entry.pinned = true;
+			if(entry.page!=null) {
+				entry.page.pinnedCount++;
+			}
+		}
+		if(entry.page!=null) {
+			entry.page.lastUsedFrame = frameNo;
+		}
+	}
+
+	/**
+	 * 把ARGB图片放进图集页  放不下时单独一张纹理
+	 */
+	private void placeImage(GL2 gl,TextureEntry entry,BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		TextureAtlasPage page = allocateRegion(gl, argbPages, false, width, height);
+		if(page==null) {
+			newStandaloneTexture(gl, entry, GL2.GL_LINEAR);
+			uploadImage(gl, entry, image);
+			return;
+		}
+		int paddedWidth = width+2;
+		int paddedHeight = height+2;
+		int length = paddedWidth*paddedHeight;
+		if(paddedPixels.length<length) {
+			paddedPixels = new int[length];
+		}
+		Arrays.fill(paddedPixels, 0, length, 0);
+		int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		for(int row=0;row<height;row++) {
+			System.arraycopy(pixels, row*width, paddedPixels, (row+1)*paddedWidth+1, width);
+		}
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, page.textureId);
+		gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, page.allocX, page.allocY, paddedWidth, paddedHeight,
+				GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, IntBuffer.wrap(paddedPixels, 0, length));
+		setRegion(entry, page, width, height);
+		entry.bytes = (long)width*height*4;
+	}
+
+	/**
+	 * 把调色盘下标放进下标图集页  放不下时单独一张纹理
+	 */
+	private void placeIndices(GL2 gl,TextureEntry entry,byte[] indices,int width,int height) {
+		TextureAtlasPage page = allocateRegion(gl, indexPages, true, width, height);
+		gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 1);//每行字节数不一定是4的倍数
+		if(page==null) {
+			newStandaloneTexture(gl, entry, GL2.GL_NEAREST);
+			entry.width = width;
+			entry.height = height;
+			entry.bytes = (long)width*height;
+			gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_LUMINANCE, width, height, 0,
+					GL2.GL_LUMINANCE, GL2.GL_UNSIGNED_BYTE, ByteBuffer.wrap(indices));
+			residentBytes += entry.bytes;
+		}else {
+			int paddedWidth = width+2;
+			int paddedHeight = height+2;
+			int length = paddedWidth*paddedHeight;
+			if(paddedIndices.length<length) {
+				paddedIndices = new byte[length];
+			}
+			Arrays.fill(paddedIndices, 0, length, (byte)0);//0号是透明色
+			for(int row=0;row<height;row++) {
+				System.arraycopy(indices, row*width, paddedIndices, (row+1)*paddedWidth+1, width);
+			}
+			gl.glBindTexture(GL2.GL_TEXTURE_2D, page.textureId);
+			gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, page.allocX, page.allocY, paddedWidth, paddedHeight,
+					GL2.GL_LUMINANCE, GL2.GL_UNSIGNED_BYTE, ByteBuffer.wrap(paddedIndices, 0, length));
+			setRegion(entry, page, width, height);
+			entry.bytes = (long)width*height;
+		}
+		gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 4);
+	}
+
+	/**
+	 * 在图集页里分配一块带透明边的区域
+	 * 已有的页都放不下时,新开一页会超出预算就先整页回收最久没用的一页,否则新开一页
+	 * @return 分到区域的页  太大的帧或不用图集时返回null
+	 */
+	private TextureAtlasPage allocateRegion(GL2 gl,List<TextureAtlasPage> pages,boolean indexed,int width,int height) {
+		if(pageSize<=0 || width>pageSize/2 || height>pageSize/2) {
+			return null;
+		}
+		for(TextureAtlasPage page:pages) {
+			if(page.allocate(width+2, height+2)) {
+				return page;
+			}
+		}
+		long pageBytes = (long)pageSize*pageSize*(indexed ? 1 : 4);
+		if(residentBytes+pageBytes>budgetBytes) {
+			TextureAtlasPage page = leastRecentlyUsedPage(pages);
+			if(page!=null) {
+				evictPage(gl, page, true);
+				if(page.allocate(width+2, height+2)) {
+					return page;
+				}
+			}
+		}
+		TextureAtlasPage page = newPage(gl, indexed);
+		pages.add(page);
+		page.allocate(width+2, height+2);
+		return page;
+	}
+
+	private TextureAtlasPage newPage(GL2 gl,boolean indexed) {
+		int[] textureIds = new int[1];
+		gl.glGenTextures(1, textureIds, 0);
+		TextureAtlasPage page = new TextureAtlasPage(textureIds[0], pageSize, indexed);
+		int filter = indexed ? GL2.GL_NEAREST : GL2.GL_LINEAR;
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, page.textureId);
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, filter);
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, filter);
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP_TO_EDGE);
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+		if(indexed) {
+			gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_LUMINANCE, pageSize, pageSize, 0,
+					GL2.GL_LUMINANCE, GL2.GL_UNSIGNED_BYTE, null);
+		}else {
+			gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, 4, pageSize, pageSize, 0,
+					GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, null);
+		}
+		residentBytes += page.bytes();
+		return page;
+	}
+
+	/**
+	 * 最久没用的一页  本帧用过的、有常驻帧的页不回收
+	 */
+	private TextureAtlasPage leastRecentlyUsedPage(List<TextureAtlasPage> pages) {
+		TextureAtlasPage oldest = null;
+		for(TextureAtlasPage page:pages) {
+			if(page.pinnedCount>0 || page.lastUsedFrame==frameNo) {
+				continue;
+			}
+			if(oldest==null || page.lastUsedFrame<oldest.lastUsedFrame) {
+				oldest = page;
+			}
+		}
+		return oldest;
+	}
+
+	/**
+	 * 淘汰一页上的所有帧
+	 * @param keep 是否保留这一页的纹理给新的帧使用  不保留时释放纹理
+	 */
+	private void evictPage(GL2 gl,TextureAtlasPage page,boolean keep) {
+		Iterator<TextureEntry> it = entries.values().iterator();
+		while(it.hasNext()) {
+			TextureEntry entry = it.next();
+			if(entry.page==page) {
+				it.remove();
+				entry.page = null;
+				evictCount++;
+			}
+		}
+		page.reset();
+		pageReclaimCount++;
+		if(!keep) {
+			deletePage(gl, page);
+		}
+	}
+
+	private void deletePage(GL2 gl,TextureAtlasPage page) {
+		gl.glDeleteTextures(1, new int[] {page.textureId}, 0);
+		residentBytes -= page.bytes();
+		(page.indexed ? indexPages : argbPages).remove(page);
+	}
+
+	private void setRegion(TextureEntry entry,TextureAtlasPage page,int width,int height) {
+		float size = pageSize;
+		entry.page = page;
+		entry.textureId = page.textureId;
+		entry.width = width;
+		entry.height = height;
+		entry.x = page.allocX+1;
+		entry.y = page.allocY+1;
+		entry.u1 = entry.x/size;
+		entry.v1 = entry.y/size;
+		entry.u2 = (entry.x+width)/size;
+		entry.v2 = (entry.y+height)/size;
+		if(entry.pinned) {
+			page.pinnedCount++;
+		}
+	}
+
+	private void newStandaloneTexture(GL2 gl,TextureEntry entry,int filter) {
+		int[] textureIds = new int[1];
+		gl.glGenTextures(1, textureIds, 0);
+		entry.page = null;
+		entry.textureId = textureIds[0];
+		entry.x = 0;
+		entry.y = 0;
+		entry.u1 = 0f;
+		entry.v1 = 0f;
+		entry.u2 = 1f;
+		entry.v2 = 1f;
+		gl.glBindTexture(GL2.GL_TEXTURE_2D, entry.textureId);
+		//设置滤波 只能在glBindTexture之后调用  纹理对象会记住这个设置,所以只需设置一次
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, filter);
+		gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, filter);
+	}
+
+	/**
+	 * 主动释放一帧的纹理
+	 */
+	public void release(GL2 gl,ShapeUnitFrame frame) {
+		TextureEntry entry = entries.remove(frame);
+		if(entry!=null) {
+			deleteTexture(gl, entry);
+		}
+	}
+
+	/**
+	 * 释放全部纹理
+	 * OpenGL上下文销毁时调用
+	 */
+	public void releaseAll(GL2 gl) {
+		for(TextureEntry entry:entries.values()) {
+			if(entry.page==null) {
+				deleteTexture(gl, entry);
+			}
+		}
+		entries.clear();
+		while(!argbPages.isEmpty()) {
+			deletePage(gl, argbPages.get(0));
+		}
+		while(!indexPages.isEmpty()) {
+			deletePage(gl, indexPages.get(0));
+		}
+	}
+
+	/**
+	 * 超出显存预算时先按LRU淘汰单独的纹理,仍然超出就整页回收最久没用的图集页
+	 * 常驻纹理(鼠标、建造方块)不淘汰
+	 * 图集页上单个帧淘汰了也腾不出显存,所以图集页只整页回收
+	 */
+	private void evictOverBudget(GL2 gl) {
+		if(residentBytes<=budgetBytes) {
+			return;
+		}
+		Iterator<TextureEntry> it = entries.values().iterator();
+		while(residentBytes>budgetBytes && it.hasNext()) {
+			TextureEntry entry = it.next();
+			if(entry.page!=null || entry.pinned || entry.lastUsedFrame==frameNo) {
+				continue;//本帧刚用过的也不淘汰,否则同一帧内会反复上传
+			}
+			it.remove();
+			deleteTexture(gl, entry);
+			evictCount++;
+		}
+		while(residentBytes>budgetBytes) {
+			TextureAtlasPage argb = leastRecentlyUsedPage(argbPages);
+			TextureAtlasPage index = leastRecentlyUsedPage(indexPages);
+			TextureAtlasPage page = argb==null || (index!=null && index.lastUsedFrame<argb.lastUsedFrame) ? index : argb;
+			if(page==null) {
+				break;
+			}
+			evictPage(gl, page, false);
+		}
+	}
+
+	private void uploadImage(GL2 gl,TextureEntry entry,BufferedImage image) {
+		entry.width = image.getWidth();
+		entry.height = image.getHeight();
+		entry.bytes = (long)entry.width*entry.height*4;
+		gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, 4, entry.width, entry.height, 0,
+				GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, pixelsOf(image));
+		residentBytes += entry.bytes;
+	}
+
+	/**
+	 * 释放一个条目占用的显存
+	 * 单独的纹理直接删除;图集页上的帧只减少页上的帧数,整页都空了才删除这一页
+	 */
+	private void deleteTexture(GL2 gl,TextureEntry entry) {
+		TextureAtlasPage page = entry.page;
+		if(page==null) {
+			gl.glDeleteTextures(1, new int[] {entry.textureId}, 0);
+			residentBytes -= entry.bytes;
+			return;
+		}
+		entry.page = null;
+		page.liveCount--;
+		if(entry.pinned) {
+			page.pinnedCount--;
+		}
+		if(page.liveCount==0) {
+			page.reset();
+			deletePage(gl, page);
+		}
+	}
+
+	private static IntBuffer pixelsOf(BufferedImage image) {
+		DataBufferInt dataBuffer = (DataBufferInt) image.getRaster().getDataBuffer();
+		return IntBuffer.wrap(dataBuffer.getData());
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+	public long getMissCount() {
+		return missCount;
+	}
+	public long getReuploadCount() {
+		return reuploadCount;
+	}
+	public long getUploadBytes() {
+		return uploadBytes;
+	}
+	public long getEvictCount() {
+		return evictCount;
+	}
+	public long getIdleEvictCount() {
+		return idleEvictCount;
+	}
+	public long getPageReclaimCount() {
+		return pageReclaimCount;
+	}
+	public long getResidentBytes() {
+		return residentBytes;
+	}
+	public int getResidentCount() {
+		return entries.size();
+	}
+	/**
+	 * 图集页数  ARGB页和下标页合计
+	 */
+	public int getPageCount() {
+		return argbPages.size()+indexPages.size();
+	}
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+	public void setBudgetBytes(long budgetBytes) {
+		this.budgetBytes = budgetBytes;
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public String getStatistics() {
+		long total = hitCount+missCount+reuploadCount;
+		double hitRatio = total==0 ? 0.0 : (double)hitCount/total*100;
+		return String.format(
+			"纹理缓存: 常驻=%d (%.1f/%.1f MB), 图集页=%d, 命中=%d (%.1f%%), 未命中=%d, 重传=%d, 上传=%.1f MB, 淘汰=%d, 空闲释放=%d, 整页回收=%d",
+			entries.size(),
+			residentBytes/1048576.0,
+			budgetBytes/1048576.0,
+			getPageCount(),
+			hitCount,
+			hitRatio,
+			missCount,
+			reuploadCount,
+			uploadBytes/1048576.0,
+			evictCount,
+			idleEvictCount,
+			pageReclaimCount
+		);
+	}
+
+	/**
+	 * 重置统计
+	 */
+	public void resetStatistics() {
+		hitCount = 0;
+		missCount = 0;
+		reuploadCount = 0;
+		uploadBytes = 0;
+		evictCount = 0;
+		idleEvictCount = 0;
+		pageReclaimCount = 0;
+	}
+}
@@ -0,0 +1,54 @@
+package redAlert.utils;
+
+/**
+ * 按整数编号记录的已访问标记
+ *
+ * 每次搜索开始时调用begin把代数加一,之前的标记就都失效了,不用逐个清除,也不用每次新建与地图一样大的数组
+ * 就近找空位(PointUtil.findVehicleCanOnCpNearBy等)每次只访问起点附近的少量点,大地图上新建数组的开销比搜索本身还大
+ *
+ * 不是线程安全的  每个线程用自己的一份(见forThread)
+ */
+public class VisitMarks {
+
+	private final int[] marks;
+	private int stamp = 0;
+
+	public VisitMarks(int capacity) {
+		marks = new int[capacity];
+	}
+
+	/**
+	 * 开始一次新的搜索
+	 */
+	public VisitMarks begin() {
+		stamp++;
+		if(stamp==Integer.MAX_VALUE) {
+			java.util.Arrays.fill(marks, 0);
+			stamp = 1;
+		}
+		return this;
+	}
+
+	/**
+	 * 记为已访问  本次搜索中之前没访问过时返回true  编号小于0时返回false
+	 */
+	public boolean mark(int id) {
+		if(id<0 || marks[id]==stamp) {
+			return false;
+		}
+		marks[id] = stamp;
+		return true;
+	}
+
+	/**
+	 * 每个线程一份的标记
+	 */
+	public static ThreadLocal<VisitMarks> forThread(final int capacity) {
+		return new ThreadLocal<VisitMarks>() {
+			@Override
+			protected VisitMarks initialValue() {
+				return new VisitMarks(capacity);
+			}
+		};
+	}
+}